@@ -0,0 +1,169 @@
+package msg;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many senders may send at once, adapting the limit to how the
+ * downstream gateway is doing. The limit follows additive increase,
+ * multiplicative decrease (AIMD). Every healthy send raises it by 1/limit, so
+ * it grows by about one per round of sends. A send that is slower than the
+ * latency target, or that fails while the recent failure ratio is above the
+ * tolerance, cuts it by a fixed ratio, but only if the send started after the
+ * last cut. Sends that were already in flight when the limit was cut saw the
+ * same trouble, so a spike cuts the limit once per round rather than once per
+ * send. Senders over the limit wait rather than pull more work, and a
+ * {@link CircuitBreaker} is checked first so that no sends go out at all while
+ * the downstream is unhealthy. Waiting uses a lock rather than a monitor, so
+ * virtual sender threads do not pin their carriers while they wait.
+ */
+public class AdaptiveLimiter {
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetMillis;
+    private final double failureTolerance;
+    private final CircuitBreaker breaker;
+    private final MessageStats stats;
+    private final Lock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private long lastCutNanos;
+
+    /**
+     * Constructs a new limiter that starts at the maximum limit.
+     *
+     * @param minLimit The lowest the limit can go
+     * @param maxLimit The highest the limit can go
+     * @param latencyTargetMillis Sends slower than this lower the limit
+     * @param failureTolerance The recent failure ratio above which failures lower the limit
+     * @param breaker The circuit breaker checked before every send
+     * @param stats Shared instance of the stats, to which the limit is reported
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    public AdaptiveLimiter(int minLimit, int maxLimit, long latencyTargetMillis, double failureTolerance,
+                           CircuitBreaker breaker, MessageStats stats) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < minLimit <= maxLimit");
+        }
+        if (latencyTargetMillis <= 0) {
+            throw new IllegalArgumentException("latencyTargetMillis must be positive");
+        }
+        if (failureTolerance < 0.0 || failureTolerance > 1.0) {
+            throw new IllegalArgumentException("failureTolerance must be between 0.0 and 1.0");
+        }
+        if (breaker == null) {
+            throw new IllegalArgumentException("breaker cannot be null");
+        }
+        if (stats == null) {
+            throw new IllegalArgumentException("stats cannot be null");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetMillis = latencyTargetMillis;
+        this.failureTolerance = failureTolerance;
+        this.breaker = breaker;
+        this.stats = stats;
+        this.limit = maxLimit;
+        // No send has started before the first cut
+        this.lastCutNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+        stats.recordConcurrencyLimit(maxLimit);
+    }
+
+    /**
+     * Waits until the circuit breaker allows a send and the number of sends in
+     * progress is below the limit.
+     *
+     * @return The circuit breaker's permit, to pass to {@link #release(long, boolean, long)}
+     *         or {@link #cancel(long)}
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public long acquire() throws InterruptedException {
+        long permit = breaker.acquire();
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                slotFreed.await();
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            breaker.cancel(permit);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+        return permit;
+    }
+
+    /**
+     * Records the outcome of a send started after {@link #acquire()} and adjusts the
+     * limit. A slow or failed send that started before the last cut does not cut again.
+     *
+     * @param permit The permit returned by {@link #acquire()} for the send
+     * @param failed true if the send failed, false otherwise
+     * @param latencyMillis How long the send took in milliseconds
+     */
+    public void release(long permit, boolean failed, long latencyMillis) {
+        breaker.onResult(permit, failed);
+        long now = System.nanoTime();
+        // The latency is in whole milliseconds, so place the start a millisecond
+        // early to be sure a send in flight at the last cut counts as started before it
+        long startNanos = now - TimeUnit.MILLISECONDS.toNanos(latencyMillis + 1);
+        lock.lock();
+        try {
+            inFlight--;
+            int previous = (int) limit;
+            if (latencyMillis > latencyTargetMillis
+                    || (failed && breaker.getFailureRatio() > failureTolerance)) {
+                if (startNanos - lastCutNanos > 0) {
+                    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                    lastCutNanos = now;
+                }
+            } else if (!failed) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            stats.recordConcurrencyLimit((int) limit);
+            if ((int) limit > previous) {
+                slotFreed.signalAll();
+            } else {
+                slotFreed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a slot from {@link #acquire()} that was not used for a send.
+     *
+     * @param permit The permit returned by {@link #acquire()} for the slot
+     */
+    public void cancel(long permit) {
+        breaker.cancel(permit);
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current concurrency limit.
+     *
+     * @return The number of sends allowed at once
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
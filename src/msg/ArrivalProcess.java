@@ -0,0 +1,18 @@
+package msg;
+
+/**
+ * Interface for models of when messages arrive. An arrival process decides
+ * the arrival times up front, independent of how fast the system takes the
+ * messages, so a producer driven by one keeps offering load when the system
+ * falls behind instead of slowing down with it (an open-loop workload).
+ */
+public interface ArrivalProcess {
+  /**
+   * Returns the time of the arrival after the given one.
+   *
+   * @param previousArrival The time of the previous arrival in nanoseconds since
+   *        the start of the run, or 0 for the first arrival
+   * @return The time of the next arrival in nanoseconds since the start of the run
+   */
+  long nextArrival(long previousArrival);
+}
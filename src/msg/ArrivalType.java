@@ -0,0 +1,13 @@
+package msg;
+
+/**
+ * The open-loop arrival processes a producer can follow.
+ */
+public enum ArrivalType {
+    /** {@link PoissonArrivals} at a constant average rate. */
+    POISSON,
+    /** {@link BurstyArrivals} alternating between bursts and pauses. */
+    BURSTY,
+    /** {@link DiurnalArrivals} following a compressed daily cycle. */
+    DIURNAL
+}
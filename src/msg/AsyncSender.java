@@ -0,0 +1,264 @@
+package msg;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A sender that models a pipelined gateway connection. Sends are asynchronous:
+ * each one is completed by a shared {@link HashedWheelTimer} after its simulated
+ * delay, and up to maxInFlight sends can be outstanding at once. The sender takes
+ * a permit before pulling a message from the queue, so when all its sends are
+ * outstanding the messages stay queued rather than piling up in the sender.
+ */
+public class AsyncSender implements Runnable, IAsyncSender {
+
+    private final IMessageQueue messageQueue;
+    private final String senderId;
+    private final double failureRate;
+    private final ServiceTimeModel serviceTime;
+    private final MessageStats stats;
+    private final HashedWheelTimer timer;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final RetryScheduler retries;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor for the async sender
+     * @param messageQueue Shared message queue instance
+     * @param senderId  Generated ID of this sender
+     * @param failureRate   Rate with which the message may fail
+     * @param meanDelay mean of the delay distribution
+     * @param stats Shared instance of the stats
+     * @param timer Shared, started timer on which sends complete
+     * @param maxInFlight Maximum number of sends outstanding at once
+     */
+    public AsyncSender(IMessageQueue messageQueue, String senderId, double failureRate,
+                       int meanDelay, MessageStats stats, HashedWheelTimer timer, int maxInFlight) {
+        this(builder(messageQueue, senderId, failureRate, new UniformServiceTime(meanDelay), stats, timer,
+            maxInFlight));
+    }
+
+    /**
+     * Helper constructor that takes its settings from a builder
+     */
+    private AsyncSender(Builder builder) {
+        validateArguments(builder.messageQueue, builder.senderId, builder.failureRate, builder.serviceTime,
+            builder.stats, builder.timer, builder.maxInFlight);
+        this.messageQueue = builder.messageQueue;
+        this.senderId = builder.senderId;
+        this.failureRate = builder.failureRate;
+        this.serviceTime = builder.serviceTime;
+        this.stats = builder.stats;
+        this.timer = builder.timer;
+        this.maxInFlight = builder.maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+        this.retries = builder.retries;
+    }
+
+    /**
+     * Returns a builder for an async sender whose send durations follow the given model.
+     * Unless a retry scheduler is given, failures are recorded as final.
+     * @param messageQueue Shared message queue instance
+     * @param senderId  Generated ID of this sender
+     * @param failureRate   Rate with which the message may fail
+     * @param serviceTime Shared model of the send duration
+     * @param stats Shared instance of the stats
+     * @param timer Shared, started timer on which sends complete
+     * @param maxInFlight Maximum number of sends outstanding at once
+     * @return A new builder
+     */
+    public static Builder builder(IMessageQueue messageQueue, String senderId, double failureRate,
+                                  ServiceTimeModel serviceTime, MessageStats stats, HashedWheelTimer timer,
+                                  int maxInFlight) {
+        return new Builder(messageQueue, senderId, failureRate, serviceTime, stats, timer, maxInFlight);
+    }
+
+    /**
+     * Collects the optional settings of an async sender
+     */
+    public static class Builder {
+        private final IMessageQueue messageQueue;
+        private final String senderId;
+        private final double failureRate;
+        private final ServiceTimeModel serviceTime;
+        private final MessageStats stats;
+        private final HashedWheelTimer timer;
+        private final int maxInFlight;
+        private RetryScheduler retries;
+
+        private Builder(IMessageQueue messageQueue, String senderId, double failureRate,
+                        ServiceTimeModel serviceTime, MessageStats stats, HashedWheelTimer timer, int maxInFlight) {
+            this.messageQueue = messageQueue;
+            this.senderId = senderId;
+            this.failureRate = failureRate;
+            this.serviceTime = serviceTime;
+            this.stats = stats;
+            this.timer = timer;
+            this.maxInFlight = maxInFlight;
+        }
+
+        /**
+         * Sets the retry scheduler to which failed messages are handed
+         * @param retries Shared retry scheduler, or null to record failures as final
+         * @return This builder
+         */
+        public Builder retries(RetryScheduler retries) {
+            this.retries = retries;
+            return this;
+        }
+
+        /**
+         * Builds the async sender
+         * @return A new async sender with these settings
+         * @throws IllegalArgumentException if any of the builder's arguments is invalid
+         */
+        public AsyncSender build() {
+            return new AsyncSender(this);
+        }
+    }
+
+    /**
+     * Dequeues messages whenever a send slot is free and starts sending them
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                // Only take a message off the queue once there is room to send it
+                permits.acquire();
+                Message message;
+                try {
+                    message = messageQueue.remove();
+                } catch (InterruptedException e) {
+                    permits.release();
+                    throw e;
+                }
+                message.markDequeued();
+                dispatch(message);
+            } catch (InterruptedException e) {
+                // If Interrupt signal received then stop this thread and set running to false
+                Thread.currentThread().interrupt();
+                stop();
+            }
+        }
+    }
+
+    /**
+     * Starts sending a message, waiting first if all send slots are in use
+     *
+     * @param message The message to send
+     * @return A future that completes with the outcome of this attempt once it has finished
+     * @throws InterruptedException if interrupted while waiting for a send slot
+     */
+    @Override
+    public CompletableFuture<SendResult> sendAsync(Message message) throws InterruptedException {
+        if (message == null) {
+            throw new IllegalArgumentException("message cannot be null");
+        }
+        permits.acquire();
+        return dispatch(message);
+    }
+
+    /**
+     * Returns the ID of this sender
+     *
+     * @return The sender ID
+     */
+    public String getSenderId() {
+        return senderId;
+    }
+
+    /**
+     * Returns the maximum number of sends outstanding at once
+     *
+     * @return The in-flight limit
+     */
+    @Override
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Returns the number of sends currently outstanding
+     *
+     * @return The number of in-flight sends
+     */
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * Sets the running flag to false
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Helper method that schedules the completion of a send whose permit is already held
+     */
+    private CompletableFuture<SendResult> dispatch(Message message) {
+        Random random = ThreadLocalRandom.current();
+        // Same service time model as the blocking Sender
+        long delay = serviceTime.nextServiceTime(random);
+        boolean failed = random.nextDouble() < failureRate;
+
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        message.markSendStarted();
+        timer.schedule(() -> {
+            message.markCompleted();
+            message.incrementAttempts();
+            message.setFailed(failed);
+            message.setSentTime(System.currentTimeMillis());
+            // Copy the outcome out first, since the message may be reused or sent again
+            // before the future's caller gets to read it
+            SendResult result = new SendResult(message.getMessageId(), failed, message.getAttempts(),
+                message.getCompletedNanos() - message.getSendStartNanos());
+            boolean retry = retries != null && retries.shouldRetry(message);
+            if (!retry) {
+                stats.record(message);
+            }
+            permits.release();
+            future.complete(result);
+            if (retry) {
+                retries.retry(message);
+            } else {
+                message.recycle();
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    /**
+     * Helper method to validate constructor arguments
+     */
+    private void validateArguments(IMessageQueue messageQueue, String senderId, double failureRate,
+                                   ServiceTimeModel serviceTime, MessageStats stats, HashedWheelTimer timer,
+                                   int maxInFlight) {
+        if (messageQueue == null) {
+            throw new IllegalArgumentException("messageQueue cannot be null");
+        }
+        if (senderId == null || senderId.trim().isEmpty()) {
+            throw new IllegalArgumentException("senderId cannot be null or empty");
+        }
+        if (failureRate < 0.0 || failureRate >= 1.0) {
+            throw new IllegalArgumentException("failureRate must be between 0.0 and 1.0 excluding 1.0");
+        }
+        if (serviceTime == null) {
+            throw new IllegalArgumentException("serviceTime cannot be null");
+        }
+        if (stats == null) {
+            throw new IllegalArgumentException("stats cannot be null");
+        }
+        if (timer == null) {
+            throw new IllegalArgumentException("timer cannot be null");
+        }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package msg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Searches for the cheapest configuration that serves a target arrival rate
+ * within a latency objective, such as a p99 of 200 ms. Messages arrive open-loop
+ * at the target rate, and the tuner measures one configuration at a time:
+ * <ol>
+ * <li>It doubles the sender count, starting from the count the offered load
+ * needs, until the objective is met, and then bisects down to the fewest
+ * senders that meet it, with a queue large enough never to hold arrivals back.</li>
+ * <li>With that many senders it bisects the queue capacity down to the smallest
+ * that still meets the objective while holding arrivals back for no more than
+ * the full queue wait tolerance on average.</li>
+ * </ol>
+ * Both searches assume latency does not get worse as senders or capacity are
+ * added, which holds for a deterministic discrete-event simulation but only
+ * roughly for noisy real-time runs.
+ * Finally it measures the throughput curve at sender counts around the choice.
+ */
+public class AutoTuner {
+    private static final double[] CURVE_FACTORS = {0.5, 0.75, 1.0, 1.25, 1.5, 2.0};
+
+    private final Supplier<SimulationOptions> options;
+    private final int messageCount;
+    private final double failureRate;
+    private final int meanDelay;
+    private final double arrivalRate;
+    private final double objectiveMillis;
+    private double percentile = 99;
+    private int senderLimit = 1024;
+    private double fullQueueWaitToleranceMillis = 1.0;
+
+    /**
+     * Constructs a new tuner for a p99 latency objective.
+     *
+     * @param options Creates the options of each measured configuration, such as the
+     *        execution mode and service time model. The production mode and rate
+     *        are set by the tuner.
+     * @param messageCount The number of messages in each measurement
+     * @param failureRate The probability (0.0 to 1.0) that a message send will fail
+     * @param meanDelay The mean send delay in milliseconds
+     * @param arrivalRate The target number of arriving messages per second
+     * @param objectiveMillis The latency objective in milliseconds
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    public AutoTuner(Supplier<SimulationOptions> options, int messageCount, double failureRate, int meanDelay,
+                     double arrivalRate, double objectiveMillis) {
+        if (options == null) {
+            throw new IllegalArgumentException("options cannot be null");
+        }
+        if (messageCount <= 0) {
+            throw new IllegalArgumentException("messageCount must be positive");
+        }
+        if (failureRate < 0.0 || failureRate >= 1.0) {
+            throw new IllegalArgumentException("failureRate must be between 0.0 and 1.0 excluding 1.0");
+        }
+        if (meanDelay <= 0) {
+            throw new IllegalArgumentException("meanDelay must be positive");
+        }
+        if (!(arrivalRate > 0)) {
+            throw new IllegalArgumentException("arrivalRate must be positive");
+        }
+        if (!(objectiveMillis > 0)) {
+            throw new IllegalArgumentException("objectiveMillis must be positive");
+        }
+        this.options = options;
+        this.messageCount = messageCount;
+        this.failureRate = failureRate;
+        this.meanDelay = meanDelay;
+        this.arrivalRate = arrivalRate;
+        this.objectiveMillis = objectiveMillis;
+    }
+
+    /**
+     * Sets the latency percentile the objective applies to.
+     *
+     * @param percentile The percentile, from 0.0 to 100.0
+     * @return This tuner
+     */
+    public AutoTuner percentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("percentile must be between 0.0 and 100.0");
+        }
+        this.percentile = percentile;
+        return this;
+    }
+
+    /**
+     * Sets the largest sender count the search tries before giving up.
+     *
+     * @param senderLimit The largest sender count
+     * @return This tuner
+     */
+    public AutoTuner senderLimit(int senderLimit) {
+        if (senderLimit <= 0) {
+            throw new IllegalArgumentException("senderLimit must be positive");
+        }
+        this.senderLimit = senderLimit;
+        return this;
+    }
+
+    /**
+     * Sets how long on average arrivals may be held back waiting for space in a full
+     * queue before a queue capacity is considered too small.
+     *
+     * @param fullQueueWaitToleranceMillis The tolerated average full queue wait in milliseconds
+     * @return This tuner
+     */
+    public AutoTuner fullQueueWaitToleranceMillis(double fullQueueWaitToleranceMillis) {
+        if (fullQueueWaitToleranceMillis < 0) {
+            throw new IllegalArgumentException("fullQueueWaitToleranceMillis cannot be negative");
+        }
+        this.fullQueueWaitToleranceMillis = fullQueueWaitToleranceMillis;
+        return this;
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @return The cheapest configuration found, the measurements taken and the throughput curve
+     * @throws InterruptedException if the thread is interrupted while measuring
+     */
+    public TuningResult tune() throws InterruptedException {
+        List<SweepResult> evaluated = new ArrayList<>();
+        // A queue that holds every message never holds arrivals back
+        int unbounded = messageCount;
+
+        // Grow the sender count from what the offered load needs until the objective is met
+        double serviceMillis = options.get().createServiceTimeModel(meanDelay).getMean();
+        int missed = 0;
+        int met = Math.min(senderLimit, Math.max(1, (int) Math.ceil(arrivalRate * serviceMillis / 1000)));
+        SweepResult best = measure(met, unbounded, evaluated);
+        while (!meetsObjective(best)) {
+            if (met == senderLimit) {
+                return new TuningResult(percentile, objectiveMillis, null, evaluated, new ArrayList<>());
+            }
+            missed = met;
+            met = Math.min(senderLimit, met * 2);
+            best = measure(met, unbounded, evaluated);
+        }
+
+        // Bisect down to the fewest senders that meet it
+        while (met - missed > 1) {
+            int senders = (missed + met) >>> 1;
+            SweepResult result = measure(senders, unbounded, evaluated);
+            if (meetsObjective(result)) {
+                met = senders;
+                best = result;
+            } else {
+                missed = senders;
+            }
+        }
+
+        // Then bisect down to the smallest queue that does not hold arrivals back
+        int tooSmall = 0;
+        int enough = unbounded;
+        while (enough - tooSmall > 1) {
+            int capacity = (tooSmall + enough) >>> 1;
+            SweepResult result = measure(met, capacity, evaluated);
+            if (meetsObjective(result) && result.getAverageFullQueueWait() <= fullQueueWaitToleranceMillis) {
+                enough = capacity;
+                best = result;
+            } else {
+                tooSmall = capacity;
+            }
+        }
+        return new TuningResult(percentile, objectiveMillis, best, evaluated, measureCurve(met, enough));
+    }
+
+    /**
+     * Helper method that checks a measured configuration against the objective.
+     */
+    private boolean meetsObjective(SweepResult result) {
+        return result.getLatencyPercentile(percentile) <= objectiveMillis;
+    }
+
+    /**
+     * Helper method that measures one configuration and adds it to the measurements.
+     */
+    private SweepResult measure(int senders, int capacity, List<SweepResult> evaluated)
+            throws InterruptedException {
+        SweepResult result = sweep().senderCounts(senders).queueCapacities(capacity).parallelism(1).run().get(0);
+        evaluated.add(result);
+        return result;
+    }
+
+    /**
+     * Helper method that measures sender counts around the chosen one side by side.
+     */
+    private List<SweepResult> measureCurve(int senders, int capacity) throws InterruptedException {
+        TreeSet<Integer> counts = new TreeSet<>();
+        for (double factor : CURVE_FACTORS) {
+            counts.add(Math.max(1, (int) Math.round(senders * factor)));
+        }
+        return sweep().senderCounts(counts.stream().mapToInt(Integer::intValue).toArray())
+            .queueCapacities(capacity).run();
+    }
+
+    /**
+     * Helper method that starts a sweep of the tuner's workload at the target arrival rate.
+     */
+    private ParameterSweep sweep() {
+        double[] percentiles = percentile == 50 ? new double[] {50} : new double[] {50, percentile};
+        return new ParameterSweep(() -> options.get().productionMode(ProductionMode.OPEN_LOOP)
+            .productionRate(arrivalRate).percentiles(percentiles))
+            .messageCounts(messageCount).failureRates(failureRate).meanDelays(meanDelay);
+    }
+
+    /**
+     * Runs the tuner from the command line. {@code --rate} is the target arrival rate
+     * per second and {@code --slo-ms} the latency objective. {@code --messages},
+     * {@code --failure-rate}, {@code --delay}, {@code --percentile},
+     * {@code --sender-limit} and {@code --full-queue-tolerance-ms} refine the search.
+     * Any other {@code --name=value} option is passed on to every simulation.
+     *
+     * @param args The command line arguments
+     * @throws InterruptedException if the search is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        try {
+            List<String> simulationArgs = new ArrayList<>();
+            double rate = 0;
+            double objective = 0;
+            int messages = 10000;
+            double failureRate = 0.0;
+            int delay = 100;
+            Double percentile = null;
+            Integer senderLimit = null;
+            Double tolerance = null;
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Options must be --name=value, got " + arg);
+                }
+                String value = arg.substring(equals + 1);
+                switch (arg.substring(2, equals)) {
+                    case "rate":
+                        rate = Double.parseDouble(value);
+                        break;
+                    case "slo-ms":
+                        objective = Double.parseDouble(value);
+                        break;
+                    case "messages":
+                        messages = Integer.parseInt(value);
+                        break;
+                    case "failure-rate":
+                        failureRate = Double.parseDouble(value);
+                        break;
+                    case "delay":
+                        delay = Integer.parseInt(value);
+                        break;
+                    case "percentile":
+                        percentile = Double.parseDouble(value);
+                        break;
+                    case "sender-limit":
+                        senderLimit = Integer.parseInt(value);
+                        break;
+                    case "full-queue-tolerance-ms":
+                        tolerance = Double.parseDouble(value);
+                        break;
+                    default:
+                        simulationArgs.add(arg);
+                        break;
+                }
+            }
+            // Reject bad simulation options before starting any run
+            SimulationOptions.fromArgs(simulationArgs.toArray(new String[0]), 0);
+
+            AutoTuner tuner = new AutoTuner(() -> SimulationOptions.fromArgs(
+                simulationArgs.toArray(new String[0]), 0), messages, failureRate, delay, rate, objective);
+            if (percentile != null) {
+                tuner.percentile(percentile);
+            }
+            if (senderLimit != null) {
+                tuner.senderLimit(senderLimit);
+            }
+            if (tolerance != null) {
+                tuner.fullQueueWaitToleranceMillis(tolerance);
+            }
+            System.out.println(tuner.tune());
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Invalid number format in arguments");
+            System.exit(1);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package msg;
+
+/**
+ * Grows and shrinks a {@link SenderPool} to follow the load. At every interval
+ * it looks at the queue depth and at the average processing time of the
+ * messages completed since the last look. The pool is overloaded when more
+ * messages are waiting than there are senders or when messages take longer
+ * than the latency target, and idle when the queue is empty and messages take
+ * less than half the target. The pool only changes size after the same
+ * condition has been seen for several intervals in a row, so it does not flap
+ * around a boundary. It grows by half its size at a time to absorb bursts
+ * quickly and shrinks by one sender at a time.
+ */
+public class Autoscaler implements Runnable {
+    private final SenderPool pool;
+    private final IMessageQueue messageQueue;
+    private final MessageStats stats;
+    private final int minSenders;
+    private final int maxSenders;
+    private final long latencyTargetMillis;
+    private final long intervalMillis;
+    private final int samples;
+    private int overloadedSamples;
+    private int idleSamples;
+    private long lastCompleted;
+    private long lastProcessingTime;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new autoscaler.
+     *
+     * @param pool The pool of senders to resize
+     * @param messageQueue The queue whose depth is watched
+     * @param stats Shared instance of the stats, from which latency is read and to
+     *        which the pool size is reported
+     * @param minSenders The smallest the pool can get
+     * @param maxSenders The largest the pool can get
+     * @param latencyTargetMillis The average processing time the pool should stay under
+     * @param intervalMillis The time between looks at the load
+     * @param samples The number of intervals in a row a condition must hold before resizing
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    public Autoscaler(SenderPool pool, IMessageQueue messageQueue, MessageStats stats, int minSenders,
+                      int maxSenders, long latencyTargetMillis, long intervalMillis, int samples) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool cannot be null");
+        }
+        if (messageQueue == null) {
+            throw new IllegalArgumentException("messageQueue cannot be null");
+        }
+        if (stats == null) {
+            throw new IllegalArgumentException("stats cannot be null");
+        }
+        if (minSenders <= 0 || maxSenders < minSenders) {
+            throw new IllegalArgumentException("Sender bounds must satisfy 0 < minSenders <= maxSenders");
+        }
+        if (latencyTargetMillis <= 0) {
+            throw new IllegalArgumentException("latencyTargetMillis must be positive");
+        }
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive");
+        }
+        if (samples <= 0) {
+            throw new IllegalArgumentException("samples must be positive");
+        }
+        this.pool = pool;
+        this.messageQueue = messageQueue;
+        this.stats = stats;
+        this.minSenders = minSenders;
+        this.maxSenders = maxSenders;
+        this.latencyTargetMillis = latencyTargetMillis;
+        this.intervalMillis = intervalMillis;
+        this.samples = samples;
+        stats.recordSenderCount(pool.size());
+    }
+
+    /**
+     * Looks at the load once per interval and resizes the pool when needed
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Thread.sleep(intervalMillis);
+                evaluate();
+            } catch (InterruptedException e) {
+                // If Interrupt signal received then stop this thread and set running to false
+                Thread.currentThread().interrupt();
+                stop();
+            }
+        }
+    }
+
+    /**
+     * Takes one look at the load and resizes the pool if the same condition has
+     * now held for enough intervals in a row.
+     */
+    public void evaluate() {
+        int depth = messageQueue.size();
+        long completed = stats.getSentCount() + stats.getFailedCount();
+        long processingTime = stats.getTotalProcessingTime();
+        long intervalCompleted = completed - lastCompleted;
+        double latency = intervalCompleted > 0
+            ? (processingTime - lastProcessingTime) / (double) intervalCompleted : 0;
+        lastCompleted = completed;
+        lastProcessingTime = processingTime;
+
+        int size = pool.size();
+        if (depth > size || latency > latencyTargetMillis) {
+            overloadedSamples++;
+            idleSamples = 0;
+        } else if (depth == 0 && latency <= latencyTargetMillis / 2.0) {
+            idleSamples++;
+            overloadedSamples = 0;
+        } else {
+            overloadedSamples = 0;
+            idleSamples = 0;
+        }
+
+        if (overloadedSamples >= samples && size < maxSenders) {
+            pool.grow(Math.min(maxSenders - size, Math.max(1, size / 2)));
+            overloadedSamples = 0;
+        } else if (idleSamples >= samples && size > minSenders) {
+            pool.shrink(1);
+            idleSamples = 0;
+        }
+        stats.recordSenderCount(pool.size());
+    }
+
+    /**
+     * Sets the running flag to false
+     */
+    public void stop() {
+        running = false;
+    }
+}
@@ -1,16 +1,30 @@
 package msg;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 /**
- * A thread-safe message queue implementation using a blocking queue.
- * Provides blocking operations for adding and removing messages, ensuring
- * thread safety when multiple producers and consumers access the queue
- * concurrently.
+ * A thread-safe message queue implementation using a lock and two conditions,
+ * in the manner of a blocking queue. Provides blocking operations for adding and
+ * removing messages, ensuring thread safety when multiple producers and consumers
+ * access the queue concurrently. Batches are filled and drained under a single
+ * lock acquisition. Without a {@link WaitStrategy} threads block natively on the
+ * queue's conditions; with one, they wait according to the strategy instead.
  */
 public class BlockingMessageQueue implements IMessageQueue {
-    private final BlockingQueue<Message> queue;
+    private final ArrayDeque<Message> queue = new ArrayDeque<>();
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFullCondition = lock.newCondition();
+    private final Condition notEmptyCondition = lock.newCondition();
+    private final WaitStrategy waitStrategy;
+    private final BooleanSupplier notFull = this::hasRemainingCapacity;
+    private final BooleanSupplier notEmpty = () -> !isEmpty();
 
     /**
      * Constructs a new blocking message queue with the specified capacity.
@@ -20,10 +34,22 @@ public class BlockingMessageQueue implements IMessageQueue {
      * @param capacity The maximum number of messages the queue can hold
      */
     public BlockingMessageQueue(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Constructs a new blocking message queue with the specified capacity that
+     * waits according to the given strategy while full or empty.
+     *
+     * @param capacity The maximum number of messages the queue can hold
+     * @param waitStrategy The strategy used to wait, or null to block natively
+     */
+    public BlockingMessageQueue(int capacity, WaitStrategy waitStrategy) {
         if (capacity <= 0) {
             throw new IllegalArgumentException("Queue capacity must be positive");
         }
-        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.waitStrategy = waitStrategy;
     }
 
     /**
@@ -31,7 +57,7 @@ public class BlockingMessageQueue implements IMessageQueue {
      * The queue will grow as needed to accommodate new messages.
      */
     public BlockingMessageQueue() {
-        this.queue = new LinkedBlockingQueue<>();
+        this(Integer.MAX_VALUE, null);
     }
 
     /**
@@ -45,7 +71,23 @@ public class BlockingMessageQueue implements IMessageQueue {
         if (message == null) {
             throw new NullPointerException("Cannot add null message to queue");
         }
-        queue.put(message);
+        if (waitStrategy == null) {
+            lock.lockInterruptibly();
+            try {
+                while (queue.size() == capacity) {
+                    notFullCondition.await();
+                }
+                queue.add(message);
+                notEmptyCondition.signal();
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        while (!offer(message)) {
+            waitStrategy.await(notFull);
+        }
+        waitStrategy.signalAll();
     }
 
     /**
@@ -57,8 +99,118 @@ public class BlockingMessageQueue implements IMessageQueue {
      *         a message to become available
      */
     public Message remove() throws InterruptedException {
-        return queue.take();
+        if (waitStrategy == null) {
+            lock.lockInterruptibly();
+            try {
+                while (queue.isEmpty()) {
+                    notEmptyCondition.await();
+                }
+                Message message = queue.poll();
+                notFullCondition.signal();
+                return message;
+            } finally {
+                lock.unlock();
+            }
+        }
+        Message message;
+        while ((message = poll()) == null) {
+            waitStrategy.await(notEmpty);
+        }
+        waitStrategy.signalAll();
+        return message;
+    }
 
+    /**
+     * Adds all the given messages, filling as much of the queue as there is space
+     * for under one lock acquisition and waking waiting consumers once per fill.
+     * Blocks as needed until space becomes available for the rest.
+     *
+     * @param messages The messages to add to the queue
+     * @throws InterruptedException if the thread is interrupted while waiting to add
+     *         the messages
+     */
+    public void addAll(Collection<Message> messages) throws InterruptedException {
+        // Reject nulls up front so that a batch is never left half added
+        for (Message message : messages) {
+            if (message == null) {
+                throw new NullPointerException("Cannot add null message to queue");
+            }
+        }
+        Iterator<Message> iterator = messages.iterator();
+        if (waitStrategy == null) {
+            lock.lockInterruptibly();
+            try {
+                while (iterator.hasNext()) {
+                    if (fill(iterator) > 0) {
+                        notEmptyCondition.signalAll();
+                    }
+                    while (iterator.hasNext() && queue.size() == capacity) {
+                        notFullCondition.await();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        while (iterator.hasNext()) {
+            int added;
+            lock.lock();
+            try {
+                added = fill(iterator);
+            } finally {
+                lock.unlock();
+            }
+            if (added > 0) {
+                waitStrategy.signalAll();
+            }
+            if (iterator.hasNext()) {
+                waitStrategy.await(notFull);
+            }
+        }
+    }
+
+    /**
+     * Blocks for the first message and then drains whatever else is available
+     * under the same lock acquisition, waking waiting producers once per batch.
+     *
+     * @param target The list to which removed messages are appended
+     * @param maxMessages The maximum number of messages to remove
+     * @return The number of messages removed
+     * @throws InterruptedException if the thread is interrupted while waiting for
+     *         a message to become available
+     */
+    public int drainTo(List<Message> target, int maxMessages) throws InterruptedException {
+        if (maxMessages <= 0) {
+            throw new IllegalArgumentException("maxMessages must be positive");
+        }
+        if (waitStrategy == null) {
+            lock.lockInterruptibly();
+            try {
+                while (queue.isEmpty()) {
+                    notEmptyCondition.await();
+                }
+                int drained = drain(target, maxMessages);
+                notFullCondition.signalAll();
+                return drained;
+            } finally {
+                lock.unlock();
+            }
+        }
+        while (true) {
+            int drained;
+            lock.lock();
+            try {
+                drained = drain(target, maxMessages);
+            } finally {
+                lock.unlock();
+            }
+            if (drained > 0) {
+                waitStrategy.signalAll();
+                return drained;
+            }
+            waitStrategy.await(notEmpty);
+        }
     }
 
     /**
@@ -67,7 +219,12 @@ public class BlockingMessageQueue implements IMessageQueue {
      * @return true if the queue contains no messages, false otherwise
      */
     public boolean isEmpty() {
-        return queue.isEmpty();
+        lock.lock();
+        try {
+            return queue.isEmpty();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -76,6 +233,72 @@ public class BlockingMessageQueue implements IMessageQueue {
      * @return The number of messages currently in the queue
      */
     public int size() {
-        return queue.size();
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method that checks if the queue has space for another message.
+     */
+    private boolean hasRemainingCapacity() {
+        return size() < capacity;
+    }
+
+    /**
+     * Helper method that adds a message if the queue has space for it.
+     */
+    private boolean offer(Message message) {
+        lock.lock();
+        try {
+            if (queue.size() == capacity) {
+                return false;
+            }
+            queue.add(message);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method that removes the next message, or returns null if the queue is empty.
+     */
+    private Message poll() {
+        lock.lock();
+        try {
+            return queue.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method that adds messages from the iterator until the queue is full.
+     * Must be called while holding the lock.
+     */
+    private int fill(Iterator<Message> iterator) {
+        int added = 0;
+        while (iterator.hasNext() && queue.size() < capacity) {
+            queue.add(iterator.next());
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Helper method that removes up to the given number of messages.
+     * Must be called while holding the lock.
+     */
+    private int drain(List<Message> target, int maxMessages) {
+        int drained = 0;
+        while (drained < maxMessages && !queue.isEmpty()) {
+            target.add(queue.poll());
+            drained++;
+        }
+        return drained;
     }
 }
@@ -0,0 +1,78 @@
+package msg;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A wait strategy that blocks on a condition variable until another thread
+ * signals a state change. It uses no CPU while idle but every wakeup goes
+ * through the kernel. Signalling is skipped entirely when nobody is waiting.
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+    private final Lock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * Blocks until the condition becomes true.
+     *
+     * @param condition The condition to wait for
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Override
+    public void await(BooleanSupplier condition) throws InterruptedException {
+        if (condition.getAsBoolean()) {
+            return;
+        }
+        // Register before re-checking so that a concurrent signalAll cannot be missed
+        waiters.incrementAndGet();
+        lock.lock();
+        try {
+            while (!condition.getAsBoolean()) {
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Wakes all waiting threads, if there are any.
+     */
+    @Override
+    public void signalAll() {
+        // Order the caller's queue update before the waiter check, since queues may
+        // publish with release-only stores
+        VarHandle.fullFence();
+        if (waiters.get() == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes one waiting thread, if there is one.
+     */
+    @Override
+    public void signal() {
+        if (waiters.get() == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
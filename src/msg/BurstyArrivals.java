@@ -0,0 +1,53 @@
+package msg;
+
+import java.util.Random;
+
+/**
+ * Arrivals in on/off bursts. During each on period messages arrive as a
+ * Poisson process, and during each off period none arrive. The rate during
+ * bursts is raised so that the average over a whole on/off cycle is the
+ * configured rate.
+ */
+public class BurstyArrivals implements ArrivalProcess {
+    private final double meanGapNanos;
+    private final long onNanos;
+    private final long cycleNanos;
+    private final Random random;
+
+    /**
+     * Constructs a new on/off arrival process that starts with an on period.
+     *
+     * @param ratePerSecond The average number of arrivals per second over a whole cycle
+     * @param onMillis The length of each burst in milliseconds
+     * @param offMillis The length of each pause between bursts in milliseconds
+     * @param random The source of randomness
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    public BurstyArrivals(double ratePerSecond, long onMillis, long offMillis, Random random) {
+        if (!(ratePerSecond > 0)) {
+            throw new IllegalArgumentException("ratePerSecond must be positive");
+        }
+        if (onMillis <= 0 || offMillis < 0) {
+            throw new IllegalArgumentException("onMillis must be positive and offMillis cannot be negative");
+        }
+        if (random == null) {
+            throw new IllegalArgumentException("random cannot be null");
+        }
+        this.onNanos = onMillis * 1_000_000;
+        this.cycleNanos = (onMillis + offMillis) * 1_000_000;
+        double burstRate = ratePerSecond * (onMillis + offMillis) / onMillis;
+        this.meanGapNanos = 1_000_000_000.0 / burstRate;
+        this.random = random;
+    }
+
+    @Override
+    public long nextArrival(long previousArrival) {
+        long next = previousArrival + PoissonArrivals.exponentialGap(meanGapNanos, random);
+        long cycleStart = next - next % cycleNanos;
+        if (next - cycleStart >= onNanos) {
+            // Landed in a pause, the gaps are memoryless so carry on from the next burst
+            next = nextArrival(cycleStart + cycleNanos);
+        }
+        return next;
+    }
+}
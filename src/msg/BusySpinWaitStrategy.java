@@ -0,0 +1,41 @@
+package msg;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * A wait strategy that spins on the condition without ever giving up the
+ * processor. It gives the lowest handoff latency but burns a full core per
+ * waiting thread, so it only suits runs with fewer waiters than cores.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    /**
+     * Spins until the condition becomes true.
+     *
+     * @param condition The condition to wait for
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Override
+    public void await(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Does nothing since spinning threads notice state changes on their own.
+     */
+    @Override
+    public void signalAll() {
+    }
+
+    /**
+     * Does nothing since spinning threads notice state changes on their own.
+     */
+    @Override
+    public void signal() {
+    }
+}
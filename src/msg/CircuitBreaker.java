@@ -0,0 +1,253 @@
+package msg;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stops senders from sending while the downstream gateway is failing most of
+ * its sends. The breaker watches the outcomes of the most recent sends and
+ * opens when too many of them failed. While it is open, senders wait before
+ * taking their next message, so messages stay on the queue. A sender that
+ * drained a batch holds the rest of it until the breaker allows its sends.
+ * Once the open time has passed, the breaker lets a single trial send through.
+ * It closes again if the trial succeeds and opens for another round if it fails.
+ * Every permission to send carries the generation of the breaker state it was
+ * given in, which changes with every transition, so only the trial's own
+ * outcome decides the trial, and sends started before a transition are not
+ * counted after it. Waiting uses a lock rather than a monitor, so virtual
+ * sender threads do not pin their carriers while the breaker is open.
+ */
+public class CircuitBreaker {
+    /** Returned by {@link #tryAcquire()} when the breaker holds sends back. */
+    public static final long NO_PERMIT = -1;
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        /** Sends go through and their outcomes are counted. */
+        CLOSED,
+        /** Sends are held back until the open time has passed. */
+        OPEN,
+        /** A single trial send decides whether the breaker closes or opens again. */
+        HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final double failureThreshold;
+    private final long openMillis;
+    private final MessageStats stats;
+    private final Lock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private State state = State.CLOSED;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAt;
+    private long generation;
+    private boolean trialInFlight;
+
+    /**
+     * Constructs a new, closed circuit breaker.
+     *
+     * @param windowSize The number of most recent sends whose outcomes are counted
+     * @param failureThreshold The failed fraction of the window at which the breaker opens
+     * @param openMillis How long the breaker stays open before a trial send
+     * @param stats Shared instance of the stats, to which state changes are reported
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    public CircuitBreaker(int windowSize, double failureThreshold, long openMillis, MessageStats stats) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        if (failureThreshold <= 0.0 || failureThreshold > 1.0) {
+            throw new IllegalArgumentException("failureThreshold must be greater than 0.0 and at most 1.0");
+        }
+        if (openMillis < 0) {
+            throw new IllegalArgumentException("openMillis cannot be negative");
+        }
+        if (stats == null) {
+            throw new IllegalArgumentException("stats cannot be null");
+        }
+        this.window = new boolean[windowSize];
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.stats = stats;
+        stats.recordBreakerState(state);
+    }
+
+    /**
+     * Waits until a send is allowed. While the breaker is open this waits out the
+     * open time, and while a trial send is in flight it waits for its outcome.
+     *
+     * @return The permit to pass to {@link #onResult(long, boolean)} or {@link #cancel(long)}
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public long acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            long permit;
+            while ((permit = tryAcquire()) == NO_PERMIT) {
+                if (state == State.OPEN) {
+                    long remaining = openedAt + openMillis - System.currentTimeMillis();
+                    changed.await(Math.max(1, remaining), TimeUnit.MILLISECONDS);
+                } else {
+                    // A pending trial is decided by its outcome, which signals
+                    changed.await();
+                }
+            }
+            return permit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if a send is allowed right now, without waiting.
+     *
+     * @return The permit to pass to {@link #onResult(long, boolean)} or {@link #cancel(long)},
+     *         or {@link #NO_PERMIT} if the breaker holds sends back
+     */
+    public long tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    return NO_PERMIT;
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialInFlight) {
+                    return NO_PERMIT;
+                }
+                trialInFlight = true;
+            }
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the outcome of a send that was allowed by {@link #acquire()}. While
+     * half open only the trial's outcome counts, and while closed only outcomes of
+     * sends allowed since the breaker last closed count.
+     *
+     * @param permit The permit the send was allowed with
+     * @param failed true if the send failed, false otherwise
+     */
+    public void onResult(long permit, boolean failed) {
+        lock.lock();
+        try {
+            if (permit != generation) {
+                // Sends allowed before the last transition say nothing about the current state
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialInFlight) {
+                    trialInFlight = false;
+                    if (failed) {
+                        open();
+                    } else {
+                        close();
+                    }
+                    changed.signalAll();
+                }
+                return;
+            }
+            if (windowCount == window.length) {
+                if (window[windowIndex]) {
+                    windowFailures--;
+                }
+            } else {
+                windowCount++;
+            }
+            window[windowIndex] = failed;
+            if (failed) {
+                windowFailures++;
+            }
+            windowIndex = (windowIndex + 1) % window.length;
+            if (windowCount == window.length && windowFailures >= failureThreshold * window.length) {
+                open();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a permission from {@link #acquire()} that was not used for a send.
+     *
+     * @param permit The permit that was not used
+     */
+    public void cancel(long permit) {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && trialInFlight && permit == generation) {
+                trialInFlight = false;
+                // One waiter takes the trial over
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the failed fraction of the sends currently in the window.
+     *
+     * @return The failure ratio between 0.0 and 1.0, or 0 if no sends were counted
+     */
+    public double getFailureRatio() {
+        lock.lock();
+        try {
+            return windowCount > 0 ? windowFailures / (double) windowCount : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current state of the breaker.
+     *
+     * @return The breaker state
+     */
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method that opens the breaker and starts the open time.
+     */
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        transition(State.OPEN);
+    }
+
+    /**
+     * Helper method that closes the breaker and starts counting from an empty window.
+     */
+    private void close() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+        transition(State.CLOSED);
+    }
+
+    /**
+     * Helper method that changes the state, starting a new generation, and reports it to the stats.
+     */
+    private void transition(State newState) {
+        state = newState;
+        generation++;
+        stats.recordBreakerState(newState);
+    }
+}
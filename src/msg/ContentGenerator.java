@@ -0,0 +1,59 @@
+package msg;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates random lowercase message content quickly. A slab of random
+ * letters is made once, and each message takes a random slice of it, so
+ * generating content costs two random numbers and a copy instead of one
+ * random number per character. The slab is never changed after construction,
+ * so one generator can be shared by any number of threads.
+ */
+public class ContentGenerator {
+    private static final int SLAB_SIZE = 1 << 16;
+
+    private final char[] slab;
+    private final int maxLength;
+
+    /**
+     * Constructs a new generator.
+     *
+     * @param maxLength The longest content to generate
+     * @throws IllegalArgumentException if maxLength is not positive
+     */
+    public ContentGenerator(int maxLength) {
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("maxLength must be positive");
+        }
+        this.maxLength = maxLength;
+        this.slab = new char[SLAB_SIZE + maxLength];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < slab.length; i++) {
+            slab[i] = (char) (random.nextInt(26) + 'a');
+        }
+    }
+
+    /**
+     * Returns new content with a random length between 1 and the maximum length.
+     *
+     * @return The generated content
+     */
+    public String next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new String(slab, random.nextInt(SLAB_SIZE), random.nextInt(maxLength) + 1);
+    }
+
+    /**
+     * Writes new content with a random length between 1 and the maximum length
+     * into a buffer.
+     *
+     * @param buffer The buffer to write to, at least the maximum length long
+     * @return The length of the written content
+     */
+    public int fill(char[] buffer) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int length = random.nextInt(maxLength) + 1;
+        System.arraycopy(slab, random.nextInt(SLAB_SIZE), buffer, 0, length);
+        return length;
+    }
+}
@@ -0,0 +1,46 @@
+package msg;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates IDs from a counter. Each thread reserves a block of IDs from a
+ * shared counter and then hands them out one by one from its own block, so
+ * the shared counter is touched only once per block. IDs are unique, and
+ * increase within a thread, but are not ordered across threads.
+ */
+public class CounterIdGenerator implements IdGenerator {
+    private final AtomicLong nextBlock = new AtomicLong();
+    private final int blockSize;
+    private final ThreadLocal<long[]> block = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * Constructs a new generator that reserves 1024 IDs at a time.
+     */
+    public CounterIdGenerator() {
+        this(1024);
+    }
+
+    /**
+     * Constructs a new generator.
+     *
+     * @param blockSize The number of IDs a thread reserves at a time
+     * @throws IllegalArgumentException if blockSize is not positive
+     */
+    public CounterIdGenerator(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public long nextId() {
+        // range[0] is the next ID of this thread's block and range[1] the end of the block
+        long[] range = block.get();
+        if (range[0] == range[1]) {
+            range[0] = nextBlock.getAndAdd(blockSize);
+            range[1] = range[0] + blockSize;
+        }
+        return range[0]++;
+    }
+}
@@ -0,0 +1,360 @@
+package msg;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a simulation as discrete events on a virtual clock instead of with real
+ * threads. The producer, the bounded queue and the senders are modeled as events
+ * on a single timeline ordered by time, and the clock jumps from one event to the
+ * next, so a send that would take seconds costs nothing to wait for. All random
+ * numbers come from one seeded generator and ties are broken in scheduling order,
+ * so a run with the same seed always gives the same statistics.
+ * Outcomes are recorded in a {@link MessageStats} exactly as the threaded senders
+ * record them, with lifecycle timestamps taken from the virtual clock.
+ * Autoscaling and the adaptive limiter are not modeled.
+ */
+public class DiscreteEventSimulation {
+    // The virtual clock starts one second after zero, so no timestamp looks unset
+    private static final long EPOCH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final String CONTENT = "simulated alert";
+
+    private final int messageCount;
+    private final double failureRate;
+    private final ServiceTimeModel serviceTime;
+    private final MessageStats stats;
+    private final Random random;
+    private final ProductionMode productionMode;
+    private final double productionGapNanos;
+    private final ArrivalProcess arrivals;
+    private final RetryPolicy retryPolicy;
+    private final int capacity;
+    private final int batchSize;
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final ArrayDeque<Message> queue = new ArrayDeque<>();
+    // Messages waiting for space in the full queue, in the order they arrived
+    private final ArrayDeque<Message> waiting = new ArrayDeque<>();
+    private final ArrayDeque<Server> idleServers = new ArrayDeque<>();
+    private long now;
+    private long sequence;
+    private long eventCount;
+    private int produced;
+    private long nominalArrival;
+    // The producer's message while it waits for space, during which it produces nothing else
+    private Message producerMessage;
+
+    /**
+     * Constructs a new discrete-event simulation.
+     *
+     * @param messageCount The total number of messages to process
+     * @param senderCount The number of senders. With the async engine each sender
+     *        can have several sends in flight.
+     * @param failureRate The probability (0.0 to 1.0) that a message send will fail
+     * @param serviceTime The model of the send duration
+     * @param stats The statistics in which the outcomes are recorded
+     * @param options The remaining options, including the seed
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    public DiscreteEventSimulation(int messageCount, int senderCount, double failureRate,
+                                   ServiceTimeModel serviceTime, MessageStats stats, SimulationOptions options) {
+        validateArguments(messageCount, senderCount, failureRate, serviceTime, stats, options);
+        this.messageCount = messageCount;
+        this.failureRate = failureRate;
+        this.serviceTime = serviceTime;
+        this.stats = stats;
+        this.random = new Random(options.getSeed());
+        this.productionMode = options.getProductionMode();
+        double rate = options.getProductionRate();
+        this.productionGapNanos = productionMode == ProductionMode.SLEEP
+            ? SLEEP_NANOS / (double) options.getProducerCount()
+            : rate > 0 ? 1e9 / rate : 0;
+        this.arrivals = productionMode == ProductionMode.OPEN_LOOP
+            ? options.createArrivalProcess(rate, random) : null;
+        this.retryPolicy = options.getMaxAttempts() > 1 ? options.createRetryPolicy() : null;
+        this.capacity = options.resolveQueueCapacity(senderCount);
+        this.batchSize = options.getSenderEngine() == SenderEngine.THREAD ? options.getBatchSize() : 1;
+        int servers = options.getSenderEngine() == SenderEngine.ASYNC
+            ? senderCount * options.getMaxInFlight() : senderCount;
+        for (int i = 0; i < servers; i++) {
+            idleServers.add(new Server());
+        }
+    }
+
+    /**
+     * Runs the simulation until every message has been sent or has finally failed.
+     * A simulation can be run only once.
+     *
+     * @throws IllegalStateException if the simulation has already been run
+     */
+    public void run() {
+        if (eventCount > 0) {
+            throw new IllegalStateException("The simulation has already been run");
+        }
+        scheduleNextArrival();
+        Event event;
+        while ((event = events.poll()) != null) {
+            now = event.time;
+            eventCount++;
+            switch (event.kind) {
+                case ARRIVAL:
+                    arrive();
+                    break;
+                case RETRY:
+                    offer(event.message);
+                    break;
+                case COMPLETION:
+                default:
+                    complete(event);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns the virtual time from the start of the run until the last event.
+     *
+     * @return The simulated time in nanoseconds
+     */
+    public long getSimulatedNanos() {
+        return now;
+    }
+
+    /**
+     * Returns the number of events processed.
+     *
+     * @return The event count
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Helper method that schedules the producer's next message, unless all have been produced.
+     */
+    private void scheduleNextArrival() {
+        if (produced == messageCount) {
+            return;
+        }
+        long time;
+        switch (productionMode) {
+            case OPEN_LOOP:
+                nominalArrival = arrivals.nextArrival(nominalArrival);
+                time = Math.max(now, nominalArrival);
+                break;
+            case FIXED_RATE:
+                // Catch up on the schedule after the queue was full
+                time = Math.max(now, (long) (produced * productionGapNanos));
+                break;
+            case UNTHROTTLED:
+                time = now;
+                break;
+            case SLEEP:
+            case TARGET_RATE:
+            default:
+                time = produced == 0 ? now : now + (long) productionGapNanos;
+                break;
+        }
+        schedule(new Event(time, EventKind.ARRIVAL, null, null, false));
+    }
+
+    /**
+     * Helper method that creates the producer's next message and hands it to the queue.
+     */
+    private void arrive() {
+        Message message = new Message(CONTENT, produced, millis(now), stamp(now));
+        if (productionMode == ProductionMode.OPEN_LOOP) {
+            message.setIntendedTime(millis(nominalArrival));
+        }
+        produced++;
+        if (offer(message)) {
+            scheduleNextArrival();
+        } else {
+            producerMessage = message;
+        }
+    }
+
+    /**
+     * Helper method that adds a message to the queue, or makes it wait when the
+     * queue is full. Returns whether the message was added.
+     */
+    private boolean offer(Message message) {
+        // Handed to the queue now, so any wait for space counts as queue wait, as with real threads
+        message.markEnqueued(stamp(now));
+        if (queue.size() >= capacity || !waiting.isEmpty()) {
+            waiting.add(message);
+            return false;
+        }
+        queue.add(message);
+        if (!idleServers.isEmpty()) {
+            take(idleServers.poll());
+        }
+        return true;
+    }
+
+    /**
+     * Helper method that has a free sender take the next batch from the queue and
+     * start sending it. The sender goes idle if the queue is empty.
+     */
+    private void take(Server server) {
+        if (queue.isEmpty()) {
+            idleServers.add(server);
+            return;
+        }
+        for (int i = 0; i < batchSize && !queue.isEmpty(); i++) {
+            Message message = queue.poll();
+            message.markDequeued(stamp(now));
+            server.batch.add(message);
+        }
+        // The taken messages leave room for the ones waiting for space
+        while (queue.size() < capacity && !waiting.isEmpty()) {
+            Message message = waiting.poll();
+            stats.recordFullQueueWait(stamp(now) - message.getEnqueuedNanos(), 1);
+            queue.add(message);
+            if (message == producerMessage) {
+                producerMessage = null;
+                scheduleNextArrival();
+            }
+        }
+        send(server);
+    }
+
+    /**
+     * Helper method that starts sending the next message of a sender's batch and
+     * schedules its completion.
+     */
+    private void send(Server server) {
+        Message message = server.batch.peek();
+        message.markSendStarted(stamp(now));
+        long delay = serviceTime.nextServiceTime(random);
+        boolean failed = random.nextDouble() < failureRate;
+        schedule(new Event(now + delay, EventKind.COMPLETION, message, server, failed));
+    }
+
+    /**
+     * Helper method that records a finished send, or schedules its retry, and moves
+     * its sender on to the next message.
+     */
+    private void complete(Event event) {
+        Message message = event.message;
+        message.markCompleted(stamp(now));
+        message.incrementAttempts();
+        message.setFailed(event.failed);
+        message.setSentTime(millis(now));
+        if (event.failed && retryPolicy != null && retryPolicy.shouldRetry(message)) {
+            long backoff = TimeUnit.MILLISECONDS.toNanos(retryPolicy.backoffMillis(message.getAttempts(), random));
+            stats.recordRetry();
+            schedule(new Event(now + backoff, EventKind.RETRY, message, null, false));
+        } else {
+            stats.record(message);
+        }
+
+        Server server = event.server;
+        server.batch.poll();
+        if (server.batch.isEmpty()) {
+            take(server);
+        } else {
+            send(server);
+        }
+    }
+
+    /**
+     * Helper method that adds an event to the timeline.
+     */
+    private void schedule(Event event) {
+        event.sequence = sequence++;
+        events.add(event);
+    }
+
+    /**
+     * Helper method that converts a virtual time to a monotonic timestamp.
+     */
+    private static long stamp(long time) {
+        return EPOCH_NANOS + time;
+    }
+
+    /**
+     * Helper method that converts a virtual time to a timestamp in milliseconds.
+     */
+    private static long millis(long time) {
+        return stamp(time) / 1_000_000;
+    }
+
+    /**
+     * Helper method to validate the constructor arguments.
+     */
+    private void validateArguments(int messageCount, int senderCount, double failureRate,
+                                   ServiceTimeModel serviceTime, MessageStats stats, SimulationOptions options) {
+        if (messageCount <= 0) {
+            throw new IllegalArgumentException("messageCount must be positive");
+        }
+        if (senderCount <= 0) {
+            throw new IllegalArgumentException("senderCount must be positive");
+        }
+        if (failureRate < 0.0 || failureRate >= 1.0) {
+            throw new IllegalArgumentException("failureRate must be between 0.0 and 1.0 excluding 1.0");
+        }
+        if (serviceTime == null) {
+            throw new IllegalArgumentException("serviceTime cannot be null");
+        }
+        if (stats == null) {
+            throw new IllegalArgumentException("stats cannot be null");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("options cannot be null");
+        }
+        if (options.isAutoscale() || options.isAdaptive()) {
+            throw new IllegalArgumentException("Autoscaling and the adaptive limiter are not simulated as discrete events");
+        }
+    }
+
+    /**
+     * The kinds of event on the timeline.
+     */
+    private enum EventKind {
+        /** The producer makes its next message. */
+        ARRIVAL,
+        /** A failed message is due to go back on the queue. */
+        RETRY,
+        /** A send finishes. */
+        COMPLETION
+    }
+
+    /**
+     * Something that happens at a point in virtual time. Events at the same time
+     * happen in the order they were scheduled.
+     */
+    private static class Event implements Comparable<Event> {
+        private final long time;
+        private final EventKind kind;
+        private final Message message;
+        private final Server server;
+        private final boolean failed;
+        private long sequence;
+
+        Event(long time, EventKind kind, Message message, Server server, boolean failed) {
+            this.time = time;
+            this.kind = kind;
+            this.message = message;
+            this.server = server;
+            this.failed = failed;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * A sender, or one in-flight slot of an async sender, with the messages it has
+     * taken from the queue and not yet finished.
+     */
+    private static class Server {
+        private final ArrayDeque<Message> batch = new ArrayDeque<>();
+    }
+}
@@ -0,0 +1,68 @@
+package msg;
+
+import java.util.Random;
+
+/**
+ * Arrivals whose rate rises and falls over a daily cycle, compressed into a
+ * configurable period. The rate follows a sine curve around the average rate,
+ * starting at the average and rising towards the peak. Arrival times are drawn
+ * by thinning: candidates come at the peak rate and each one is kept with a
+ * probability of the current rate over the peak rate.
+ */
+public class DiurnalArrivals implements ArrivalProcess {
+    private final double meanRate;
+    private final double amplitude;
+    private final double peakGapNanos;
+    private final long periodNanos;
+    private final Random random;
+
+    /**
+     * Constructs a new diurnal arrival process.
+     *
+     * @param ratePerSecond The average number of arrivals per second over a cycle
+     * @param periodMillis The length of one compressed day in milliseconds
+     * @param amplitude How far the rate swings around the average, as a fraction
+     *        of it between 0.0 and 1.0
+     * @param random The source of randomness
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    public DiurnalArrivals(double ratePerSecond, long periodMillis, double amplitude, Random random) {
+        if (!(ratePerSecond > 0)) {
+            throw new IllegalArgumentException("ratePerSecond must be positive");
+        }
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("periodMillis must be positive");
+        }
+        if (amplitude < 0.0 || amplitude > 1.0) {
+            throw new IllegalArgumentException("amplitude must be between 0.0 and 1.0");
+        }
+        if (random == null) {
+            throw new IllegalArgumentException("random cannot be null");
+        }
+        this.meanRate = ratePerSecond;
+        this.amplitude = amplitude;
+        this.peakGapNanos = 1_000_000_000.0 / (ratePerSecond * (1 + amplitude));
+        this.periodNanos = periodMillis * 1_000_000;
+        this.random = random;
+    }
+
+    @Override
+    public long nextArrival(long previousArrival) {
+        long next = previousArrival;
+        do {
+            next += PoissonArrivals.exponentialGap(peakGapNanos, random);
+        } while (random.nextDouble() * (1 + amplitude) * meanRate > rateAt(next));
+        return next;
+    }
+
+    /**
+     * Returns the arrival rate at a point in the cycle.
+     *
+     * @param time The time in nanoseconds since the start of the run
+     * @return The arrival rate in arrivals per second
+     */
+    public double rateAt(long time) {
+        double phase = 2 * Math.PI * (time % periodNanos) / periodNanos;
+        return meanRate * (1 + amplitude * Math.sin(phase));
+    }
+}
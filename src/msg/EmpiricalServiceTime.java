@@ -0,0 +1,122 @@
+package msg;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Send durations drawn from a measured latency histogram, such as one exported
+ * from a real gateway. Each bucket covers the durations from the previous
+ * bucket's bound up to its own, and a drawn duration picks a bucket in
+ * proportion to its count and a point in it uniformly.
+ */
+public class EmpiricalServiceTime implements ServiceTimeModel {
+    private final double[] bounds;
+    private final long[] cumulativeCounts;
+    private final double mean;
+    private final double variance;
+
+    /**
+     * Constructs a new empirical model from a histogram.
+     *
+     * @param bounds The upper bounds of the buckets in milliseconds, in increasing order
+     * @param counts The number of samples in each bucket
+     * @throws IllegalArgumentException if the histogram is empty or malformed
+     */
+    public EmpiricalServiceTime(double[] bounds, long[] counts) {
+        if (bounds == null || counts == null || bounds.length == 0 || bounds.length != counts.length) {
+            throw new IllegalArgumentException("Histogram must have the same, non-zero number of bounds and counts");
+        }
+        this.bounds = bounds.clone();
+        this.cumulativeCounts = new long[counts.length];
+        long total = 0;
+        double sum = 0;
+        double sumOfSquares = 0;
+        double lower = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            if (!(bounds[i] >= lower) || counts[i] < 0) {
+                throw new IllegalArgumentException("Histogram bounds must increase and counts cannot be negative");
+            }
+            total += counts[i];
+            cumulativeCounts[i] = total;
+            sum += counts[i] * (lower + bounds[i]) / 2;
+            // The mean square of a point drawn uniformly from [a, b] is (a^2 + ab + b^2) / 3
+            sumOfSquares += counts[i] * (lower * lower + lower * bounds[i] + bounds[i] * bounds[i]) / 3;
+            lower = bounds[i];
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Histogram must contain at least one sample");
+        }
+        this.mean = sum / total;
+        this.variance = Math.max(0, sumOfSquares / total - mean * mean);
+    }
+
+    /**
+     * Loads a histogram from a text file with one bucket per line: the upper
+     * bound in milliseconds and the count, separated by a comma or whitespace.
+     * Blank lines and lines starting with # are ignored.
+     *
+     * @param file The histogram file
+     * @return A new empirical model
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid histogram
+     */
+    public static EmpiricalServiceTime load(Path file) throws IOException {
+        List<double[]> buckets = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("[,\\s]+");
+                if (fields.length != 2) {
+                    throw new IllegalArgumentException("Histogram lines must have a bound and a count: " + line);
+                }
+                buckets.add(new double[] {Double.parseDouble(fields[0]), Long.parseLong(fields[1])});
+            }
+        }
+        double[] bounds = new double[buckets.size()];
+        long[] counts = new long[buckets.size()];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = buckets.get(i)[0];
+            counts[i] = (long) buckets.get(i)[1];
+        }
+        return new EmpiricalServiceTime(bounds, counts);
+    }
+
+    @Override
+    public long nextServiceTime(Random random) {
+        long total = cumulativeCounts[cumulativeCounts.length - 1];
+        long sample = (long) (random.nextDouble() * total);
+        // Find the first bucket whose cumulative count is above the sample, which skips empty buckets
+        int low = 0;
+        int high = cumulativeCounts.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeCounts[middle] > sample) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        int bucket = low;
+        double lower = bucket == 0 ? 0 : bounds[bucket - 1];
+        return (long) ((lower + random.nextDouble() * (bounds[bucket] - lower)) * 1_000_000);
+    }
+
+    @Override
+    public double getMean() {
+        return mean;
+    }
+
+    @Override
+    public double getVariance() {
+        return variance;
+    }
+}
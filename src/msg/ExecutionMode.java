@@ -0,0 +1,15 @@
+package msg;
+
+/**
+ * How a simulation passes time.
+ */
+public enum ExecutionMode {
+    /** Producer and sender threads run against the system clocks and really sleep. */
+    REAL_TIME,
+    /**
+     * A {@link DiscreteEventSimulation} plays the producer, queue and senders as
+     * events on one timeline with a virtual clock, so no time is spent waiting
+     * and a run with the same seed always gives the same statistics.
+     */
+    DISCRETE_EVENT
+}
@@ -0,0 +1,56 @@
+package msg;
+
+/**
+ * A value averaged over an exponentially decaying window, like the 1, 5 and 15
+ * minute load averages. Each update moves the average towards the value seen
+ * over the time since the previous update, by a weight that depends on how
+ * long that time was, so updates need not come at fixed intervals. Not safe
+ * for use by more than one thread.
+ */
+public class ExponentialAverage {
+    private final double windowSeconds;
+    private double value;
+    private boolean initialized;
+
+    /**
+     * Constructs a new average with no updates yet.
+     *
+     * @param windowSeconds The time constant of the decay in seconds
+     * @throws IllegalArgumentException if windowSeconds is not positive
+     */
+    public ExponentialAverage(double windowSeconds) {
+        if (!(windowSeconds > 0)) {
+            throw new IllegalArgumentException("windowSeconds must be positive");
+        }
+        this.windowSeconds = windowSeconds;
+    }
+
+    /**
+     * Adds the value seen since the previous update. The first update sets the
+     * average outright.
+     *
+     * @param sample The value seen since the previous update
+     * @param elapsedSeconds The time since the previous update in seconds
+     */
+    public void update(double sample, double elapsedSeconds) {
+        if (!(elapsedSeconds > 0)) {
+            return;
+        }
+        if (!initialized) {
+            value = sample;
+            initialized = true;
+        } else {
+            double alpha = 1 - Math.exp(-elapsedSeconds / windowSeconds);
+            value += alpha * (sample - value);
+        }
+    }
+
+    /**
+     * Returns the current average.
+     *
+     * @return The average, or 0 before the first update
+     */
+    public double getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,45 @@
+package msg;
+
+/**
+ * A rate averaged over an exponentially decaying window, like the 1, 5 and 15
+ * minute load averages. Each update moves the rate towards the rate seen since
+ * the previous update, by a weight that depends on how long ago that was, so
+ * updates need not come at fixed intervals. Not safe for use by more than one thread.
+ *
+ * @see ExponentialAverage
+ */
+public class ExponentialRate {
+    private final ExponentialAverage average;
+
+    /**
+     * Constructs a new rate with no updates yet.
+     *
+     * @param windowSeconds The time constant of the decay in seconds
+     * @throws IllegalArgumentException if windowSeconds is not positive
+     */
+    public ExponentialRate(double windowSeconds) {
+        this.average = new ExponentialAverage(windowSeconds);
+    }
+
+    /**
+     * Adds the events counted since the previous update. The first update sets
+     * the rate outright.
+     *
+     * @param count The number of events since the previous update
+     * @param elapsedSeconds The time since the previous update in seconds
+     */
+    public void update(long count, double elapsedSeconds) {
+        if (elapsedSeconds > 0) {
+            average.update(count / elapsedSeconds, elapsedSeconds);
+        }
+    }
+
+    /**
+     * Returns the current rate.
+     *
+     * @return The events per second, or 0 before the first update
+     */
+    public double getRate() {
+        return average.getValue();
+    }
+}
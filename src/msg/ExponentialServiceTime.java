@@ -0,0 +1,40 @@
+package msg;
+
+import java.util.Random;
+
+/**
+ * Exponentially distributed send durations. Most sends are quick, with a
+ * tail of slow ones, and each send is as likely to finish in the next moment
+ * regardless of how long it has already taken.
+ */
+public class ExponentialServiceTime implements ServiceTimeModel {
+    private final double meanDelay;
+
+    /**
+     * Constructs a new exponential model.
+     *
+     * @param meanDelay The mean send duration in milliseconds
+     * @throws IllegalArgumentException if meanDelay is not positive
+     */
+    public ExponentialServiceTime(double meanDelay) {
+        if (!(meanDelay > 0)) {
+            throw new IllegalArgumentException("meanDelay must be positive");
+        }
+        this.meanDelay = meanDelay;
+    }
+
+    @Override
+    public long nextServiceTime(Random random) {
+        return PoissonArrivals.exponentialGap(meanDelay * 1_000_000, random);
+    }
+
+    @Override
+    public double getMean() {
+        return meanDelay;
+    }
+
+    @Override
+    public double getVariance() {
+        return meanDelay * meanDelay;
+    }
+}
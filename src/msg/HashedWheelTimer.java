@@ -0,0 +1,258 @@
+package msg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel that runs tasks after a delay without parking a thread
+ * per task. Scheduled tasks are hashed into a fixed ring of buckets by their
+ * deadline, and a worker thread advances one bucket per tick and runs every
+ * task whose deadline has passed. Scheduling and expiring a task are both
+ * constant time, so the wheel can hold millions of pending tasks.
+ * <p>
+ * The timer can be split into several wheels, each driven by its own worker
+ * thread. A task goes to a randomly chosen wheel, so the tasks due on a tick
+ * run on all the workers at once instead of one after another on a single
+ * thread. Tasks run on a worker thread and should be short.
+ */
+public class HashedWheelTimer {
+    private final long tickNanos;
+    private final Wheel[] wheels;
+    // Tasks scheduled but not yet finished running, which awaitIdle waits to reach zero
+    private final AtomicInteger unfinished = new AtomicInteger();
+    private final Object idleLock = new Object();
+    private volatile boolean running = true;
+    private volatile long startTime;
+
+    /**
+     * Constructs a new timer with a single wheel. The worker thread is started by {@link #start()}.
+     *
+     * @param tickDuration The time between ticks, which is the timer's resolution
+     * @param unit The unit of tickDuration
+     * @param ticksPerWheel The number of buckets, rounded up to a power of two
+     * @throws IllegalArgumentException if tickDuration or ticksPerWheel is not positive
+     */
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(tickDuration, unit, ticksPerWheel, 1);
+    }
+
+    /**
+     * Constructs a new timer split into one wheel per worker thread. The worker
+     * threads are started by {@link #start()}.
+     *
+     * @param tickDuration The time between ticks, which is the timer's resolution
+     * @param unit The unit of tickDuration
+     * @param ticksPerWheel The number of buckets in each wheel, rounded up to a power of two
+     * @param workers The number of wheels, each advanced by its own worker thread
+     * @throws IllegalArgumentException if tickDuration, ticksPerWheel or workers is not positive
+     */
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel, int workers) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+        int size = Integer.highestOneBit(ticksPerWheel);
+        if (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheels = new Wheel[workers];
+        for (int i = 0; i < workers; i++) {
+            wheels[i] = new Wheel(size, workers == 1 ? "HashedWheelTimer" : "HashedWheelTimer-" + i);
+        }
+    }
+
+    /**
+     * Starts the worker threads that advance the wheels.
+     */
+    public void start() {
+        startTime = System.nanoTime();
+        for (Wheel wheel : wheels) {
+            wheel.worker.start();
+        }
+    }
+
+    /**
+     * Schedules a task to run once after the given delay. The task runs on the
+     * first tick at or after its deadline.
+     *
+     * @param task The task to run
+     * @param delay The delay before running the task
+     * @param unit The unit of delay
+     * @throws IllegalStateException if the timer has not been started or has been stopped
+     */
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new IllegalArgumentException("task cannot be null");
+        }
+        if (startTime == 0 || !running) {
+            throw new IllegalStateException("Timer is not running");
+        }
+        long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay)) - startTime;
+        unfinished.incrementAndGet();
+        Wheel wheel = wheels.length == 1 ? wheels[0] : wheels[ThreadLocalRandom.current().nextInt(wheels.length)];
+        wheel.newTimeouts.add(new Timeout(task, deadline));
+    }
+
+    /**
+     * Returns the number of wheels, each advanced by its own worker thread.
+     *
+     * @return The worker count
+     */
+    public int getWorkerCount() {
+        return wheels.length;
+    }
+
+    /**
+     * Returns the number of tasks scheduled but not yet finished running.
+     *
+     * @return The number of pending tasks
+     */
+    public int pending() {
+        return unfinished.get();
+    }
+
+    /**
+     * Waits until every scheduled task has finished running, including tasks
+     * scheduled by other tasks while waiting.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit The unit of timeout
+     * @return true if the timer became idle, false if the timeout passed first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idleLock) {
+            while (unfinished.get() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(idleLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops the worker threads. Tasks that have not run yet are discarded.
+     */
+    public void stop() {
+        running = false;
+        for (Wheel wheel : wheels) {
+            wheel.worker.interrupt();
+        }
+    }
+
+    /**
+     * One ring of buckets together with the worker thread that advances it.
+     * Only the worker touches the buckets; other threads hand it new tasks
+     * through newTimeouts.
+     */
+    private class Wheel {
+        private final int mask;
+        private final List<List<Timeout>> buckets;
+        private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+        private final Thread worker;
+
+        Wheel(int size, String name) {
+            this.mask = size - 1;
+            this.buckets = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                buckets.add(new ArrayList<>());
+            }
+            this.worker = new Thread(this::runWorker, name);
+            this.worker.setDaemon(true);
+        }
+
+        /**
+         * Helper method that runs the worker loop: wait for the next tick, move newly
+         * scheduled tasks into their buckets, and run the tasks that are due.
+         */
+        private void runWorker() {
+            long tick = 0;
+            while (running) {
+                long deadline = startTime + (tick + 1) * tickNanos;
+                long sleep;
+                while (running && (sleep = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(this, sleep);
+                }
+                if (!running) {
+                    break;
+                }
+                transferNewTimeouts(tick);
+                expire(buckets.get((int) (tick & mask)));
+                tick++;
+            }
+        }
+
+        /**
+         * Helper method that places newly scheduled tasks into the bucket for their deadline.
+         */
+        private void transferNewTimeouts(long currentTick) {
+            Timeout timeout;
+            while ((timeout = newTimeouts.poll()) != null) {
+                long calculated = timeout.deadline / tickNanos;
+                timeout.remainingRounds = (calculated - currentTick) / buckets.size();
+                // Tasks already past their deadline go into the current bucket
+                long ticks = Math.max(calculated, currentTick);
+                buckets.get((int) (ticks & mask)).add(timeout);
+            }
+        }
+
+        /**
+         * Helper method that runs the due tasks of a bucket and keeps the ones due
+         * on a later lap of the wheel.
+         */
+        private void expire(List<Timeout> bucket) {
+            int kept = 0;
+            for (int i = 0; i < bucket.size(); i++) {
+                Timeout timeout = bucket.get(i);
+                if (timeout.remainingRounds <= 0) {
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        // A failing task must not stop the wheel for every other task
+                        Thread thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                    }
+                    if (unfinished.decrementAndGet() == 0) {
+                        synchronized (idleLock) {
+                            idleLock.notifyAll();
+                        }
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                    bucket.set(kept++, timeout);
+                }
+            }
+            bucket.subList(kept, bucket.size()).clear();
+        }
+    }
+
+    /**
+     * A scheduled task with its deadline relative to the timer's start.
+     */
+    private static class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long remainingRounds;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
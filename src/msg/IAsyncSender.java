@@ -0,0 +1,31 @@
+package msg;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interface for senders that pipeline sends instead of blocking on each one.
+ * Each send returns a future that completes when the send does, and a sender
+ * has at most a fixed number of sends outstanding at once.
+ */
+public interface IAsyncSender extends ISender {
+  /**
+   * Starts sending a message. If the sender already has its maximum number of
+   * sends outstanding, this call blocks until one of them completes, which
+   * applies backpressure to the caller.
+   *
+   * @param message The message to send
+   * @return A future that completes with the outcome of the send once it has finished.
+   *         The outcome is a copy, so it can be read at any time, even after a pooled
+   *         message has been recycled or handed back for another attempt.
+   * @throws InterruptedException if the thread is interrupted while waiting for
+   *         an outstanding send to complete
+   */
+  CompletableFuture<SendResult> sendAsync(Message message) throws InterruptedException;
+
+  /**
+   * Returns the maximum number of sends this sender keeps outstanding.
+   *
+   * @return The in-flight limit
+   */
+  int getMaxInFlight();
+}
@@ -1,5 +1,8 @@
 package msg;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Interface for message queues in the messaging system.
  * Defines operations for a thread-safe queue that handles message
@@ -29,6 +32,32 @@ public interface IMessageQueue {
      */
     Message remove() throws InterruptedException;
 
+    /**
+     * Adds all the given messages to the queue in order.
+     * If the queue is capacity-constrained, this operation should block
+     * until every message has been added. Implementations should amortize
+     * their synchronization cost across the whole batch.
+     *
+     * @param messages The messages to add to the queue
+     * @throws InterruptedException if the thread is interrupted while waiting
+     *         to add the messages
+     */
+    void addAll(Collection<Message> messages) throws InterruptedException;
+
+    /**
+     * Removes up to the given number of messages and appends them to the target list.
+     * If the queue is empty, this operation should block until at least one
+     * message becomes available, and then take whatever else is immediately
+     * available without waiting further.
+     *
+     * @param target The list to which removed messages are appended
+     * @param maxMessages The maximum number of messages to remove
+     * @return The number of messages removed, at least 1
+     * @throws InterruptedException if the thread is interrupted while waiting
+     *         for a message to become available
+     */
+    int drainTo(List<Message> target, int maxMessages) throws InterruptedException;
+
     /**
      * Checks if the queue is empty.
      *
@@ -0,0 +1,16 @@
+package msg;
+
+/**
+ * Interface for generators of message IDs. IDs are plain 64-bit numbers so
+ * that creating a message does not allocate, and are only turned into text
+ * when a message is printed.
+ */
+public interface IdGenerator {
+  /**
+   * Returns a new ID, different from every other ID this generator returned.
+   * Safe to call from many threads at once.
+   *
+   * @return The new ID
+   */
+  long nextId();
+}
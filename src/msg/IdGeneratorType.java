@@ -0,0 +1,49 @@
+package msg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The message ID generators a simulation can give its messages IDs with.
+ */
+public enum IdGeneratorType {
+    /** A {@link SnowflakeIdGenerator} per producer, whose IDs sort by creation time. */
+    SNOWFLAKE,
+    /** A {@link CounterIdGenerator} handing out per-thread blocks of a counter. */
+    COUNTER;
+
+    /**
+     * Returns a new generator of this type. A Snowflake generator gets a worker
+     * ID of its own, so its IDs stay unique across generators and simulations in
+     * the same process.
+     *
+     * @return An ID generator
+     */
+    public IdGenerator create() {
+        switch (this) {
+            case COUNTER:
+                return new CounterIdGenerator();
+            case SNOWFLAKE:
+            default:
+                return SnowflakeIdGenerator.withNextWorkerId();
+        }
+    }
+
+    /**
+     * Returns the generators for the producers of one simulation. Each producer
+     * gets a Snowflake generator of its own, so no two producers write the same
+     * state, while counter IDs come from one counter that every producer reserves
+     * blocks of.
+     *
+     * @param producerCount The number of producers
+     * @return One ID generator per producer
+     */
+    public List<IdGenerator> createForProducers(int producerCount) {
+        List<IdGenerator> generators = new ArrayList<>(producerCount);
+        IdGenerator counter = this == COUNTER ? create() : null;
+        for (int i = 0; i < producerCount; i++) {
+            generators.add(counter != null ? counter : create());
+        }
+        return generators;
+    }
+}
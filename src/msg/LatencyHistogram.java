@@ -0,0 +1,244 @@
+package msg;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with fixed memory and bounded relative error,
+ * in the style of HdrHistogram. Values below 256 get a bucket each. Above that
+ * every power of two is split into 128 equal buckets, so a value is only ever
+ * reported within 1/128 of itself, from a nanosecond up to the largest long.
+ * The buckets are striped: each recording thread increments its own copy of
+ * the buckets, picked by thread ID, so concurrent senders rarely touch the same
+ * cache line. Percentiles are read by summing the stripes without stopping the
+ * writers. Copies of a histogram are not striped, since only one thread reads them.
+ */
+public class LatencyHistogram {
+    // Each power of two above SUB_BUCKET_COUNT is split into HALF_SUB_BUCKET_COUNT buckets
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKET_COUNT;
+    // One stripe per processor, rounded up to a power of two and capped to bound the memory used
+    private static final int MAX_STRIPES = 8;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+    private final LongAdder totalCount;
+    private final LongAccumulator maxValue;
+
+    /**
+     * Constructs a new, empty histogram striped for the number of processors.
+     */
+    public LatencyHistogram() {
+        this(Math.min(MAX_STRIPES, nextPowerOfTwo(Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Helper constructor for a histogram with the given number of stripes, a power of two.
+     */
+    private LatencyHistogram(int stripeCount) {
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKET_COUNT);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.totalCount = new LongAdder();
+        this.maxValue = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Records one value. Safe to call from many threads at once.
+     *
+     * @param value The value to record, normally a latency in nanoseconds
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value cannot be negative");
+        }
+        stripes[(int) Thread.currentThread().getId() & stripeMask].incrementAndGet(bucketOf(value));
+        totalCount.increment();
+        maxValue.accumulate(value);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return The total count
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Returns the largest recorded value. For a histogram returned by
+     * {@link #minus(LatencyHistogram)} it is the top of the highest non-empty bucket.
+     *
+     * @return The maximum value, or 0 if the histogram is empty
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values, taking each value as the middle
+     * of its bucket, so it is within the same precision as the percentiles.
+     *
+     * @return The mean value, or 0 if the histogram is empty
+     */
+    public double getMean() {
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = countAt(i);
+            if (count > 0) {
+                long lowest = i == 0 ? 0 : highestValueOf(i - 1) + 1;
+                sum += count * (lowest / 2.0 + highestValueOf(i) / 2.0);
+                total += count;
+            }
+        }
+        return total > 0 ? sum / total : 0;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall,
+     * to within the precision of its bucket. The result never exceeds the maximum.
+     *
+     * @param percentile The percentile, from 0.0 to 100.0
+     * @return The value at the percentile, or 0 if the histogram is empty
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("percentile must be between 0.0 and 100.0");
+        }
+        // Sum the stripes once, since writers may add to them between two walks
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = countAt(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns a copy of this histogram as it is now. Values recorded while the copy
+     * is taken may or may not be included.
+     *
+     * @return A new histogram with the same counts
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram(1);
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = countAt(i);
+            copy.stripes[0].set(i, count);
+            total += count;
+        }
+        copy.totalCount.add(total);
+        copy.maxValue.accumulate(getMax());
+        return copy;
+    }
+
+    /**
+     * Returns a histogram holding the values of both this histogram and another,
+     * as they are now.
+     *
+     * @param other The histogram to add to this one
+     * @return A new histogram with the counts of both
+     */
+    public LatencyHistogram plus(LatencyHistogram other) {
+        LatencyHistogram sum = new LatencyHistogram(1);
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = countAt(i) + other.countAt(i);
+            sum.stripes[0].set(i, count);
+            total += count;
+        }
+        sum.totalCount.add(total);
+        sum.maxValue.accumulate(Math.max(getMax(), other.getMax()));
+        return sum;
+    }
+
+    /**
+     * Returns the values recorded in this histogram since an earlier copy of it
+     * was taken, which is how interval histograms are made.
+     *
+     * @param earlier An earlier copy of this histogram
+     * @return A new histogram holding only the values recorded since the copy
+     */
+    public LatencyHistogram minus(LatencyHistogram earlier) {
+        LatencyHistogram difference = new LatencyHistogram(1);
+        long total = 0;
+        int highest = -1;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = Math.max(0, countAt(i) - earlier.countAt(i));
+            difference.stripes[0].set(i, count);
+            total += count;
+            if (count > 0) {
+                highest = i;
+            }
+        }
+        difference.totalCount.add(total);
+        difference.maxValue.accumulate(highest < 0 ? 0 : Math.min(highestValueOf(highest), getMax()));
+        return difference;
+    }
+
+    /**
+     * Helper method that returns the count of a bucket across all stripes.
+     */
+    private long countAt(int bucket) {
+        long count = 0;
+        for (AtomicLongArray stripe : stripes) {
+            count += stripe.get(bucket);
+        }
+        return count;
+    }
+
+    /**
+     * Helper method that returns the smallest power of two at least the given value.
+     */
+    private static int nextPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Helper method that returns the bucket a value is counted in.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // Shift the value down until it fits in the upper half of the sub-buckets
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * Helper method that returns the largest value counted in a bucket.
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / HALF_SUB_BUCKET_COUNT - 1;
+        long top = bucket - (long) shift * HALF_SUB_BUCKET_COUNT;
+        long next = (top + 1) << shift;
+        // The last bucket ends at the largest long, where the next bucket would overflow
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
@@ -0,0 +1,50 @@
+package msg;
+
+import java.util.Random;
+
+/**
+ * Log-normally distributed send durations, whose logarithm is normally
+ * distributed. A good fit for network round trips, which cluster around a
+ * typical value but have a long tail of slow ones that grows with the shape.
+ */
+public class LogNormalServiceTime implements ServiceTimeModel {
+    private final double meanDelay;
+    private final double mu;
+    private final double sigma;
+
+    /**
+     * Constructs a new log-normal model.
+     *
+     * @param meanDelay The mean send duration in milliseconds
+     * @param sigma The standard deviation of the logarithm of the duration, which
+     *        sets how heavy the tail is
+     * @throws IllegalArgumentException if meanDelay or sigma is not positive
+     */
+    public LogNormalServiceTime(double meanDelay, double sigma) {
+        if (!(meanDelay > 0)) {
+            throw new IllegalArgumentException("meanDelay must be positive");
+        }
+        if (!(sigma > 0)) {
+            throw new IllegalArgumentException("sigma must be positive");
+        }
+        this.meanDelay = meanDelay;
+        this.sigma = sigma;
+        // The mean of a log-normal is exp(mu + sigma^2 / 2)
+        this.mu = Math.log(meanDelay * 1_000_000) - sigma * sigma / 2;
+    }
+
+    @Override
+    public long nextServiceTime(Random random) {
+        return (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+
+    @Override
+    public double getMean() {
+        return meanDelay;
+    }
+
+    @Override
+    public double getVariance() {
+        return (Math.exp(sigma * sigma) - 1) * meanDelay * meanDelay;
+    }
+}
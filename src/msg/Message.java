@@ -1,18 +1,32 @@
 package msg;
 
-import java.util.UUID;
-
 /**
  * Represents a message in the messaging system with associated metadata.
  * Each message has a unique ID, content, timing information, and status flags.
  * Messages track their creation time, sent time, and whether delivery failed.
  */
 public class Message {
-  private String messageId;
+  // Used by messages created without an explicit ID
+  private static final IdGenerator DEFAULT_IDS = SnowflakeIdGenerator.shared();
+
+  private long messageId;
   private String content;
-  private final long creationTime;
+  private long creationTime;
+  private long intendedTime;
+  // Monotonic lifecycle timestamps from System.nanoTime(), 0 until the stage is reached
+  private long createdNanos;
+  private long enqueuedNanos;
+  private long dequeuedNanos;
+  private long sendStartNanos;
+  private long completedNanos;
   private boolean failed;
   private long sentTime;
+  private long firstSentTime;
+  private int attempts;
+  // Set only on pooled messages, whose content lives in a reused buffer
+  private final MessagePool pool;
+  private final char[] contentBuffer;
+  private int contentLength;
 
   /**
    * Constructs a new message with the specified content.
@@ -21,13 +35,117 @@ public class Message {
    * @param content The text content of the message
    */
   public Message(String content) {
+    this(content, DEFAULT_IDS.nextId());
+  }
+
+  /**
+   * Constructs a new message with the specified content and ID, and sets the
+   * creation timestamp.
+   *
+   * @param content The text content of the message
+   * @param messageId The unique ID of the message, usually from an {@link IdGenerator}
+   */
+  public Message(String content, long messageId) {
+    this(content, messageId, System.currentTimeMillis(), System.nanoTime());
+  }
+
+  /**
+   * Constructs a new message created at the given time, for simulations that
+   * run on a virtual clock instead of the system clocks.
+   *
+   * @param content The text content of the message
+   * @param messageId The unique ID of the message
+   * @param creationTime The creation time in milliseconds
+   * @param createdNanos The creation time on the monotonic clock
+   */
+  Message(String content, long messageId, long creationTime, long createdNanos) {
     if (content == null) {
       throw new IllegalArgumentException("Message content cannot be null");
     }
-    this.messageId = UUID.randomUUID().toString();
+    this.messageId = messageId;
     this.content = content;
     // Set the time when the message was 'created' in milliseconds
+    this.creationTime = creationTime;
+    this.intendedTime = this.creationTime;
+    this.createdNanos = createdNanos;
+    this.pool = null;
+    this.contentBuffer = null;
+  }
+
+  /**
+   * Constructs an empty message that belongs to a pool. Its content is written
+   * into {@link #getContentBuffer()} and it is made ready for use by
+   * {@link #reset(long, int)}, each time it is taken from the pool.
+   *
+   * @param pool The pool the message is returned to by {@link #recycle()}
+   * @param contentCapacity The size of the reused content buffer
+   */
+  public Message(MessagePool pool, int contentCapacity) {
+    if (pool == null) {
+      throw new IllegalArgumentException("Message pool cannot be null");
+    }
+    this.pool = pool;
+    this.contentBuffer = new char[contentCapacity];
+  }
+
+  /**
+   * Returns the content buffer of a pooled message, into which new content is
+   * written before calling {@link #reset(long, int)}.
+   *
+   * @return The reused content buffer, or null if the message is not pooled
+   */
+  public char[] getContentBuffer() {
+    return this.contentBuffer;
+  }
+
+  /**
+   * Prepares a pooled message for another trip through the system. Clears the
+   * outcome of its previous trip, gives it a new ID and sets the creation timestamp.
+   *
+   * @param messageId The new unique ID of the message
+   * @param contentLength The number of characters of content in the content buffer
+   */
+  public void reset(long messageId, int contentLength) {
+    if (contentBuffer == null) {
+      throw new IllegalStateException("Only pooled messages can be reset");
+    }
+    if (contentLength < 0 || contentLength > contentBuffer.length) {
+      throw new IllegalArgumentException("Content length must fit in the content buffer");
+    }
+    this.messageId = messageId;
+    this.content = null;
+    this.contentLength = contentLength;
     this.creationTime = System.currentTimeMillis();
+    this.intendedTime = this.creationTime;
+    this.createdNanos = System.nanoTime();
+    this.enqueuedNanos = 0;
+    this.dequeuedNanos = 0;
+    this.sendStartNanos = 0;
+    this.completedNanos = 0;
+    this.failed = false;
+    this.sentTime = 0;
+    this.firstSentTime = 0;
+    this.attempts = 0;
+  }
+
+  /**
+   * Returns a pooled message to its pool once its outcome has been recorded.
+   * The message must not be used afterwards. Does nothing for messages that
+   * are not pooled.
+   */
+  public void recycle() {
+    if (pool != null) {
+      pool.release(this);
+    }
+  }
+
+  /**
+   * Returns the unique ID of the message.
+   *
+   * @return The message ID
+   */
+  public long getMessageId() {
+    return this.messageId;
   }
 
   /**
@@ -36,9 +154,30 @@ public class Message {
    * @return The message content
    */
   public String getContent() {
+    if (this.content == null && this.contentBuffer != null) {
+      // Pooled content is only turned into a string when someone asks for it
+      this.content = new String(contentBuffer, 0, contentLength);
+    }
     return this.content;
   }
 
+  /**
+   * Returns the hash code of the content, the same as {@code getContent().hashCode()},
+   * without creating a string for pooled content.
+   *
+   * @return The hash code of the message content
+   */
+  public int getContentHash() {
+    if (this.content != null) {
+      return this.content.hashCode();
+    }
+    int hash = 0;
+    for (int i = 0; i < contentLength; i++) {
+      hash = 31 * hash + contentBuffer[i];
+    }
+    return hash;
+  }
+
   /**
    * Returns the timestamp when this message was created.
    *
@@ -48,6 +187,138 @@ public class Message {
     return this.creationTime;
   }
 
+  /**
+   * Returns the time at which the workload meant this message to arrive. Unless
+   * set by an open-loop producer it is the creation time.
+   *
+   * @return The intended arrival time in milliseconds since epoch
+   */
+  public long getIntendedTime() {
+    return this.intendedTime;
+  }
+
+  /**
+   * Sets the time at which the workload meant this message to arrive. A producer
+   * that falls behind its schedule creates messages late, and latency measured
+   * from the intended time includes that delay instead of hiding it. A time
+   * after the creation time is taken as the creation time.
+   *
+   * @param intendedTime The intended arrival time in milliseconds since epoch
+   */
+  public void setIntendedTime(long intendedTime) {
+    this.intendedTime = Math.min(intendedTime, this.creationTime);
+  }
+
+  /**
+   * Returns when the message was created, on the monotonic clock.
+   *
+   * @return The creation time from {@link System#nanoTime()}
+   */
+  public long getCreatedNanos() {
+    return this.createdNanos;
+  }
+
+  /**
+   * Returns when the message was last handed to the queue, on the monotonic clock.
+   *
+   * @return The enqueue time from {@link System#nanoTime()}, or 0 if never enqueued
+   */
+  public long getEnqueuedNanos() {
+    return this.enqueuedNanos;
+  }
+
+  /**
+   * Records that the message is being handed to the queue. Called again each
+   * time a retry puts the message back.
+   */
+  public void markEnqueued() {
+    markEnqueued(System.nanoTime());
+  }
+
+  /**
+   * Records the time at which the message was handed to the queue, on a virtual clock.
+   *
+   * @param nanos The time on the monotonic clock
+   */
+  void markEnqueued(long nanos) {
+    this.enqueuedNanos = nanos;
+  }
+
+  /**
+   * Returns when the message was last taken from the queue, on the monotonic clock.
+   *
+   * @return The dequeue time from {@link System#nanoTime()}, or 0 if never dequeued
+   */
+  public long getDequeuedNanos() {
+    return this.dequeuedNanos;
+  }
+
+  /**
+   * Records that a sender has taken the message from the queue.
+   */
+  public void markDequeued() {
+    markDequeued(System.nanoTime());
+  }
+
+  /**
+   * Records the time at which the message was taken from the queue, on a virtual clock.
+   *
+   * @param nanos The time on the monotonic clock
+   */
+  void markDequeued(long nanos) {
+    this.dequeuedNanos = nanos;
+  }
+
+  /**
+   * Returns when the last send attempt started, on the monotonic clock.
+   *
+   * @return The send start time from {@link System#nanoTime()}, or 0 if never sent
+   */
+  public long getSendStartNanos() {
+    return this.sendStartNanos;
+  }
+
+  /**
+   * Records that a send attempt is starting.
+   */
+  public void markSendStarted() {
+    markSendStarted(System.nanoTime());
+  }
+
+  /**
+   * Records the time at which a send attempt started, on a virtual clock.
+   *
+   * @param nanos The time on the monotonic clock
+   */
+  void markSendStarted(long nanos) {
+    this.sendStartNanos = nanos;
+  }
+
+  /**
+   * Returns when the last send attempt completed, on the monotonic clock.
+   *
+   * @return The completion time from {@link System#nanoTime()}, or 0 if never completed
+   */
+  public long getCompletedNanos() {
+    return this.completedNanos;
+  }
+
+  /**
+   * Records that a send attempt has completed.
+   */
+  public void markCompleted() {
+    markCompleted(System.nanoTime());
+  }
+
+  /**
+   * Records the time at which a send attempt completed, on a virtual clock.
+   *
+   * @param nanos The time on the monotonic clock
+   */
+  void markCompleted(long nanos) {
+    this.completedNanos = nanos;
+  }
+
   /**
    * Checks if the message delivery failed.
    *
@@ -85,6 +356,37 @@ public class Message {
       throw new IllegalArgumentException("Sent time cannot be before creation time");
     }
     this.sentTime = sentTime;
+    if (this.firstSentTime == 0) {
+      this.firstSentTime = sentTime;
+    }
+  }
+
+  /**
+   * Returns the timestamp of the first send attempt. It differs from the sent
+   * time only when the message has been retried.
+   *
+   * @return The first sent time in milliseconds since epoch, or 0 if never sent
+   */
+  public long getFirstSentTime() {
+    return this.firstSentTime;
+  }
+
+  /**
+   * Returns the number of times a send of this message has been attempted.
+   *
+   * @return The number of send attempts
+   */
+  public int getAttempts() {
+    return this.attempts;
+  }
+
+  /**
+   * Counts one more send attempt of this message.
+   *
+   * @return The number of send attempts including this one
+   */
+  public int incrementAttempts() {
+    return ++this.attempts;
   }
 
   /**
@@ -94,7 +396,7 @@ public class Message {
    * @return A string containing the message ID and content
    */
   public String toString() {
-    return messageId + ": " + content;
+    return messageId + ": " + getContent();
   }
 
 }
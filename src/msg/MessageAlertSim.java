@@ -1,24 +1,43 @@
 package msg;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simulates a message alerting system with multiple senders processing messages from a queue.
  * The simulation tracks message statistics and monitors progress at specified intervals.
  */
 public class MessageAlertSim {
+    // How often thread and memory usage is sampled while waiting for a run to finish
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+
     private final int messageCount;
     private final int senderCount;
     private final double failureRate;
     private final int meanDelay;
+    private final ServiceTimeModel serviceTime;
     private final int monitorInterval;
+    private final SimulationOptions options;
 
     private final IMessageQueue messageQueue;
     private final MessageStats stats;
+    private final RetryPolicy retryPolicy;
+    private final AdaptiveLimiter limiter;
+    private final List<ArrivalProcess> arrivals;
     private final List<Thread> senderThreads;
-    private Thread producerThread;
+    private final List<Thread> producerThreads;
     private Thread monitorThread;
+    private Thread retryThread;
+    private Thread autoscalerThread;
+    private SenderPool senderPool;
+    private MessagePool messagePool;
+    private RetryScheduler retries;
+    private HashedWheelTimer timer;
+    private ResourceUsage resourceUsage;
+    private double elapsedSeconds;
 
     /**
      * Constructor for a new message alert simulation with specified parameters.
@@ -32,16 +51,61 @@ public class MessageAlertSim {
      */
     public MessageAlertSim(int messageCount, int senderCount, double failureRate,
             int meanDelay, int monitorInterval) {
+        this(messageCount, senderCount, failureRate, meanDelay, monitorInterval,
+            new SimulationOptions());
+    }
+
+    /**
+     * Constructor for a new message alert simulation with specified parameters and
+     * additional tuning options.
+     *
+     * @param messageCount The total number of messages to process in the simulation
+     * @param senderCount The number of concurrent sender threads to create
+     * @param failureRate The probability (0.0 to 1.0) that a message send will fail
+     * @param meanDelay The average delay in milliseconds between message sends
+     * @param monitorInterval The interval in seconds for progress monitoring
+     * @param options Additional options such as the queue implementation to use
+     * @throws IllegalArgumentException if any parameter values are invalid
+     */
+    public MessageAlertSim(int messageCount, int senderCount, double failureRate,
+            int meanDelay, int monitorInterval, SimulationOptions options) {
         validateArguments(messageCount, senderCount, failureRate, meanDelay, monitorInterval);
+        if (options == null) {
+            throw new IllegalArgumentException("options cannot be null");
+        }
 
         this.messageCount = messageCount;
         this.senderCount = senderCount;
         this.failureRate = failureRate;
         this.meanDelay = meanDelay;
         this.monitorInterval = monitorInterval;
-        this.messageQueue = new BlockingMessageQueue(senderCount * 2);
+        this.options = options;
+        if (options.isAutoscale()) {
+            validateAutoscaling(senderCount, options);
+        }
+        if (options.getProducerCount() > messageCount) {
+            throw new IllegalArgumentException("producerCount cannot exceed messageCount");
+        }
+        if ((options.getProductionMode() == ProductionMode.FIXED_RATE
+                || options.getProductionMode() == ProductionMode.TARGET_RATE
+                || options.getProductionMode() == ProductionMode.OPEN_LOOP) && options.getProductionRate() <= 0) {
+            throw new IllegalArgumentException("A production rate is required for " + options.getProductionMode());
+        }
+        this.serviceTime = options.createServiceTimeModel(meanDelay);
+        // Size the queue for the largest the sender pool can get
+        this.messageQueue = options.createQueue(options.resolveMaxSenders(senderCount));
         this.stats = new MessageStats();
+        this.stats.setReportedPercentiles(options.getPercentiles());
+        this.stats.expectCompletions(messageCount);
+        // Build everything that checks the options now, so that bad options fail
+        // here rather than after threads have been started
+        this.retryPolicy = options.getMaxAttempts() > 1 ? options.createRetryPolicy() : null;
+        // All senders share one limiter so the limit applies to the pool as a whole
+        this.limiter = options.isAdaptive()
+            ? options.createLimiter(options.resolveMaxSenders(senderCount), meanDelay, stats) : null;
+        this.arrivals = createArrivals();
         this.senderThreads = new ArrayList<>();
+        this.producerThreads = new ArrayList<>();
     }
 
     /**
@@ -51,33 +115,154 @@ public class MessageAlertSim {
      * @throws InterruptedException if any thread is interrupted during execution
      */
     public void go() throws InterruptedException {
-        // Create the producer thread
-        initializeProducer();
+        if (options.getExecutionMode() == ExecutionMode.DISCRETE_EVENT) {
+            simulateDiscreteEvents();
+            return;
+        }
+        resourceUsage = new ResourceUsage();
+        long start = System.nanoTime();
+
+        boolean drained;
+        // Set when production ends; every wait after that shares this one deadline
+        Long deadline = null;
+        try {
+            // Create the producer threads
+            initializeProducers();
 
-        // Create all the sender threads
-        initializeSenders();
+            // Create the retry scheduler, if failed messages are to be retried
+            initializeRetries();
 
-        // Initialize the monitor thread
-        initializeMonitor();
+            // Create all the sender threads
+            initializeSenders();
 
-        // Wait for the producer and senders to finish
-        waitForCompletion();
+            // Initialize the monitor thread
+            initializeMonitor();
 
-        // Stop all the sender threads and the monitor thread
-        shutdown();
+            // Wait for the producers, then give the senders until the drain deadline to finish
+            awaitProducers();
+            deadline = drainDeadline();
+            drained = waitForCompletion(deadline);
+            elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            resourceUsage.sample();
+        } finally {
+            // Stop all the threads, even if starting them failed or the wait was interrupted.
+            // If production never ended, the drain timeout starts now
+            shutdown(deadline != null ? deadline : drainDeadline());
+        }
+        if (options.isQuiet()) {
+            return;
+        }
 
         // Print the Final Stats
         System.out.println(getFinalStats());
+        if (!drained) {
+            System.out.println("\nDrain Timeout: " + getUnfinishedCount() + " messages unfinished after "
+                + options.getDrainTimeoutMillis() + " ms");
+        }
+        if (options.getServiceTimeType() != ServiceTimeType.UNIFORM) {
+            System.out.println("\nService Time: " + options.getServiceTimeType()
+                + " (mean " + serviceTime.getMean() + " ms)");
+        }
+        printPrediction();
+        System.out.println("\nSender Threads: " + options.getSenderThreadMode() + resourceUsage);
+        if (messagePool != null) {
+            System.out.println("Pooled Messages Allocated: " + messagePool.getAllocatedCount()
+                + " for " + messageCount + " messages");
+        }
     }
 
     /**
-     * Helper method that initializes and starts the producer thread that will generate messages
-     * for the message queue.
+     * Helper method that runs the simulation as discrete events on a virtual clock
+     * instead of with threads, and prints the same final statistics.
      */
-    private void initializeProducer() {
-        Producer producer = new Producer(messageQueue, messageCount);
-        producerThread = new Thread(producer);
-        producerThread.start();
+    private void simulateDiscreteEvents() {
+        DiscreteEventSimulation simulation = new DiscreteEventSimulation(messageCount, senderCount,
+            failureRate, serviceTime, stats, options);
+        simulation.run();
+        elapsedSeconds = simulation.getSimulatedNanos() / 1e9;
+        if (options.isQuiet()) {
+            return;
+        }
+
+        System.out.println(getFinalStats());
+        if (options.getServiceTimeType() != ServiceTimeType.UNIFORM) {
+            System.out.println("\nService Time: " + options.getServiceTimeType()
+                + " (mean " + serviceTime.getMean() + " ms)");
+        }
+        System.out.printf("\nSimulated Time: %.3f s (%d events, seed %d)\n", elapsedSeconds,
+            simulation.getEventCount(), options.getSeed());
+        System.out.printf("Simulated Throughput: %.1f msgs/sec\n", getThroughput());
+        printPrediction();
+    }
+
+    /**
+     * Helper method that prints the queueing model's predictions next to the
+     * measurements, if they were asked for.
+     */
+    private void printPrediction() {
+        if (options.isPredict()) {
+            System.out.println(new QueueingModel(messageCount, senderCount, failureRate, meanDelay, options)
+                .compare(stats, elapsedSeconds));
+        }
+    }
+
+    /**
+     * Helper method that creates the arrival process of each producer for the open-loop
+     * production mode, which splits the production rate evenly between the producers.
+     */
+    private List<ArrivalProcess> createArrivals() {
+        List<ArrivalProcess> processes = new ArrayList<>();
+        if (options.getProductionMode() == ProductionMode.OPEN_LOOP) {
+            double rate = options.getProductionRate() / options.getProducerCount();
+            for (int i = 0; i < options.getProducerCount(); i++) {
+                processes.add(options.createArrivalProcess(rate));
+            }
+        }
+        return processes;
+    }
+
+    /**
+     * Helper method that initializes and starts the producer threads that will generate messages
+     * for the message queue. The message count and any production rate are split evenly
+     * between the producers, which share one message pool but each have an ID
+     * generator of their own when the ID type allows it.
+     */
+    private void initializeProducers() {
+        messagePool = options.createMessagePool();
+        int producerCount = options.getProducerCount();
+        List<IdGenerator> idGenerators = options.getIdGenerator().createForProducers(producerCount);
+        double rate = options.getProductionRate() / producerCount;
+        for (int i = 0; i < producerCount; i++) {
+            // The first messageCount % producerCount producers make one message more
+            int count = messageCount / producerCount + (i < messageCount % producerCount ? 1 : 0);
+            Producer.Builder producer = Producer.builder(messageQueue, count)
+                .batchSize(options.getBatchSize())
+                .idGenerator(idGenerators.get(i))
+                .pool(messagePool)
+                .productionMode(options.getProductionMode())
+                .productionRate(rate)
+                .stats(stats);
+            if (options.getProductionMode() == ProductionMode.OPEN_LOOP) {
+                producer.arrivals(arrivals.get(i));
+            }
+            String name = producerCount == 1 ? "Producer" : "Producer-" + i;
+            Thread producerThread = options.getSupportThreadMode().newThread(producer.build(), name);
+            producerThread.start();
+            producerThreads.add(producerThread);
+        }
+    }
+
+    /**
+     * Helper method that starts the thread putting failed messages back on the queue
+     * when more than one send attempt is allowed.
+     */
+    private void initializeRetries() {
+        if (retryPolicy == null) {
+            return;
+        }
+        retries = new RetryScheduler(messageQueue, retryPolicy, stats);
+        retryThread = options.getSupportThreadMode().newThread(retries, "Retry");
+        retryThread.start();
     }
 
     /**
@@ -85,46 +270,183 @@ public class MessageAlertSim {
      * messages from the queue.
      */
     private void initializeSenders() {
-        // Create all the sender threads and store their reference in a list
+        if (options.getSenderEngine() == SenderEngine.TIMER_WHEEL) {
+            initializeTimerWheelSenders();
+            return;
+        }
+        if (options.getSenderEngine() == SenderEngine.ASYNC) {
+            initializeAsyncSenders();
+            return;
+        }
+        // Create the pool of sender threads and start the initial senders
+        senderPool = new SenderPool(i -> Sender.builder(senderQueue(i), "Sender-" + i, failureRate, serviceTime,
+                stats).batchSize(options.getBatchSize()).retries(retries).limiter(limiter).build(),
+            options.getSenderThreadMode());
+        senderPool.grow(senderCount);
+
+        if (options.isAutoscale()) {
+            Autoscaler autoscaler = options.createAutoscaler(senderPool, messageQueue, stats,
+                senderCount, meanDelay);
+            autoscalerThread = options.getSupportThreadMode().newThread(autoscaler, "Autoscaler");
+            autoscalerThread.start();
+        }
+    }
+
+    /**
+     * Helper method that starts a shared timer wheel and a few dispatcher threads that
+     * keep up to senderCount sends in flight on it.
+     */
+    private void initializeTimerWheelSenders() {
+        timer = new HashedWheelTimer(options.getTickMillis(), TimeUnit.MILLISECONDS, 512,
+            options.getTimerWorkers());
+        timer.start();
+        Semaphore inFlight = new Semaphore(senderCount);
+        for (int i = 0; i < options.getDispatcherCount(); i++) {
+            TimerWheelSender sender = TimerWheelSender.builder(senderQueue(i), timer, inFlight,
+                failureRate, serviceTime, stats).retries(retries).build();
+            Thread senderThread = options.getSenderThreadMode().newThread(sender, "Dispatcher-" + i);
+            senderThread.start();
+            senderThreads.add(senderThread);
+        }
+    }
+
+    /**
+     * Helper method that starts a shared timer wheel and one async sender thread per
+     * sender, each keeping up to maxInFlight sends outstanding.
+     */
+    private void initializeAsyncSenders() {
+        timer = new HashedWheelTimer(options.getTickMillis(), TimeUnit.MILLISECONDS, 512,
+            options.getTimerWorkers());
+        timer.start();
         for (int i = 0; i < senderCount; i++) {
-            Sender sender = new Sender(messageQueue, "Sender-" + i,
-                failureRate, meanDelay, stats);
-            Thread senderThread = new Thread(sender);
+            AsyncSender sender = AsyncSender.builder(senderQueue(i), "Sender-" + i, failureRate,
+                serviceTime, stats, timer, options.getMaxInFlight()).retries(retries).build();
+            Thread senderThread = options.getSenderThreadMode().newThread(sender, sender.getSenderId());
             senderThread.start();
             senderThreads.add(senderThread);
         }
     }
 
+    /**
+     * Helper method that returns the queue a sender consumes from. With a sharded
+     * queue each sender is bound to its own shard, otherwise all senders share the queue.
+     */
+    private IMessageQueue senderQueue(int index) {
+        if (messageQueue instanceof ShardedMessageQueue) {
+            ShardedMessageQueue sharded = (ShardedMessageQueue) messageQueue;
+            return sharded.shard(index % sharded.shardCount());
+        }
+        return messageQueue;
+    }
+
     /**
      * Helper method that initializes and starts the monitor thread that tracks and reports
      * simulation progress at regular intervals.
      */
     private void initializeMonitor() {
-        ProgressMonitor monitor = new ProgressMonitor(stats, monitorInterval);
-        monitorThread = new Thread(monitor);
+        if (options.isQuiet()) {
+            return;
+        }
+        long intervalMillis = options.getMonitorIntervalMillis() > 0
+                ? options.getMonitorIntervalMillis() : monitorInterval * 1000L;
+        ProgressMonitor monitor = new ProgressMonitor(stats, intervalMillis, TimeUnit.MILLISECONDS);
+        monitorThread = options.getSupportThreadMode().newThread(monitor, "Monitor");
         monitorThread.start();
     }
 
     /**
-     * Helper method to wait for the producer thread to complete and ensures all messages
-     * have been processed (either sent successfully or failed).
+     * Helper method to wait for the producer threads to complete. Thread and memory
+     * usage is sampled throughout the wait.
      *
      * @throws InterruptedException if the thread is interrupted while waiting
      */
-    private void waitForCompletion() throws InterruptedException {
-        producerThread.join();
+    private void awaitProducers() throws InterruptedException {
+        for (Thread producerThread : producerThreads) {
+            while (producerThread.isAlive()) {
+                resourceUsage.sample();
+                producerThread.join(SAMPLE_INTERVAL_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Helper method that returns the drain deadline for waits starting now. It is
+     * only meaningful if a drain timeout is set.
+     */
+    private long drainDeadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getDrainTimeoutMillis());
+    }
 
-        while (stats.getSentCount() + stats.getFailedCount() < messageCount) {
-            Thread.sleep(100);
+    /**
+     * Helper method to wait for all messages to be processed (either sent successfully
+     * or failed). The wait ends the moment the last message completes, or at the drain
+     * deadline if one is set. Thread and memory usage is sampled throughout the wait.
+     *
+     * @param deadline The drain deadline in {@link System#nanoTime()} terms
+     * @return true if every message was processed, false if the drain deadline passed first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private boolean waitForCompletion(long deadline) throws InterruptedException {
+        while (true) {
+            resourceUsage.sample();
+            long remaining = remainingNanos(deadline);
+            if (stats.awaitCompletion(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(SAMPLE_INTERVAL_MILLIS)),
+                    TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            if (remaining <= 0) {
+                return false;
+            }
         }
     }
 
     /**
-     * Helper method to perform cleanup by stopping all sender threads and the monitor thread.
+     * Helper method to perform cleanup by stopping the producer, sender, autoscaler,
+     * retry and monitor threads. Sends that are in flight when the senders are stopped
+     * are finished and recorded before the final statistics are printed. The waits here
+     * end at the same drain deadline as the wait for completion, if one is set.
+     *
+     * @param deadline The drain deadline in {@link System#nanoTime()} terms
+     * @throws InterruptedException if the thread is interrupted while waiting
      */
-    private void shutdown() {
+    private void shutdown(long deadline) throws InterruptedException {
+        producerThreads.forEach(Thread::interrupt);
+        if (autoscalerThread != null) {
+            autoscalerThread.interrupt();
+        }
+        if (senderPool != null) {
+            senderPool.shutdown();
+        }
         senderThreads.forEach(Thread::interrupt);
-        monitorThread.interrupt();
+        if (senderPool != null) {
+            senderPool.awaitTermination(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        }
+        for (Thread senderThread : senderThreads) {
+            TimeUnit.NANOSECONDS.timedJoin(senderThread, remainingNanos(deadline));
+        }
+        if (timer != null) {
+            timer.awaitIdle(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+            timer.stop();
+        }
+        if (monitorThread != null) {
+            monitorThread.interrupt();
+        }
+        if (retryThread != null) {
+            retryThread.interrupt();
+        }
+        for (Thread thread : Arrays.asList(autoscalerThread, monitorThread, retryThread)) {
+            if (thread != null) {
+                TimeUnit.NANOSECONDS.timedJoin(thread, remainingNanos(deadline));
+            }
+        }
+    }
+
+    /**
+     * Helper method that returns the time left until the given drain deadline, or
+     * the longest possible wait if there is none.
+     */
+    private long remainingNanos(long deadline) {
+        return options.getDrainTimeoutMillis() > 0 ? Math.max(0, deadline - System.nanoTime()) : Long.MAX_VALUE;
     }
 
     /**
@@ -136,6 +458,53 @@ public class MessageAlertSim {
         return stats.toString();
     }
 
+    /**
+     * Retrieves the live statistics of the simulation.
+     *
+     * @return The message statistics shared by all senders
+     */
+    public MessageStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Retrieves the number of messages that were neither sent nor failed, because
+     * the drain deadline passed before they were processed.
+     *
+     * @return The number of unfinished messages
+     */
+    public long getUnfinishedCount() {
+        return messageCount - stats.getSentCount() - stats.getFailedCount();
+    }
+
+    /**
+     * Retrieves how long the last run took until every message was processed, on
+     * the virtual clock for a discrete-event run.
+     *
+     * @return The elapsed time in seconds, or 0 if the simulation has not been run
+     */
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * Retrieves the rate at which messages were sent during the last run.
+     *
+     * @return The sent messages per second, or 0 if the simulation has not been run
+     */
+    public double getThroughput() {
+        return elapsedSeconds > 0 ? stats.getSentCount() / elapsedSeconds : 0;
+    }
+
+    /**
+     * Retrieves the thread and memory usage measured during the last run.
+     *
+     * @return The resource usage, or null if the simulation has not been run
+     */
+    public ResourceUsage getResourceUsage() {
+        return resourceUsage;
+    }
+
     /**
      * Helper method to validate all the constructor arguments.
      */
@@ -158,9 +527,21 @@ public class MessageAlertSim {
         }
     }
 
+    /**
+     * Helper method to validate the autoscaling options against the initial sender count.
+     */
+    private void validateAutoscaling(int senderCount, SimulationOptions options) {
+        if (options.getSenderEngine() != SenderEngine.THREAD) {
+            throw new IllegalArgumentException("Autoscaling requires the thread sender engine");
+        }
+        if (senderCount < options.getMinSenders() || senderCount > options.resolveMaxSenders(senderCount)) {
+            throw new IllegalArgumentException("senderCount must be between the minimum and maximum senders");
+        }
+    }
+
     public static void main(String[] args) throws InterruptedException {
-        if (args.length != 5) {
-            System.err.println("Usage: make run <messageCount> <senderCount> <failureRate> <meanDelay> <monitorInterval>");
+        if (args.length < 5) {
+            System.err.println("Usage: make run <messageCount> <senderCount> <failureRate> <meanDelay> <monitorInterval> [OPTS=\"--name=value ...\"]");
             System.exit(1);
         }
 
@@ -170,12 +551,17 @@ public class MessageAlertSim {
             double failureRate = Double.parseDouble(args[2]);
             int meanDelay = Integer.parseInt(args[3]);
             int monitorInterval = Integer.parseInt(args[4]);
+            SimulationOptions options = SimulationOptions.fromArgs(args, 5);
 
-            MessageAlertSim sim = new MessageAlertSim(messageCount, senderCount, failureRate, meanDelay, monitorInterval);
+            MessageAlertSim sim = new MessageAlertSim(messageCount, senderCount, failureRate, meanDelay,
+                monitorInterval, options);
             sim.go();
         } catch (NumberFormatException e) {
             System.err.println("Error: Invalid number format in arguments");
             System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
         }
     }
 }
\ No newline at end of file
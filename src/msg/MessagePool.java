@@ -0,0 +1,76 @@
+package msg;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of reusable messages. The producer takes a message from the
+ * pool instead of allocating one, and the message goes back to the pool once
+ * its outcome has been recorded, so a long run reaches a steady state where
+ * no messages or content strings are allocated. The free messages are held
+ * in a lock-free ring buffer. When the pool is empty a new message is
+ * allocated, and a message released to a full pool is left to the garbage
+ * collector, so the pool never blocks.
+ */
+public class MessagePool {
+    private final RingBufferMessageQueue free;
+    private final int contentCapacity;
+    private final AtomicLong allocated = new AtomicLong();
+
+    /**
+     * Constructs a new, empty pool.
+     *
+     * @param capacity The maximum number of free messages kept, rounded up to a power of two
+     * @param contentCapacity The size of each message's content buffer
+     * @throws IllegalArgumentException if capacity or contentCapacity is not positive
+     */
+    public MessagePool(int capacity, int contentCapacity) {
+        if (contentCapacity <= 0) {
+            throw new IllegalArgumentException("contentCapacity must be positive");
+        }
+        // Nobody ever waits on the free list, so a strategy with a no-op signal is enough
+        this.free = new RingBufferMessageQueue(capacity, BusySpinWaitStrategy::new);
+        this.contentCapacity = contentCapacity;
+    }
+
+    /**
+     * Takes a free message from the pool, or allocates one if none is free. The
+     * caller writes the content into its buffer and calls {@link Message#reset(long, int)}.
+     *
+     * @return A message belonging to this pool
+     */
+    public Message acquire() {
+        Message message = free.poll();
+        if (message == null) {
+            allocated.incrementAndGet();
+            message = new Message(this, contentCapacity);
+        }
+        return message;
+    }
+
+    /**
+     * Returns a message to the pool. Called through {@link Message#recycle()}.
+     *
+     * @param message A message belonging to this pool that is no longer in use
+     */
+    public void release(Message message) {
+        free.offer(message);
+    }
+
+    /**
+     * Returns the number of messages the pool has allocated.
+     *
+     * @return The number of allocated messages
+     */
+    public long getAllocatedCount() {
+        return allocated.get();
+    }
+
+    /**
+     * Returns the number of free messages in the pool.
+     *
+     * @return The number of messages waiting to be reused
+     */
+    public int getFreeCount() {
+        return free.size();
+    }
+}
@@ -1,51 +1,105 @@
 package msg;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.function.BooleanSupplier;
 
 public class MessageQueue implements IMessageQueue {
     private Queue<Message> queue;
     private int capacity;
     private Object lock = new Object();
+    private final WaitStrategy waitStrategy;
+    private final BooleanSupplier notFull = () -> size() < capacity;
+    private final BooleanSupplier notEmpty = () -> !isEmpty();
 
     public MessageQueue(int capacity) {
+        this(capacity, new BlockingWaitStrategy());
+    }
+
+    public MessageQueue(int capacity, WaitStrategy waitStrategy) {
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("waitStrategy cannot be null");
+        }
         this.queue = new LinkedList<>();
         this.capacity = capacity;
+        this.waitStrategy = waitStrategy;
     }
 
     public void add(Message item) throws InterruptedException {
-        synchronized (lock) {
-            // wait until the queue has space for a new message
-            while (queue.size() == capacity) {
-                try {
-                    lock.wait();
-                } catch (InterruptedException e) {
+        while (true) {
+            synchronized (lock) {
+                if (queue.size() < capacity) {
+                    queue.add(item);
                     break;
                 }
             }
-            queue.add(item);
-            // notify all the threads that the lock on queue is released
-            lock.notifyAll();
-            // return true;
+            // wait outside the lock until the queue has space for a new message
+            waitStrategy.await(notFull);
         }
+        // wake the threads waiting for a message
+        waitStrategy.signalAll();
     }
 
     public Message remove() throws InterruptedException {
-        synchronized (lock) {
-            // wait until the queue has messages to be dequeued
-            while (queue.isEmpty()) {
-                try {
-                    lock.wait();
-                } catch (InterruptedException e) {
-                    break;
+        Message msg;
+        while (true) {
+            synchronized (lock) {
+                msg = queue.poll();
+            }
+            if (msg != null) {
+                break;
+            }
+            // wait outside the lock until the queue has messages to be dequeued
+            waitStrategy.await(notEmpty);
+        }
+        // wake the threads waiting for space
+        waitStrategy.signalAll();
+        return msg;
+    }
+
+    public void addAll(Collection<Message> items) throws InterruptedException {
+        Iterator<Message> iterator = items.iterator();
+        while (iterator.hasNext()) {
+            boolean added = false;
+            synchronized (lock) {
+                // add as many messages as fit before waking the waiting threads once
+                while (iterator.hasNext() && queue.size() < capacity) {
+                    queue.add(iterator.next());
+                    added = true;
                 }
             }
+            if (added) {
+                waitStrategy.signalAll();
+            }
+            if (iterator.hasNext()) {
+                waitStrategy.await(notFull);
+            }
+        }
+    }
 
-            Message msg = queue.poll();
-            // notify all the threads that the lock on the queue is released
-            lock.notifyAll();
-            return msg;
+    public int drainTo(List<Message> target, int maxMessages) throws InterruptedException {
+        if (maxMessages <= 0) {
+            throw new IllegalArgumentException("maxMessages must be positive");
+        }
+        int drained = 0;
+        while (drained == 0) {
+            synchronized (lock) {
+                while (drained < maxMessages && !queue.isEmpty()) {
+                    target.add(queue.poll());
+                    drained++;
+                }
+            }
+            if (drained == 0) {
+                // wait until the queue has messages to be dequeued
+                waitStrategy.await(notEmpty);
+            }
         }
+        // wake the waiting threads once for the whole batch
+        waitStrategy.signalAll();
+        return drained;
     }
 
     public int size() {
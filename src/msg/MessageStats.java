@@ -1,44 +1,166 @@
 package msg;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Tracks statistics for message processing operations in a thread-safe manner.
  * Maintains counts of successful and failed message sends, as well as processing
- * time metrics. All operations are atomic to ensure thread safety when accessed
- * by multiple sender threads.
+ * time metrics. Counters are 64-bit and striped across cells that concurrent
+ * sender threads update without contending on a shared cache line, and are
+ * summed when read.
  */
 public class MessageStats {
-    private AtomicInteger sentCount;
-    private AtomicInteger failedCount;
-    private AtomicLong totalProcessingTime;
+    private final LongAdder sentCount;
+    private final LongAdder failedCount;
+    private final LongAdder totalProcessingTime;
+    private final LongAdder attemptCount;
+    private final LongAdder retryCount;
+    private final LongAdder firstTrySuccessCount;
+    private final LongAdder retriedMessageCount;
+    private final LongAdder totalRetryLatency;
+    private final LongAdder breakerOpenCount;
+    private volatile CircuitBreaker.State breakerState;
+    private volatile int concurrencyLimit;
+    private volatile int senderCount;
+    private final AtomicInteger peakSenderCount;
+    private final LongAdder stageCount;
+    private final LongAdder totalEnqueueDelayNanos;
+    private final LongAdder totalQueueWaitNanos;
+    private final LongAdder totalDispatchWaitNanos;
+    private final LongAdder totalServiceNanos;
+    private final LongAdder totalFullQueueWaitNanos;
+    // Latencies of sent and of failed messages, whose counts are also the recorded messages' outcomes
+    private final LatencyHistogram sentLatency;
+    private final LatencyHistogram failedLatency;
+    private final long startNanos;
+    private volatile double[] reportedPercentiles = {50, 90, 99, 99.9};
+    // The sent plus failed count at which the expected messages have all completed, or -1
+    private volatile long completionTarget = -1;
+    // Written only by threads waiting for completion, so recording a message only reads it
+    private final AtomicInteger completionWaiters = new AtomicInteger();
+    private final Lock completionLock = new ReentrantLock();
+    private final Condition completed = completionLock.newCondition();
 
     /**
      * Constructs a new MessageStats instance with all counters initialized to zero.
      */
     public MessageStats() {
-        this.sentCount = new AtomicInteger(0);
-        this.failedCount = new AtomicInteger(0);
-        this.totalProcessingTime = new AtomicLong(0);
+        this.sentCount = new LongAdder();
+        this.failedCount = new LongAdder();
+        this.totalProcessingTime = new LongAdder();
+        this.attemptCount = new LongAdder();
+        this.retryCount = new LongAdder();
+        this.firstTrySuccessCount = new LongAdder();
+        this.retriedMessageCount = new LongAdder();
+        this.totalRetryLatency = new LongAdder();
+        this.breakerOpenCount = new LongAdder();
+        this.peakSenderCount = new AtomicInteger(0);
+        this.stageCount = new LongAdder();
+        this.totalEnqueueDelayNanos = new LongAdder();
+        this.totalQueueWaitNanos = new LongAdder();
+        this.totalDispatchWaitNanos = new LongAdder();
+        this.totalServiceNanos = new LongAdder();
+        this.totalFullQueueWaitNanos = new LongAdder();
+        this.sentLatency = new LatencyHistogram();
+        this.failedLatency = new LatencyHistogram();
+        this.startNanos = System.nanoTime();
     }
 
     /**
-     * Atomically increments the count of successfully sent messages.
+     * Increments the count of successfully sent messages, for a message whose
+     * outcome is not recorded with {@link #record(Message)}.
      */
     public void incrementSent() {
-        sentCount.incrementAndGet();
+        sentCount.increment();
+        signalIfComplete();
     }
 
     /**
-     * Atomically increments the count of failed message sends.
+     * Increments the count of failed message sends, for a message whose outcome
+     * is not recorded with {@link #record(Message)}.
      */
     public void incrementFailed() {
-        failedCount.incrementAndGet();
+        failedCount.increment();
+        signalIfComplete();
     }
 
     /**
-     * Atomically adds the specified processing time to the total.
+     * Sets the number of sent or failed messages that {@link #awaitCompletion} waits
+     * for. Messages counted before this call do not count towards it.
+     *
+     * @param count The number of messages expected to complete
+     * @throws IllegalArgumentException if count is negative
+     */
+    public void expectCompletions(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count cannot be negative");
+        }
+        completionTarget = completedCount() + count;
+    }
+
+    /**
+     * Waits until the expected number of messages have been sent or have failed.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit The unit of timeout
+     * @return true if every expected message completed, false if the timeout passed first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws IllegalStateException if no completions are expected
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long target = completionTarget;
+        if (target < 0) {
+            throw new IllegalStateException("No completions are expected");
+        }
+        if (completedCount() >= target) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        // Register before re-checking so that the signal for the last message cannot be missed
+        completionWaiters.incrementAndGet();
+        completionLock.lock();
+        try {
+            while (completedCount() < target) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = completed.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            completionLock.unlock();
+            completionWaiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Helper method that wakes the threads waiting for completion once the expected
+     * messages have all been sent or failed. Recording a message writes nothing
+     * shared here, and sums the counters only while a thread is waiting.
+     */
+    private void signalIfComplete() {
+        if (completionWaiters.get() == 0) {
+            return;
+        }
+        long target = completionTarget;
+        if (target < 0 || completedCount() < target) {
+            return;
+        }
+        completionLock.lock();
+        try {
+            completed.signalAll();
+        } finally {
+            completionLock.unlock();
+        }
+    }
+
+    /**
+     * Adds the specified processing time to the total.
      *
      * @param time The processing time in milliseconds to add
      */
@@ -46,7 +168,205 @@ public class MessageStats {
         if (time < 0) {
             throw new IllegalArgumentException("Processing time cannot be negative");
         }
-        totalProcessingTime.addAndGet(time);
+        totalProcessingTime.add(time);
+    }
+
+    /**
+     * Records the outcome of a message whose send has completed. Counts the
+     * message as sent or failed and adds the time from its intended arrival
+     * until it was sent to the total processing time. The intended arrival is
+     * the creation time unless an open-loop producer stamped an earlier one.
+     *
+     * @param message The message whose failed flag and sent time have been set
+     */
+    public void record(Message message) {
+        if (!message.isFailed() && message.getAttempts() <= 1) {
+            firstTrySuccessCount.increment();
+        }
+        addProcessingTime(message.getSentTime() - message.getIntendedTime());
+        attemptCount.add(Math.max(1, message.getAttempts()));
+        if (message.getAttempts() > 1) {
+            retriedMessageCount.increment();
+            totalRetryLatency.add(message.getSentTime() - message.getFirstSentTime());
+        }
+        recordStages(message);
+        // Count the outcome last, through the latency histogram, so a message counted
+        // as sent or failed has all its other statistics recorded
+        (message.isFailed() ? failedLatency : sentLatency).record(latencyNanos(message));
+        signalIfComplete();
+    }
+
+    /**
+     * Helper method that returns the number of messages that have been sent or have failed.
+     */
+    private long completedCount() {
+        return sentCount.sum() + failedCount.sum() + sentLatency.getCount() + failedLatency.getCount();
+    }
+
+    /**
+     * Helper method that returns the time from a message's intended arrival until its
+     * last send completed, at nanosecond precision when the send was timestamped.
+     */
+    private long latencyNanos(Message message) {
+        long lateness = (message.getCreationTime() - message.getIntendedTime()) * 1_000_000;
+        if (message.getCompletedNanos() != 0) {
+            return Math.max(0, message.getCompletedNanos() - message.getCreatedNanos() + lateness);
+        }
+        return Math.max(0, (message.getSentTime() - message.getIntendedTime()) * 1_000_000);
+    }
+
+    /**
+     * Helper method that adds the time a message spent in each stage of its last
+     * attempt, if it passed through all of them.
+     */
+    private void recordStages(Message message) {
+        long enqueued = message.getEnqueuedNanos();
+        long dequeued = message.getDequeuedNanos();
+        long sendStart = message.getSendStartNanos();
+        long completed = message.getCompletedNanos();
+        if (enqueued == 0 || dequeued == 0 || sendStart == 0 || completed == 0) {
+            return;
+        }
+        stageCount.increment();
+        totalEnqueueDelayNanos.add(enqueued - message.getCreatedNanos());
+        totalQueueWaitNanos.add(dequeued - enqueued);
+        totalDispatchWaitNanos.add(sendStart - dequeued);
+        totalServiceNanos.add(completed - sendStart);
+    }
+
+    /**
+     * Records a failed send attempt of a message that has been scheduled for
+     * another attempt. The message is not counted as sent or failed until its
+     * final attempt is recorded with {@link #record(Message)}.
+     */
+    public void recordRetry() {
+        retryCount.increment();
+    }
+
+    /**
+     * Returns the number of send attempts that failed and were retried.
+     *
+     * @return The number of retries
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * Returns the number of send attempts made for messages with a final outcome.
+     *
+     * @return The total number of attempts
+     */
+    public long getAttemptCount() {
+        return attemptCount.sum();
+    }
+
+    /**
+     * Calculates the average number of send attempts per message.
+     *
+     * @return The average attempts per message, or 0 if no messages have been processed
+     */
+    public double getAverageAttempts() {
+        long total = completedCount();
+        return total > 0 ? attemptCount.sum() / (double) total : 0;
+    }
+
+    /**
+     * Calculates the fraction of messages that were sent on their first attempt.
+     *
+     * @return The first-try success rate between 0.0 and 1.0, or 0 if no messages
+     *         have been processed
+     */
+    public double getFirstTrySuccessRate() {
+        long total = completedCount();
+        return total > 0 ? firstTrySuccessCount.sum() / (double) total : 0;
+    }
+
+    /**
+     * Calculates the average time retried messages spent between their first and
+     * final attempt, which is the latency added by retrying.
+     *
+     * @return The average retry latency in milliseconds, or 0 if no message was retried
+     */
+    public double getAverageRetryLatency() {
+        long retried = retriedMessageCount.sum();
+        return retried > 0 ? totalRetryLatency.sum() / (double) retried : 0;
+    }
+
+    /**
+     * Records a state change of the circuit breaker in front of the senders.
+     *
+     * @param state The new breaker state
+     */
+    public void recordBreakerState(CircuitBreaker.State state) {
+        if (state == CircuitBreaker.State.OPEN) {
+            breakerOpenCount.increment();
+        }
+        breakerState = state;
+    }
+
+    /**
+     * Records the current concurrency limit of the adaptive limiter.
+     *
+     * @param limit The number of sends allowed at once
+     */
+    public void recordConcurrencyLimit(int limit) {
+        concurrencyLimit = limit;
+    }
+
+    /**
+     * Returns the current state of the circuit breaker.
+     *
+     * @return The breaker state, or null if no circuit breaker is in use
+     */
+    public CircuitBreaker.State getBreakerState() {
+        return breakerState;
+    }
+
+    /**
+     * Returns the number of times the circuit breaker has opened.
+     *
+     * @return The number of times the breaker opened
+     */
+    public long getBreakerOpenCount() {
+        return breakerOpenCount.sum();
+    }
+
+    /**
+     * Returns the current concurrency limit of the adaptive limiter.
+     *
+     * @return The number of sends allowed at once, or 0 if no limiter is in use
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * Records the current number of senders in an autoscaled sender pool.
+     *
+     * @param count The number of active senders
+     */
+    public void recordSenderCount(int count) {
+        senderCount = count;
+        peakSenderCount.accumulateAndGet(count, Math::max);
+    }
+
+    /**
+     * Returns the current number of senders in an autoscaled sender pool.
+     *
+     * @return The number of active senders, or 0 if the pool is not autoscaled
+     */
+    public int getSenderCount() {
+        return senderCount;
+    }
+
+    /**
+     * Returns the largest number of senders an autoscaled sender pool has had.
+     *
+     * @return The peak number of senders, or 0 if the pool is not autoscaled
+     */
+    public int getPeakSenderCount() {
+        return peakSenderCount.get();
     }
 
     /**
@@ -54,8 +374,8 @@ public class MessageStats {
      *
      * @return The number of messages successfully sent
      */
-    public int getSentCount() {
-        return sentCount.get();
+    public long getSentCount() {
+        return sentCount.sum() + sentLatency.getCount();
     }
 
     /**
@@ -64,7 +384,7 @@ public class MessageStats {
      * @return The total processing time in milliseconds
      */
     public long getTotalProcessingTime() {
-        return totalProcessingTime.get();
+        return totalProcessingTime.sum();
     }
 
     /**
@@ -72,8 +392,8 @@ public class MessageStats {
      *
      * @return The number of failed message sends
      */
-    public int getFailedCount() {
-        return failedCount.get();
+    public long getFailedCount() {
+        return failedCount.sum() + failedLatency.getCount();
     }
 
     /**
@@ -84,8 +404,194 @@ public class MessageStats {
      *         have been processed
      */
     public double getAverageProcessingTime() {
-        int total = sentCount.get() + failedCount.get();
-        return total > 0 ? totalProcessingTime.get() / (double) total : 0;
+        long total = completedCount();
+        return total > 0 ? totalProcessingTime.sum() / (double) total : 0;
+    }
+
+    /**
+     * Returns the number of messages whose time in each stage was recorded.
+     *
+     * @return The number of messages with a stage breakdown
+     */
+    public long getStageCount() {
+        return stageCount.sum();
+    }
+
+    /**
+     * Returns the average time from creating a message until handing it to the
+     * queue, which includes waiting for the rest of a producer batch.
+     *
+     * @return The average enqueue delay in milliseconds
+     */
+    public double getAverageEnqueueDelay() {
+        return averageStageMillis(totalEnqueueDelayNanos);
+    }
+
+    /**
+     * Returns the average time a message spent in the queue, from being handed to
+     * it, including any wait for space in a full queue, until a sender took it.
+     *
+     * @return The average queue wait in milliseconds
+     */
+    public double getAverageQueueWait() {
+        return averageStageMillis(totalQueueWaitNanos);
+    }
+
+    /**
+     * Returns the average time from a sender taking a message until its send
+     * started, spent behind earlier messages of the same batch or the limiter.
+     *
+     * @return The average dispatch wait in milliseconds
+     */
+    public double getAverageDispatchWait() {
+        return averageStageMillis(totalDispatchWaitNanos);
+    }
+
+    /**
+     * Returns the average duration of the send itself.
+     *
+     * @return The average service time in milliseconds
+     */
+    public double getAverageServiceTime() {
+        return averageStageMillis(totalServiceNanos);
+    }
+
+    /**
+     * Adds time that a producer or the retry scheduler spent blocked adding messages
+     * to a full queue. This time is also part of the queue wait of the messages.
+     *
+     * @param nanos The time blocked in nanoseconds
+     * @param messages The number of messages that were being added, each of which waited
+     */
+    public void recordFullQueueWait(long nanos, int messages) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Full queue wait cannot be negative");
+        }
+        totalFullQueueWaitNanos.add(nanos * messages);
+    }
+
+    /**
+     * Returns the average time per message that arrivals and retries were held back
+     * waiting for space in a full queue, which shows how much a bounded queue is
+     * pushing back on the producers.
+     *
+     * @return The average full queue wait in milliseconds, or 0 if no messages
+     *         have been processed
+     */
+    public double getAverageFullQueueWait() {
+        long total = completedCount();
+        return total > 0 ? totalFullQueueWaitNanos.sum() / 1e6 / total : 0;
+    }
+
+    /**
+     * Helper method that averages a stage total over the messages with a stage breakdown.
+     */
+    private double averageStageMillis(LongAdder totalNanos) {
+        long count = stageCount.sum();
+        return count > 0 ? totalNanos.sum() / 1e6 / count : 0;
+    }
+
+    /**
+     * Takes an immutable snapshot of these statistics, covering the time since
+     * they were created. The sent and failed counts of recorded messages come
+     * from the same copies of the latency histograms as the latencies, so they
+     * always agree with the latency count. The other totals are read once each
+     * in a single pass, and may include a message recorded during the pass
+     * that the counts do not.
+     *
+     * @return A new snapshot
+     */
+    public StatsSnapshot snapshot() {
+        LatencyHistogram sent = sentLatency.copy();
+        LatencyHistogram failed = failedLatency.copy();
+        return new StatsSnapshot(startNanos, System.nanoTime(), sentCount.sum() + sent.getCount(),
+                failedCount.sum() + failed.getCount(), totalProcessingTime.sum(), retryCount.sum(),
+                stageCount.sum(), totalQueueWaitNanos.sum(), totalServiceNanos.sum(), sent.plus(failed));
+    }
+
+    /**
+     * Returns a histogram of message latencies, from intended arrival until the
+     * last send completed, in nanoseconds, as they are now. Subtract an earlier
+     * copy of it for an interval.
+     *
+     * @return A new latency histogram
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return sentLatency.plus(failedLatency);
+    }
+
+    /**
+     * Returns the message latency at the given percentile.
+     *
+     * @param percentile The percentile, from 0.0 to 100.0
+     * @return The latency in milliseconds
+     */
+    public double getLatencyPercentile(double percentile) {
+        return getLatencyHistogram().getValueAtPercentile(percentile) / 1e6;
+    }
+
+    /**
+     * Returns the highest message latency.
+     *
+     * @return The maximum latency in milliseconds
+     */
+    public double getMaxLatency() {
+        return Math.max(sentLatency.getMax(), failedLatency.getMax()) / 1e6;
+    }
+
+    /**
+     * Sets the latency percentiles shown in the statistics.
+     *
+     * @param percentiles The percentiles, each from 0.0 to 100.0
+     * @throws IllegalArgumentException if no percentiles are given or one is out of range
+     */
+    public void setReportedPercentiles(double... percentiles) {
+        if (percentiles == null || percentiles.length == 0) {
+            throw new IllegalArgumentException("percentiles cannot be null or empty");
+        }
+        for (double percentile : percentiles) {
+            if (percentile < 0.0 || percentile > 100.0) {
+                throw new IllegalArgumentException("percentiles must be between 0.0 and 100.0");
+            }
+        }
+        this.reportedPercentiles = percentiles.clone();
+    }
+
+    /**
+     * Returns the latency percentiles shown in the statistics.
+     *
+     * @return A copy of the percentiles, each from 0.0 to 100.0
+     */
+    public double[] getReportedPercentiles() {
+        return reportedPercentiles.clone();
+    }
+
+    /**
+     * Returns the label of a percentile as shown in the statistics, such as p99 or p99.9.
+     *
+     * @param percentile The percentile, from 0.0 to 100.0
+     * @return The label
+     */
+    public static String percentileLabel(double percentile) {
+        // Drop the fraction of whole percentiles, so 99.0 reads as p99 but 99.9 stays
+        return "p" + (percentile == Math.rint(percentile)
+                ? String.valueOf((long) percentile) : String.valueOf(percentile));
+    }
+
+    /**
+     * Formats the reported percentiles and maximum of a latency histogram, such as
+     * an interval histogram of this object's latencies.
+     *
+     * @param histogram The histogram of latencies in nanoseconds
+     * @return The percentiles and maximum in milliseconds
+     */
+    public String formatLatency(LatencyHistogram histogram) {
+        StringBuilder text = new StringBuilder();
+        for (double percentile : reportedPercentiles) {
+            text.append(String.format("%s=%.3f ms, ", percentileLabel(percentile),
+                    histogram.getValueAtPercentile(percentile) / 1e6));
+        }
+        return text.append(String.format("max=%.3f ms", histogram.getMax() / 1e6)).toString();
     }
 
     /**
@@ -95,9 +601,46 @@ public class MessageStats {
      * @return A formatted string containing all statistics
      */
     public String toString() {
+        LatencyHistogram latency = getLatencyHistogram();
         return "\nFinal Statistics:" +
                 "\nTotal Messages Sent: " + getSentCount() +
                 "\nTotal Messages Failed: " + getFailedCount() +
-                "\nAverage Processing Time: " + getAverageProcessingTime() + " ms";
+                "\nAverage Processing Time: " + getAverageProcessingTime() + " ms" +
+                (latency.getCount() > 0 ? "\nLatency: " + formatLatency(latency) : "") +
+                (getStageCount() > 0 ? stageStats() : "") +
+                (getRetryCount() > 0 ? retryStats() : "") +
+                (getBreakerState() != null ? adaptiveStats() : "") +
+                (getPeakSenderCount() > 0 ? "\nActive Senders: " + getSenderCount() +
+                        " (peak " + getPeakSenderCount() + ")" : "");
+    }
+
+    /**
+     * Helper method that formats the circuit breaker and limiter state, shown only when they are in use.
+     */
+    private String adaptiveStats() {
+        return "\nCircuit Breaker: " + getBreakerState() + " (opened " + getBreakerOpenCount() + " times)" +
+                "\nConcurrency Limit: " + getConcurrencyLimit();
+    }
+
+    /**
+     * Helper method that formats the per-stage breakdown, shown only when it was recorded.
+     */
+    private String stageStats() {
+        return String.format("\nAverage Enqueue Delay: %.3f ms\nAverage Queue Wait: %.3f ms"
+                + "\nAverage Dispatch Wait: %.3f ms\nAverage Service Time: %.3f ms",
+                getAverageEnqueueDelay(), getAverageQueueWait(), getAverageDispatchWait(),
+                getAverageServiceTime())
+                + (totalFullQueueWaitNanos.sum() > 0
+                    ? String.format("\nAverage Full Queue Wait: %.3f ms", getAverageFullQueueWait()) : "");
+    }
+
+    /**
+     * Helper method that formats the retry statistics, shown only when retries happened.
+     */
+    private String retryStats() {
+        return "\nTotal Retries: " + getRetryCount() +
+                "\nAverage Attempts per Message: " + getAverageAttempts() +
+                "\nFirst-Try Success Rate: " + getFirstTrySuccessRate() +
+                "\nAverage Retry Latency: " + getAverageRetryLatency() + " ms";
     }
 }
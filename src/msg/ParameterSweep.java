@@ -0,0 +1,368 @@
+package msg;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Runs a simulation for every combination of a grid of parameters, several at a
+ * time, and collects the throughput and latency of each point for capacity
+ * planning. Each point gets its own {@link MessageAlertSim} with its own options,
+ * queue, threads and statistics, and runs quietly so the runs do not print over
+ * each other. Sweeps are quickest with discrete-event execution, where every point
+ * runs on a virtual clock and the cores are the only limit on parallelism.
+ */
+public class ParameterSweep {
+    private final Supplier<SimulationOptions> options;
+    private int[] messageCounts = {1000};
+    private int[] senderCounts = {10};
+    private double[] failureRates = {0.1};
+    private int[] meanDelays = {100};
+    // 0 means the default capacity of twice the sender count
+    private int[] queueCapacities = {0};
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructs a new sweep over a single point, which the setters widen into a grid.
+     *
+     * @param options Creates the options of each point, such as the execution mode.
+     *        It is called once per point, so no two simulations share options.
+     * @throws IllegalArgumentException if options is null
+     */
+    public ParameterSweep(Supplier<SimulationOptions> options) {
+        if (options == null) {
+            throw new IllegalArgumentException("options cannot be null");
+        }
+        this.options = options;
+    }
+
+    /**
+     * Sets the message counts to sweep.
+     *
+     * @param messageCounts The message counts, each positive
+     * @return This sweep
+     */
+    public ParameterSweep messageCounts(int... messageCounts) {
+        this.messageCounts = validate("messageCounts", messageCounts, 1);
+        return this;
+    }
+
+    /**
+     * Sets the sender counts to sweep.
+     *
+     * @param senderCounts The sender counts, each positive
+     * @return This sweep
+     */
+    public ParameterSweep senderCounts(int... senderCounts) {
+        this.senderCounts = validate("senderCounts", senderCounts, 1);
+        return this;
+    }
+
+    /**
+     * Sets the failure rates to sweep.
+     *
+     * @param failureRates The failure rates, each from 0.0 up to but excluding 1.0
+     * @return This sweep
+     */
+    public ParameterSweep failureRates(double... failureRates) {
+        if (failureRates == null || failureRates.length == 0) {
+            throw new IllegalArgumentException("failureRates cannot be null or empty");
+        }
+        for (double failureRate : failureRates) {
+            if (failureRate < 0.0 || failureRate >= 1.0) {
+                throw new IllegalArgumentException("failureRates must be between 0.0 and 1.0 excluding 1.0");
+            }
+        }
+        this.failureRates = failureRates.clone();
+        return this;
+    }
+
+    /**
+     * Sets the mean send delays to sweep.
+     *
+     * @param meanDelays The mean delays in milliseconds, each positive
+     * @return This sweep
+     */
+    public ParameterSweep meanDelays(int... meanDelays) {
+        this.meanDelays = validate("meanDelays", meanDelays, 1);
+        return this;
+    }
+
+    /**
+     * Sets the queue capacities to sweep.
+     *
+     * @param queueCapacities The queue capacities, each positive, or 0 for twice the sender count
+     * @return This sweep
+     */
+    public ParameterSweep queueCapacities(int... queueCapacities) {
+        this.queueCapacities = validate("queueCapacities", queueCapacities, 0);
+        return this;
+    }
+
+    /**
+     * Sets how many simulations run at the same time.
+     *
+     * @param parallelism The number of simulations run at once
+     * @return This sweep
+     */
+    public ParameterSweep parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Returns the number of points in the grid.
+     *
+     * @return The product of the number of values of each parameter
+     */
+    public int size() {
+        return messageCounts.length * senderCounts.length * failureRates.length * meanDelays.length
+            * queueCapacities.length;
+    }
+
+    /**
+     * Runs a simulation for every point of the grid and waits for all of them.
+     *
+     * @return The results in grid order, with the queue capacity varying fastest
+     *         and the message count slowest
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws IllegalArgumentException if the parameters of a point are invalid
+     * @throws IllegalStateException if a simulation fails
+     */
+    public List<SweepResult> run() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, size()));
+        try {
+            List<Future<SweepResult>> futures = new ArrayList<>();
+            for (int messageCount : messageCounts) {
+                for (int senderCount : senderCounts) {
+                    for (double failureRate : failureRates) {
+                        for (int meanDelay : meanDelays) {
+                            for (int queueCapacity : queueCapacities) {
+                                futures.add(executor.submit(() ->
+                                    runPoint(messageCount, senderCount, failureRate, meanDelay, queueCapacity)));
+                            }
+                        }
+                    }
+                }
+            }
+            List<SweepResult> results = new ArrayList<>();
+            for (Future<SweepResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Formats results as CSV, with a header line naming the columns.
+     *
+     * @param results The results of a sweep
+     * @return The CSV text, or an empty string if there are no results
+     */
+    public static String toCsv(List<SweepResult> results) {
+        if (results.isEmpty()) {
+            return "";
+        }
+        StringBuilder csv = new StringBuilder(results.get(0).csvHeader()).append('\n');
+        for (SweepResult result : results) {
+            csv.append(result.toCsv()).append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Formats results as a JSON array of objects, one per point.
+     *
+     * @param results The results of a sweep
+     * @return The JSON text
+     */
+    public static String toJson(List<SweepResult> results) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < results.size(); i++) {
+            json.append(i > 0 ? ",\n  " : "\n  ").append(results.get(i).toJson());
+        }
+        return json.append(results.isEmpty() ? "]\n" : "\n]\n").toString();
+    }
+
+    /**
+     * Parses a list of values, given either separated by commas ({@code 1,2,5}),
+     * as an inclusive range with a step ({@code 10:100:10}), or as a range grown
+     * by a factor ({@code 1:64:x2}).
+     *
+     * @param text The values
+     * @return The parsed values in order
+     * @throws IllegalArgumentException if the text is not a valid list or range
+     */
+    public static double[] parseValues(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("values cannot be null or empty");
+        }
+        String[] range = text.split(":");
+        if (range.length == 1) {
+            return Arrays.stream(text.split(",")).mapToDouble(value -> Double.parseDouble(value.trim())).toArray();
+        }
+        if (range.length != 3) {
+            throw new IllegalArgumentException("A range must be from:to:step, got " + text);
+        }
+        double from = Double.parseDouble(range[0].trim());
+        double to = Double.parseDouble(range[1].trim());
+        String step = range[2].trim();
+        boolean factor = step.startsWith("x");
+        double amount = Double.parseDouble(factor ? step.substring(1) : step);
+        if (factor ? amount <= 1.0 || from <= 0 : amount <= 0) {
+            throw new IllegalArgumentException("A range must grow at every step, got " + text);
+        }
+        List<Double> values = new ArrayList<>();
+        // Allow for rounding error at the end of fractional ranges
+        for (int i = 0; ; i++) {
+            double value = factor ? from * Math.pow(amount, i) : from + i * amount;
+            if (value > to + Math.abs(to) * 1e-9) {
+                break;
+            }
+            values.add(value);
+        }
+        return values.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Helper method that runs the simulation of one point quietly and measures it.
+     */
+    private SweepResult runPoint(int messageCount, int senderCount, double failureRate, int meanDelay,
+                                 int queueCapacity) throws InterruptedException {
+        SimulationOptions pointOptions = options.get().quiet(true);
+        if (queueCapacity > 0) {
+            pointOptions.queueCapacity(queueCapacity);
+        }
+        MessageAlertSim sim = new MessageAlertSim(messageCount, senderCount, failureRate, meanDelay, 1,
+            pointOptions);
+        sim.go();
+        return new SweepResult(messageCount, senderCount, failureRate, meanDelay,
+            pointOptions.resolveQueueCapacity(pointOptions.resolveMaxSenders(senderCount)), sim,
+            pointOptions.getPercentiles());
+    }
+
+    /**
+     * Helper method that checks a list of whole numbers and copies it.
+     */
+    private static int[] validate(String name, int[] values, int minimum) {
+        if (values == null || values.length == 0) {
+            throw new IllegalArgumentException(name + " cannot be null or empty");
+        }
+        for (int value : values) {
+            if (value < minimum) {
+                throw new IllegalArgumentException(name + " must be at least " + minimum);
+            }
+        }
+        return values.clone();
+    }
+
+    /**
+     * Helper method that converts parsed values to whole numbers.
+     */
+    private static int[] toInts(String text) {
+        double[] values = parseValues(text);
+        int[] ints = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ints[i] = (int) Math.round(values[i]);
+        }
+        return ints;
+    }
+
+    /**
+     * Runs a sweep from the command line. The grid is given by {@code --messages},
+     * {@code --senders}, {@code --failure-rates}, {@code --delays} and
+     * {@code --capacities}, each a list or range for {@link #parseValues(String)}.
+     * {@code --parallelism} sets the number of simulations run at once,
+     * {@code --format} is {@code csv} or {@code json}, and {@code --output} names
+     * a file to write instead of the console. Any other {@code --name=value}
+     * option is passed on to every simulation.
+     *
+     * @param args The command line arguments
+     * @throws InterruptedException if the sweep is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        try {
+            List<String> simulationArgs = new ArrayList<>();
+            String format = "csv";
+            String output = null;
+            ParameterSweep sweep = new ParameterSweep(() -> SimulationOptions.fromArgs(
+                simulationArgs.toArray(new String[0]), 0));
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Options must be --name=value, got " + arg);
+                }
+                String value = arg.substring(equals + 1);
+                switch (arg.substring(2, equals)) {
+                    case "messages":
+                        sweep.messageCounts(toInts(value));
+                        break;
+                    case "senders":
+                        sweep.senderCounts(toInts(value));
+                        break;
+                    case "failure-rates":
+                        sweep.failureRates(parseValues(value));
+                        break;
+                    case "delays":
+                        sweep.meanDelays(toInts(value));
+                        break;
+                    case "capacities":
+                        sweep.queueCapacities(toInts(value));
+                        break;
+                    case "parallelism":
+                        sweep.parallelism(Integer.parseInt(value));
+                        break;
+                    case "format":
+                        if (!value.equals("csv") && !value.equals("json")) {
+                            throw new IllegalArgumentException("format must be csv or json");
+                        }
+                        format = value;
+                        break;
+                    case "output":
+                        output = value;
+                        break;
+                    default:
+                        simulationArgs.add(arg);
+                        break;
+                }
+            }
+            // Reject bad simulation options before starting any run
+            SimulationOptions.fromArgs(simulationArgs.toArray(new String[0]), 0);
+
+            List<SweepResult> results = sweep.run();
+            String text = format.equals("json") ? toJson(results) : toCsv(results);
+            if (output == null) {
+                System.out.print(text);
+            } else {
+                Path path = Paths.get(output);
+                Files.write(path, text.getBytes());
+                System.out.println("Wrote " + results.size() + " results to " + path);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Invalid number format in arguments");
+            System.exit(1);
+        } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
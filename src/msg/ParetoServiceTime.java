@@ -0,0 +1,53 @@
+package msg;
+
+import java.util.Random;
+
+/**
+ * Pareto distributed send durations, a power-law tail in which a small share
+ * of sends take far longer than the rest. The smaller the shape, the heavier
+ * the tail; at a shape of 2 or less the variance is infinite.
+ */
+public class ParetoServiceTime implements ServiceTimeModel {
+    private final double meanDelay;
+    private final double alpha;
+    private final double scaleNanos;
+
+    /**
+     * Constructs a new Pareto model.
+     *
+     * @param meanDelay The mean send duration in milliseconds
+     * @param alpha The shape of the tail, which must be above 1 for the mean to exist
+     * @throws IllegalArgumentException if meanDelay is not positive or alpha is not above 1
+     */
+    public ParetoServiceTime(double meanDelay, double alpha) {
+        if (!(meanDelay > 0)) {
+            throw new IllegalArgumentException("meanDelay must be positive");
+        }
+        if (!(alpha > 1)) {
+            throw new IllegalArgumentException("alpha must be greater than 1");
+        }
+        this.meanDelay = meanDelay;
+        this.alpha = alpha;
+        // The mean of a Pareto is scale * alpha / (alpha - 1), and no send is shorter than the scale
+        this.scaleNanos = meanDelay * 1_000_000 * (alpha - 1) / alpha;
+    }
+
+    @Override
+    public long nextServiceTime(Random random) {
+        return (long) (scaleNanos / Math.pow(1.0 - random.nextDouble(), 1.0 / alpha));
+    }
+
+    @Override
+    public double getMean() {
+        return meanDelay;
+    }
+
+    @Override
+    public double getVariance() {
+        if (alpha <= 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double scale = scaleNanos / 1_000_000;
+        return scale * scale * alpha / ((alpha - 1) * (alpha - 1) * (alpha - 2));
+    }
+}
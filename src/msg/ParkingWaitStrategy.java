@@ -0,0 +1,148 @@
+package msg;
+
+import java.lang.invoke.VarHandle;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A wait strategy that spins for a configurable number of tries and then
+ * parks the thread. Parked threads are unparked by {@link #signalAll()}, or
+ * one at a time by {@link #signal()}, which both skip the unparking entirely
+ * when nobody is parked, so the fast path stays free of locks. As a safety
+ * net each park also times out, starting at a short period and doubling up
+ * to a cap, so a thread that stays idle wakes only about once per cap
+ * instead of once per short period.
+ */
+public class ParkingWaitStrategy implements WaitStrategy {
+    private static final long DEFAULT_PARK_NANOS = 50_000;
+    private static final long DEFAULT_MAX_PARK_NANOS = 10_000_000;
+
+    private final int spinTries;
+    private final long parkNanos;
+    private final long maxParkNanos;
+    private final Set<Thread> parked = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger parkedCount = new AtomicInteger();
+
+    /**
+     * Constructs a new parking wait strategy whose park timeout starts at 50
+     * microseconds and backs off to 10 milliseconds.
+     *
+     * @param spinTries The number of busy-spin checks before starting to park
+     * @throws IllegalArgumentException if spinTries is negative
+     */
+    public ParkingWaitStrategy(int spinTries) {
+        this(spinTries, DEFAULT_PARK_NANOS, DEFAULT_MAX_PARK_NANOS);
+    }
+
+    /**
+     * Constructs a new parking wait strategy whose park timeout backs off to
+     * 10 milliseconds, or stays at parkNanos if that is longer.
+     *
+     * @param spinTries The number of busy-spin checks before starting to park
+     * @param parkNanos The time in nanoseconds of the first park
+     * @throws IllegalArgumentException if spinTries is negative or parkNanos is not positive
+     */
+    public ParkingWaitStrategy(int spinTries, long parkNanos) {
+        this(spinTries, parkNanos, Math.max(parkNanos, DEFAULT_MAX_PARK_NANOS));
+    }
+
+    /**
+     * Constructs a new parking wait strategy.
+     *
+     * @param spinTries The number of busy-spin checks before starting to park
+     * @param parkNanos The time in nanoseconds of the first park
+     * @param maxParkNanos The longest time in nanoseconds that the park timeout backs off to
+     * @throws IllegalArgumentException if spinTries is negative, parkNanos is not
+     *         positive or maxParkNanos is less than parkNanos
+     */
+    public ParkingWaitStrategy(int spinTries, long parkNanos, long maxParkNanos) {
+        if (spinTries < 0) {
+            throw new IllegalArgumentException("spinTries cannot be negative");
+        }
+        if (parkNanos <= 0) {
+            throw new IllegalArgumentException("parkNanos must be positive");
+        }
+        if (maxParkNanos < parkNanos) {
+            throw new IllegalArgumentException("maxParkNanos cannot be less than parkNanos");
+        }
+        this.spinTries = spinTries;
+        this.parkNanos = parkNanos;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    /**
+     * Spins and then parks until the condition becomes true.
+     *
+     * @param condition The condition to wait for
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Override
+    public void await(BooleanSupplier condition) throws InterruptedException {
+        for (int tries = 0; tries < spinTries; tries++) {
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread.onSpinWait();
+        }
+        Thread thread = Thread.currentThread();
+        parkedCount.incrementAndGet();
+        try {
+            long timeout = parkNanos;
+            while (true) {
+                // Register before re-checking so that a concurrent signal cannot be missed,
+                // and again on every round since signal() unregisters the thread it wakes
+                parked.add(thread);
+                if (condition.getAsBoolean()) {
+                    return;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.parkNanos(this, timeout);
+                timeout = Math.min(timeout * 2, maxParkNanos);
+            }
+        } finally {
+            parked.remove(thread);
+            parkedCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Unparks all parked threads, if there are any.
+     */
+    @Override
+    public void signalAll() {
+        // Order the caller's queue update before the parked check, since queues may
+        // publish with release-only stores
+        VarHandle.fullFence();
+        if (parkedCount.get() == 0) {
+            return;
+        }
+        for (Thread thread : parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Unparks one parked thread, if there is one. The thread is unregistered so
+     * that a following signal wakes a different one.
+     */
+    @Override
+    public void signal() {
+        if (parkedCount.get() == 0) {
+            return;
+        }
+        for (Thread thread : parked) {
+            if (parked.remove(thread)) {
+                LockSupport.unpark(thread);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package msg;
+
+import java.util.Random;
+
+/**
+ * Arrivals at a constant average rate with exponentially distributed gaps,
+ * as when many independent clients each send now and then.
+ */
+public class PoissonArrivals implements ArrivalProcess {
+    private final double meanGapNanos;
+    private final Random random;
+
+    /**
+     * Constructs a new Poisson arrival process.
+     *
+     * @param ratePerSecond The average number of arrivals per second
+     * @param random The source of randomness
+     * @throws IllegalArgumentException if the rate is not positive or random is null
+     */
+    public PoissonArrivals(double ratePerSecond, Random random) {
+        if (!(ratePerSecond > 0)) {
+            throw new IllegalArgumentException("ratePerSecond must be positive");
+        }
+        if (random == null) {
+            throw new IllegalArgumentException("random cannot be null");
+        }
+        this.meanGapNanos = 1_000_000_000.0 / ratePerSecond;
+        this.random = random;
+    }
+
+    @Override
+    public long nextArrival(long previousArrival) {
+        return previousArrival + exponentialGap(meanGapNanos, random);
+    }
+
+    /**
+     * Draws an exponentially distributed gap.
+     *
+     * @param meanNanos The mean gap in nanoseconds
+     * @param random The source of randomness
+     * @return The gap in nanoseconds
+     */
+    static long exponentialGap(double meanNanos, Random random) {
+        // 1 - nextDouble() is in (0, 1], so the logarithm is finite
+        return (long) (-Math.log(1.0 - random.nextDouble()) * meanNanos);
+    }
+}
@@ -1,5 +1,7 @@
 package msg;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -9,9 +11,22 @@ import java.util.Random;
  * of varying length.
  */
 public class Producer implements Runnable, IProducer {
+    /** The longest content a generated message can have. */
+    public static final int MAX_CONTENT_LENGTH = 100;
+
+    // Shared by all producers, since it is never changed after construction
+    private static final ContentGenerator FAST_CONTENT = new ContentGenerator(MAX_CONTENT_LENGTH);
+
     private final IMessageQueue messageQueue;
     private final int messageCount;
+    private final int batchSize;
     private final Random random;
+    private final IdGenerator idGenerator;
+    private final MessagePool pool;
+    private final ProductionMode mode;
+    private final double rate;
+    private final ArrivalProcess arrivals;
+    private final MessageStats stats;
 
     /**
      * Constructs a new producer with specified message queue and count.
@@ -22,33 +37,308 @@ public class Producer implements Runnable, IProducer {
      * @throws NullPointerException if messageQueue is null
      */
     public Producer(IMessageQueue messageQueue, int messageCount) {
-        validateArguments(messageQueue, messageCount);
-        this.messageQueue = messageQueue;
-        this.messageCount = messageCount;
+        this(builder(messageQueue, messageCount));
+    }
+
+    /**
+     * Helper constructor that takes its settings from a builder.
+     */
+    private Producer(Builder builder) {
+        validateArguments(builder.messageQueue, builder.messageCount);
+        ProductionMode mode = builder.mode;
+        if ((mode == ProductionMode.FIXED_RATE || mode == ProductionMode.TARGET_RATE) && !(builder.rate > 0)) {
+            throw new IllegalArgumentException("Rate must be greater than 0 for " + mode);
+        }
+        if (mode == ProductionMode.OPEN_LOOP && builder.arrivals == null) {
+            throw new IllegalArgumentException("Arrival process cannot be null for " + mode);
+        }
+        this.mode = mode;
+        this.rate = builder.rate;
+        this.arrivals = builder.arrivals;
+        this.stats = builder.stats;
+        // Only take a worker ID when no generator was given
+        this.idGenerator = builder.idGenerator != null
+            ? builder.idGenerator : SnowflakeIdGenerator.withNextWorkerId();
+        this.pool = builder.pool;
+        this.messageQueue = builder.messageQueue;
+        this.messageCount = builder.messageCount;
+        this.batchSize = builder.batchSize;
         this.random = new Random();
     }
 
+    /**
+     * Returns a builder for a producer of the given number of messages. Settings
+     * that are not given keep the defaults of {@link #Producer(IMessageQueue, int)}:
+     * one message at a time, Snowflake IDs, no pool, and a short sleep between messages.
+     *
+     * @param messageQueue The queue to which messages will be added
+     * @param messageCount The total number of messages to produce
+     * @return A new builder
+     */
+    public static Builder builder(IMessageQueue messageQueue, int messageCount) {
+        return new Builder(messageQueue, messageCount);
+    }
+
+    /**
+     * Collects the optional settings of a producer.
+     */
+    public static class Builder {
+        private final IMessageQueue messageQueue;
+        private final int messageCount;
+        private int batchSize = 1;
+        private IdGenerator idGenerator;
+        private MessagePool pool;
+        private ProductionMode mode = ProductionMode.SLEEP;
+        private double rate;
+        private ArrivalProcess arrivals;
+        private MessageStats stats;
+
+        private Builder(IMessageQueue messageQueue, int messageCount) {
+            this.messageQueue = messageQueue;
+            this.messageCount = messageCount;
+        }
+
+        /**
+         * Sets the maximum number of messages added to the queue at once.
+         *
+         * @param batchSize The batch size
+         * @return This builder
+         * @throws IllegalArgumentException if batchSize is not positive
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("Batch size must be greater than 0");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets the generator of message IDs.
+         *
+         * @param idGenerator The generator
+         * @return This builder
+         * @throws IllegalArgumentException if idGenerator is null
+         */
+        public Builder idGenerator(IdGenerator idGenerator) {
+            if (idGenerator == null) {
+                throw new IllegalArgumentException("ID generator cannot be null");
+            }
+            this.idGenerator = idGenerator;
+            return this;
+        }
+
+        /**
+         * Sets the pool messages are taken from, so that content is written into
+         * their reused buffers instead of allocating.
+         *
+         * @param pool The pool, with content buffers of at least {@link #MAX_CONTENT_LENGTH},
+         *        or null to allocate every message
+         * @return This builder
+         */
+        public Builder pool(MessagePool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets how fast messages are added to the queue. Every mode other than
+         * {@link ProductionMode#SLEEP} takes its content from a fast generator that
+         * slices a pre-generated slab of random letters.
+         *
+         * @param mode The production mode
+         * @return This builder
+         * @throws IllegalArgumentException if mode is null
+         */
+        public Builder productionMode(ProductionMode mode) {
+            if (mode == null) {
+                throw new IllegalArgumentException("Production mode cannot be null");
+            }
+            this.mode = mode;
+            return this;
+        }
+
+        /**
+         * Sets the production rate of the fixed and target rate modes.
+         *
+         * @param rate The messages per second
+         * @return This builder
+         */
+        public Builder productionRate(double rate) {
+            this.rate = rate;
+            return this;
+        }
+
+        /**
+         * Sets the arrival process of the open-loop mode, which adds each message
+         * when the process says it arrives. A producer held up by a full queue does
+         * not push its schedule back, and the messages it creates late keep their
+         * intended arrival times, so the wait shows up in the measured latency.
+         *
+         * @param arrivals The arrival process
+         * @return This builder
+         */
+        public Builder arrivals(ArrivalProcess arrivals) {
+            this.arrivals = arrivals;
+            return this;
+        }
+
+        /**
+         * Sets the stats in which the time blocked on a full queue is recorded.
+         *
+         * @param stats The stats, or null to not record it
+         * @return This builder
+         */
+        public Builder stats(MessageStats stats) {
+            this.stats = stats;
+            return this;
+        }
+
+        /**
+         * Builds the producer.
+         *
+         * @return A new producer with these settings
+         * @throws IllegalArgumentException if messageCount is not positive, a rate mode
+         *         has no positive rate, or the open-loop mode has no arrival process
+         * @throws NullPointerException if messageQueue is null
+         */
+        public Producer build() {
+            return new Producer(this);
+        }
+    }
+
     /**
      * Executes the message production loop. Generates and adds the specified number
      * of messages to the queue, with a small delay between messages to simulate
-     * real-world conditions.
+     * real-world conditions, or paced by the production mode. When a batch size
+     * greater than 1 is set, messages are handed to the queue a batch at a time
+     * and the delay is taken once per batch.
      * If interrupted during execution, the thread will preserve its interrupt status
      * and terminate.
      */
     @Override
     public void run() {
+        RatePacer pacer = null;
+        if (mode == ProductionMode.FIXED_RATE || mode == ProductionMode.TARGET_RATE) {
+            pacer = new RatePacer(rate, mode == ProductionMode.FIXED_RATE);
+        }
         try {
-            for (int i = 0; i < messageCount; i++) {
-                Message message = generateMessage();
-                messageQueue.add(message);
-                // Small delay between messages to simulate sending a message in real world
-                Thread.sleep(10);
+            if (mode == ProductionMode.OPEN_LOOP) {
+                produceOpenLoop();
+            } else if (mode != ProductionMode.SLEEP) {
+                producePaced(pacer);
+            } else if (batchSize == 1) {
+                for (int i = 0; i < messageCount; i++) {
+                    Message message = generateMessage();
+                    enqueue(message);
+                    // Small delay between messages to simulate sending a message in real world
+                    Thread.sleep(10);
+                }
+            } else {
+                List<Message> batch = new ArrayList<>(batchSize);
+                int produced = 0;
+                while (produced < messageCount) {
+                    int size = Math.min(batchSize, messageCount - produced);
+                    for (int i = 0; i < size; i++) {
+                        batch.add(generateMessage());
+                    }
+                    enqueueAll(batch);
+                    batch.clear();
+                    produced += size;
+                    // Keep the same average production rate as sending one message at a time
+                    Thread.sleep(10L * size);
+                }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * Helper method that adds messages without the fixed sleep, either as fast as
+     * possible or when the pacer says the next message is due.
+     */
+    private void producePaced(RatePacer pacer) throws InterruptedException {
+        if (batchSize == 1) {
+            for (int i = 0; i < messageCount; i++) {
+                if (pacer != null) {
+                    pacer.pace();
+                }
+                enqueue(generateMessage());
+            }
+            return;
+        }
+        List<Message> batch = new ArrayList<>(batchSize);
+        int produced = 0;
+        while (produced < messageCount) {
+            int size = Math.min(batchSize, messageCount - produced);
+            for (int i = 0; i < size; i++) {
+                if (pacer != null) {
+                    pacer.pace();
+                }
+                batch.add(generateMessage());
+            }
+            enqueueAll(batch);
+            batch.clear();
+            produced += size;
+        }
+    }
+
+    /**
+     * Helper method that adds each message when the arrival process says it arrives
+     * and stamps it with that time. The schedule is kept in nanoseconds from the
+     * start of the run and never moves, however long adding to the queue takes.
+     */
+    private void produceOpenLoop() throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long startMillis = System.currentTimeMillis();
+        List<Message> batch = new ArrayList<>(batchSize);
+        long arrival = 0;
+        for (int i = 0; i < messageCount; i++) {
+            arrival = arrivals.nextArrival(arrival);
+            RatePacer.parkUntil(startNanos + arrival);
+            Message message = generateMessage();
+            message.setIntendedTime(startMillis + arrival / 1_000_000);
+            if (batchSize == 1) {
+                enqueue(message);
+                continue;
+            }
+            batch.add(message);
+            if (batch.size() == batchSize || i == messageCount - 1) {
+                enqueueAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Helper method that records when a message is handed to the queue and adds it,
+     * recording any time blocked on a full queue.
+     */
+    private void enqueue(Message message) throws InterruptedException {
+        long handed = System.nanoTime();
+        message.markEnqueued(handed);
+        messageQueue.add(message);
+        if (stats != null) {
+            stats.recordFullQueueWait(System.nanoTime() - handed, 1);
+        }
+    }
+
+    /**
+     * Helper method that records when a batch is handed to the queue and adds it,
+     * recording any time blocked on a full queue.
+     */
+    private void enqueueAll(List<Message> batch) throws InterruptedException {
+        long handed = System.nanoTime();
+        for (Message message : batch) {
+            message.markEnqueued(handed);
+        }
+        messageQueue.addAll(batch);
+        if (stats != null) {
+            stats.recordFullQueueWait(System.nanoTime() - handed, batch.size());
+        }
+    }
+
     /**
      * Generates a random message with content length between 1 and 100 characters.
      * The content consists of random lowercase letters from 'a' to 'z'.
@@ -57,7 +347,26 @@ public class Producer implements Runnable, IProducer {
      */
     private Message generateMessage() {
         // Get a random message length between 1 and 100
-        int length = random.nextInt(100) + 1;
+        int length = random.nextInt(MAX_CONTENT_LENGTH) + 1;
+
+        if (pool != null) {
+            // Write the content straight into a recycled message's buffer
+            Message message = pool.acquire();
+            char[] buffer = message.getContentBuffer();
+            if (mode != ProductionMode.SLEEP) {
+                length = FAST_CONTENT.fill(buffer);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    buffer[i] = (char) (random.nextInt(26) + 'a');
+                }
+            }
+            message.reset(idGenerator.nextId(), length);
+            return message;
+        }
+        if (mode != ProductionMode.SLEEP) {
+            return new Message(FAST_CONTENT.next(), idGenerator.nextId());
+        }
+
         StringBuilder content = new StringBuilder(length);
 
         for (int i = 0; i < length; i++) {
@@ -65,7 +374,7 @@ public class Producer implements Runnable, IProducer {
             content.append((char) (random.nextInt(26) + 'a'));
         }
 
-        return new Message(content.toString());
+        return new Message(content.toString(), idGenerator.nextId());
     }
 
     /**
@@ -0,0 +1,27 @@
+package msg;
+
+/**
+ * How fast a {@link Producer} adds messages to the queue.
+ */
+public enum ProductionMode {
+    /** Sleep 10 ms after every message, about 100 messages per second. */
+    SLEEP,
+    /** Add messages as fast as the queue takes them. */
+    UNTHROTTLED,
+    /**
+     * Add messages on a fixed schedule at the configured rate. After a stall,
+     * such as a full queue, the producer catches up on the messages it fell
+     * behind on, so the long-run rate stays exact.
+     */
+    FIXED_RATE,
+    /**
+     * Add messages at the configured rate, but forgive time lost to stalls
+     * instead of catching up on it.
+     */
+    TARGET_RATE,
+    /**
+     * Add messages when an {@link ArrivalProcess} says they arrive, whether or
+     * not the queue keeps up, and stamp each one with its intended arrival time.
+     */
+    OPEN_LOOP
+}
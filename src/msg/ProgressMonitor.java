@@ -1,14 +1,30 @@
 package msg;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Monitors and periodically reports statistics for a message processing simulation.
  * This class runs as a separate thread and prints statistics at specified intervals
- * until explicitly stopped or interrupted.
+ * until explicitly stopped or interrupted. Each report is printed from one
+ * {@link StatsSnapshot}, and shows the throughput and latency of the interval
+ * since the previous report next to the lifetime totals, along with both
+ * averaged over decaying 1, 5 and 15 minute windows.
  */
 public class ProgressMonitor implements Runnable, IProgressMonitor {
+    // Time constants of the decaying throughput and latency averages, in seconds
+    private static final double[] RATE_WINDOWS = {60, 300, 900};
+
     private final MessageStats stats;
-    private final int updateIntervalSeconds;
+    private final long updateIntervalNanos;
     private volatile boolean running = true; // define
+    private final ExponentialRate[] sentRates = new ExponentialRate[RATE_WINDOWS.length];
+    private final ExponentialRate[] failedRates = new ExponentialRate[RATE_WINDOWS.length];
+    private final ExponentialAverage[] meanLatencies = new ExponentialAverage[RATE_WINDOWS.length];
+    // The decaying averages of each reported latency percentile, indexed by window and then percentile
+    private final ExponentialAverage[][] percentileLatencies = new ExponentialAverage[RATE_WINDOWS.length][];
+    private final double[] percentiles;
+    // The snapshot of the previous report, so each report can show its own interval
+    private StatsSnapshot previous;
 
     /**
      * Constructs a new progress monitor with specified statistics object and update interval.
@@ -18,9 +34,32 @@ public class ProgressMonitor implements Runnable, IProgressMonitor {
      * @throws IllegalArgumentException if stats is null or updateIntervalSeconds is negative
      */
     public ProgressMonitor(MessageStats stats, int updateIntervalSeconds) {
-        validateArguments(stats, updateIntervalSeconds);
+        this(stats, updateIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Constructs a new progress monitor with an update interval in any unit,
+     * which allows reports more often than once a second.
+     *
+     * @param stats The message statistics object to monitor
+     * @param updateInterval The interval between statistics updates
+     * @param unit The unit of updateInterval
+     * @throws IllegalArgumentException if stats or unit is null or updateInterval is negative
+     */
+    public ProgressMonitor(MessageStats stats, long updateInterval, TimeUnit unit) {
+        validateArguments(stats, updateInterval, unit);
         this.stats = stats;
-        this.updateIntervalSeconds = updateIntervalSeconds;
+        this.updateIntervalNanos = unit.toNanos(updateInterval);
+        this.percentiles = stats.getReportedPercentiles();
+        for (int i = 0; i < RATE_WINDOWS.length; i++) {
+            sentRates[i] = new ExponentialRate(RATE_WINDOWS[i]);
+            failedRates[i] = new ExponentialRate(RATE_WINDOWS[i]);
+            meanLatencies[i] = new ExponentialAverage(RATE_WINDOWS[i]);
+            percentileLatencies[i] = new ExponentialAverage[percentiles.length];
+            for (int j = 0; j < percentiles.length; j++) {
+                percentileLatencies[i][j] = new ExponentialAverage(RATE_WINDOWS[i]);
+            }
+        }
     }
 
     /**
@@ -33,11 +72,14 @@ public class ProgressMonitor implements Runnable, IProgressMonitor {
      */
     @Override
     public void run() {
+        long nextReport = System.nanoTime();
         while (running) {
             try {
                 // Print current message stats periodically based on update interval
                 printStats();
-                Thread.sleep(updateIntervalSeconds * 1000);
+                // Keep to the schedule, so the time spent printing does not make reports drift
+                nextReport += updateIntervalNanos;
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, nextReport - System.nanoTime()));
             } catch (InterruptedException e) {
                 // If Interrupt signal received then stop this thread and set running to false
                 Thread.currentThread().interrupt();
@@ -53,14 +95,86 @@ public class ProgressMonitor implements Runnable, IProgressMonitor {
      * - Number of failed messages
      * - Total processing time
      * - Average processing time per message
+     * - Sent and failed messages per second over the interval and over decaying
+     *   1, 5 and 15 minute windows
+     * - Latency percentiles overall and for the interval since the previous report
+     * - Mean and percentile latencies over decaying 1, 5 and 15 minute windows
      */
     private void printStats() {
+        StatsSnapshot snapshot = stats.snapshot();
+        StatsSnapshot interval = previous == null ? snapshot : snapshot.minus(previous);
+        previous = snapshot;
+        for (int i = 0; i < RATE_WINDOWS.length; i++) {
+            sentRates[i].update(interval.getSentCount(), interval.getElapsedSeconds());
+            failedRates[i].update(interval.getFailedCount(), interval.getElapsedSeconds());
+        }
+        // An interval without messages says nothing about latency, so it leaves the averages as they are
+        if (interval.getLatencyCount() > 0) {
+            updateLatencies(interval);
+        }
+
         System.out.println("\nSMS Simulation Statistics:");
-        System.out.println("Messages Sent: " + stats.getSentCount());
-        System.out.println("Messages Failed: " + stats.getFailedCount());
-        System.out.println("Total Processing Time: " + stats.getTotalProcessingTime());
+        System.out.println("Messages Sent: " + snapshot.getSentCount());
+        System.out.println("Messages Failed: " + snapshot.getFailedCount());
+        System.out.println("Total Processing Time: " + snapshot.getTotalProcessingTime());
         System.out.printf("Average Processing Time: %f ms\n",
-                stats.getAverageProcessingTime());
+                snapshot.getAverageProcessingTime());
+        if (interval.getElapsedSeconds() > 0) {
+            System.out.printf("Interval Throughput: %.1f msgs/sec, %.1f failures/sec, %.3f ms average\n",
+                    interval.getSentPerSecond(), interval.getFailedPerSecond(),
+                    interval.getAverageProcessingTime());
+            System.out.printf("Sent Rate 1/5/15 min: %.1f / %.1f / %.1f msgs/sec\n",
+                    sentRates[0].getRate(), sentRates[1].getRate(), sentRates[2].getRate());
+            System.out.printf("Failure Rate 1/5/15 min: %.1f / %.1f / %.1f failures/sec\n",
+                    failedRates[0].getRate(), failedRates[1].getRate(), failedRates[2].getRate());
+        }
+        if (snapshot.getLatencyCount() > 0) {
+            System.out.println("Latency: " + stats.formatLatency(snapshot.latency()));
+            System.out.println("Interval Latency: " + stats.formatLatency(interval.latency())
+                    + " (" + interval.getLatencyCount() + " messages)");
+            System.out.println("Latency 1/5/15 min: " + formatLatencies());
+        }
+        if (snapshot.getStageCount() > 0) {
+            System.out.printf("Average Queue Wait: %f ms\n", snapshot.getAverageQueueWait());
+            System.out.printf("Average Service Time: %f ms\n", snapshot.getAverageServiceTime());
+        }
+        if (stats.getBreakerState() != null) {
+            System.out.println("Circuit Breaker: " + stats.getBreakerState());
+            System.out.println("Concurrency Limit: " + stats.getConcurrencyLimit());
+        }
+        if (stats.getSenderCount() > 0) {
+            System.out.println("Active Senders: " + stats.getSenderCount());
+        }
+    }
+
+    /**
+     * Helper method that moves the decaying latency averages towards the mean and
+     * percentiles of the interval.
+     */
+    private void updateLatencies(StatsSnapshot interval) {
+        LatencyHistogram latency = interval.latency();
+        double elapsed = interval.getElapsedSeconds();
+        for (int i = 0; i < RATE_WINDOWS.length; i++) {
+            meanLatencies[i].update(latency.getMean() / 1e6, elapsed);
+            for (int j = 0; j < percentiles.length; j++) {
+                percentileLatencies[i][j].update(interval.getLatencyPercentile(percentiles[j]), elapsed);
+            }
+        }
+    }
+
+    /**
+     * Helper method that formats the decaying latency averages, each measure
+     * followed by its 1, 5 and 15 minute values.
+     */
+    private String formatLatencies() {
+        StringBuilder text = new StringBuilder(String.format("mean=%.3f / %.3f / %.3f ms",
+                meanLatencies[0].getValue(), meanLatencies[1].getValue(), meanLatencies[2].getValue()));
+        for (int j = 0; j < percentiles.length; j++) {
+            text.append(String.format(", %s=%.3f / %.3f / %.3f ms", MessageStats.percentileLabel(percentiles[j]),
+                    percentileLatencies[0][j].getValue(), percentileLatencies[1][j].getValue(),
+                    percentileLatencies[2][j].getValue()));
+        }
+        return text.toString();
     }
 
     /**
@@ -74,9 +188,12 @@ public class ProgressMonitor implements Runnable, IProgressMonitor {
 /**
  * Helper method to validate the constructor arguments.
  */
-    private void validateArguments(MessageStats stats, int updateIntervalSeconds) {
-        if (updateIntervalSeconds < 0) {
-            throw new IllegalArgumentException("updateIntervalSeconds must be a positive integer");
+    private void validateArguments(MessageStats stats, long updateInterval, TimeUnit unit) {
+        if (updateInterval < 0) {
+            throw new IllegalArgumentException("updateInterval cannot be negative");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
         }
         if (stats == null) {
             throw new IllegalArgumentException("stats cannot be null");
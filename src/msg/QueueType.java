@@ -0,0 +1,48 @@
+package msg;
+
+import java.util.function.Supplier;
+
+/**
+ * The message queue implementations that a simulation can hand messages through
+ * between the producer and the senders.
+ */
+public enum QueueType {
+    /** A {@link BlockingMessageQueue} guarded by a lock with not-full and not-empty conditions. */
+    BLOCKING,
+    /** A {@link MessageQueue} guarded by a single monitor lock. */
+    LOCKING,
+    /** A lock-free {@link RingBufferMessageQueue}. */
+    RING,
+    /** A {@link ShardedMessageQueue} with one shard per sender and work stealing. */
+    SHARDED;
+
+    /**
+     * Creates a new, empty queue of this type.
+     *
+     * @param capacity The maximum number of messages the queue can hold
+     * @param shardCount The number of shards for a sharded queue
+     * @param partitioning How a sharded queue spreads messages across shards
+     * @param waitStrategies Creates the strategies used to wait while the queue is
+     *        full or empty, or null for the queue's default
+     * @return A new message queue
+     */
+    public IMessageQueue create(int capacity, int shardCount,
+                                ShardedMessageQueue.Partitioning partitioning,
+                                Supplier<WaitStrategy> waitStrategies) {
+        switch (this) {
+            case SHARDED:
+                return new ShardedMessageQueue(shardCount, capacity, partitioning,
+                    waitStrategies == null ? BlockingWaitStrategy::new : waitStrategies);
+            case LOCKING:
+                return waitStrategies == null ? new MessageQueue(capacity)
+                    : new MessageQueue(capacity, waitStrategies.get());
+            case RING:
+                return waitStrategies == null ? new RingBufferMessageQueue(capacity)
+                    : new RingBufferMessageQueue(capacity, waitStrategies);
+            case BLOCKING:
+            default:
+                return new BlockingMessageQueue(capacity,
+                    waitStrategies == null ? null : waitStrategies.get());
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package msg;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Predicts the outcome of a simulation from queueing theory instead of running it.
+ * The senders are the c servers of an M/G/c queue: messages arrive at the production
+ * rate, each send attempt takes a duration with the mean and variance of the service
+ * time model, and failed attempts that are retried come back as extra load.
+ * <p>
+ * Below saturation the wait for a sender comes from the Erlang C formula of M/M/c,
+ * scaled by the Allen-Cunneen factor (ca^2 + cs^2) / 2 for the variability of the
+ * arrivals and the sends. Arrivals are Poisson (ca^2 = 1) when open-loop and evenly
+ * spaced (ca^2 = 0) otherwise. Latency percentiles add a wait that is zero or
+ * exponential with that mean to send durations drawn from the model. At or above
+ * saturation the senders are always busy, so an open-loop backlog grows for the
+ * whole run, and a closed-loop producer keeps the queue full.
+ * <p>
+ * Retry backoff, batching, autoscaling and the adaptive limiter are not modeled,
+ * so their effect shows as a divergence from the measurements.
+ */
+public class QueueingModel {
+    // Measurements further than this fraction from a prediction are flagged
+    private static final double DIVERGENCE = 0.25;
+    private static final int SERVICE_SAMPLES = 10_000;
+
+    private final int servers;
+    private final double arrivalsPerMilli;
+    private final double serviceMean;
+    private final double serviceVariance;
+    private final double attempts;
+    private final double sentFraction;
+    private final double offeredLoad;
+    private final boolean openLoop;
+    private final boolean exponentialService;
+    private final double waitProbability;
+    private final double meanWait;
+    private final double saturatedWait;
+    private final double messageRate;
+    private final double[] percentiles;
+    // Sorted send durations in milliseconds, drawn once with a fixed seed
+    private final double[] serviceSamples;
+
+    /**
+     * Constructs a new model of a simulation with the same parameters as
+     * {@link MessageAlertSim}, less the monitor interval, which has no effect on it.
+     *
+     * @param messageCount The total number of messages to process in the simulation
+     * @param senderCount The number of senders
+     * @param failureRate The probability (0.0 to 1.0) that a message send will fail
+     * @param meanDelay The average delay in milliseconds between message sends
+     * @param options Additional options such as the production rate and service time model
+     * @throws IllegalArgumentException if any parameter values are invalid
+     */
+    public QueueingModel(int messageCount, int senderCount, double failureRate, int meanDelay,
+                         SimulationOptions options) {
+        validateArguments(messageCount, senderCount, failureRate, meanDelay, options);
+        ServiceTimeModel serviceTime = options.createServiceTimeModel(meanDelay);
+        this.servers = options.getSenderEngine() == SenderEngine.ASYNC
+            ? senderCount * options.getMaxInFlight() : senderCount;
+        this.arrivalsPerMilli = arrivalsPerSecond(options) / 1000;
+        this.serviceMean = serviceTime.getMean();
+        this.serviceVariance = serviceTime.getVariance();
+        // Attempts of a message form a geometric series cut off at the attempt limit
+        double lastFailure = Math.pow(failureRate, options.getMaxAttempts());
+        this.attempts = (1 - lastFailure) / (1 - failureRate);
+        this.sentFraction = 1 - lastFailure;
+        this.offeredLoad = arrivalsPerMilli * attempts * serviceMean;
+        this.openLoop = options.getProductionMode() == ProductionMode.OPEN_LOOP;
+        this.exponentialService = options.getServiceTimeType() == ServiceTimeType.EXPONENTIAL;
+        this.percentiles = options.getPercentiles();
+        this.serviceSamples = drawServiceTimes(serviceTime);
+
+        if (isSaturated()) {
+            // The senders finish messages as fast as they can, and the rest wait
+            this.messageRate = servers / (attempts * serviceMean);
+            this.waitProbability = 1;
+            this.saturatedWait = openLoop
+                ? messageCount * (1 / messageRate - 1 / arrivalsPerMilli)
+                : options.resolveQueueCapacity(options.resolveMaxSenders(senderCount)) * serviceMean / servers;
+            this.meanWait = openLoop ? saturatedWait / 2 : saturatedWait;
+        } else {
+            this.messageRate = arrivalsPerMilli;
+            this.waitProbability = erlangC(servers, offeredLoad);
+            double arrivalVariability = openLoop ? 1 : 0;
+            double serviceVariability = serviceMean > 0 ? serviceVariance / (serviceMean * serviceMean) : 0;
+            double mmcWait = waitProbability * serviceMean / (servers - offeredLoad);
+            this.meanWait = mmcWait * (arrivalVariability + serviceVariability) / 2;
+            this.saturatedWait = 0;
+        }
+    }
+
+    /**
+     * Returns whether the offered load needs at least every sender all the time,
+     * so that the queue grows or stays full instead of settling.
+     *
+     * @return true if the senders cannot keep up
+     */
+    public boolean isSaturated() {
+        return offeredLoad >= servers;
+    }
+
+    /**
+     * Returns the fraction of the time the senders are busy.
+     *
+     * @return The utilization from 0.0 to 1.0
+     */
+    public double getUtilization() {
+        return Math.min(1.0, offeredLoad / servers);
+    }
+
+    /**
+     * Returns the probability that a send attempt has to wait for a free sender.
+     *
+     * @return The Erlang C wait probability, or 1.0 when saturated
+     */
+    public double getWaitProbability() {
+        return waitProbability;
+    }
+
+    /**
+     * Returns the average time a send attempt waits for a free sender.
+     *
+     * @return The average queue wait in milliseconds
+     */
+    public double getQueueWait() {
+        return meanWait;
+    }
+
+    /**
+     * Returns the rate at which messages are sent.
+     *
+     * @return The sent messages per second
+     */
+    public double getThroughput() {
+        return messageRate * sentFraction * 1000;
+    }
+
+    /**
+     * Returns the average time from a message's arrival until its last attempt finishes.
+     *
+     * @return The average latency in milliseconds
+     */
+    public double getAverageLatency() {
+        return attempts * (meanWait + serviceMean);
+    }
+
+    /**
+     * Returns a percentile of the latency of a message's last attempt.
+     *
+     * @param percentile The percentile, from 0.0 up to but excluding 100.0
+     * @return The latency in milliseconds
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public double getLatencyPercentile(double percentile) {
+        if (percentile < 0.0 || percentile >= 100.0) {
+            throw new IllegalArgumentException("percentile must be between 0.0 and 100.0 excluding 100.0");
+        }
+        double exceeded = 1 - percentile / 100;
+        if (isSaturated()) {
+            // An open-loop backlog grows evenly, so the waits are spread evenly up to the last one
+            double wait = openLoop ? saturatedWait * percentile / 100 : saturatedWait;
+            return wait + percentileOf(exceeded, 0);
+        }
+        return percentileOf(exceeded, meanWait > 0 ? waitProbability / meanWait : 0);
+    }
+
+    /**
+     * Returns the predictions next to the measurements of a finished simulation,
+     * flagging any measurement more than a quarter away from its prediction.
+     *
+     * @param stats The statistics of the simulation
+     * @param elapsedSeconds How long the simulation took to process every message
+     * @return The comparison table
+     */
+    public String compare(MessageStats stats, double elapsedSeconds) {
+        long count = stats.getSentCount() + stats.getFailedCount();
+        double service = stats.getAverageServiceTime();
+        double latency = stats.getAverageProcessingTime();
+        boolean staged = stats.getStageCount() > 0 && elapsedSeconds > 0;
+        StringBuilder text = new StringBuilder(header());
+        text.append(format("\n%-24s %12s %12s", "", "Predicted", "Measured"));
+        text.append(row("Utilization", getUtilization(),
+            staged ? stats.getAttemptCount() * service / (servers * elapsedSeconds * 1000) : Double.NaN, 0.05));
+        text.append(row("Queue Wait (ms)", meanWait,
+            staged ? latency / stats.getAverageAttempts() - service : Double.NaN, 1.0));
+        text.append(row("Throughput (msgs/sec)", getThroughput(),
+            elapsedSeconds > 0 ? stats.getSentCount() / elapsedSeconds : Double.NaN, 1.0));
+        text.append(row("Average Latency (ms)", getAverageLatency(), count > 0 ? latency : Double.NaN, 1.0));
+        for (double percentile : percentiles) {
+            if (percentile < 100.0) {
+                text.append(row(MessageStats.percentileLabel(percentile) + " Latency (ms)",
+                    getLatencyPercentile(percentile), count > 0 ? stats.getLatencyPercentile(percentile) : Double.NaN, 1.0));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the predictions on their own.
+     *
+     * @return The predicted utilization, wait, throughput and latency
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(header());
+        text.append(format("\nUtilization: %.3f (wait probability %.3f)", getUtilization(), waitProbability));
+        text.append(format("\nQueue Wait: %.3f ms", meanWait));
+        text.append(format("\nThroughput: %.1f msgs/sec", getThroughput()));
+        text.append(format("\nAverage Latency: %.3f ms", getAverageLatency()));
+        StringBuilder latencies = new StringBuilder();
+        for (double percentile : percentiles) {
+            if (percentile < 100.0) {
+                latencies.append(latencies.length() > 0 ? ", " : "")
+                    .append(format("%s=%.3f ms", MessageStats.percentileLabel(percentile),
+                        getLatencyPercentile(percentile)));
+            }
+        }
+        if (latencies.length() > 0) {
+            text.append("\nLatency: ").append(latencies);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Helper method that names the model and its load.
+     */
+    private String header() {
+        String load = Double.isInfinite(offeredLoad) ? "unbounded" : format("%.2f senders", offeredLoad);
+        return format("\nQueueing Model: %s/%s/%d, offered load %s%s", openLoop ? "M" : "D",
+            exponentialService ? "M" : "G", servers, load, isSaturated() ? " (saturated)" : "");
+    }
+
+    /**
+     * Helper method that formats one line of the comparison table, flagging a divergence.
+     */
+    private static String row(String name, double predicted, double measured, double floor) {
+        if (Double.isNaN(measured)) {
+            return format("\n%-24s %12.3f %12s", name, predicted, "-");
+        }
+        String line = format("\n%-24s %12.3f %12.3f", name, predicted, measured);
+        double difference = Math.abs(measured - predicted);
+        if (difference > floor && difference > DIVERGENCE * Math.abs(predicted)) {
+            line += Double.isInfinite(predicted) || predicted == 0
+                ? "  <- diverges" : format("  <- diverges by %.0f%%", 100 * difference / Math.abs(predicted));
+        }
+        return line;
+    }
+
+    /**
+     * Helper method that finds the time a latency exceeds with the given probability,
+     * for a wait that is exponential with the given rate with the wait probability and
+     * zero otherwise, followed by a send drawn from the service time model.
+     */
+    private double percentileOf(double exceeded, double waitRate) {
+        if (Double.isInfinite(meanWait)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int index = (int) Math.min(serviceSamples.length - 1, Math.floor((1 - exceeded) * serviceSamples.length));
+        if (waitRate == 0) {
+            return serviceSamples[index];
+        }
+        double low = serviceSamples[index];
+        double high = low + Math.max(meanWait, 1e-3);
+        while (latencyTail(high, waitRate) > exceeded) {
+            high *= 2;
+        }
+        for (int i = 0; i < 60; i++) {
+            double middle = (low + high) / 2;
+            if (latencyTail(middle, waitRate) > exceeded) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Helper method that returns the probability that a latency exceeds a time,
+     * averaged over the drawn send durations.
+     */
+    private double latencyTail(double time, double waitRate) {
+        double tail = 0;
+        for (double service : serviceSamples) {
+            tail += service > time
+                ? 1 : waitProbability * Math.exp(-waitRate * (time - service));
+        }
+        return tail / serviceSamples.length;
+    }
+
+    /**
+     * Helper method that draws send durations to take latency percentiles from, so
+     * that they follow the shape of the service time model and not only its moments.
+     */
+    private static double[] drawServiceTimes(ServiceTimeModel serviceTime) {
+        Random random = new Random(1);
+        double[] samples = new double[SERVICE_SAMPLES];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = serviceTime.nextServiceTime(random) / 1e6;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    /**
+     * Helper method that computes the Erlang C probability of waiting, through the
+     * Erlang B recurrence, which stays stable for large numbers of servers.
+     */
+    private static double erlangC(int servers, double load) {
+        double blocking = 1;
+        for (int i = 1; i <= servers; i++) {
+            blocking = load * blocking / (i + load * blocking);
+        }
+        double utilization = load / servers;
+        return blocking / (1 - utilization * (1 - blocking));
+    }
+
+    /**
+     * Helper method that returns the rate at which the producers make messages.
+     */
+    private static double arrivalsPerSecond(SimulationOptions options) {
+        switch (options.getProductionMode()) {
+            case UNTHROTTLED:
+                return Double.POSITIVE_INFINITY;
+            case SLEEP:
+                // Each producer sleeps 10 ms per message
+                return 100.0 * options.getProducerCount();
+            case OPEN_LOOP:
+            case FIXED_RATE:
+            case TARGET_RATE:
+            default:
+                return options.getProductionRate();
+        }
+    }
+
+    /**
+     * Helper method that formats numbers the same way whatever the default locale.
+     */
+    private static String format(String format, Object... args) {
+        return String.format(Locale.ROOT, format, args);
+    }
+
+    /**
+     * Helper method to validate the constructor arguments.
+     */
+    private static void validateArguments(int messageCount, int senderCount, double failureRate, int meanDelay,
+                                          SimulationOptions options) {
+        if (messageCount <= 0) {
+            throw new IllegalArgumentException("messageCount must be positive");
+        }
+        if (senderCount <= 0) {
+            throw new IllegalArgumentException("senderCount must be positive");
+        }
+        if (failureRate < 0.0 || failureRate >= 1.0) {
+            throw new IllegalArgumentException("failureRate must be between 0.0 and 1.0 excluding 1.0");
+        }
+        if (meanDelay <= 0) {
+            throw new IllegalArgumentException("meanDelay must be non-zero and non-negative");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("options cannot be null");
+        }
+        if (options.getProductionMode() != ProductionMode.SLEEP
+                && options.getProductionMode() != ProductionMode.UNTHROTTLED && options.getProductionRate() <= 0) {
+            throw new IllegalArgumentException("A production rate is required for " + options.getProductionMode());
+        }
+    }
+
+    /**
+     * Prints the predictions for the same arguments as {@link MessageAlertSim#main(String[])}
+     * without running the simulation. The monitor interval is accepted so the same
+     * arguments work for both, and is ignored.
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: java msg.QueueingModel <messageCount> <senderCount> <failureRate> <meanDelay> [monitorInterval] [--name=value ...]");
+            System.exit(1);
+        }
+
+        try {
+            int messageCount = Integer.parseInt(args[0]);
+            int senderCount = Integer.parseInt(args[1]);
+            double failureRate = Double.parseDouble(args[2]);
+            int meanDelay = Integer.parseInt(args[3]);
+            int offset = args.length > 4 && !args[4].startsWith("--") ? 5 : 4;
+            SimulationOptions options = SimulationOptions.fromArgs(args, offset);
+            System.out.println(new QueueingModel(messageCount, senderCount, failureRate, meanDelay, options));
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Invalid number format in arguments");
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package msg;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a loop to a target rate without sleeping on every iteration. Each
+ * call to {@link #pace()} waits until the next event is due on the schedule.
+ * At high rates the schedule is usually at or behind the clock, so most calls
+ * return without waiting. The pacer only parks when it is far enough ahead
+ * that parking is accurate. Not safe for use by more than one thread.
+ */
+public class RatePacer {
+    // Parking for less than this overshoots by more than the wait itself
+    private static final long MIN_PARK_NANOS = 50_000;
+
+    private final double periodNanos;
+    private final boolean catchUp;
+    private long start;
+    private long count;
+
+    /**
+     * Constructs a new pacer whose schedule starts at the first call to {@link #pace()}.
+     *
+     * @param ratePerSecond The number of events per second
+     * @param catchUp true to catch up on events missed during a stall, false to
+     *        restart the schedule from the current time instead
+     * @throws IllegalArgumentException if the rate is not positive
+     */
+    public RatePacer(double ratePerSecond, boolean catchUp) {
+        if (!(ratePerSecond > 0)) {
+            throw new IllegalArgumentException("ratePerSecond must be positive");
+        }
+        this.periodNanos = 1_000_000_000.0 / ratePerSecond;
+        this.catchUp = catchUp;
+    }
+
+    /**
+     * Waits until the next event is due.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void pace() throws InterruptedException {
+        long now = System.nanoTime();
+        if (count == 0) {
+            start = now;
+        }
+        long deadline = start + (long) (count * periodNanos);
+        if (!catchUp && now - deadline > periodNanos) {
+            // Fell behind by more than one event, move the schedule up to now
+            start = now - (long) (count * periodNanos);
+            deadline = now;
+        }
+        parkUntil(deadline);
+        count++;
+    }
+
+    /**
+     * Waits until the given time, parking only while it is far enough away for
+     * parking to be accurate.
+     *
+     * @param deadline The time to wait for, in the units of {@link System#nanoTime()}
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    static void parkUntil(long deadline) throws InterruptedException {
+        long wait;
+        while ((wait = deadline - System.nanoTime()) > MIN_PARK_NANOS) {
+            LockSupport.parkNanos(wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package msg;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Measures the threads and memory used by a simulation run. Platform thread
+ * counts come from the JVM's thread bean, which does not count virtual threads,
+ * and resident memory is read from /proc on Linux with a fallback to the used
+ * JVM heap elsewhere. Peaks are the highest live figures sampled during the run,
+ * next to a baseline taken when it starts. The JVM-wide peak thread count and
+ * memory high-water mark are never read or reset, so runs measured side by side
+ * do not disturb each other's baselines, although each still sees the others' threads.
+ */
+public class ResourceUsage {
+    private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final int startThreadCount;
+    private final long startRssKb;
+    private int peakThreadCount;
+    private long peakRssKb;
+
+    /**
+     * Starts measuring by recording the current usage as the run's baseline.
+     */
+    public ResourceUsage() {
+        this.startThreadCount = threads.getThreadCount();
+        this.startRssKb = readMemoryKb("VmRSS:");
+        this.peakThreadCount = startThreadCount;
+        this.peakRssKb = startRssKb;
+    }
+
+    /**
+     * Samples the current usage and updates the recorded peaks. Only usage at the
+     * moments sampled is seen, so callers sample throughout the run.
+     */
+    public synchronized void sample() {
+        peakThreadCount = Math.max(peakThreadCount, threads.getThreadCount());
+        peakRssKb = Math.max(peakRssKb, readMemoryKb("VmRSS:"));
+    }
+
+    /**
+     * Returns the highest number of live platform threads sampled since measuring started.
+     *
+     * @return The peak platform thread count
+     */
+    public synchronized int getPeakThreadCount() {
+        return peakThreadCount;
+    }
+
+    /**
+     * Returns the highest resident memory sampled since measuring started.
+     *
+     * @return The peak resident set size in kilobytes
+     */
+    public synchronized long getPeakRssKb() {
+        return peakRssKb;
+    }
+
+    /**
+     * Returns a formatted summary of the measured usage.
+     *
+     * @return A string describing thread and memory usage
+     */
+    public synchronized String toString() {
+        return "\nPeak Platform Threads: " + peakThreadCount + " (" + startThreadCount + " at start)" +
+                "\nPeak Resident Memory: " + (peakRssKb / 1024) + " MB (" + (startRssKb / 1024) + " MB at start)";
+    }
+
+    /**
+     * Helper method that reads a memory figure from /proc/self/status, falling back
+     * to the used heap when it is not available.
+     */
+    private static long readMemoryKb(String field) {
+        try {
+            for (String line : Files.readAllLines(PROC_STATUS)) {
+                if (line.startsWith(field)) {
+                    return Long.parseLong(line.substring(field.length()).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not on Linux, use the heap as an approximation below
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+    }
+}
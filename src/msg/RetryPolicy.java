@@ -0,0 +1,79 @@
+package msg;
+
+import java.util.Random;
+
+/**
+ * Decides whether a failed message is sent again and how long to wait first.
+ * The wait doubles with every attempt, starting at the base delay and capped at
+ * the maximum delay, and a random part of it is taken off as jitter so that
+ * messages which failed together do not all come back at the same moment.
+ */
+public class RetryPolicy {
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final double jitter;
+
+    /**
+     * Constructs a new retry policy.
+     *
+     * @param maxAttempts The maximum number of send attempts per message, including the first
+     * @param baseDelayMillis The wait before the first retry in milliseconds
+     * @param maxDelayMillis The upper bound on the wait before any retry in milliseconds
+     * @param jitter The fraction of each wait that is randomized, from 0.0 for a fixed
+     *        wait to 1.0 for a wait anywhere between zero and the full backoff
+     * @throws IllegalArgumentException if any argument is out of range
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, double jitter) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        if (baseDelayMillis < 0) {
+            throw new IllegalArgumentException("baseDelayMillis cannot be negative");
+        }
+        if (maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("maxDelayMillis cannot be less than baseDelayMillis");
+        }
+        if (jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("jitter must be between 0.0 and 1.0");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Checks if a failed message may be sent again.
+     *
+     * @param message The message whose last attempt failed
+     * @return true if the message has attempts left, false otherwise
+     */
+    public boolean shouldRetry(Message message) {
+        return message.getAttempts() < maxAttempts;
+    }
+
+    /**
+     * Returns how long to wait before the next attempt of a message.
+     *
+     * @param attempts The number of attempts made so far, at least 1
+     * @param random The source of the jitter
+     * @return The wait in milliseconds
+     */
+    public long backoffMillis(int attempts, Random random) {
+        // Doubling past 62 shifts would overflow, and the cap is reached long before
+        int shift = Math.min(Math.max(attempts - 1, 0), 62);
+        long backoff = baseDelayMillis > (maxDelayMillis >> shift)
+            ? maxDelayMillis : baseDelayMillis << shift;
+        return backoff - (long) (random.nextDouble() * jitter * backoff);
+    }
+
+    /**
+     * Returns the maximum number of send attempts per message.
+     *
+     * @return The attempt limit, 1 when retries are disabled
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
@@ -0,0 +1,141 @@
+package msg;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds failed messages until their backoff has passed and then puts them back
+ * on the message queue. Senders hand a failed message over without waiting, and
+ * a single thread running this scheduler takes each one from a delay-ordered
+ * queue when it is due, so a sender is never held up by a retry.
+ */
+public class RetryScheduler implements Runnable {
+    private final IMessageQueue messageQueue;
+    private final RetryPolicy policy;
+    private final MessageStats stats;
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new retry scheduler.
+     *
+     * @param messageQueue The queue that due messages are put back on
+     * @param policy The policy deciding if and when messages are retried
+     * @param stats Shared instance of the stats
+     * @throws IllegalArgumentException if any argument is null
+     */
+    public RetryScheduler(IMessageQueue messageQueue, RetryPolicy policy, MessageStats stats) {
+        if (messageQueue == null) {
+            throw new IllegalArgumentException("messageQueue cannot be null");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("policy cannot be null");
+        }
+        if (stats == null) {
+            throw new IllegalArgumentException("stats cannot be null");
+        }
+        this.messageQueue = messageQueue;
+        this.policy = policy;
+        this.stats = stats;
+    }
+
+    /**
+     * Records the outcome of a finished send attempt. A failed message with
+     * attempts left is scheduled for another attempt, anything else is recorded
+     * as final in the stats and recycled. This never blocks.
+     *
+     * @param message The message whose failed flag and sent time have been set
+     */
+    public void complete(Message message) {
+        if (shouldRetry(message)) {
+            retry(message);
+        } else {
+            stats.record(message);
+            message.recycle();
+        }
+    }
+
+    /**
+     * Returns whether a finished send attempt failed and has attempts left, so
+     * that {@link #retry(Message)} rather than the stats takes the message.
+     *
+     * @param message The message whose failed flag has been set
+     * @return true if the message is to be retried
+     */
+    public boolean shouldRetry(Message message) {
+        return message.isFailed() && policy.shouldRetry(message);
+    }
+
+    /**
+     * Schedules another attempt of a failed message once its backoff has passed.
+     * This never blocks.
+     *
+     * @param message A message for which {@link #shouldRetry(Message)} is true
+     */
+    public void retry(Message message) {
+        long delay = policy.backoffMillis(message.getAttempts(), ThreadLocalRandom.current());
+        retries.put(new Retry(message, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay)));
+        stats.recordRetry();
+    }
+
+    /**
+     * Puts messages back on the message queue as their backoff passes
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Message message = retries.take().message;
+                long handed = System.nanoTime();
+                message.markEnqueued(handed);
+                messageQueue.add(message);
+                stats.recordFullQueueWait(System.nanoTime() - handed, 1);
+            } catch (InterruptedException e) {
+                // If Interrupt signal received then stop this thread and set running to false
+                Thread.currentThread().interrupt();
+                stop();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of messages waiting for their next attempt.
+     *
+     * @return The number of pending retries
+     */
+    public int pending() {
+        return retries.size();
+    }
+
+    /**
+     * Sets the running flag to false
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * A message waiting in the delay queue until its next attempt is due.
+     */
+    private static class Retry implements Delayed {
+        private final Message message;
+        private final long dueNanos;
+
+        Retry(Message message, long dueNanos) {
+            this.message = message;
+            this.dueNanos = dueNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((Retry) other).dueNanos);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package msg;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, lock-free multi-producer multi-consumer message queue backed by a
+ * preallocated ring of slots. Each slot carries a sequence number that tells
+ * producers and consumers whether the slot is free to write or ready to read,
+ * so both ends claim positions with a single CAS and never take a lock.
+ * The ring is allocated once at construction, which keeps the queue
+ * allocation-free in steady state. Threads that find the ring full or empty
+ * wait according to the configured {@link WaitStrategy}, consumers and
+ * producers on separate instances. Only the operation that makes an empty ring
+ * non-empty, or a full ring non-full, wakes a waiter, and it wakes just one;
+ * each operation that leaves more to take or more room passes the wakeup on,
+ * so idle threads are woken one per handoff rather than all on every message.
+ */
+public class RingBufferMessageQueue implements IMessageQueue {
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final int mask;
+    private final Message[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail;
+    private final AtomicLong head;
+    private final WaitStrategy notEmptyWait;
+    private final WaitStrategy notFullWait;
+    private final BooleanSupplier notFull = () -> size() < capacity();
+    private final BooleanSupplier notEmpty = () -> !isEmpty();
+
+    /**
+     * Constructs a new ring buffer queue that blocks while full or empty, so
+     * idle threads use no CPU until they are signalled.
+     *
+     * @param capacity The minimum number of messages the queue can hold
+     * @throws IllegalArgumentException if capacity is not positive or too large
+     */
+    public RingBufferMessageQueue(int capacity) {
+        this(capacity, BlockingWaitStrategy::new);
+    }
+
+    /**
+     * Constructs a new ring buffer queue. The capacity is rounded up to the
+     * next power of two so that slot indexes can be computed with a mask.
+     *
+     * @param capacity The minimum number of messages the queue can hold
+     * @param waitStrategies Creates the strategies used to wait while the ring is
+     *        full and while it is empty, one for each
+     * @throws IllegalArgumentException if capacity is not positive or too large,
+     *         or waitStrategies is null
+     */
+    public RingBufferMessageQueue(int capacity, Supplier<WaitStrategy> waitStrategies) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Queue capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (waitStrategies == null) {
+            throw new IllegalArgumentException("waitStrategies cannot be null");
+        }
+        int size = roundToPowerOfTwo(capacity);
+        this.mask = size - 1;
+        this.slots = new Message[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.tail = new AtomicLong(0);
+        this.head = new AtomicLong(0);
+        this.notEmptyWait = waitStrategies.get();
+        this.notFullWait = waitStrategies.get();
+    }
+
+    /**
+     * Adds a message to the queue, waiting while the ring is full.
+     *
+     * @param message The message to add to the queue
+     * @throws InterruptedException if the thread is interrupted while waiting for a free slot
+     */
+    @Override
+    public void add(Message message) throws InterruptedException {
+        if (message == null) {
+            throw new NullPointerException("Cannot add null message to queue");
+        }
+        while (!offer(message)) {
+            notFullWait.await(notFull);
+        }
+    }
+
+    /**
+     * Removes and returns the next message, waiting while the ring is empty.
+     *
+     * @return The next message from the queue
+     * @throws InterruptedException if the thread is interrupted while waiting for a message
+     */
+    @Override
+    public Message remove() throws InterruptedException {
+        Message message;
+        while ((message = poll()) == null) {
+            notEmptyWait.await(notEmpty);
+        }
+        return message;
+    }
+
+    /**
+     * Adds all the given messages, claiming runs of free slots with a single CAS
+     * and waiting only while the ring is full.
+     *
+     * @param messages The messages to add to the queue
+     * @throws InterruptedException if the thread is interrupted while waiting for free slots
+     */
+    @Override
+    public void addAll(Collection<Message> messages) throws InterruptedException {
+        // Reject nulls up front since a claimed slot must always be published
+        for (Message message : messages) {
+            if (message == null) {
+                throw new NullPointerException("Cannot add null message to queue");
+            }
+        }
+        Iterator<Message> iterator = messages.iterator();
+        int remaining = messages.size();
+        while (remaining > 0) {
+            int added = offerBatch(iterator, remaining);
+            if (added == 0) {
+                notFullWait.await(notFull);
+            } else {
+                remaining -= added;
+            }
+        }
+    }
+
+    /**
+     * Waits for the first message and then claims every published message up to
+     * the given limit with a single CAS.
+     *
+     * @param target The list to which removed messages are appended
+     * @param maxMessages The maximum number of messages to remove
+     * @return The number of messages removed
+     * @throws InterruptedException if the thread is interrupted while waiting for a message
+     */
+    @Override
+    public int drainTo(List<Message> target, int maxMessages) throws InterruptedException {
+        if (maxMessages <= 0) {
+            throw new IllegalArgumentException("maxMessages must be positive");
+        }
+        int drained;
+        while ((drained = pollBatch(target, maxMessages)) == 0) {
+            notEmptyWait.await(notEmpty);
+        }
+        return drained;
+    }
+
+    /**
+     * Attempts to add a message without waiting.
+     *
+     * @param message The message to add to the queue
+     * @return true if the message was added, false if the ring is full
+     */
+    public boolean offer(Message message) {
+        if (message == null) {
+            throw new NullPointerException("Cannot add null message to queue");
+        }
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                // The slot is free for this lap, try to claim it
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = message;
+                    // Publish the message to consumers
+                    sequences.lazySet(index, position + 1);
+                    signalAfterOffer(position);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The consumer of the previous lap has not freed this slot yet
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Attempts to remove a message without waiting.
+     *
+     * @return The next message, or null if the ring is empty
+     */
+    public Message poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                // The slot holds a published message, try to claim it
+                if (head.compareAndSet(position, position + 1)) {
+                    Message message = slots[index];
+                    slots[index] = null;
+                    // Hand the slot back to producers for the next lap
+                    sequences.lazySet(index, position + mask + 1);
+                    signalAfterPoll(position);
+                    return message;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                // Nothing has been published at this position yet
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Attempts to remove up to the given number of messages without waiting,
+     * claiming them with a single CAS.
+     *
+     * @param target The collection to which removed messages are appended
+     * @param maxMessages The maximum number of messages to remove
+     * @return The number of messages removed, 0 if the ring is empty
+     */
+    public int poll(Collection<Message> target, int maxMessages) {
+        if (maxMessages <= 0) {
+            throw new IllegalArgumentException("maxMessages must be positive");
+        }
+        return pollBatch(target, maxMessages);
+    }
+
+    /**
+     * Helper method that claims a run of consecutive free slots at the tail and
+     * fills them from the iterator.
+     *
+     * @return The number of messages added, 0 if the ring is full
+     */
+    private int offerBatch(Iterator<Message> messages, int maxMessages) {
+        while (true) {
+            long position = tail.get();
+            int free = 0;
+            while (free < maxMessages && sequences.get((int) (position + free) & mask) == position + free) {
+                free++;
+            }
+            if (free == 0) {
+                return 0;
+            }
+            if (tail.compareAndSet(position, position + free)) {
+                for (int i = 0; i < free; i++) {
+                    int index = (int) (position + i) & mask;
+                    slots[index] = messages.next();
+                    sequences.lazySet(index, position + i + 1);
+                }
+                signalAfterOffer(position);
+                return free;
+            }
+        }
+    }
+
+    /**
+     * Helper method that claims a run of consecutive published slots at the head
+     * and moves their messages into the target collection.
+     *
+     * @return The number of messages removed, 0 if the ring is empty
+     */
+    private int pollBatch(Collection<Message> target, int maxMessages) {
+        while (true) {
+            long position = head.get();
+            int ready = 0;
+            while (ready < maxMessages && sequences.get((int) (position + ready) & mask) == position + ready + 1) {
+                ready++;
+            }
+            if (ready == 0) {
+                return 0;
+            }
+            if (head.compareAndSet(position, position + ready)) {
+                for (int i = 0; i < ready; i++) {
+                    int index = (int) (position + i) & mask;
+                    target.add(slots[index]);
+                    slots[index] = null;
+                    sequences.lazySet(index, position + i + mask + 1);
+                }
+                signalAfterPoll(position);
+                return ready;
+            }
+        }
+    }
+
+    /**
+     * Helper method that wakes a consumer if the ring was empty before the offer
+     * claimed the given position, and passes a wakeup on to another producer if
+     * there is still room. The tail CAS is the volatile write that waiters re-check
+     * after registering, so the strategies need no fence.
+     */
+    private void signalAfterOffer(long position) {
+        if (head.get() == position) {
+            notEmptyWait.signal();
+        }
+        if (size() < capacity()) {
+            notFullWait.signal();
+        }
+    }
+
+    /**
+     * Helper method that wakes a producer if the ring was full before the poll
+     * claimed the given position, and passes a wakeup on to another consumer if
+     * there is still something to take.
+     */
+    private void signalAfterPoll(long position) {
+        if (tail.get() - position == capacity()) {
+            notFullWait.signal();
+        }
+        if (!isEmpty()) {
+            notEmptyWait.signal();
+        }
+    }
+
+    /**
+     * Checks if the queue is empty.
+     *
+     * @return true if the queue contains no messages, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the current number of messages in the queue. The value is an
+     * estimate while producers and consumers are active.
+     *
+     * @return The number of messages currently in the queue
+     */
+    @Override
+    public int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity());
+    }
+
+    /**
+     * Returns the number of slots in the ring.
+     *
+     * @return The capacity of the queue after rounding to a power of two
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Helper method that rounds the requested capacity up to a power of two.
+     */
+    private static int roundToPowerOfTwo(int capacity) {
+        int highest = Integer.highestOneBit(capacity);
+        return highest == capacity ? capacity : highest << 1;
+    }
+}
@@ -0,0 +1,70 @@
+package msg;
+
+/**
+ * The outcome of one asynchronous send attempt, copied out of the message when
+ * the attempt finished. Unlike the message itself it stays valid after the
+ * message has been recycled or sent again.
+ */
+public class SendResult {
+    private final long messageId;
+    private final boolean failed;
+    private final int attempts;
+    private final long latencyNanos;
+
+    /**
+     * Constructs the outcome of a send attempt.
+     *
+     * @param messageId The ID of the message that was sent
+     * @param failed Whether the attempt failed
+     * @param attempts The number of attempts made so far, including this one
+     * @param latencyNanos The time in nanoseconds from the start of the attempt until it finished
+     */
+    SendResult(long messageId, boolean failed, int attempts, long latencyNanos) {
+        this.messageId = messageId;
+        this.failed = failed;
+        this.attempts = attempts;
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * Returns the ID of the message that was sent.
+     *
+     * @return The message ID
+     */
+    public long getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Checks if the attempt failed.
+     *
+     * @return true if the message failed to deliver, false otherwise
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Returns the number of attempts made so far, including this one.
+     *
+     * @return The attempt count
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns how long the attempt took.
+     *
+     * @return The time in nanoseconds from the start of the attempt until it finished
+     */
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SendResult{messageId=" + messageId + ", failed=" + failed + ", attempts=" + attempts
+            + ", latencyNanos=" + latencyNanos + "}";
+    }
+}
@@ -1,6 +1,9 @@
 package msg;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class represents a real world entity that 'sends' a message in a message alerting system.
@@ -10,9 +13,12 @@ public class Sender implements Runnable, ISender {
     private final IMessageQueue messageQueue;
     private final String senderId;
     private final double failureRate;
-    private final int meanDelay;
+    private final ServiceTimeModel serviceTime;
     private final Random random;
     private final MessageStats stats;
+    private final int batchSize;
+    private final RetryScheduler retries;
+    private final AdaptiveLimiter limiter;
     private volatile boolean running = true;
 
     /**
@@ -25,13 +31,107 @@ public class Sender implements Runnable, ISender {
      */
     public Sender(IMessageQueue messageQueue, String senderId,
             double failureRate, int meanDelay, MessageStats stats) {
-        validateArguments(messageQueue, senderId, failureRate, meanDelay, stats);
-        this.messageQueue = messageQueue;
-        this.senderId = senderId;
-        this.failureRate = failureRate;
-        this.meanDelay = meanDelay;
+        this(builder(messageQueue, senderId, failureRate, new UniformServiceTime(meanDelay), stats));
+    }
+
+    /**
+     * Helper constructor that takes its settings from a builder
+     */
+    private Sender(Builder builder) {
+        validateArguments(builder.messageQueue, builder.senderId, builder.failureRate, builder.serviceTime,
+            builder.stats);
+        this.messageQueue = builder.messageQueue;
+        this.senderId = builder.senderId;
+        this.failureRate = builder.failureRate;
+        this.serviceTime = builder.serviceTime;
         this.random = new Random();
-        this.stats = stats;
+        this.stats = builder.stats;
+        this.batchSize = builder.batchSize;
+        this.retries = builder.retries;
+        this.limiter = builder.limiter;
+    }
+
+    /**
+     * Returns a builder for a sender whose send durations follow the given model. Settings
+     * that are not given send one message at a time, record failures as final and send
+     * without limits.
+     * @param messageQueue Shared message queue instance
+     * @param senderId  Generated ID of this sender
+     * @param failureRate   Rate with which the message may fail
+     * @param serviceTime Shared model of the send duration
+     * @param stats Shared instance of the stats
+     * @return A new builder
+     */
+    public static Builder builder(IMessageQueue messageQueue, String senderId, double failureRate,
+            ServiceTimeModel serviceTime, MessageStats stats) {
+        return new Builder(messageQueue, senderId, failureRate, serviceTime, stats);
+    }
+
+    /**
+     * Collects the optional settings of a sender
+     */
+    public static class Builder {
+        private final IMessageQueue messageQueue;
+        private final String senderId;
+        private final double failureRate;
+        private final ServiceTimeModel serviceTime;
+        private final MessageStats stats;
+        private int batchSize = 1;
+        private RetryScheduler retries;
+        private AdaptiveLimiter limiter;
+
+        private Builder(IMessageQueue messageQueue, String senderId, double failureRate,
+                ServiceTimeModel serviceTime, MessageStats stats) {
+            this.messageQueue = messageQueue;
+            this.senderId = senderId;
+            this.failureRate = failureRate;
+            this.serviceTime = serviceTime;
+            this.stats = stats;
+        }
+
+        /**
+         * Sets how many messages the sender pulls from the queue at once, all of which
+         * it sends before going back to the queue
+         * @param batchSize Maximum number of messages taken from the queue at once
+         * @return This builder
+         * @throws IllegalArgumentException if batchSize is not positive
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("batchSize must be positive");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets the retry scheduler to which failed messages are handed
+         * @param retries Shared retry scheduler, or null to record failures as final
+         * @return This builder
+         */
+        public Builder retries(RetryScheduler retries) {
+            this.retries = retries;
+            return this;
+        }
+
+        /**
+         * Sets the adaptive limiter that gates the sender's sends
+         * @param limiter Shared adaptive limiter, or null to send without limits
+         * @return This builder
+         */
+        public Builder limiter(AdaptiveLimiter limiter) {
+            this.limiter = limiter;
+            return this;
+        }
+
+        /**
+         * Builds the sender
+         * @return A new sender with these settings
+         * @throws IllegalArgumentException if any of the builder's arguments is invalid
+         */
+        public Sender build() {
+            return new Sender(this);
+        }
     }
 
     /**
@@ -39,28 +139,41 @@ public class Sender implements Runnable, ISender {
      */
     @Override
     public void run() {
+        List<Message> batch = new ArrayList<>(batchSize);
         while (running) {
             try {
-                Message message = messageQueue.remove();
-
-                // Simulate sending, according to the mean generate a random number between 0 to
-                // 2 times mean, which gives an average equal to mean
-                Thread.sleep(random.nextInt(meanDelay * 2));
-
-                // With the given failure rate set failed to true
-                boolean failed = random.nextDouble() < failureRate;
-                message.setFailed(failed);
-                message.setSentTime(System.currentTimeMillis());
-
-                if (failed) {
-                    stats.incrementFailed();
+                if (batchSize == 1) {
+                    // Wait for the limiter before dequeuing, so an interrupt while held back drops nothing
+                    long permit = acquire();
+                    Message message = take(permit);
+                    message.markDequeued();
+                    send(message, permit);
                 } else {
-                    stats.incrementSent();
+                    // Take as many messages as are available in one handoff and send them all
+                    long permit = acquire();
+                    drain(batch, permit);
+                    for (Message message : batch) {
+                        message.markDequeued();
+                    }
+                    // Every dequeued message is sent before an interrupt stops the sender
+                    boolean interrupted = false;
+                    for (int i = 0; i < batch.size(); i++) {
+                        // The first send uses the slot acquired before draining
+                        if (i > 0 && limiter != null) {
+                            permit = acquireThroughInterrupt();
+                            interrupted |= Thread.interrupted();
+                        }
+                        try {
+                            send(batch.get(i), permit);
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    batch.clear();
+                    if (interrupted) {
+                        throw new InterruptedException("Interrupted while sending");
+                    }
                 }
-
-                // Add time taken to process the message to total processing time
-                stats.addProcessingTime(message.getSentTime() - message.getCreationTime());
-
             } catch (InterruptedException e) {
                 // If Interrupt signal received then stop this thread and set running to false
                 Thread.currentThread().interrupt();
@@ -69,6 +182,119 @@ public class Sender implements Runnable, ISender {
         }
     }
 
+    /**
+     * Helper method that simulates sending a single message and records the outcome.
+     * With a limiter, the caller must have acquired the slot with the given permit. A send
+     * that has started always finishes and is recorded; an interrupt during it is
+     * rethrown afterwards, so stopping the sender never abandons the message.
+     */
+    private void send(Message message, long permit) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        message.markSendStarted();
+
+        // Simulate sending for a duration drawn from the service time model
+        boolean interrupted = sleepThroughSend(serviceTime.nextServiceTime(random));
+        message.markCompleted();
+
+        // With the given failure rate set failed to true
+        boolean failed = random.nextDouble() < failureRate;
+        message.incrementAttempts();
+        message.setFailed(failed);
+        message.setSentTime(System.currentTimeMillis());
+        if (limiter != null) {
+            limiter.release(permit, failed, message.getSentTime() - start);
+        }
+
+        // Count the outcome and add time taken to process the message to total processing time,
+        // unless the message failed and is going to be retried
+        if (retries != null) {
+            retries.complete(message);
+        } else {
+            stats.record(message);
+            message.recycle();
+        }
+        if (interrupted) {
+            throw new InterruptedException("Interrupted while sending");
+        }
+    }
+
+    /**
+     * Helper method that waits until the limiter, if any, allows another send, and
+     * returns its permit.
+     */
+    private long acquire() throws InterruptedException {
+        return limiter != null ? limiter.acquire() : 0;
+    }
+
+    /**
+     * Helper method that removes the next message from the queue, giving back the
+     * limiter slot if interrupted before one arrives.
+     */
+    private Message take(long permit) throws InterruptedException {
+        try {
+            return messageQueue.remove();
+        } catch (InterruptedException e) {
+            if (limiter != null) {
+                limiter.cancel(permit);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Helper method that drains a batch from the queue, giving back the limiter slot
+     * if interrupted before any message arrives.
+     */
+    private void drain(List<Message> batch, long permit) throws InterruptedException {
+        try {
+            messageQueue.drainTo(batch, batchSize);
+        } catch (InterruptedException e) {
+            if (limiter != null) {
+                limiter.cancel(permit);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Helper method that waits for the limiter to allow the send of a message that
+     * has already been dequeued, even when interrupted, so that the message is never
+     * dropped. The wait is bounded by the breaker's open time and the in-flight sends.
+     * Returns the limiter's permit, with the thread's interrupt status set again if an
+     * interrupt arrived during the wait.
+     */
+    private long acquireThroughInterrupt() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                long permit = limiter.acquire();
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return permit;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    /**
+     * Helper method that sleeps for the whole duration of a send, even when interrupted.
+     * Returns whether an interrupt arrived during the sleep.
+     */
+    private static boolean sleepThroughSend(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        boolean interrupted = false;
+        for (long remaining = nanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        return interrupted;
+    }
+
     /**
      * Sets the running flag to false
      */
@@ -80,7 +306,8 @@ public class Sender implements Runnable, ISender {
      * Helper method to validate constructor arguments
      */
     private void validateArguments(IMessageQueue messageQueue, String senderId,
-                                              double failureRate, int meanDelay, MessageStats stats) {
+                                              double failureRate, ServiceTimeModel serviceTime,
+                                              MessageStats stats) {
         if (messageQueue == null) {
             throw new IllegalArgumentException("messageQueue cannot be null");
         }
@@ -90,8 +317,8 @@ public class Sender implements Runnable, ISender {
         if (failureRate < 0.0 || failureRate >= 1.0) {
             throw new IllegalArgumentException("failureRate must be between 0.0 and 1.0 excluding 1.0");
         }
-        if (meanDelay < 0) {
-            throw new IllegalArgumentException("meanDelay cannot be negative");
+        if (serviceTime == null) {
+            throw new IllegalArgumentException("serviceTime cannot be null");
         }
         if (stats == null) {
             throw new IllegalArgumentException("stats cannot be null");
@@ -0,0 +1,19 @@
+package msg;
+
+/**
+ * The ways a simulation can carry out sends.
+ */
+public enum SenderEngine {
+    /** One {@link Sender} thread per sender, sleeping through each send. */
+    THREAD,
+    /**
+     * A few {@link TimerWheelSender} dispatchers that complete sends on a shared
+     * {@link HashedWheelTimer}, with the sender count as the in-flight limit.
+     */
+    TIMER_WHEEL,
+    /**
+     * One {@link AsyncSender} thread per sender, each pipelining up to a fixed
+     * number of sends that complete on a shared {@link HashedWheelTimer}.
+     */
+    ASYNC
+}
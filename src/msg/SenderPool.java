@@ -0,0 +1,132 @@
+package msg;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * A resizable set of running senders. Senders are started on their own thread
+ * as the pool grows and retired with {@link ISender#stop()} and an interrupt as
+ * it shrinks. A retired sender waiting for a message ends at once instead of
+ * sending one more, while one in the middle of a send or batch finishes it
+ * before its thread ends.
+ */
+public class SenderPool {
+    private final IntFunction<Sender> senderFactory;
+    private final ThreadMode threadMode;
+    private final Deque<Sender> senders = new ArrayDeque<>();
+    // The threads of the senders above, in the same order
+    private final Deque<Thread> senderThreads = new ArrayDeque<>();
+    // The threads of all senders, retired or not, that may still be running
+    private final List<Thread> threads = new ArrayList<>();
+    private int nextIndex;
+    private boolean shutdown;
+
+    /**
+     * Constructs a new, empty sender pool.
+     *
+     * @param senderFactory Creates the sender with the given index
+     * @param threadMode The kind of thread each sender runs on
+     * @throws IllegalArgumentException if any argument is null
+     */
+    public SenderPool(IntFunction<Sender> senderFactory, ThreadMode threadMode) {
+        if (senderFactory == null) {
+            throw new IllegalArgumentException("senderFactory cannot be null");
+        }
+        if (threadMode == null) {
+            throw new IllegalArgumentException("threadMode cannot be null");
+        }
+        this.senderFactory = senderFactory;
+        this.threadMode = threadMode;
+    }
+
+    /**
+     * Starts the given number of additional senders. Does nothing once the pool
+     * has been shut down.
+     *
+     * @param count The number of senders to add
+     */
+    public synchronized void grow(int count) {
+        if (shutdown) {
+            return;
+        }
+        dropEndedThreads();
+        for (int i = 0; i < count; i++) {
+            int index = nextIndex++;
+            Sender sender = senderFactory.apply(index);
+            Thread thread = threadMode.newThread(sender, "Sender-" + index);
+            thread.start();
+            senders.addLast(sender);
+            senderThreads.addLast(thread);
+            threads.add(thread);
+        }
+    }
+
+    /**
+     * Retires the given number of the most recently started senders. Their threads
+     * are interrupted, so that a sender blocked waiting for a message wakes up and
+     * ends instead of taking another message later.
+     *
+     * @param count The number of senders to retire
+     */
+    public synchronized void shrink(int count) {
+        for (int i = 0; i < count && !senders.isEmpty(); i++) {
+            senders.pollLast().stop();
+            senderThreads.pollLast().interrupt();
+        }
+        dropEndedThreads();
+    }
+
+    /**
+     * Helper method that forgets the threads of retired senders that have ended.
+     */
+    private void dropEndedThreads() {
+        threads.removeIf(thread -> !thread.isAlive());
+    }
+
+    /**
+     * Returns the number of senders that have not been retired.
+     *
+     * @return The pool size
+     */
+    public synchronized int size() {
+        return senders.size();
+    }
+
+    /**
+     * Interrupts the threads of all senders, retired or not, to end the simulation,
+     * and stops the pool from growing again. A sender interrupted in the middle of
+     * a send finishes it before its thread ends.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        threads.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Waits for the threads of all senders to end after {@link #shutdown()}.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit The unit of timeout
+     * @return true if every thread ended, false if the timeout passed first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        List<Thread> started;
+        synchronized (this) {
+            started = new ArrayList<>(threads);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread thread : started) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 && thread.isAlive()) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+        }
+        return started.stream().noneMatch(Thread::isAlive);
+    }
+}
@@ -0,0 +1,33 @@
+package msg;
+
+import java.util.Random;
+
+/**
+ * Interface for models of how long a simulated send takes. Models are shared
+ * by all senders and keep no state of their own, so each sender passes in its
+ * own source of randomness.
+ */
+public interface ServiceTimeModel {
+  /**
+   * Draws the duration of the next send.
+   *
+   * @param random The source of randomness of the calling sender
+   * @return The send duration in nanoseconds
+   */
+  long nextServiceTime(Random random);
+
+  /**
+   * Returns the average send duration of this model.
+   *
+   * @return The mean send duration in milliseconds
+   */
+  double getMean();
+
+  /**
+   * Returns the variance of the send duration of this model, the second moment
+   * that queueing approximations need besides the mean.
+   *
+   * @return The variance in square milliseconds, or infinity if the model has none
+   */
+  double getVariance();
+}
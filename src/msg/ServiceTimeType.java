@@ -0,0 +1,17 @@
+package msg;
+
+/**
+ * The send duration distributions a simulation can model.
+ */
+public enum ServiceTimeType {
+    /** {@link UniformServiceTime} between 0 and twice the mean. */
+    UNIFORM,
+    /** {@link ExponentialServiceTime} around the mean. */
+    EXPONENTIAL,
+    /** {@link LogNormalServiceTime} with a configurable tail. */
+    LOGNORMAL,
+    /** {@link ParetoServiceTime} with a power-law tail. */
+    PARETO,
+    /** {@link EmpiricalServiceTime} drawn from a histogram file. */
+    EMPIRICAL
+}
@@ -0,0 +1,420 @@
+package msg;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A message queue split into independent shards, one per sender. Each shard is
+ * a bounded {@link RingBufferMessageQueue}, so messages are handed over without
+ * allocating and every count lives with its shard. Producers spread messages
+ * across the shards either round-robin, each producer thread from its own
+ * cursor, or by message key. Each sender consumes from the head of its own
+ * shard through the view returned by {@link #shard(int)}. A sender whose shard
+ * is empty claims half the backlog of the busiest peer with one scan, taking a
+ * batch of it in one go when it drains, so no single head or counter becomes a
+ * point of contention as the number of senders grows.
+ * <p>
+ * Thieves take from the head of the peer's ring, the same end as its owner,
+ * rather than from the tail. Each shard is a multi-producer ring whose tail is
+ * claimed by every producer's CAS, so a thief at the tail would contend with all
+ * the producers instead of one owner. Taking a slot back at the tail would also
+ * need a deque protocol that the ring does not have. A draining thief claims its
+ * whole share with a single head CAS, so the owner sees at most one contended CAS
+ * per steal. A thief that removes one message at a time stops going back to the
+ * peer once it has taken the share it claimed.
+ * <p>
+ * Idle senders wait on their own strategy. Each message added wakes at most one
+ * of them, and a sender that leaves messages behind while others are idle wakes
+ * one more.
+ */
+public class ShardedMessageQueue implements IMessageQueue {
+
+    /**
+     * How producers pick the shard for a message.
+     */
+    public enum Partitioning {
+        /** Spread messages evenly across shards in turn. */
+        ROUND_ROBIN,
+        /** Send all messages with the same key to the same shard. */
+        KEY
+    }
+
+    private final RingBufferMessageQueue[] shards;
+    private final Partitioning partitioning;
+    private final Supplier<WaitStrategy> waitStrategies;
+    private final Queue<Shard> idle = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<int[]> cursors;
+
+    /**
+     * Constructs a new sharded queue that spreads messages round-robin and
+     * blocks while waiting, so idle senders use no CPU until they are signalled.
+     *
+     * @param shardCount The number of shards, normally one per sender
+     * @param capacity The maximum number of messages across all shards
+     * @throws IllegalArgumentException if shardCount or capacity is not positive
+     */
+    public ShardedMessageQueue(int shardCount, int capacity) {
+        this(shardCount, capacity, Partitioning.ROUND_ROBIN, BlockingWaitStrategy::new);
+    }
+
+    /**
+     * Constructs a new sharded queue.
+     *
+     * @param shardCount The number of shards, normally one per sender
+     * @param capacity The maximum number of messages across all shards. Each shard
+     *        holds an equal share, rounded up to a power of two.
+     * @param partitioning How producers pick the shard for a message
+     * @param waitStrategies Creates the strategies used to wait while a shard is
+     *        full and while a sender finds nothing to take or steal
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    public ShardedMessageQueue(int shardCount, int capacity, Partitioning partitioning,
+                               Supplier<WaitStrategy> waitStrategies) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        if (partitioning == null) {
+            throw new IllegalArgumentException("partitioning cannot be null");
+        }
+        if (waitStrategies == null) {
+            throw new IllegalArgumentException("waitStrategies cannot be null");
+        }
+        int shardCapacity = (capacity + shardCount - 1) / shardCount;
+        this.shards = new RingBufferMessageQueue[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new RingBufferMessageQueue(shardCapacity, waitStrategies);
+        }
+        this.partitioning = partitioning;
+        this.waitStrategies = waitStrategies;
+        // Start each producer at a random shard so that producers do not move in step
+        this.cursors = ThreadLocal.withInitial(
+            () -> new int[] {ThreadLocalRandom.current().nextInt(shardCount)});
+    }
+
+    /**
+     * Returns a view of this queue for the consumer that owns the given shard.
+     * Removing through the view takes from the head of the owned shard first
+     * and steals from the other shards when it is empty. Adding through the
+     * view behaves like adding to the whole queue. A view must be used by one
+     * consumer thread at a time.
+     *
+     * @param index The index of the owned shard
+     * @return A queue view bound to the shard
+     * @throws IllegalArgumentException if the index is out of range
+     */
+    public IMessageQueue shard(int index) {
+        if (index < 0 || index >= shards.length) {
+            throw new IllegalArgumentException("Shard index out of range: " + index);
+        }
+        return new Shard(index);
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return The shard count
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Adds a message to the shard chosen by the partitioning, waiting while it is full.
+     * With round-robin partitioning a full shard is skipped in favor of the next
+     * one with space, and only when every shard is full does the producer wait
+     * for space in the shard at its cursor.
+     *
+     * @param message The message to add to the queue
+     * @throws InterruptedException if the thread is interrupted while waiting for space
+     */
+    @Override
+    public void add(Message message) throws InterruptedException {
+        if (message == null) {
+            throw new NullPointerException("Cannot add null message to queue");
+        }
+        if (partitioning == Partitioning.KEY) {
+            shards[keyShard(message)].add(message);
+        } else {
+            int[] cursor = cursors.get();
+            int start = cursor[0];
+            cursor[0] = (start + 1) % shards.length;
+            if (!offerFrom(start, message)) {
+                shards[start].add(message);
+            }
+        }
+        wakeIdleConsumer();
+    }
+
+    /**
+     * Adds all the given messages, each as {@link #add(Message)} would.
+     *
+     * @param messages The messages to add to the queue
+     * @throws InterruptedException if the thread is interrupted while waiting for space
+     */
+    @Override
+    public void addAll(Collection<Message> messages) throws InterruptedException {
+        for (Message message : messages) {
+            if (message == null) {
+                throw new NullPointerException("Cannot add null message to queue");
+            }
+        }
+        for (Message message : messages) {
+            add(message);
+        }
+    }
+
+    /**
+     * Removes a message from any shard, waiting while all shards are empty.
+     * Consumers that own a shard should remove through {@link #shard(int)} instead.
+     *
+     * @return The next message from the queue
+     * @throws InterruptedException if the thread is interrupted while waiting for a message
+     */
+    @Override
+    public Message remove() throws InterruptedException {
+        return anyShard().remove();
+    }
+
+    /**
+     * Removes up to the given number of messages from any shards, waiting while
+     * all shards are empty.
+     *
+     * @param target The list to which removed messages are appended
+     * @param maxMessages The maximum number of messages to remove
+     * @return The number of messages removed
+     * @throws InterruptedException if the thread is interrupted while waiting for a message
+     */
+    @Override
+    public int drainTo(List<Message> target, int maxMessages) throws InterruptedException {
+        return anyShard().drainTo(target, maxMessages);
+    }
+
+    /**
+     * Checks if every shard is empty.
+     *
+     * @return true if the queue contains no messages, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        for (RingBufferMessageQueue shard : shards) {
+            if (!shard.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of messages across all shards.
+     *
+     * @return The number of messages currently in the queue
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (RingBufferMessageQueue shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Helper method that tries each shard in turn from the given one until one
+     * takes the message without waiting.
+     */
+    private boolean offerFrom(int start, Message message) {
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[(start + i) % shards.length].offer(message)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Helper method that picks the shard for a message from its key.
+     */
+    private int keyShard(Message message) {
+        return Math.floorMod(message.getContentHash(), shards.length);
+    }
+
+    /**
+     * Helper method that wakes one idle consumer, if there is any. The check only
+     * reads the idle list while every consumer is busy.
+     */
+    private void wakeIdleConsumer() {
+        if (idle.isEmpty()) {
+            return;
+        }
+        Shard consumer = idle.poll();
+        if (consumer != null) {
+            consumer.picked = true;
+            consumer.waitStrategy.signal();
+        }
+    }
+
+    /**
+     * Helper method that returns a one-off view for a consumer without a shard of its own.
+     */
+    private Shard anyShard() {
+        return new Shard(ThreadLocalRandom.current().nextInt(shards.length));
+    }
+
+    /**
+     * A consumer's view of the queue bound to the shard it owns.
+     */
+    private class Shard implements IMessageQueue {
+        private final int index;
+        private volatile boolean picked;
+        private final BooleanSupplier pickedOrNotEmpty =
+            () -> picked || !ShardedMessageQueue.this.isEmpty();
+        private WaitStrategy waitStrategy;
+        private int victim;
+        private int claimed;
+
+        Shard(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void add(Message message) throws InterruptedException {
+            ShardedMessageQueue.this.add(message);
+        }
+
+        @Override
+        public void addAll(Collection<Message> messages) throws InterruptedException {
+            ShardedMessageQueue.this.addAll(messages);
+        }
+
+        @Override
+        public Message remove() throws InterruptedException {
+            Message message;
+            while ((message = poll()) == null) {
+                awaitMessage();
+            }
+            passOnWakeup();
+            return message;
+        }
+
+        @Override
+        public int drainTo(List<Message> target, int maxMessages) throws InterruptedException {
+            if (maxMessages <= 0) {
+                throw new IllegalArgumentException("maxMessages must be positive");
+            }
+            int drained;
+            while ((drained = pollTo(target, maxMessages)) == 0) {
+                awaitMessage();
+            }
+            passOnWakeup();
+            return drained;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ShardedMessageQueue.this.isEmpty();
+        }
+
+        @Override
+        public int size() {
+            return ShardedMessageQueue.this.size();
+        }
+
+        /**
+         * Takes from the owned shard first. When it is empty this keeps taking from
+         * the peer it last stole from until it has taken the half of that peer's
+         * backlog it claimed, and only then scans the peers for a new victim.
+         */
+        private Message poll() {
+            Message message = shards[index].poll();
+            if (message == null && claimed > 0) {
+                message = shards[victim].poll();
+                claimed = message == null ? 0 : claimed - 1;
+            }
+            if (message == null && claimVictim()) {
+                message = shards[victim].poll();
+                claimed = message == null ? 0 : claimed - 1;
+            }
+            return message;
+        }
+
+        /**
+         * Takes up to the given number of messages from the owned shard, or else
+         * steals half the backlog of the busiest peer straight into the target in one batch.
+         */
+        private int pollTo(List<Message> target, int maxMessages) {
+            int drained = shards[index].poll(target, maxMessages);
+            if (drained == 0 && claimVictim()) {
+                drained = shards[victim].poll(target, Math.min(maxMessages, claimed));
+                claimed = 0;
+            }
+            return drained;
+        }
+
+        /**
+         * Scans the peers once for the one with the most messages and claims half
+         * its backlog, rounded up.
+         *
+         * @return true if a peer has messages to steal, false otherwise
+         */
+        private boolean claimVictim() {
+            int backlog = 0;
+            for (int i = 1; i < shards.length; i++) {
+                int peer = (index + i) % shards.length;
+                int size = shards[peer].size();
+                if (size > backlog) {
+                    victim = peer;
+                    backlog = size;
+                }
+            }
+            claimed = (backlog + 1) / 2;
+            return claimed > 0;
+        }
+
+        /**
+         * Registers as idle and waits until any shard has a message or a producer
+         * picks this consumer to wake. Registering before the strategy re-checks
+         * means a producer either sees this consumer and wakes it, or added its
+         * message early enough for the check to see it. A picked consumer always
+         * stops waiting, even if another took the message first, so that it comes
+         * back to register again.
+         */
+        private void awaitMessage() throws InterruptedException {
+            if (waitStrategy == null) {
+                waitStrategy = waitStrategies.get();
+            }
+            picked = false;
+            idle.add(this);
+            boolean waited = false;
+            try {
+                waitStrategy.await(pickedOrNotEmpty);
+                waited = true;
+            } finally {
+                // A producer that picked this consumer spent its wakeup on it, so hand
+                // the wakeup on when leaving without taking a message
+                if (!idle.remove(this) && !waited) {
+                    wakeIdleConsumer();
+                }
+            }
+        }
+
+        /**
+         * Wakes another idle consumer if messages are left after this one took its
+         * share. A producer may have woken a consumer that was already awake, so
+         * without this a message could wait while others sleep. While every
+         * consumer is busy this only reads the idle list.
+         */
+        private void passOnWakeup() {
+            if (!idle.isEmpty() && !ShardedMessageQueue.this.isEmpty()) {
+                wakeIdleConsumer();
+            }
+        }
+    }
+}
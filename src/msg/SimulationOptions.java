@@ -0,0 +1,1346 @@
+package msg;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Optional tuning knobs for a {@link MessageAlertSim} run. Every option has a
+ * default that reproduces the original simulation, so only the settings that
+ * differ need to be given. Options can also be read from command line
+ * arguments of the form {@code --name=value}.
+ */
+public class SimulationOptions {
+    // Number of recent sends whose outcomes the circuit breaker counts
+    private static final int BREAKER_WINDOW = 20;
+
+    private QueueType queueType = QueueType.BLOCKING;
+    private int queueCapacity;
+    private int batchSize = 1;
+    private ThreadMode senderThreadMode = ThreadMode.PLATFORM;
+    private ThreadMode supportThreadMode = ThreadMode.PLATFORM;
+    private SenderEngine senderEngine = SenderEngine.THREAD;
+    private int dispatcherCount = 2;
+    private int tickMillis = 1;
+    private int timerWorkers = 1;
+    private int maxInFlight = 8;
+    private int maxAttempts = 1;
+    private long retryBackoffMillis = 10;
+    private long maxRetryBackoffMillis = 1000;
+    private double retryJitter = 1.0;
+    private boolean adaptive;
+    private double breakerThreshold = 0.5;
+    private long breakerOpenMillis = 1000;
+    private long latencyTargetMillis;
+    private double failureTolerance = 0.2;
+    private IdGeneratorType idGenerator = IdGeneratorType.SNOWFLAKE;
+    private int poolCapacity;
+    private ProductionMode productionMode = ProductionMode.SLEEP;
+    private int producerCount = 1;
+    private double productionRate;
+    private ArrivalType arrivalType = ArrivalType.POISSON;
+    private long burstOnMillis = 1000;
+    private long burstOffMillis = 1000;
+    private long diurnalPeriodMillis = 60000;
+    private double diurnalAmplitude = 0.8;
+    private ServiceTimeType serviceTimeType = ServiceTimeType.UNIFORM;
+    private double serviceSigma = 1.0;
+    private double paretoAlpha = 2.5;
+    private String serviceFile;
+    private double[] percentiles = {50, 90, 99, 99.9};
+    private long monitorIntervalMillis;
+    private long drainTimeoutMillis;
+    private ExecutionMode executionMode = ExecutionMode.REAL_TIME;
+    private long seed = 1;
+    private boolean quiet;
+    private boolean predict;
+    private boolean autoscale;
+    private int minSenders = 1;
+    private int maxSenders;
+    private long scaleIntervalMillis = 500;
+    private int scaleSamples = 3;
+    private WaitStrategyType waitStrategy;
+    private ShardedMessageQueue.Partitioning partitioning = ShardedMessageQueue.Partitioning.ROUND_ROBIN;
+    private int spinTries = 100;
+
+    /**
+     * Sets the queue implementation used between the producer and the senders.
+     *
+     * @param queueType The queue implementation to use
+     * @return This options object
+     */
+    public SimulationOptions queueType(QueueType queueType) {
+        if (queueType == null) {
+            throw new IllegalArgumentException("queueType cannot be null");
+        }
+        this.queueType = queueType;
+        return this;
+    }
+
+    /**
+     * Sets the queue capacity. A value of 0 sizes the queue at twice the sender count.
+     *
+     * @param queueCapacity The maximum number of queued messages, or 0 for the default
+     * @return This options object
+     */
+    public SimulationOptions queueCapacity(int queueCapacity) {
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("queueCapacity cannot be negative");
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets how many messages the producer adds and each sender takes per queue operation.
+     *
+     * @param batchSize The maximum number of messages per queue handoff
+     * @return This options object
+     */
+    public SimulationOptions batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the kind of thread each sender runs on.
+     *
+     * @param senderThreadMode The thread mode for senders
+     * @return This options object
+     * @throws IllegalArgumentException if the thread mode is not supported by the running JVM
+     */
+    public SimulationOptions senderThreadMode(ThreadMode senderThreadMode) {
+        if (senderThreadMode == null) {
+            throw new IllegalArgumentException("senderThreadMode cannot be null");
+        }
+        if (!senderThreadMode.isSupported()) {
+            throw new IllegalArgumentException(senderThreadMode + " threads are not supported by this Java version");
+        }
+        this.senderThreadMode = senderThreadMode;
+        return this;
+    }
+
+    /**
+     * Sets the kind of thread the producer and the progress monitor run on.
+     *
+     * @param supportThreadMode The thread mode for the producer and monitor
+     * @return This options object
+     * @throws IllegalArgumentException if the thread mode is not supported by the running JVM
+     */
+    public SimulationOptions supportThreadMode(ThreadMode supportThreadMode) {
+        if (supportThreadMode == null) {
+            throw new IllegalArgumentException("supportThreadMode cannot be null");
+        }
+        if (!supportThreadMode.isSupported()) {
+            throw new IllegalArgumentException(supportThreadMode + " threads are not supported by this Java version");
+        }
+        this.supportThreadMode = supportThreadMode;
+        return this;
+    }
+
+    /**
+     * Sets how sends are carried out.
+     *
+     * @param senderEngine The sender engine
+     * @return This options object
+     */
+    public SimulationOptions senderEngine(SenderEngine senderEngine) {
+        if (senderEngine == null) {
+            throw new IllegalArgumentException("senderEngine cannot be null");
+        }
+        this.senderEngine = senderEngine;
+        return this;
+    }
+
+    /**
+     * Sets the number of dispatcher threads feeding the timer wheel engine.
+     *
+     * @param dispatcherCount The number of dispatcher threads
+     * @return This options object
+     */
+    public SimulationOptions dispatcherCount(int dispatcherCount) {
+        if (dispatcherCount <= 0) {
+            throw new IllegalArgumentException("dispatcherCount must be positive");
+        }
+        this.dispatcherCount = dispatcherCount;
+        return this;
+    }
+
+    /**
+     * Sets the tick duration, and so the resolution, of the timer wheel engine.
+     *
+     * @param tickMillis The tick duration in milliseconds
+     * @return This options object
+     */
+    public SimulationOptions tickMillis(int tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        return this;
+    }
+
+    /**
+     * Sets the number of worker threads, each advancing its own wheel, of the
+     * timer used by the timer wheel and async engines.
+     *
+     * @param timerWorkers The number of timer worker threads
+     * @return This options object
+     */
+    public SimulationOptions timerWorkers(int timerWorkers) {
+        if (timerWorkers <= 0) {
+            throw new IllegalArgumentException("timerWorkers must be positive");
+        }
+        this.timerWorkers = timerWorkers;
+        return this;
+    }
+
+    /**
+     * Sets how many sends each async sender keeps outstanding at once.
+     *
+     * @param maxInFlight The per-sender in-flight limit
+     * @return This options object
+     */
+    public SimulationOptions maxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of send attempts per message. A value of 1 disables retries.
+     *
+     * @param maxAttempts The attempt limit, including the first attempt
+     * @return This options object
+     */
+    public SimulationOptions maxAttempts(int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Sets the wait before the first retry. Each further retry waits twice as long,
+     * up to the maximum backoff.
+     *
+     * @param retryBackoffMillis The initial backoff in milliseconds
+     * @return This options object
+     */
+    public SimulationOptions retryBackoffMillis(long retryBackoffMillis) {
+        if (retryBackoffMillis < 0) {
+            throw new IllegalArgumentException("retryBackoffMillis cannot be negative");
+        }
+        this.retryBackoffMillis = retryBackoffMillis;
+        return this;
+    }
+
+    /**
+     * Sets the upper bound on the wait before any retry.
+     *
+     * @param maxRetryBackoffMillis The maximum backoff in milliseconds
+     * @return This options object
+     */
+    public SimulationOptions maxRetryBackoffMillis(long maxRetryBackoffMillis) {
+        if (maxRetryBackoffMillis < 0) {
+            throw new IllegalArgumentException("maxRetryBackoffMillis cannot be negative");
+        }
+        this.maxRetryBackoffMillis = maxRetryBackoffMillis;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of each retry backoff that is randomized.
+     *
+     * @param retryJitter The jitter, from 0.0 for none to 1.0 for full jitter
+     * @return This options object
+     */
+    public SimulationOptions retryJitter(double retryJitter) {
+        if (retryJitter < 0.0 || retryJitter > 1.0) {
+            throw new IllegalArgumentException("retryJitter must be between 0.0 and 1.0");
+        }
+        this.retryJitter = retryJitter;
+        return this;
+    }
+
+    /**
+     * Sets whether sends are gated by an adaptive concurrency limit and a circuit breaker.
+     * Only senders of the thread engine are gated.
+     *
+     * @param adaptive true to enable the adaptive limiter and circuit breaker
+     * @return This options object
+     */
+    public SimulationOptions adaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of recent sends that must fail for the circuit breaker to open.
+     *
+     * @param breakerThreshold The failure ratio at which the breaker opens
+     * @return This options object
+     */
+    public SimulationOptions breakerThreshold(double breakerThreshold) {
+        if (breakerThreshold <= 0.0 || breakerThreshold > 1.0) {
+            throw new IllegalArgumentException("breakerThreshold must be greater than 0.0 and at most 1.0");
+        }
+        this.breakerThreshold = breakerThreshold;
+        return this;
+    }
+
+    /**
+     * Sets how long the circuit breaker stays open before a trial send.
+     *
+     * @param breakerOpenMillis The open time in milliseconds
+     * @return This options object
+     */
+    public SimulationOptions breakerOpenMillis(long breakerOpenMillis) {
+        if (breakerOpenMillis < 0) {
+            throw new IllegalArgumentException("breakerOpenMillis cannot be negative");
+        }
+        this.breakerOpenMillis = breakerOpenMillis;
+        return this;
+    }
+
+    /**
+     * Sets the send latency above which the adaptive limiter lowers the concurrency limit.
+     * A value of 0 uses twice the mean delay, the slowest a healthy simulated send takes.
+     *
+     * @param latencyTargetMillis The latency target in milliseconds, or 0 for the default
+     * @return This options object
+     */
+    public SimulationOptions latencyTargetMillis(long latencyTargetMillis) {
+        if (latencyTargetMillis < 0) {
+            throw new IllegalArgumentException("latencyTargetMillis cannot be negative");
+        }
+        this.latencyTargetMillis = latencyTargetMillis;
+        return this;
+    }
+
+    /**
+     * Sets the recent failure ratio above which failed sends lower the concurrency limit.
+     *
+     * @param failureTolerance The tolerated failure ratio
+     * @return This options object
+     */
+    public SimulationOptions failureTolerance(double failureTolerance) {
+        if (failureTolerance < 0.0 || failureTolerance > 1.0) {
+            throw new IllegalArgumentException("failureTolerance must be between 0.0 and 1.0");
+        }
+        this.failureTolerance = failureTolerance;
+        return this;
+    }
+
+    /**
+     * Sets how message IDs are generated.
+     *
+     * @param idGenerator The ID generator type
+     * @return This options object
+     */
+    public SimulationOptions idGenerator(IdGeneratorType idGenerator) {
+        if (idGenerator == null) {
+            throw new IllegalArgumentException("idGenerator cannot be null");
+        }
+        this.idGenerator = idGenerator;
+        return this;
+    }
+
+    /**
+     * Sets the number of free messages kept for reuse. A value of 0 disables pooling,
+     * so every message is allocated.
+     *
+     * @param poolCapacity The message pool capacity, or 0 to disable pooling
+     * @return This options object
+     */
+    public SimulationOptions poolCapacity(int poolCapacity) {
+        if (poolCapacity < 0) {
+            throw new IllegalArgumentException("poolCapacity cannot be negative");
+        }
+        this.poolCapacity = poolCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the number of producers. The message count is split evenly between them.
+     *
+     * @param producerCount The number of producer threads
+     * @return This options object
+     */
+    public SimulationOptions producerCount(int producerCount) {
+        if (producerCount <= 0) {
+            throw new IllegalArgumentException("producerCount must be positive");
+        }
+        this.producerCount = producerCount;
+        return this;
+    }
+
+    /**
+     * Sets how fast the producer adds messages to the queue.
+     *
+     * @param productionMode The production mode
+     * @return This options object
+     */
+    public SimulationOptions productionMode(ProductionMode productionMode) {
+        if (productionMode == null) {
+            throw new IllegalArgumentException("productionMode cannot be null");
+        }
+        this.productionMode = productionMode;
+        return this;
+    }
+
+    /**
+     * Sets the production rate for the fixed rate, target rate and open-loop production modes.
+     * The rate is split evenly between the producers.
+     *
+     * @param productionRate The total number of messages per second
+     * @return This options object
+     */
+    public SimulationOptions productionRate(double productionRate) {
+        if (!(productionRate > 0)) {
+            throw new IllegalArgumentException("productionRate must be positive");
+        }
+        this.productionRate = productionRate;
+        return this;
+    }
+
+    /**
+     * Sets the arrival process followed by the open-loop production mode.
+     *
+     * @param arrivalType The arrival process type
+     * @return This options object
+     */
+    public SimulationOptions arrivalType(ArrivalType arrivalType) {
+        if (arrivalType == null) {
+            throw new IllegalArgumentException("arrivalType cannot be null");
+        }
+        this.arrivalType = arrivalType;
+        return this;
+    }
+
+    /**
+     * Sets the length of each burst of bursty arrivals.
+     *
+     * @param burstOnMillis The burst length in milliseconds
+     * @return This options object
+     */
+    public SimulationOptions burstOnMillis(long burstOnMillis) {
+        if (burstOnMillis <= 0) {
+            throw new IllegalArgumentException("burstOnMillis must be positive");
+        }
+        this.burstOnMillis = burstOnMillis;
+        return this;
+    }
+
+    /**
+     * Sets the length of each pause between bursts of bursty arrivals.
+     *
+     * @param burstOffMillis The pause length in milliseconds
+     * @return This options object
+     */
+    public SimulationOptions burstOffMillis(long burstOffMillis) {
+        if (burstOffMillis < 0) {
+            throw new IllegalArgumentException("burstOffMillis cannot be negative");
+        }
+        this.burstOffMillis = burstOffMillis;
+        return this;
+    }
+
+    /**
+     * Sets how long one compressed day of diurnal arrivals lasts.
+     *
+     * @param diurnalPeriodMillis The period in milliseconds
+     * @return This options object
+     */
+    public SimulationOptions diurnalPeriodMillis(long diurnalPeriodMillis) {
+        if (diurnalPeriodMillis <= 0) {
+            throw new IllegalArgumentException("diurnalPeriodMillis must be positive");
+        }
+        this.diurnalPeriodMillis = diurnalPeriodMillis;
+        return this;
+    }
+
+    /**
+     * Sets how far the diurnal arrival rate swings around the average rate.
+     *
+     * @param diurnalAmplitude The swing as a fraction of the average, between 0.0 and 1.0
+     * @return This options object
+     */
+    public SimulationOptions diurnalAmplitude(double diurnalAmplitude) {
+        if (diurnalAmplitude < 0.0 || diurnalAmplitude > 1.0) {
+            throw new IllegalArgumentException("diurnalAmplitude must be between 0.0 and 1.0");
+        }
+        this.diurnalAmplitude = diurnalAmplitude;
+        return this;
+    }
+
+    /**
+     * Sets the distribution of simulated send durations.
+     *
+     * @param serviceTimeType The service time distribution
+     * @return This options object
+     */
+    public SimulationOptions serviceTimeType(ServiceTimeType serviceTimeType) {
+        if (serviceTimeType == null) {
+            throw new IllegalArgumentException("serviceTimeType cannot be null");
+        }
+        this.serviceTimeType = serviceTimeType;
+        return this;
+    }
+
+    /**
+     * Sets the shape of log-normal send durations.
+     *
+     * @param serviceSigma The standard deviation of the logarithm of the duration
+     * @return This options object
+     */
+    public SimulationOptions serviceSigma(double serviceSigma) {
+        if (!(serviceSigma > 0)) {
+            throw new IllegalArgumentException("serviceSigma must be positive");
+        }
+        this.serviceSigma = serviceSigma;
+        return this;
+    }
+
+    /**
+     * Sets the shape of the tail of Pareto send durations.
+     *
+     * @param paretoAlpha The tail shape, greater than 1
+     * @return This options object
+     */
+    public SimulationOptions paretoAlpha(double paretoAlpha) {
+        if (!(paretoAlpha > 1)) {
+            throw new IllegalArgumentException("paretoAlpha must be greater than 1");
+        }
+        this.paretoAlpha = paretoAlpha;
+        return this;
+    }
+
+    /**
+     * Sets the histogram file from which empirical send durations are drawn.
+     *
+     * @param serviceFile The path of the histogram file
+     * @return This options object
+     */
+    public SimulationOptions serviceFile(String serviceFile) {
+        if (serviceFile == null || serviceFile.isEmpty()) {
+            throw new IllegalArgumentException("serviceFile cannot be null or empty");
+        }
+        this.serviceFile = serviceFile;
+        return this;
+    }
+
+    /**
+     * Sets the latency percentiles shown in the progress reports and final statistics.
+     *
+     * @param percentiles The percentiles, each from 0.0 to 100.0
+     * @return This options object
+     */
+    public SimulationOptions percentiles(double... percentiles) {
+        if (percentiles == null || percentiles.length == 0) {
+            throw new IllegalArgumentException("percentiles cannot be null or empty");
+        }
+        for (double percentile : percentiles) {
+            if (percentile < 0.0 || percentile > 100.0) {
+                throw new IllegalArgumentException("percentiles must be between 0.0 and 100.0");
+            }
+        }
+        this.percentiles = percentiles.clone();
+        return this;
+    }
+
+    /**
+     * Sets the interval between progress reports in milliseconds, which overrides
+     * the monitorInterval in seconds and allows reports more often than once a second.
+     *
+     * @param monitorIntervalMillis The interval in milliseconds, or 0 to use monitorInterval
+     * @return This options object
+     */
+    public SimulationOptions monitorIntervalMillis(long monitorIntervalMillis) {
+        if (monitorIntervalMillis < 0) {
+            throw new IllegalArgumentException("monitorIntervalMillis cannot be negative");
+        }
+        this.monitorIntervalMillis = monitorIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Sets how long the simulation waits, once production has finished, for the queued
+     * and in-flight messages to be sent before it stops the senders anyway.
+     *
+     * @param drainTimeoutMillis The deadline in milliseconds, or 0 to wait for every message
+     * @return This options object
+     */
+    public SimulationOptions drainTimeoutMillis(long drainTimeoutMillis) {
+        if (drainTimeoutMillis < 0) {
+            throw new IllegalArgumentException("drainTimeoutMillis cannot be negative");
+        }
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Sets whether the simulation runs in real time or as discrete events on a virtual clock.
+     *
+     * @param executionMode How the simulation passes time
+     * @return This options object
+     */
+    public SimulationOptions executionMode(ExecutionMode executionMode) {
+        if (executionMode == null) {
+            throw new IllegalArgumentException("executionMode cannot be null");
+        }
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    /**
+     * Sets the seed of the random numbers drawn by a discrete-event simulation.
+     *
+     * @param seed The random seed
+     * @return This options object
+     */
+    public SimulationOptions seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets whether the simulation runs without progress reports and final statistics
+     * on the console, as when many simulations run side by side in a sweep.
+     *
+     * @param quiet true to print nothing
+     * @return This options object
+     */
+    public SimulationOptions quiet(boolean quiet) {
+        this.quiet = quiet;
+        return this;
+    }
+
+    /**
+     * Sets whether the final statistics are followed by the predictions of a
+     * {@link QueueingModel} for the same parameters, with large divergences flagged.
+     *
+     * @param predict true to compare the measurements with the queueing model
+     * @return This options object
+     */
+    public SimulationOptions predict(boolean predict) {
+        this.predict = predict;
+        return this;
+    }
+
+    /**
+     * Sets whether the number of senders follows the load. Only the thread engine autoscales.
+     *
+     * @param autoscale true to grow and shrink the sender pool with the load
+     * @return This options object
+     */
+    public SimulationOptions autoscale(boolean autoscale) {
+        this.autoscale = autoscale;
+        return this;
+    }
+
+    /**
+     * Sets the smallest number of senders an autoscaled pool shrinks to.
+     *
+     * @param minSenders The lower bound on the pool size
+     * @return This options object
+     */
+    public SimulationOptions minSenders(int minSenders) {
+        if (minSenders <= 0) {
+            throw new IllegalArgumentException("minSenders must be positive");
+        }
+        this.minSenders = minSenders;
+        return this;
+    }
+
+    /**
+     * Sets the largest number of senders an autoscaled pool grows to. A value of 0
+     * allows four times the initial sender count.
+     *
+     * @param maxSenders The upper bound on the pool size, or 0 for the default
+     * @return This options object
+     */
+    public SimulationOptions maxSenders(int maxSenders) {
+        if (maxSenders < 0) {
+            throw new IllegalArgumentException("maxSenders cannot be negative");
+        }
+        this.maxSenders = maxSenders;
+        return this;
+    }
+
+    /**
+     * Sets how often the autoscaler looks at the load.
+     *
+     * @param scaleIntervalMillis The time between looks in milliseconds
+     * @return This options object
+     */
+    public SimulationOptions scaleIntervalMillis(long scaleIntervalMillis) {
+        if (scaleIntervalMillis <= 0) {
+            throw new IllegalArgumentException("scaleIntervalMillis must be positive");
+        }
+        this.scaleIntervalMillis = scaleIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Sets how many looks in a row must agree before the autoscaler resizes the pool.
+     *
+     * @param scaleSamples The number of agreeing looks
+     * @return This options object
+     */
+    public SimulationOptions scaleSamples(int scaleSamples) {
+        if (scaleSamples <= 0) {
+            throw new IllegalArgumentException("scaleSamples must be positive");
+        }
+        this.scaleSamples = scaleSamples;
+        return this;
+    }
+
+    /**
+     * Sets how threads wait while the queue is full or empty.
+     *
+     * @param waitStrategy The wait strategy, or null to use the queue's default
+     * @return This options object
+     */
+    public SimulationOptions waitStrategy(WaitStrategyType waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    /**
+     * Sets how many busy-spin checks the yielding and parking wait strategies make
+     * before giving up the processor.
+     *
+     * @param spinTries The number of busy-spin checks
+     * @return This options object
+     */
+    public SimulationOptions spinTries(int spinTries) {
+        if (spinTries < 0) {
+            throw new IllegalArgumentException("spinTries cannot be negative");
+        }
+        this.spinTries = spinTries;
+        return this;
+    }
+
+    /**
+     * Sets how a sharded queue spreads messages across the senders' shards.
+     *
+     * @param partitioning The partitioning scheme
+     * @return This options object
+     */
+    public SimulationOptions partitioning(ShardedMessageQueue.Partitioning partitioning) {
+        if (partitioning == null) {
+            throw new IllegalArgumentException("partitioning cannot be null");
+        }
+        this.partitioning = partitioning;
+        return this;
+    }
+
+    /**
+     * Returns the queue implementation used between the producer and the senders.
+     *
+     * @return The configured queue type
+     */
+    public QueueType getQueueType() {
+        return queueType;
+    }
+
+    /**
+     * Returns the configured queue capacity.
+     *
+     * @return The queue capacity, or 0 if the default sizing is used
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns the maximum number of messages per queue handoff.
+     *
+     * @return The batch size, 1 when batching is disabled
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the kind of thread each sender runs on.
+     *
+     * @return The sender thread mode
+     */
+    public ThreadMode getSenderThreadMode() {
+        return senderThreadMode;
+    }
+
+    /**
+     * Returns the kind of thread the producer and the progress monitor run on.
+     *
+     * @return The producer and monitor thread mode
+     */
+    public ThreadMode getSupportThreadMode() {
+        return supportThreadMode;
+    }
+
+    /**
+     * Returns how sends are carried out.
+     *
+     * @return The sender engine
+     */
+    public SenderEngine getSenderEngine() {
+        return senderEngine;
+    }
+
+    /**
+     * Returns the number of dispatcher threads feeding the timer wheel engine.
+     *
+     * @return The dispatcher count
+     */
+    public int getDispatcherCount() {
+        return dispatcherCount;
+    }
+
+    /**
+     * Returns the tick duration of the timer wheel engine.
+     *
+     * @return The tick duration in milliseconds
+     */
+    public int getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Returns the number of worker threads of the timer used by the timer wheel and async engines.
+     *
+     * @return The timer worker count
+     */
+    public int getTimerWorkers() {
+        return timerWorkers;
+    }
+
+    /**
+     * Returns how many sends each async sender keeps outstanding at once.
+     *
+     * @return The per-sender in-flight limit
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Returns the maximum number of send attempts per message.
+     *
+     * @return The attempt limit, 1 when retries are disabled
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Creates the retry policy described by these options.
+     *
+     * @return A new retry policy
+     * @throws IllegalArgumentException if the maximum backoff is below the initial backoff
+     */
+    public RetryPolicy createRetryPolicy() {
+        return new RetryPolicy(maxAttempts, retryBackoffMillis, maxRetryBackoffMillis, retryJitter);
+    }
+
+    /**
+     * Returns whether sends are gated by an adaptive limiter and circuit breaker.
+     *
+     * @return true if the adaptive limiter is enabled
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Creates the adaptive limiter described by these options, with its circuit breaker.
+     *
+     * @param senderCount The number of senders, which is the highest the limit can go
+     * @param meanDelay The mean send delay, used when no latency target was set
+     * @param stats Shared instance of the stats
+     * @return A new adaptive limiter
+     */
+    public AdaptiveLimiter createLimiter(int senderCount, int meanDelay, MessageStats stats) {
+        CircuitBreaker breaker = new CircuitBreaker(BREAKER_WINDOW, breakerThreshold, breakerOpenMillis, stats);
+        long target = latencyTargetMillis > 0 ? latencyTargetMillis : meanDelay * 2L;
+        return new AdaptiveLimiter(1, senderCount, target, failureTolerance, breaker, stats);
+    }
+
+    /**
+     * Returns how message IDs are generated.
+     *
+     * @return The ID generator type
+     */
+    public IdGeneratorType getIdGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Creates the message pool described by these options.
+     *
+     * @return A new message pool, or null if pooling is disabled
+     */
+    public MessagePool createMessagePool() {
+        return poolCapacity > 0 ? new MessagePool(poolCapacity, Producer.MAX_CONTENT_LENGTH) : null;
+    }
+
+    /**
+     * Returns the number of producers.
+     *
+     * @return The number of producer threads
+     */
+    public int getProducerCount() {
+        return producerCount;
+    }
+
+    /**
+     * Returns how fast the producer adds messages to the queue.
+     *
+     * @return The production mode
+     */
+    public ProductionMode getProductionMode() {
+        return productionMode;
+    }
+
+    /**
+     * Returns the production rate for the fixed rate, target rate and open-loop production modes.
+     *
+     * @return The number of messages per second, or 0 if none was set
+     */
+    public double getProductionRate() {
+        return productionRate;
+    }
+
+    /**
+     * Returns the arrival process followed by the open-loop production mode.
+     *
+     * @return The arrival process type
+     */
+    public ArrivalType getArrivalType() {
+        return arrivalType;
+    }
+
+    /**
+     * Creates the arrival process described by these options for one producer.
+     *
+     * @param ratePerSecond The average arrival rate of the producer
+     * @return A new arrival process
+     */
+    public ArrivalProcess createArrivalProcess(double ratePerSecond) {
+        return createArrivalProcess(ratePerSecond, new Random());
+    }
+
+    /**
+     * Creates the arrival process described by these options, drawing from the
+     * given random numbers so that a seeded simulation is repeatable.
+     *
+     * @param ratePerSecond The average arrival rate
+     * @param random The source of randomness for the arrival times
+     * @return A new arrival process
+     */
+    public ArrivalProcess createArrivalProcess(double ratePerSecond, Random random) {
+        switch (arrivalType) {
+            case BURSTY:
+                return new BurstyArrivals(ratePerSecond, burstOnMillis, burstOffMillis, random);
+            case DIURNAL:
+                return new DiurnalArrivals(ratePerSecond, diurnalPeriodMillis, diurnalAmplitude, random);
+            case POISSON:
+            default:
+                return new PoissonArrivals(ratePerSecond, random);
+        }
+    }
+
+    /**
+     * Returns the distribution of simulated send durations.
+     *
+     * @return The service time distribution
+     */
+    public ServiceTimeType getServiceTimeType() {
+        return serviceTimeType;
+    }
+
+    /**
+     * Creates the service time model described by these options.
+     *
+     * @param meanDelay The mean send duration in milliseconds, which an empirical
+     *        histogram replaces with its own
+     * @return A new service time model
+     * @throws IllegalArgumentException if the empirical histogram is missing or cannot be read
+     */
+    public ServiceTimeModel createServiceTimeModel(int meanDelay) {
+        switch (serviceTimeType) {
+            case EXPONENTIAL:
+                return new ExponentialServiceTime(meanDelay);
+            case LOGNORMAL:
+                return new LogNormalServiceTime(meanDelay, serviceSigma);
+            case PARETO:
+                return new ParetoServiceTime(meanDelay, paretoAlpha);
+            case EMPIRICAL:
+                if (serviceFile == null) {
+                    throw new IllegalArgumentException("A service time file is required for " + serviceTimeType);
+                }
+                try {
+                    return EmpiricalServiceTime.load(Paths.get(serviceFile));
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Cannot read service time file: " + serviceFile, e);
+                }
+            case UNIFORM:
+            default:
+                return new UniformServiceTime(meanDelay);
+        }
+    }
+
+    /**
+     * Returns the latency percentiles shown in the progress reports and final statistics.
+     *
+     * @return The percentiles
+     */
+    public double[] getPercentiles() {
+        return percentiles.clone();
+    }
+
+    /**
+     * Returns the interval between progress reports in milliseconds.
+     *
+     * @return The interval in milliseconds, or 0 to use monitorInterval
+     */
+    public long getMonitorIntervalMillis() {
+        return monitorIntervalMillis;
+    }
+
+    /**
+     * Returns how long the simulation waits for queued and in-flight messages once
+     * production has finished.
+     *
+     * @return The deadline in milliseconds, or 0 to wait for every message
+     */
+    public long getDrainTimeoutMillis() {
+        return drainTimeoutMillis;
+    }
+
+    /**
+     * Returns whether the simulation runs in real time or as discrete events on a virtual clock.
+     *
+     * @return The execution mode
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Returns the seed of the random numbers drawn by a discrete-event simulation.
+     *
+     * @return The random seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns whether the simulation runs without printing to the console.
+     *
+     * @return true if nothing is printed
+     */
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    /**
+     * Returns whether the final statistics are compared with a queueing model.
+     *
+     * @return true if the predictions are printed
+     */
+    public boolean isPredict() {
+        return predict;
+    }
+
+    /**
+     * Returns whether the number of senders follows the load.
+     *
+     * @return true if the sender pool is autoscaled
+     */
+    public boolean isAutoscale() {
+        return autoscale;
+    }
+
+    /**
+     * Returns the smallest number of senders an autoscaled pool shrinks to.
+     *
+     * @return The lower bound on the pool size
+     */
+    public int getMinSenders() {
+        return minSenders;
+    }
+
+    /**
+     * Returns the largest number of senders the pool can have.
+     *
+     * @param senderCount The initial number of senders
+     * @return The upper bound on the pool size, which is the sender count when not autoscaling
+     */
+    public int resolveMaxSenders(int senderCount) {
+        if (!autoscale) {
+            return senderCount;
+        }
+        return maxSenders > 0 ? maxSenders : senderCount * 4;
+    }
+
+    /**
+     * Creates the autoscaler described by these options.
+     *
+     * @param pool The pool of senders to resize
+     * @param messageQueue The queue whose depth is watched
+     * @param stats Shared instance of the stats
+     * @param senderCount The initial number of senders
+     * @param meanDelay The mean send delay, from which the default latency target of four
+     *        times the mean is taken
+     * @return A new autoscaler
+     */
+    public Autoscaler createAutoscaler(SenderPool pool, IMessageQueue messageQueue, MessageStats stats,
+                                       int senderCount, int meanDelay) {
+        // Processing time includes the time spent queued, so by default allow some queueing
+        // on top of a send, and treat a pool whose messages barely queue as idle
+        long target = latencyTargetMillis > 0 ? latencyTargetMillis : meanDelay * 4L;
+        return new Autoscaler(pool, messageQueue, stats, minSenders, resolveMaxSenders(senderCount),
+            target, scaleIntervalMillis, scaleSamples);
+    }
+
+    /**
+     * Returns the configured wait strategy type.
+     *
+     * @return The wait strategy type, or null if the queue's default is used
+     */
+    public WaitStrategyType getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Returns the number of busy-spin checks before yielding or parking.
+     *
+     * @return The number of spin tries
+     */
+    public int getSpinTries() {
+        return spinTries;
+    }
+
+    /**
+     * Returns how a sharded queue spreads messages across shards.
+     *
+     * @return The partitioning scheme
+     */
+    public ShardedMessageQueue.Partitioning getPartitioning() {
+        return partitioning;
+    }
+
+    /**
+     * Creates the message queue described by these options.
+     *
+     * @param senderCount The number of senders in the simulation
+     * @return A new, empty message queue
+     */
+    public IMessageQueue createQueue(int senderCount) {
+        WaitStrategyType type = waitStrategy;
+        int tries = spinTries;
+        Supplier<WaitStrategy> strategies = type == null ? null : () -> type.create(tries);
+        return queueType.create(resolveQueueCapacity(senderCount), senderCount, partitioning, strategies);
+    }
+
+    /**
+     * Returns the queue capacity to use for the given number of senders.
+     *
+     * @param senderCount The number of senders in the simulation
+     * @return The configured capacity, or twice the sender count if none was set
+     */
+    public int resolveQueueCapacity(int senderCount) {
+        return queueCapacity > 0 ? queueCapacity : senderCount * 2;
+    }
+
+    /**
+     * Builds options from command line arguments of the form {@code --name=value}.
+     *
+     * @param args The command line arguments
+     * @param offset The index of the first option argument
+     * @return The parsed options
+     * @throws IllegalArgumentException if an option is unknown or malformed
+     */
+    public static SimulationOptions fromArgs(String[] args, int offset) {
+        SimulationOptions options = new SimulationOptions();
+        for (int i = offset; i < args.length; i++) {
+            String arg = args[i];
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) {
+                throw new IllegalArgumentException("Options must be given as --name=value: " + arg);
+            }
+            options.set(arg.substring(2, split), arg.substring(split + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Helper method that applies a single named option.
+     */
+    private void set(String name, String value) {
+        switch (name) {
+            case "queue":
+                queueType(QueueType.valueOf(value.toUpperCase()));
+                break;
+            case "capacity":
+                queueCapacity(Integer.parseInt(value));
+                break;
+            case "wait":
+                waitStrategy(WaitStrategyType.valueOf(value.toUpperCase()));
+                break;
+            case "spins":
+                spinTries(Integer.parseInt(value));
+                break;
+            case "partition":
+                partitioning(ShardedMessageQueue.Partitioning.valueOf(value.toUpperCase()));
+                break;
+            case "threads":
+                senderThreadMode(ThreadMode.valueOf(value.toUpperCase()));
+                break;
+            case "support-threads":
+                supportThreadMode(ThreadMode.valueOf(value.toUpperCase()));
+                break;
+            case "engine":
+                senderEngine(SenderEngine.valueOf(value.toUpperCase()));
+                break;
+            case "dispatchers":
+                dispatcherCount(Integer.parseInt(value));
+                break;
+            case "tick-ms":
+                tickMillis(Integer.parseInt(value));
+                break;
+            case "timer-workers":
+                timerWorkers(Integer.parseInt(value));
+                break;
+            case "in-flight":
+                maxInFlight(Integer.parseInt(value));
+                break;
+            case "attempts":
+                maxAttempts(Integer.parseInt(value));
+                break;
+            case "backoff-ms":
+                retryBackoffMillis(Long.parseLong(value));
+                break;
+            case "max-backoff-ms":
+                maxRetryBackoffMillis(Long.parseLong(value));
+                break;
+            case "jitter":
+                retryJitter(Double.parseDouble(value));
+                break;
+            case "adaptive":
+                adaptive(Boolean.parseBoolean(value));
+                break;
+            case "breaker-threshold":
+                breakerThreshold(Double.parseDouble(value));
+                break;
+            case "breaker-open-ms":
+                breakerOpenMillis(Long.parseLong(value));
+                break;
+            case "latency-target-ms":
+                latencyTargetMillis(Long.parseLong(value));
+                break;
+            case "failure-tolerance":
+                failureTolerance(Double.parseDouble(value));
+                break;
+            case "ids":
+                idGenerator(IdGeneratorType.valueOf(value.toUpperCase()));
+                break;
+            case "pool":
+                poolCapacity(Integer.parseInt(value));
+                break;
+            case "producers":
+                producerCount(Integer.parseInt(value));
+                break;
+            case "produce":
+                productionMode(ProductionMode.valueOf(value.toUpperCase()));
+                break;
+            case "rate":
+                productionRate(Double.parseDouble(value));
+                break;
+            case "arrivals":
+                arrivalType(ArrivalType.valueOf(value.toUpperCase()));
+                break;
+            case "burst-on-ms":
+                burstOnMillis(Long.parseLong(value));
+                break;
+            case "burst-off-ms":
+                burstOffMillis(Long.parseLong(value));
+                break;
+            case "diurnal-period-ms":
+                diurnalPeriodMillis(Long.parseLong(value));
+                break;
+            case "diurnal-amplitude":
+                diurnalAmplitude(Double.parseDouble(value));
+                break;
+            case "service":
+                serviceTimeType(ServiceTimeType.valueOf(value.toUpperCase()));
+                break;
+            case "service-sigma":
+                serviceSigma(Double.parseDouble(value));
+                break;
+            case "pareto-alpha":
+                paretoAlpha(Double.parseDouble(value));
+                break;
+            case "service-file":
+                serviceFile(value);
+                break;
+            case "percentiles":
+                String[] values = value.split(",");
+                double[] parsed = new double[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    parsed[i] = Double.parseDouble(values[i].trim());
+                }
+                percentiles(parsed);
+                break;
+            case "monitor-interval-ms":
+                monitorIntervalMillis(Long.parseLong(value));
+                break;
+            case "drain-timeout-ms":
+                drainTimeoutMillis(Long.parseLong(value));
+                break;
+            case "execution":
+                executionMode(ExecutionMode.valueOf(value.toUpperCase()));
+                break;
+            case "seed":
+                seed(Long.parseLong(value));
+                break;
+            case "quiet":
+                quiet(Boolean.parseBoolean(value));
+                break;
+            case "predict":
+                predict(Boolean.parseBoolean(value));
+                break;
+            case "autoscale":
+                autoscale(Boolean.parseBoolean(value));
+                break;
+            case "min-senders":
+                minSenders(Integer.parseInt(value));
+                break;
+            case "max-senders":
+                maxSenders(Integer.parseInt(value));
+                break;
+            case "scale-interval-ms":
+                scaleIntervalMillis(Long.parseLong(value));
+                break;
+            case "scale-samples":
+                scaleSamples(Integer.parseInt(value));
+                break;
+            case "batch":
+                batchSize(Integer.parseInt(value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: --" + name);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package msg;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered 64-bit IDs in the Snowflake layout: 41 bits of
+ * milliseconds since 2024-01-01 UTC, 10 bits of worker ID and 12 bits of
+ * sequence within the millisecond. IDs from one generator always increase, so
+ * sorting by ID sorts by creation time. Up to 4096 IDs can be made per
+ * millisecond; past that the generator waits for the clock to reach the next
+ * millisecond, so an ID never carries a time later than when it was made. If
+ * the clock goes backwards, IDs carry on from the last time until the clock
+ * catches up. The last ID is kept in an atomic, so a generator may be shared
+ * without a lock, but each producer is given a generator with a worker ID of
+ * its own so that the atomic is only ever written by one thread.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+    private static final long EPOCH = 1704067200000L;
+    private static final int WORKER_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = WORKER_BITS + SEQUENCE_BITS;
+    private static final int MAX_WORKER_ID = (1 << WORKER_BITS) - 1;
+    // Generators with the same worker ID can hand out the same ID, so messages created
+    // without a generator share worker 0 and every other generator gets the next ID in turn
+    private static final SnowflakeIdGenerator SHARED = new SnowflakeIdGenerator(0);
+    private static final AtomicInteger NEXT_WORKER_ID = new AtomicInteger();
+
+    private final long workerBits;
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Constructs a new generator.
+     *
+     * @param workerId The ID of this generator, between 0 and 1023, which keeps
+     *        IDs from different generators apart
+     * @throws IllegalArgumentException if the worker ID is out of range
+     */
+    public SnowflakeIdGenerator(int workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId must be between 0 and 1023");
+        }
+        this.workerBits = (long) workerId << SEQUENCE_BITS;
+    }
+
+    /**
+     * Returns the process-wide generator, with worker ID 0, that messages use
+     * when they are not created with an ID.
+     *
+     * @return The shared generator
+     */
+    public static SnowflakeIdGenerator shared() {
+        return SHARED;
+    }
+
+    /**
+     * Creates a generator with the next worker ID, taken in turn from 1 to 1023
+     * across the process. Its IDs differ from those of the shared generator and
+     * of the 1022 generators created before and after it.
+     *
+     * @return A new generator
+     */
+    public static SnowflakeIdGenerator withNextWorkerId() {
+        return new SnowflakeIdGenerator(1 + Math.floorMod(NEXT_WORKER_ID.getAndIncrement(), MAX_WORKER_ID));
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            long last = lastId.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            long lastTime = last >>> TIMESTAMP_SHIFT;
+            long next;
+            if (now > lastTime) {
+                next = (now << TIMESTAMP_SHIFT) | workerBits;
+            } else if ((last & MAX_SEQUENCE) < MAX_SEQUENCE) {
+                next = last + 1;
+            } else {
+                // This millisecond's sequence is used up, so wait for the clock to move on
+                Thread.onSpinWait();
+                continue;
+            }
+            if (lastId.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Returns the creation time encoded in an ID from this kind of generator.
+     *
+     * @param id An ID made by a Snowflake generator
+     * @return The time in milliseconds since epoch
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+}
@@ -0,0 +1,208 @@
+package msg;
+
+/**
+ * An immutable copy of a {@link MessageStats} taken at one moment, or the
+ * difference between two such copies. Reports built from one snapshot show
+ * values read together in a single pass, instead of each line reading the
+ * live counters at a slightly different time.
+ */
+public final class StatsSnapshot {
+    private final long startNanos;
+    private final long endNanos;
+    private final long sentCount;
+    private final long failedCount;
+    private final long totalProcessingTime;
+    private final long retryCount;
+    private final long stageCount;
+    private final long totalQueueWaitNanos;
+    private final long totalServiceNanos;
+    private final LatencyHistogram latency;
+
+    /**
+     * Constructs a new snapshot.
+     *
+     * @param startNanos The {@link System#nanoTime()} at which the covered period starts
+     * @param endNanos The {@link System#nanoTime()} at which the snapshot was taken
+     * @param sentCount The number of messages sent
+     * @param failedCount The number of messages that failed
+     * @param totalProcessingTime The total processing time in milliseconds
+     * @param retryCount The number of retried send attempts
+     * @param stageCount The number of messages with a stage breakdown
+     * @param totalQueueWaitNanos The total time those messages spent queued
+     * @param totalServiceNanos The total time those messages spent sending
+     * @param latency A histogram of message latencies in nanoseconds, which the
+     *        snapshot takes ownership of
+     */
+    StatsSnapshot(long startNanos, long endNanos, long sentCount, long failedCount, long totalProcessingTime,
+                  long retryCount, long stageCount, long totalQueueWaitNanos, long totalServiceNanos,
+                  LatencyHistogram latency) {
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.sentCount = sentCount;
+        this.failedCount = failedCount;
+        this.totalProcessingTime = totalProcessingTime;
+        this.retryCount = retryCount;
+        this.stageCount = stageCount;
+        this.totalQueueWaitNanos = totalQueueWaitNanos;
+        this.totalServiceNanos = totalServiceNanos;
+        this.latency = latency;
+    }
+
+    /**
+     * Returns what happened between an earlier snapshot of the same stats and this one.
+     *
+     * @param earlier An earlier snapshot of the same stats
+     * @return A snapshot covering only the period between the two
+     * @throws IllegalArgumentException if earlier is null or was taken after this snapshot
+     */
+    public StatsSnapshot minus(StatsSnapshot earlier) {
+        if (earlier == null) {
+            throw new IllegalArgumentException("earlier cannot be null");
+        }
+        if (earlier.endNanos - endNanos > 0) {
+            throw new IllegalArgumentException("earlier snapshot must not be taken after this one");
+        }
+        return new StatsSnapshot(earlier.endNanos, endNanos, sentCount - earlier.sentCount,
+                failedCount - earlier.failedCount, totalProcessingTime - earlier.totalProcessingTime,
+                retryCount - earlier.retryCount, stageCount - earlier.stageCount,
+                totalQueueWaitNanos - earlier.totalQueueWaitNanos, totalServiceNanos - earlier.totalServiceNanos,
+                latency.minus(earlier.latency));
+    }
+
+    /**
+     * Returns the length of the period this snapshot covers.
+     *
+     * @return The elapsed time in seconds
+     */
+    public double getElapsedSeconds() {
+        return (endNanos - startNanos) / 1e9;
+    }
+
+    /**
+     * Returns the number of messages sent.
+     *
+     * @return The sent count
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * Returns the number of messages that failed.
+     *
+     * @return The failed count
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Returns the total processing time of the sent and failed messages.
+     *
+     * @return The total processing time in milliseconds
+     */
+    public long getTotalProcessingTime() {
+        return totalProcessingTime;
+    }
+
+    /**
+     * Returns the average processing time of the sent and failed messages.
+     *
+     * @return The average processing time in milliseconds, or 0 if there were none
+     */
+    public double getAverageProcessingTime() {
+        long total = sentCount + failedCount;
+        return total > 0 ? totalProcessingTime / (double) total : 0;
+    }
+
+    /**
+     * Returns the number of retried send attempts.
+     *
+     * @return The retry count
+     */
+    public long getRetryCount() {
+        return retryCount;
+    }
+
+    /**
+     * Returns the number of messages with a stage breakdown.
+     *
+     * @return The stage count
+     */
+    public long getStageCount() {
+        return stageCount;
+    }
+
+    /**
+     * Returns the average time a message spent queued.
+     *
+     * @return The average queue wait in milliseconds, or 0 if there were no stage breakdowns
+     */
+    public double getAverageQueueWait() {
+        return stageCount > 0 ? totalQueueWaitNanos / 1e6 / stageCount : 0;
+    }
+
+    /**
+     * Returns the average duration of a send.
+     *
+     * @return The average service time in milliseconds, or 0 if there were no stage breakdowns
+     */
+    public double getAverageServiceTime() {
+        return stageCount > 0 ? totalServiceNanos / 1e6 / stageCount : 0;
+    }
+
+    /**
+     * Returns the rate at which messages were sent over the period.
+     *
+     * @return The sent messages per second, or 0 if no time has passed
+     */
+    public double getSentPerSecond() {
+        double elapsed = getElapsedSeconds();
+        return elapsed > 0 ? sentCount / elapsed : 0;
+    }
+
+    /**
+     * Returns the rate at which messages failed over the period.
+     *
+     * @return The failed messages per second, or 0 if no time has passed
+     */
+    public double getFailedPerSecond() {
+        double elapsed = getElapsedSeconds();
+        return elapsed > 0 ? failedCount / elapsed : 0;
+    }
+
+    /**
+     * Returns the number of message latencies recorded.
+     *
+     * @return The latency count
+     */
+    public long getLatencyCount() {
+        return latency.getCount();
+    }
+
+    /**
+     * Returns the message latency at the given percentile.
+     *
+     * @param percentile The percentile, from 0.0 to 100.0
+     * @return The latency in milliseconds
+     */
+    public double getLatencyPercentile(double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    /**
+     * Returns the highest message latency.
+     *
+     * @return The maximum latency in milliseconds
+     */
+    public double getMaxLatency() {
+        return latency.getMax() / 1e6;
+    }
+
+    /**
+     * Returns the latency histogram, which must not be modified.
+     */
+    LatencyHistogram latency() {
+        return latency;
+    }
+}
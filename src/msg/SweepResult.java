@@ -0,0 +1,227 @@
+package msg;
+
+import java.util.Locale;
+
+/**
+ * The measured outcome of one point of a {@link ParameterSweep}: the parameters
+ * the simulation ran with, and its throughput and latency.
+ */
+public class SweepResult {
+    private final int messageCount;
+    private final int senderCount;
+    private final double failureRate;
+    private final int meanDelay;
+    private final int queueCapacity;
+    private final long sentCount;
+    private final long failedCount;
+    private final double elapsedSeconds;
+    private final double averageProcessingTime;
+    private final double averageFullQueueWait;
+    private final double[] percentiles;
+    private final double[] latencies;
+    private final double maxLatency;
+
+    /**
+     * Constructs the result of a finished simulation.
+     *
+     * @param messageCount The number of messages simulated
+     * @param senderCount The number of senders
+     * @param failureRate The probability that a send failed
+     * @param meanDelay The mean send delay in milliseconds
+     * @param queueCapacity The queue capacity the simulation used
+     * @param sim The simulation, which has been run
+     * @param percentiles The latency percentiles to keep
+     */
+    SweepResult(int messageCount, int senderCount, double failureRate, int meanDelay, int queueCapacity,
+                MessageAlertSim sim, double[] percentiles) {
+        MessageStats stats = sim.getStats();
+        this.messageCount = messageCount;
+        this.senderCount = senderCount;
+        this.failureRate = failureRate;
+        this.meanDelay = meanDelay;
+        this.queueCapacity = queueCapacity;
+        this.sentCount = stats.getSentCount();
+        this.failedCount = stats.getFailedCount();
+        this.elapsedSeconds = sim.getElapsedSeconds();
+        this.averageProcessingTime = stats.getAverageProcessingTime();
+        this.averageFullQueueWait = stats.getAverageFullQueueWait();
+        this.percentiles = percentiles.clone();
+        this.latencies = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            latencies[i] = stats.getLatencyPercentile(percentiles[i]);
+        }
+        this.maxLatency = stats.getMaxLatency();
+    }
+
+    /**
+     * Returns the number of messages simulated.
+     *
+     * @return The message count
+     */
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Returns the number of senders.
+     *
+     * @return The sender count
+     */
+    public int getSenderCount() {
+        return senderCount;
+    }
+
+    /**
+     * Returns the probability that a send failed.
+     *
+     * @return The failure rate
+     */
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    /**
+     * Returns the mean send delay.
+     *
+     * @return The mean delay in milliseconds
+     */
+    public int getMeanDelay() {
+        return meanDelay;
+    }
+
+    /**
+     * Returns the queue capacity the simulation used.
+     *
+     * @return The queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns the number of messages sent.
+     *
+     * @return The sent count
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * Returns the number of messages that failed.
+     *
+     * @return The failed count
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Returns how long the simulation took to process every message.
+     *
+     * @return The elapsed time in seconds
+     */
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * Returns the rate at which messages were sent.
+     *
+     * @return The sent messages per second
+     */
+    public double getThroughput() {
+        return elapsedSeconds > 0 ? sentCount / elapsedSeconds : 0;
+    }
+
+    /**
+     * Returns the average processing time of the messages.
+     *
+     * @return The average processing time in milliseconds
+     */
+    public double getAverageProcessingTime() {
+        return averageProcessingTime;
+    }
+
+    /**
+     * Returns the average time per message that arrivals and retries were held back
+     * waiting for space in a full queue.
+     *
+     * @return The average full queue wait in milliseconds
+     */
+    public double getAverageFullQueueWait() {
+        return averageFullQueueWait;
+    }
+
+    /**
+     * Returns the message latency at one of the kept percentiles.
+     *
+     * @param percentile One of the percentiles the result was constructed with
+     * @return The latency in milliseconds
+     * @throws IllegalArgumentException if the percentile was not kept
+     */
+    public double getLatencyPercentile(double percentile) {
+        for (int i = 0; i < percentiles.length; i++) {
+            if (percentiles[i] == percentile) {
+                return latencies[i];
+            }
+        }
+        throw new IllegalArgumentException("Percentile was not kept: " + percentile);
+    }
+
+    /**
+     * Returns the highest message latency.
+     *
+     * @return The maximum latency in milliseconds
+     */
+    public double getMaxLatency() {
+        return maxLatency;
+    }
+
+    /**
+     * Returns the CSV header line naming the columns of {@link #toCsv()}.
+     *
+     * @return The column names separated by commas
+     */
+    public String csvHeader() {
+        StringBuilder header = new StringBuilder("message_count,sender_count,failure_rate,mean_delay_ms,"
+            + "queue_capacity,sent,failed,elapsed_s,throughput_per_s,avg_processing_ms,avg_full_queue_wait_ms");
+        for (double percentile : percentiles) {
+            header.append(',').append(MessageStats.percentileLabel(percentile)).append("_ms");
+        }
+        return header.append(",max_ms").toString();
+    }
+
+    /**
+     * Formats this result as a CSV line.
+     *
+     * @return The values separated by commas, in the order of {@link #csvHeader()}
+     */
+    public String toCsv() {
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT,
+            "%d,%d,%s,%d,%d,%d,%d,%.6f,%.3f,%.3f,%.3f", messageCount, senderCount, failureRate, meanDelay, queueCapacity, sentCount, failedCount,
+            elapsedSeconds, getThroughput(), averageProcessingTime, averageFullQueueWait));
+        for (double latency : latencies) {
+            line.append(String.format(Locale.ROOT, ",%.3f", latency));
+        }
+        return line.append(String.format(Locale.ROOT, ",%.3f", maxLatency)).toString();
+    }
+
+    /**
+     * Formats this result as a JSON object with the same names as the CSV columns.
+     *
+     * @return A JSON object on one line
+     */
+    public String toJson() {
+        String[] names = csvHeader().split(",");
+        String[] values = toCsv().split(",");
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                json.append(", ");
+            }
+            json.append('"').append(names[i]).append("\": ").append(values[i]);
+        }
+        return json.append('}').toString();
+    }
+}
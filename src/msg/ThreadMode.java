@@ -0,0 +1,56 @@
+package msg;
+
+import java.lang.reflect.Method;
+
+/**
+ * The kinds of threads that simulation components can run on. Virtual threads
+ * are looked up reflectively so that the simulation still builds and runs on
+ * Java versions without them, as long as only platform threads are requested.
+ */
+public enum ThreadMode {
+    /** One operating system thread per component. */
+    PLATFORM,
+    /** Lightweight virtual threads scheduled by the JVM (Java 21 or later). */
+    VIRTUAL;
+
+    /**
+     * Checks if threads of this kind can be created on the running JVM.
+     *
+     * @return true if this thread mode is available, false otherwise
+     */
+    public boolean isSupported() {
+        if (this == PLATFORM) {
+            return true;
+        }
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates a new, unstarted thread of this kind.
+     *
+     * @param task The task the thread runs
+     * @param name The name of the thread
+     * @return The new thread
+     * @throws UnsupportedOperationException if virtual threads are requested on a
+     *         Java version that does not support them
+     */
+    public Thread newThread(Runnable task, String name) {
+        if (this == PLATFORM) {
+            return new Thread(task, name);
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class).invoke(builder, name);
+            Method unstarted = builderType.getMethod("unstarted", Runnable.class);
+            return (Thread) unstarted.invoke(builder, task);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later", e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package msg;
+
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A sender that dispatches messages onto a {@link HashedWheelTimer} instead of
+ * sleeping through each send. It takes a message from the queue, decides its
+ * delay and outcome up front, and schedules the completion on the wheel, which
+ * records the outcome in the stats when the delay has passed. A shared semaphore
+ * bounds how many sends are in flight across all dispatchers, so a handful of
+ * dispatcher threads can keep as many sends in flight as there are permits.
+ */
+public class TimerWheelSender implements Runnable, ISender {
+
+    private final IMessageQueue messageQueue;
+    private final HashedWheelTimer timer;
+    private final Semaphore inFlight;
+    private final double failureRate;
+    private final ServiceTimeModel serviceTime;
+    private final Random random;
+    private final MessageStats stats;
+    private final RetryScheduler retries;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor for the timer wheel sender
+     * @param messageQueue Shared message queue instance
+     * @param timer Shared, started timer on which sends complete
+     * @param inFlight Shared permits limiting the number of sends in flight
+     * @param failureRate   Rate with which the message may fail
+     * @param meanDelay mean of the delay distribution
+     * @param stats Shared instance of the stats
+     */
+    public TimerWheelSender(IMessageQueue messageQueue, HashedWheelTimer timer, Semaphore inFlight,
+                            double failureRate, int meanDelay, MessageStats stats) {
+        this(builder(messageQueue, timer, inFlight, failureRate, new UniformServiceTime(meanDelay), stats));
+    }
+
+    /**
+     * Helper constructor that takes its settings from a builder
+     */
+    private TimerWheelSender(Builder builder) {
+        validateArguments(builder.messageQueue, builder.timer, builder.inFlight, builder.failureRate,
+            builder.serviceTime, builder.stats);
+        this.messageQueue = builder.messageQueue;
+        this.timer = builder.timer;
+        this.inFlight = builder.inFlight;
+        this.failureRate = builder.failureRate;
+        this.serviceTime = builder.serviceTime;
+        this.random = new Random();
+        this.stats = builder.stats;
+        this.retries = builder.retries;
+    }
+
+    /**
+     * Returns a builder for a timer wheel sender whose send durations follow the given
+     * model. Unless a retry scheduler is given, failures are recorded as final.
+     * @param messageQueue Shared message queue instance
+     * @param timer Shared, started timer on which sends complete
+     * @param inFlight Shared permits limiting the number of sends in flight
+     * @param failureRate   Rate with which the message may fail
+     * @param serviceTime Shared model of the send duration
+     * @param stats Shared instance of the stats
+     * @return A new builder
+     */
+    public static Builder builder(IMessageQueue messageQueue, HashedWheelTimer timer, Semaphore inFlight,
+                                  double failureRate, ServiceTimeModel serviceTime, MessageStats stats) {
+        return new Builder(messageQueue, timer, inFlight, failureRate, serviceTime, stats);
+    }
+
+    /**
+     * Collects the optional settings of a timer wheel sender
+     */
+    public static class Builder {
+        private final IMessageQueue messageQueue;
+        private final HashedWheelTimer timer;
+        private final Semaphore inFlight;
+        private final double failureRate;
+        private final ServiceTimeModel serviceTime;
+        private final MessageStats stats;
+        private RetryScheduler retries;
+
+        private Builder(IMessageQueue messageQueue, HashedWheelTimer timer, Semaphore inFlight,
+                        double failureRate, ServiceTimeModel serviceTime, MessageStats stats) {
+            this.messageQueue = messageQueue;
+            this.timer = timer;
+            this.inFlight = inFlight;
+            this.failureRate = failureRate;
+            this.serviceTime = serviceTime;
+            this.stats = stats;
+        }
+
+        /**
+         * Sets the retry scheduler to which failed messages are handed
+         * @param retries Shared retry scheduler, or null to record failures as final
+         * @return This builder
+         */
+        public Builder retries(RetryScheduler retries) {
+            this.retries = retries;
+            return this;
+        }
+
+        /**
+         * Builds the timer wheel sender
+         * @return A new timer wheel sender with these settings
+         * @throws IllegalArgumentException if any of the builder's arguments is invalid
+         */
+        public TimerWheelSender build() {
+            return new TimerWheelSender(this);
+        }
+    }
+
+    /**
+     * Dequeues messages while in-flight permits are available and schedules
+     * their completion on the timer
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                inFlight.acquire();
+                Message message;
+                try {
+                    message = messageQueue.remove();
+                } catch (InterruptedException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                message.markDequeued();
+                message.markSendStarted();
+
+                // Same service time model as the thread-per-send Sender
+                long delay = serviceTime.nextServiceTime(random);
+                boolean failed = random.nextDouble() < failureRate;
+                timer.schedule(() -> complete(message, failed), delay, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // If Interrupt signal received then stop this thread and set running to false
+                Thread.currentThread().interrupt();
+                stop();
+            }
+        }
+    }
+
+    /**
+     * Sets the running flag to false
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Helper method that runs on the timer when a send's delay has passed
+     */
+    private void complete(Message message, boolean failed) {
+        message.markCompleted();
+        message.incrementAttempts();
+        message.setFailed(failed);
+        message.setSentTime(System.currentTimeMillis());
+        if (retries != null) {
+            retries.complete(message);
+        } else {
+            stats.record(message);
+            message.recycle();
+        }
+        inFlight.release();
+    }
+
+    /**
+     * Helper method to validate constructor arguments
+     */
+    private void validateArguments(IMessageQueue messageQueue, HashedWheelTimer timer, Semaphore inFlight,
+                                   double failureRate, ServiceTimeModel serviceTime, MessageStats stats) {
+        if (messageQueue == null) {
+            throw new IllegalArgumentException("messageQueue cannot be null");
+        }
+        if (timer == null) {
+            throw new IllegalArgumentException("timer cannot be null");
+        }
+        if (inFlight == null) {
+            throw new IllegalArgumentException("inFlight cannot be null");
+        }
+        if (failureRate < 0.0 || failureRate >= 1.0) {
+            throw new IllegalArgumentException("failureRate must be between 0.0 and 1.0 excluding 1.0");
+        }
+        if (serviceTime == null) {
+            throw new IllegalArgumentException("serviceTime cannot be null");
+        }
+        if (stats == null) {
+            throw new IllegalArgumentException("stats cannot be null");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package msg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The outcome of an {@link AutoTuner} search: the cheapest configuration found
+ * to meet the latency objective, every configuration measured on the way, and
+ * the throughput curve around the chosen sender count.
+ */
+public class TuningResult {
+    private final double percentile;
+    private final double objectiveMillis;
+    private final SweepResult best;
+    private final List<SweepResult> evaluated;
+    private final List<SweepResult> curve;
+
+    /**
+     * Constructs the outcome of a search.
+     *
+     * @param percentile The latency percentile the objective applies to
+     * @param objectiveMillis The latency objective in milliseconds
+     * @param best The cheapest configuration that met the objective, or null if none did
+     * @param evaluated The configurations measured during the search, in order
+     * @param curve The throughput curve around the best sender count, or empty if none met the objective
+     */
+    TuningResult(double percentile, double objectiveMillis, SweepResult best, List<SweepResult> evaluated,
+                 List<SweepResult> curve) {
+        this.percentile = percentile;
+        this.objectiveMillis = objectiveMillis;
+        this.best = best;
+        this.evaluated = Collections.unmodifiableList(new ArrayList<>(evaluated));
+        this.curve = Collections.unmodifiableList(new ArrayList<>(curve));
+    }
+
+    /**
+     * Returns whether any configuration met the objective.
+     *
+     * @return true if a configuration was found
+     */
+    public boolean isFeasible() {
+        return best != null;
+    }
+
+    /**
+     * Returns the cheapest configuration that met the objective: the fewest senders,
+     * and then the smallest queue for that many senders.
+     *
+     * @return The measurements of the configuration, or null if none met the objective
+     */
+    public SweepResult getBest() {
+        return best;
+    }
+
+    /**
+     * Returns the configurations measured during the search, in the order they were tried.
+     *
+     * @return An unmodifiable list of measurements
+     */
+    public List<SweepResult> getEvaluated() {
+        return evaluated;
+    }
+
+    /**
+     * Returns the throughput and latency measured at sender counts around the best
+     * one, with the best queue capacity.
+     *
+     * @return An unmodifiable list of measurements ordered by sender count
+     */
+    public List<SweepResult> getCurve() {
+        return curve;
+    }
+
+    /**
+     * Returns a report of the chosen configuration and its throughput curve.
+     *
+     * @return The report
+     */
+    @Override
+    public String toString() {
+        String label = MessageStats.percentileLabel(percentile);
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT,
+            "\nTuning Objective: %s <= %.3f ms (%d configurations measured)", label, objectiveMillis,
+            evaluated.size()));
+        if (best == null) {
+            return text.append("\nNo configuration met the objective").toString();
+        }
+        text.append(String.format(Locale.ROOT,
+            "\nCheapest Configuration: %d senders, queue capacity %d, %s=%.3f ms, %.1f msgs/sec",
+            best.getSenderCount(), best.getQueueCapacity(), label, best.getLatencyPercentile(percentile),
+            best.getThroughput()));
+        text.append("\nThroughput Curve:\n").append(ParameterSweep.toCsv(curve));
+        return text.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package msg;
+
+import java.util.Random;
+
+/**
+ * Send durations spread evenly between 0 and twice the mean, the original
+ * model of the simulation. Durations are drawn at nanosecond resolution, so
+ * the average matches the mean even when it is only a millisecond or two.
+ */
+public class UniformServiceTime implements ServiceTimeModel {
+    private final double meanDelay;
+
+    /**
+     * Constructs a new uniform model.
+     *
+     * @param meanDelay The mean send duration in milliseconds
+     * @throws IllegalArgumentException if meanDelay is negative
+     */
+    public UniformServiceTime(double meanDelay) {
+        if (!(meanDelay >= 0)) {
+            throw new IllegalArgumentException("meanDelay cannot be negative");
+        }
+        this.meanDelay = meanDelay;
+    }
+
+    @Override
+    public long nextServiceTime(Random random) {
+        return (long) (random.nextDouble() * meanDelay * 2 * 1_000_000);
+    }
+
+    @Override
+    public double getMean() {
+        return meanDelay;
+    }
+
+    @Override
+    public double getVariance() {
+        // The variance of a uniform spread of width w is w^2 / 12, and the width is twice the mean
+        return meanDelay * meanDelay / 3;
+    }
+}
@@ -0,0 +1,35 @@
+package msg;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Strategy used by message queues to wait while they are full or empty.
+ * Implementations trade CPU time for handoff latency: spinning strategies
+ * keep the waiting thread on the processor and react within microseconds,
+ * while blocking strategies give the processor up until they are signalled.
+ */
+public interface WaitStrategy {
+    /**
+     * Waits until the given condition becomes true. The condition is
+     * re-evaluated by the strategy and must be safe to call from any thread.
+     *
+     * @param condition The condition to wait for
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void await(BooleanSupplier condition) throws InterruptedException;
+
+    /**
+     * Wakes any threads waiting in {@link #await(BooleanSupplier)} after the
+     * queue state has changed. Strategies that never block treat this as a no-op.
+     */
+    void signalAll();
+
+    /**
+     * Wakes one thread waiting in {@link #await(BooleanSupplier)}, if there is
+     * one. Unlike {@link #signalAll()} this does not fence, so the caller must
+     * have made its state change with a volatile write, and every thread waiting
+     * on this strategy must be waiting for the same condition. Strategies that
+     * never block treat this as a no-op.
+     */
+    void signal();
+}
@@ -0,0 +1,35 @@
+package msg;
+
+/**
+ * The wait strategies that a simulation can configure its message queue with.
+ */
+public enum WaitStrategyType {
+    /** A {@link BusySpinWaitStrategy}. */
+    SPIN,
+    /** A {@link YieldingWaitStrategy}. */
+    YIELD,
+    /** A {@link ParkingWaitStrategy}. */
+    PARK,
+    /** A {@link BlockingWaitStrategy}. */
+    BLOCK;
+
+    /**
+     * Creates a new wait strategy of this type.
+     *
+     * @param spinTries The number of busy-spin checks before yielding or parking
+     * @return A new wait strategy
+     */
+    public WaitStrategy create(int spinTries) {
+        switch (this) {
+            case SPIN:
+                return new BusySpinWaitStrategy();
+            case YIELD:
+                return new YieldingWaitStrategy(spinTries);
+            case PARK:
+                return new ParkingWaitStrategy(spinTries);
+            case BLOCK:
+            default:
+                return new BlockingWaitStrategy();
+        }
+    }
+}
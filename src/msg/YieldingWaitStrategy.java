@@ -0,0 +1,61 @@
+package msg;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * A wait strategy that spins for a configurable number of tries and then
+ * yields the processor between checks. Idle threads stay responsive while
+ * letting other runnable threads use the core.
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+    private final int spinTries;
+
+    /**
+     * Constructs a new yielding wait strategy.
+     *
+     * @param spinTries The number of busy-spin checks before starting to yield
+     * @throws IllegalArgumentException if spinTries is negative
+     */
+    public YieldingWaitStrategy(int spinTries) {
+        if (spinTries < 0) {
+            throw new IllegalArgumentException("spinTries cannot be negative");
+        }
+        this.spinTries = spinTries;
+    }
+
+    /**
+     * Spins and then yields until the condition becomes true.
+     *
+     * @param condition The condition to wait for
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Override
+    public void await(BooleanSupplier condition) throws InterruptedException {
+        int tries = 0;
+        while (!condition.getAsBoolean()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (tries < spinTries) {
+                tries++;
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Does nothing since yielding threads notice state changes on their own.
+     */
+    @Override
+    public void signalAll() {
+    }
+
+    /**
+     * Does nothing since yielding threads notice state changes on their own.
+     */
+    @Override
+    public void signal() {
+    }
+}
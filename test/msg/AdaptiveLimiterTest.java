@@ -0,0 +1,123 @@
+package msg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the AIMD AdaptiveLimiter
+ */
+class AdaptiveLimiterTest {
+  private MessageStats stats;
+  private CircuitBreaker breaker;
+
+  @BeforeEach
+  void setUp() {
+    stats = new MessageStats();
+    breaker = new CircuitBreaker(100, 1.0, 1000, stats);
+  }
+
+  /**
+   * Tests constructor validation
+   */
+  @Test
+  void testInvalidArguments() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new AdaptiveLimiter(0, 10, 100, 0.2, breaker, stats));
+    assertThrows(IllegalArgumentException.class,
+        () -> new AdaptiveLimiter(5, 4, 100, 0.2, breaker, stats));
+    assertThrows(IllegalArgumentException.class,
+        () -> new AdaptiveLimiter(1, 10, 100, 0.2, null, stats));
+  }
+
+  /**
+   * Tests that slow sends cut the limit and fast sends grow it back
+   */
+  @Test
+  void testLatencyDrivesLimit() throws InterruptedException {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(1, 10, 100, 0.2, breaker, stats);
+    assertEquals(10, limiter.getLimit());
+
+    for (int i = 0; i < 10; i++) {
+      limiter.release(limiter.acquire(), false, 500);
+    }
+    int lowered = limiter.getLimit();
+    assertTrue(lowered < 10);
+    assertEquals(lowered, stats.getConcurrencyLimit());
+
+    for (int i = 0; i < 100; i++) {
+      limiter.release(limiter.acquire(), false, 10);
+    }
+    assertTrue(limiter.getLimit() > lowered);
+  }
+
+  /**
+   * Tests that failures only cut the limit while the failure ratio is above the tolerance
+   */
+  @Test
+  void testFailureTolerance() throws InterruptedException {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(1, 10, 100, 0.5, breaker, stats);
+    for (int i = 0; i < 9; i++) {
+      limiter.release(limiter.acquire(), false, 10);
+    }
+    limiter.release(limiter.acquire(), true, 10);
+    assertEquals(10, limiter.getLimit());
+
+    for (int i = 0; i < 40; i++) {
+      long permit = limiter.acquire();
+      // Start each failing send well after the previous cut
+      Thread.sleep(3);
+      limiter.release(permit, true, 0);
+    }
+    assertEquals(1, limiter.getLimit());
+  }
+
+  /**
+   * Tests that slow sends already in flight when the limit is cut do not cut it
+   * again, while a slow send started after the cut does
+   */
+  @Test
+  void testOneCutPerWindow() throws InterruptedException {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(1, 10, 2, 0.2, breaker, stats);
+    long[] permits = new long[8];
+    for (int i = 0; i < permits.length; i++) {
+      permits[i] = limiter.acquire();
+    }
+    for (long permit : permits) {
+      limiter.release(permit, false, 50);
+    }
+    assertEquals(9, limiter.getLimit());
+
+    long permit = limiter.acquire();
+    Thread.sleep(20);
+    limiter.release(permit, false, 5);
+    assertEquals(8, limiter.getLimit());
+  }
+
+  /**
+   * Tests that callers over the limit wait until a send completes
+   */
+  @Test
+  void testLimitBlocks() throws InterruptedException {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 100, 0.2, breaker, stats);
+    long permit = limiter.acquire();
+
+    Thread waiter = new Thread(() -> {
+      try {
+        limiter.release(limiter.acquire(), false, 10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    waiter.start();
+    waiter.join(100);
+    assertTrue(waiter.isAlive());
+
+    limiter.release(permit, false, 10);
+    waiter.join(1000);
+    assertTrue(!waiter.isAlive());
+  }
+}
@@ -0,0 +1,88 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the Poisson, bursty and diurnal arrival processes
+ */
+class ArrivalProcessTest {
+
+  /**
+   * Helper method that returns the time of the last of the given number of arrivals
+   */
+  private static long lastArrival(ArrivalProcess arrivals, int count) {
+    long arrival = 0;
+    for (int i = 0; i < count; i++) {
+      long next = arrivals.nextArrival(arrival);
+      assertTrue(next >= arrival);
+      arrival = next;
+    }
+    return arrival;
+  }
+
+  /**
+   * Tests that Poisson arrivals come at the target rate on average
+   */
+  @Test
+  void testPoissonRate() {
+    // 100,000 arrivals at 1000 per second span about 100 seconds
+    long last = lastArrival(new PoissonArrivals(1000, new Random(1)), 100_000);
+    assertEquals(100.0, last / 1e9, 2.0);
+  }
+
+  /**
+   * Tests that bursty arrivals only come during bursts but keep the average rate
+   */
+  @Test
+  void testBurstyArrivals() {
+    ArrivalProcess arrivals = new BurstyArrivals(1000, 100, 300, new Random(2));
+    long arrival = 0;
+    for (int i = 0; i < 100_000; i++) {
+      arrival = arrivals.nextArrival(arrival);
+      long inCycle = arrival % 400_000_000L;
+      assertTrue(inCycle < 100_000_000L, "arrival during a pause");
+    }
+    assertEquals(100.0, arrival / 1e9, 2.0);
+  }
+
+  /**
+   * Tests that diurnal arrivals are busier during the rising half of the cycle
+   */
+  @Test
+  void testDiurnalArrivals() {
+    DiurnalArrivals arrivals = new DiurnalArrivals(1000, 1000, 0.8, new Random(3));
+    int day = 0;
+    int night = 0;
+    long arrival = 0;
+    for (int i = 0; i < 100_000; i++) {
+      arrival = arrivals.nextArrival(arrival);
+      if (arrival % 1_000_000_000L < 500_000_000L) {
+        day++;
+      } else {
+        night++;
+      }
+    }
+    // The halves average 1 + 0.8 * 2 / pi and 1 - 0.8 * 2 / pi times the mean rate
+    assertEquals(3.1, day / (double) night, 0.2);
+    assertEquals(100.0, arrival / 1e9, 2.0);
+    assertEquals(1800.0, arrivals.rateAt(250_000_000L), 1e-6);
+  }
+
+  /**
+   * Tests that invalid arrival process settings are rejected
+   */
+  @Test
+  void testInvalidArguments() {
+    Random random = new Random();
+    assertThrows(IllegalArgumentException.class, () -> new PoissonArrivals(0, random));
+    assertThrows(IllegalArgumentException.class, () -> new PoissonArrivals(10, null));
+    assertThrows(IllegalArgumentException.class, () -> new BurstyArrivals(10, 0, 10, random));
+    assertThrows(IllegalArgumentException.class, () -> new DiurnalArrivals(10, 1000, 1.5, random));
+  }
+}
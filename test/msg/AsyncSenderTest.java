@@ -0,0 +1,171 @@
+package msg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the AsyncSender and its in-flight limit
+ */
+class AsyncSenderTest {
+  private IMessageQueue messageQueue;
+  private MessageStats stats;
+  private HashedWheelTimer timer;
+
+  @BeforeEach
+  void setUp() {
+    messageQueue = new BlockingMessageQueue();
+    stats = new MessageStats();
+    timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 64);
+    timer.start();
+  }
+
+  /**
+   * Tests constructor validation of the in-flight limit
+   */
+  @Test
+  void testInvalidMaxInFlight() {
+    Exception e = assertThrows(IllegalArgumentException.class, () ->
+        new AsyncSender(messageQueue, "TEST_SENDER", 0.1, 10, stats, timer, 0));
+    assertEquals("maxInFlight must be positive", e.getMessage());
+  }
+
+  /**
+   * Tests that a future completes with the outcome of the send and the outcome is recorded
+   */
+  @Test
+  void testSendAsyncCompletes() throws Exception {
+    AsyncSender sender = new AsyncSender(messageQueue, "TEST_SENDER", 0.0, 10, stats, timer, 2);
+    Message message = new Message("test", 42);
+
+    SendResult result = sender.sendAsync(message).get(2, TimeUnit.SECONDS);
+    assertEquals(42, result.getMessageId());
+    assertFalse(result.isFailed());
+    assertEquals(1, result.getAttempts());
+    assertTrue(result.getLatencyNanos() > 0);
+    assertEquals("TEST_SENDER", sender.getSenderId());
+    assertEquals(1, stats.getSentCount());
+    assertEquals(0, sender.getInFlight());
+  }
+
+  /**
+   * Tests that no more than maxInFlight sends are outstanding at once
+   */
+  @Test
+  void testInFlightLimit() throws Exception {
+    AsyncSender sender = new AsyncSender(messageQueue, "TEST_SENDER", 0.0, 100, stats, timer, 3);
+    for (int i = 0; i < 10; i++) {
+      messageQueue.add(new Message("test" + i));
+    }
+
+    Thread senderThread = new Thread(sender);
+    senderThread.start();
+    Thread.sleep(20);
+    assertTrue(sender.getInFlight() <= 3);
+    // Messages not yet sent beyond the three in flight must still be queued
+    int queued = messageQueue.size();
+    assertTrue(queued >= 7 - stats.getSentCount());
+
+    while (stats.getSentCount() < 10) {
+      assertTrue(sender.getInFlight() <= 3);
+      Thread.sleep(5);
+    }
+    senderThread.interrupt();
+    senderThread.join();
+    assertTrue(messageQueue.isEmpty());
+  }
+
+  /**
+   * Tests that many sends can be pipelined through a single sender
+   */
+  @Test
+  void testPipelinedSends() throws Exception {
+    AsyncSender sender = new AsyncSender(messageQueue, "TEST_SENDER", 0.5, 20, stats, timer, 50);
+    List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      futures.add(sender.sendAsync(new Message("test" + i)));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+    assertEquals(200, stats.getSentCount() + stats.getFailedCount());
+  }
+
+  /**
+   * Helper method that sends pooled messages and checks that each future completes
+   * with the outcome of its own message, and that every message goes back to the pool
+   */
+  private void sendPooled(AsyncSender sender, MessagePool pool, int count) throws Exception {
+    List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Message message = pool.acquire();
+      message.reset(i, 0);
+      messages.add(message);
+    }
+    List<CompletableFuture<SendResult>> results = new ArrayList<>();
+    for (Message message : messages) {
+      results.add(sender.sendAsync(message));
+    }
+    for (int i = 0; i < count; i++) {
+      // Read on this thread, after the message may already have been recycled
+      assertEquals(i, results.get(i).get(5, TimeUnit.SECONDS).getMessageId());
+    }
+    assertTrue(stats.awaitCompletion(5, TimeUnit.SECONDS));
+    // The last message is recycled just after its outcome is recorded
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (pool.getFreeCount() < count && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(count, pool.getFreeCount());
+    assertEquals(count, pool.getAllocatedCount());
+  }
+
+  /**
+   * Tests that pooled messages go back to the pool once their send has been recorded
+   */
+  @Test
+  void testPooledMessagesAreRecycled() throws Exception {
+    AsyncSender sender = new AsyncSender(messageQueue, "TEST_SENDER", 0.2, 5, stats, timer, 64);
+    MessagePool pool = new MessagePool(64, 16);
+    stats.expectCompletions(64);
+    sendPooled(sender, pool, 64);
+    assertEquals(64, stats.getSentCount() + stats.getFailedCount());
+  }
+
+  /**
+   * Tests that retried pooled messages are recycled only after their final attempt
+   */
+  @Test
+  void testPooledMessagesAreRecycledAfterRetries() throws Exception {
+    RetryScheduler retries = new RetryScheduler(messageQueue, new RetryPolicy(5, 1, 5, 0.0), stats);
+    AsyncSender sender = AsyncSender.builder(messageQueue, "TEST_SENDER", 0.5, new UniformServiceTime(5), stats,
+        timer, 64).retries(retries).build();
+    Thread retryThread = new Thread(retries);
+    Thread senderThread = new Thread(sender);
+    retryThread.start();
+    senderThread.start();
+    MessagePool pool = new MessagePool(64, 16);
+    stats.expectCompletions(64);
+
+    sendPooled(sender, pool, 64);
+    assertTrue(stats.getRetryCount() > 0);
+    assertEquals(64, stats.getSentCount() + stats.getFailedCount());
+    senderThread.interrupt();
+    retryThread.interrupt();
+    senderThread.join();
+    retryThread.join();
+  }
+
+  @AfterEach
+  void stopTimer() {
+    timer.stop();
+  }
+}
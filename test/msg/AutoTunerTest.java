@@ -0,0 +1,109 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the search for the cheapest configuration meeting a latency objective
+ */
+class AutoTunerTest {
+
+  private static final Supplier<SimulationOptions> OPTIONS = () -> new SimulationOptions()
+      .executionMode(ExecutionMode.DISCRETE_EVENT).seed(7);
+
+  /**
+   * Tests that the tuner finds the fewest senders meeting the objective and that one fewer misses it
+   */
+  @Test
+  void testFindsFewestSenders() throws InterruptedException {
+    TuningResult result = new AutoTuner(OPTIONS, 3000, 0.0, 50, 200, 250).tune();
+    assertTrue(result.isFeasible());
+    SweepResult best = result.getBest();
+    assertTrue(best.getLatencyPercentile(99) <= 250);
+    // The offered load is ten senders' worth, so fewer can never keep up
+    assertTrue(best.getSenderCount() > 10);
+
+    SweepResult fewer = new ParameterSweep(() -> OPTIONS.get().productionMode(ProductionMode.OPEN_LOOP)
+        .productionRate(200).percentiles(50, 99))
+        .messageCounts(3000).senderCounts(best.getSenderCount() - 1).failureRates(0.0).meanDelays(50)
+        .queueCapacities(3000).run().get(0);
+    assertTrue(fewer.getLatencyPercentile(99) > 250);
+  }
+
+  /**
+   * Tests that the chosen queue is smaller than the whole workload and barely holds arrivals back
+   */
+  @Test
+  void testShrinksQueue() throws InterruptedException {
+    TuningResult result = new AutoTuner(OPTIONS, 3000, 0.0, 50, 200, 250).tune();
+    SweepResult best = result.getBest();
+    assertTrue(best.getQueueCapacity() < 3000);
+    assertTrue(best.getAverageFullQueueWait() <= 1.0);
+    assertTrue(result.getEvaluated().contains(best));
+  }
+
+  /**
+   * Tests that the throughput curve covers sender counts on both sides of the choice
+   */
+  @Test
+  void testThroughputCurve() throws InterruptedException {
+    TuningResult result = new AutoTuner(OPTIONS, 3000, 0.0, 50, 200, 250).tune();
+    int senders = result.getBest().getSenderCount();
+    assertFalse(result.getCurve().isEmpty());
+    assertTrue(result.getCurve().get(0).getSenderCount() < senders);
+    assertTrue(result.getCurve().get(result.getCurve().size() - 1).getSenderCount() > senders);
+    for (SweepResult point : result.getCurve()) {
+      assertEquals(result.getBest().getQueueCapacity(), point.getQueueCapacity());
+      assertTrue(point.getThroughput() <= 200 * 1.1);
+    }
+    assertTrue(result.toString().contains("Cheapest Configuration: " + senders + " senders"));
+  }
+
+  /**
+   * Tests that with real threads the queue search also sees arrivals held back by a
+   * full queue, so the chosen queue does not hold them back
+   */
+  @Test
+  void testThreadedSearch() throws InterruptedException {
+    TuningResult result = new AutoTuner(SimulationOptions::new, 200, 0.0, 10, 400, 150).tune();
+    assertTrue(result.isFeasible());
+    SweepResult best = result.getBest();
+    assertTrue(best.getLatencyPercentile(99) <= 150);
+    assertTrue(best.getAverageFullQueueWait() <= 1.0);
+    assertTrue(best.getQueueCapacity() < 200);
+    // Smaller queues made the producer wait for space
+    assertTrue(result.getEvaluated().stream().anyMatch(point -> point.getAverageFullQueueWait() > 0.1));
+  }
+
+  /**
+   * Tests that an objective below the send time itself is reported as infeasible
+   */
+  @Test
+  void testInfeasibleObjective() throws InterruptedException {
+    TuningResult result = new AutoTuner(OPTIONS, 1000, 0.0, 50, 100, 10).senderLimit(64).tune();
+    assertFalse(result.isFeasible());
+    assertNull(result.getBest());
+    assertTrue(result.getCurve().isEmpty());
+    assertEquals(64, result.getEvaluated().get(result.getEvaluated().size() - 1).getSenderCount());
+    assertTrue(result.toString().contains("No configuration met the objective"));
+  }
+
+  /**
+   * Tests that invalid arguments are rejected
+   */
+  @Test
+  void testInvalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new AutoTuner(null, 1000, 0.0, 50, 100, 10));
+    assertThrows(IllegalArgumentException.class, () -> new AutoTuner(OPTIONS, 1000, 0.0, 50, 0, 10));
+    assertThrows(IllegalArgumentException.class, () -> new AutoTuner(OPTIONS, 1000, 0.0, 50, 100, 0));
+    assertThrows(IllegalArgumentException.class, () -> new AutoTuner(OPTIONS, 1000, 0.0, 50, 100, 10)
+        .percentile(101));
+  }
+}
@@ -0,0 +1,123 @@
+package msg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the Autoscaler and the SenderPool it resizes
+ */
+class AutoscalerTest {
+  private IMessageQueue watchedQueue;
+  private IMessageQueue senderQueue;
+  private MessageStats stats;
+  private SenderPool pool;
+
+  @BeforeEach
+  void setUp() {
+    watchedQueue = new BlockingMessageQueue();
+    stats = new MessageStats();
+    // The pooled senders consume from a queue of their own, so the watched depth stays put
+    senderQueue = new BlockingMessageQueue();
+    pool = new SenderPool(i -> new Sender(senderQueue, "Sender-" + i, 0.0, 10, stats),
+        ThreadMode.PLATFORM);
+  }
+
+  /**
+   * Tests constructor validation of the pool bounds
+   */
+  @Test
+  void testInvalidBounds() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new Autoscaler(pool, watchedQueue, stats, 0, 4, 100, 10, 1));
+    assertThrows(IllegalArgumentException.class,
+        () -> new Autoscaler(pool, watchedQueue, stats, 5, 4, 100, 10, 1));
+  }
+
+  /**
+   * Tests that the pool grows only after the queue has been deep for enough looks,
+   * and never past the maximum
+   */
+  @Test
+  void testGrowsWithHysteresis() throws InterruptedException {
+    pool.grow(2);
+    Autoscaler autoscaler = new Autoscaler(pool, watchedQueue, stats, 1, 4, 100, 10, 2);
+    for (int i = 0; i < 10; i++) {
+      watchedQueue.add(new Message("test" + i));
+    }
+
+    autoscaler.evaluate();
+    assertEquals(2, pool.size());
+    autoscaler.evaluate();
+    assertEquals(3, pool.size());
+    for (int i = 0; i < 10; i++) {
+      autoscaler.evaluate();
+    }
+    assertEquals(4, pool.size());
+    assertEquals(4, stats.getPeakSenderCount());
+  }
+
+  /**
+   * Tests that the pool shrinks one sender at a time down to the minimum while idle
+   */
+  @Test
+  void testShrinksWhenIdle() {
+    pool.grow(3);
+    Autoscaler autoscaler = new Autoscaler(pool, watchedQueue, stats, 2, 4, 100, 10, 2);
+
+    autoscaler.evaluate();
+    assertEquals(3, pool.size());
+    autoscaler.evaluate();
+    assertEquals(2, pool.size());
+    for (int i = 0; i < 10; i++) {
+      autoscaler.evaluate();
+    }
+    assertEquals(2, pool.size());
+    assertEquals(2, stats.getSenderCount());
+  }
+
+  /**
+   * Tests that a look which agrees with neither condition resets the count
+   */
+  @Test
+  void testMixedLooksDoNotResize() throws InterruptedException {
+    pool.grow(2);
+    Autoscaler autoscaler = new Autoscaler(pool, watchedQueue, stats, 1, 4, 100, 10, 2);
+    watchedQueue.add(new Message("one"));
+    watchedQueue.add(new Message("two"));
+    watchedQueue.add(new Message("three"));
+    autoscaler.evaluate();
+    watchedQueue.remove();
+    autoscaler.evaluate();
+    assertEquals(2, pool.size());
+  }
+
+  /**
+   * Tests that retired senders waiting for a message end at once and never take
+   * a message added after they were retired
+   */
+  @Test
+  void testRetiredSendersTakeNoMessages() throws InterruptedException {
+    pool.grow(2);
+    Thread.sleep(50);
+    pool.shrink(2);
+    assertEquals(0, pool.size());
+    assertTrue(pool.awaitTermination(2, TimeUnit.SECONDS));
+
+    senderQueue.add(new Message("late"));
+    Thread.sleep(50);
+    assertEquals(1, senderQueue.size());
+    assertEquals(0, stats.getSentCount());
+  }
+
+  @AfterEach
+  void tearDown() {
+    pool.shutdown();
+  }
+}
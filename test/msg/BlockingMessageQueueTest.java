@@ -0,0 +1,87 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the BlockingMessageQueue
+ */
+class BlockingMessageQueueTest {
+
+  /**
+   * Tests that batch add and drain keep order and respect the drain limit
+   */
+  @Test
+  void testAddAllAndDrainTo() throws InterruptedException {
+    BlockingMessageQueue queue = new BlockingMessageQueue(4);
+    List<Message> messages = Arrays.asList(new Message("a"), new Message("b"), new Message("c"));
+    queue.addAll(messages);
+    assertEquals(3, queue.size());
+
+    List<Message> drained = new ArrayList<>();
+    assertEquals(2, queue.drainTo(drained, 2));
+    assertSame(messages.get(2), queue.remove());
+    assertEquals(messages.subList(0, 2), drained);
+    assertTrue(queue.isEmpty());
+  }
+
+  /**
+   * Tests that a batch with a null message is rejected before any of it is added
+   */
+  @Test
+  void testAddAllRejectsNull() {
+    BlockingMessageQueue queue = new BlockingMessageQueue(4);
+    assertThrows(NullPointerException.class, () -> queue.addAll(Arrays.asList(new Message("a"), null)));
+    assertTrue(queue.isEmpty());
+  }
+
+  /**
+   * Tests that a batch larger than the queue is added as space frees up when blocking natively
+   */
+  @Test
+  void testAddAllLargerThanCapacity() throws InterruptedException {
+    assertBatchPassesThrough(new BlockingMessageQueue(2));
+  }
+
+  /**
+   * Tests that a batch larger than the queue is added as space frees up with a wait strategy
+   */
+  @Test
+  void testAddAllLargerThanCapacityWithWaitStrategy() throws InterruptedException {
+    assertBatchPassesThrough(new BlockingMessageQueue(2, new ParkingWaitStrategy(10)));
+  }
+
+  /**
+   * Helper method that adds a batch of ten messages from another thread and
+   * checks that they are all drained in order.
+   */
+  private void assertBatchPassesThrough(BlockingMessageQueue queue) throws InterruptedException {
+    List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      messages.add(new Message("m" + i));
+    }
+    Thread producer = new Thread(() -> {
+      try {
+        queue.addAll(messages);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+
+    List<Message> drained = new ArrayList<>();
+    while (drained.size() < messages.size()) {
+      assertTrue(queue.drainTo(drained, 3) <= 2);
+    }
+    producer.join();
+    assertEquals(messages, drained);
+  }
+}
@@ -0,0 +1,109 @@
+package msg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the CircuitBreaker state machine
+ */
+class CircuitBreakerTest {
+  private MessageStats stats;
+
+  @BeforeEach
+  void setUp() {
+    stats = new MessageStats();
+  }
+
+  /**
+   * Tests constructor validation
+   */
+  @Test
+  void testInvalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, 0.5, 100, stats));
+    assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 0.0, 100, stats));
+    assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 0.5, -1, stats));
+  }
+
+  /**
+   * Tests that the breaker opens once enough sends in a full window fail
+   */
+  @Test
+  void testOpensOnFailures() {
+    CircuitBreaker breaker = new CircuitBreaker(4, 0.5, 10_000, stats);
+    assertEquals(CircuitBreaker.State.CLOSED, stats.getBreakerState());
+    breaker.onResult(breaker.tryAcquire(), true);
+    breaker.onResult(breaker.tryAcquire(), false);
+    breaker.onResult(breaker.tryAcquire(), false);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    breaker.onResult(breaker.tryAcquire(), true);
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(CircuitBreaker.State.OPEN, stats.getBreakerState());
+    assertEquals(1, stats.getBreakerOpenCount());
+    assertEquals(CircuitBreaker.NO_PERMIT, breaker.tryAcquire());
+  }
+
+  /**
+   * Tests that a successful trial after the open time closes the breaker
+   */
+  @Test
+  void testTrialSuccessCloses() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker(2, 0.5, 20, stats);
+    breaker.onResult(breaker.tryAcquire(), true);
+    breaker.onResult(breaker.tryAcquire(), true);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    long trial = breaker.acquire();
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    // Only one trial send at a time
+    assertEquals(CircuitBreaker.NO_PERMIT, breaker.tryAcquire());
+
+    breaker.onResult(trial, false);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertEquals(0.0, breaker.getFailureRatio());
+    assertTrue(breaker.tryAcquire() != CircuitBreaker.NO_PERMIT);
+  }
+
+  /**
+   * Tests that a failed trial opens the breaker again
+   */
+  @Test
+  void testTrialFailureReopens() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker(2, 0.5, 20, stats);
+    breaker.onResult(breaker.tryAcquire(), true);
+    breaker.onResult(breaker.tryAcquire(), true);
+
+    breaker.onResult(breaker.acquire(), true);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(2, stats.getBreakerOpenCount());
+  }
+
+  /**
+   * Tests that outcomes of sends allowed before a transition neither decide the
+   * trial nor count towards the window after the breaker closes
+   */
+  @Test
+  void testStaleOutcomesIgnored() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker(2, 0.5, 20, stats);
+    long stale = breaker.tryAcquire();
+    breaker.onResult(breaker.tryAcquire(), true);
+    breaker.onResult(breaker.tryAcquire(), true);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    long trial = breaker.acquire();
+    // A send from before the breaker opened finishing must not end the trial
+    breaker.onResult(stale, false);
+    breaker.cancel(stale);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertEquals(CircuitBreaker.NO_PERMIT, breaker.tryAcquire());
+
+    breaker.onResult(trial, false);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    breaker.onResult(stale, true);
+    assertEquals(0.0, breaker.getFailureRatio());
+  }
+}
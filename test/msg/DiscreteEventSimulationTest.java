@@ -0,0 +1,104 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the discrete-event simulation on a virtual clock
+ */
+class DiscreteEventSimulationTest {
+
+  /**
+   * Helper method that runs a simulation and returns its final statistics
+   */
+  private static MessageStats run(int messageCount, int senderCount, double failureRate, int meanDelay,
+                                  SimulationOptions options) {
+    MessageStats stats = new MessageStats();
+    new DiscreteEventSimulation(messageCount, senderCount, failureRate,
+        options.createServiceTimeModel(meanDelay), stats, options).run();
+    return stats;
+  }
+
+  /**
+   * Tests that runs with the same seed give identical statistics and other seeds do not
+   */
+  @Test
+  void testSameSeedIsReproducible() {
+    SimulationOptions options = new SimulationOptions().productionMode(ProductionMode.OPEN_LOOP)
+        .productionRate(900).serviceTimeType(ServiceTimeType.EXPONENTIAL).maxAttempts(3).seed(42);
+    String first = run(20000, 10, 0.1, 10, options).toString();
+    String second = run(20000, 10, 0.1, 10, options).toString();
+    String other = run(20000, 10, 0.1, 10, options.seed(43)).toString();
+    assertEquals(first, second);
+    assertNotEquals(first, other);
+  }
+
+  /**
+   * Tests that minutes of simulated sends take no real time and every message completes
+   */
+  @Test
+  void testVirtualTimeDoesNotWait() {
+    MessageStats stats = new MessageStats();
+    SimulationOptions options = new SimulationOptions();
+    DiscreteEventSimulation simulation = new DiscreteEventSimulation(1000, 10, 0.1,
+        new UniformServiceTime(5000), stats, options);
+    long start = System.nanoTime();
+    simulation.run();
+
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    assertEquals(1000, stats.getSentCount() + stats.getFailedCount());
+    // Ten senders at five seconds a send get through two messages a second
+    assertEquals(500.0, simulation.getSimulatedNanos() / 1e9, 50.0);
+    assertEquals(2000, simulation.getEventCount());
+    assertThrows(IllegalStateException.class, simulation::run);
+  }
+
+  /**
+   * Tests that a saturated queue makes messages wait and that the stages add up to the latency
+   */
+  @Test
+  void testQueueingUnderSaturation() {
+    MessageStats stats = run(5000, 2, 0.0, 10,
+        new SimulationOptions().productionMode(ProductionMode.UNTHROTTLED).queueCapacity(100));
+    assertEquals(5000, stats.getSentCount());
+    assertEquals(5000, stats.getStageCount());
+    // A full queue of 100 ahead of two senders at 10 ms a send is about half a second
+    assertTrue(stats.getAverageQueueWait() > 400, "queue wait " + stats.getAverageQueueWait());
+    double stages = stats.getAverageEnqueueDelay() + stats.getAverageQueueWait()
+        + stats.getAverageDispatchWait() + stats.getAverageServiceTime();
+    assertEquals(stats.getAverageProcessingTime(), stages, 1.0);
+    // The producer waits for each slot, one send in five milliseconds, and as with real
+    // threads that wait is part of the queue wait rather than the enqueue delay
+    assertEquals(5.0, stats.getAverageFullQueueWait(), 0.5);
+    assertTrue(stats.getAverageEnqueueDelay() < 0.5, "enqueue delay " + stats.getAverageEnqueueDelay());
+  }
+
+  /**
+   * Tests that failed sends are retried up to the allowed number of attempts
+   */
+  @Test
+  void testRetries() {
+    MessageStats stats = run(10000, 4, 0.5, 1,
+        new SimulationOptions().productionMode(ProductionMode.UNTHROTTLED).maxAttempts(3));
+    assertEquals(10000, stats.getSentCount() + stats.getFailedCount());
+    assertTrue(stats.getRetryCount() > 0);
+    // Only messages failing all three attempts fail for good
+    assertEquals(0.125, stats.getFailedCount() / 10000.0, 0.02);
+  }
+
+  /**
+   * Tests that options which are not simulated are rejected
+   */
+  @Test
+  void testUnsupportedOptions() {
+    assertThrows(IllegalArgumentException.class, () -> run(10, 2, 0.1, 10,
+        new SimulationOptions().autoscale(true)));
+    assertThrows(IllegalArgumentException.class, () -> run(0, 2, 0.1, 10, new SimulationOptions()));
+  }
+}
@@ -0,0 +1,131 @@
+package msg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the HashedWheelTimer
+ */
+class HashedWheelTimerTest {
+  private HashedWheelTimer timer;
+
+  /**
+   * Tests constructor validation
+   */
+  @Test
+  void testInvalidArguments() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new HashedWheelTimer(0, TimeUnit.MILLISECONDS, 8));
+    assertThrows(IllegalArgumentException.class,
+        () -> new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8, 0));
+  }
+
+  /**
+   * Tests that scheduling before start is rejected
+   */
+  @Test
+  void testScheduleBeforeStart() {
+    timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+    assertThrows(IllegalStateException.class,
+        () -> timer.schedule(() -> { }, 1, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Tests that tasks run no earlier than their delay, including delays longer than one lap
+   */
+  @Test
+  void testTasksRunAfterDelay() throws InterruptedException {
+    timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+    timer.start();
+    CountDownLatch done = new CountDownLatch(2);
+    long start = System.nanoTime();
+    long[] elapsed = new long[2];
+    timer.schedule(() -> {
+      elapsed[0] = System.nanoTime() - start;
+      done.countDown();
+    }, 5, TimeUnit.MILLISECONDS);
+    timer.schedule(() -> {
+      elapsed[1] = System.nanoTime() - start;
+      done.countDown();
+    }, 30, TimeUnit.MILLISECONDS);
+
+    assertTrue(done.await(2, TimeUnit.SECONDS));
+    assertTrue(elapsed[0] >= TimeUnit.MILLISECONDS.toNanos(5));
+    assertTrue(elapsed[1] >= TimeUnit.MILLISECONDS.toNanos(30));
+    // A task stays pending until it has finished running
+    assertTrue(timer.awaitIdle(1, TimeUnit.SECONDS));
+    assertEquals(0, timer.pending());
+  }
+
+  /**
+   * Tests that many tasks scheduled at once all run
+   */
+  @Test
+  void testManyTasks() throws InterruptedException {
+    timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 64);
+    timer.start();
+    int tasks = 100000;
+    CountDownLatch done = new CountDownLatch(tasks);
+    for (int i = 0; i < tasks; i++) {
+      timer.schedule(done::countDown, i % 50, TimeUnit.MILLISECONDS);
+    }
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Tests that tasks spread over several worker threads all run, and that awaitIdle counts every wheel
+   */
+  @Test
+  void testMultipleWorkers() throws InterruptedException {
+    timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 64, 4);
+    assertEquals(4, timer.getWorkerCount());
+    timer.start();
+    int tasks = 100000;
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    CountDownLatch done = new CountDownLatch(tasks);
+    for (int i = 0; i < tasks; i++) {
+      timer.schedule(() -> {
+        threads.add(Thread.currentThread().getName());
+        done.countDown();
+      }, i % 50, TimeUnit.MILLISECONDS);
+    }
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertTrue(timer.awaitIdle(1, TimeUnit.SECONDS));
+    assertEquals(0, timer.pending());
+    assertEquals(4, threads.size());
+  }
+
+  /**
+   * Tests that awaitIdle returns once every task has finished and times out while one is pending
+   */
+  @Test
+  void testAwaitIdle() throws InterruptedException {
+    timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+    timer.start();
+    assertTrue(timer.awaitIdle(0, TimeUnit.MILLISECONDS));
+    int[] runs = new int[1];
+    timer.schedule(() -> runs[0]++, 20, TimeUnit.MILLISECONDS);
+    assertFalse(timer.awaitIdle(1, TimeUnit.MILLISECONDS));
+    assertTrue(timer.awaitIdle(2, TimeUnit.SECONDS));
+    assertEquals(1, runs[0]);
+  }
+
+  @AfterEach
+  void stopTimer() {
+    if (timer != null) {
+      timer.stop();
+    }
+  }
+}
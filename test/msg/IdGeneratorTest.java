@@ -0,0 +1,149 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the Snowflake and counter message ID generators
+ */
+class IdGeneratorTest {
+
+  /**
+   * Tests that Snowflake IDs strictly increase, even well past 4096 IDs per millisecond
+   */
+  @Test
+  void testSnowflakeIdsIncrease() {
+    IdGenerator generator = new SnowflakeIdGenerator(1);
+    long previous = generator.nextId();
+    for (int i = 0; i < 100_000; i++) {
+      long id = generator.nextId();
+      assertTrue(id > previous);
+      previous = id;
+    }
+  }
+
+  /**
+   * Tests that Snowflake IDs made faster than 4096 per millisecond never carry a
+   * time later than the clock
+   */
+  @Test
+  void testSnowflakeDoesNotRunAheadOfClock() {
+    IdGenerator generator = new SnowflakeIdGenerator(2);
+    long id = 0;
+    for (int i = 0; i < 100_000; i++) {
+      id = generator.nextId();
+    }
+    assertTrue(SnowflakeIdGenerator.timestampOf(id) <= System.currentTimeMillis());
+  }
+
+  /**
+   * Tests that each producer of a simulation gets its own Snowflake generator,
+   * while counter IDs come from one shared generator
+   */
+  @Test
+  void testGeneratorsForProducers() {
+    List<IdGenerator> snowflakes = IdGeneratorType.SNOWFLAKE.createForProducers(3);
+    assertEquals(3, new HashSet<>(snowflakes).size());
+    assertFalse(snowflakes.contains(SnowflakeIdGenerator.shared()));
+    Set<Long> ids = new HashSet<>();
+    for (IdGenerator generator : snowflakes) {
+      ids.add(generator.nextId());
+    }
+    assertEquals(3, ids.size());
+
+    List<IdGenerator> counters = IdGeneratorType.COUNTER.createForProducers(3);
+    assertEquals(1, new HashSet<>(counters).size());
+  }
+
+  /**
+   * Tests that a Snowflake ID carries its creation time
+   */
+  @Test
+  void testSnowflakeTimestamp() {
+    long before = System.currentTimeMillis();
+    long id = new SnowflakeIdGenerator(0).nextId();
+    long after = System.currentTimeMillis();
+    long timestamp = SnowflakeIdGenerator.timestampOf(id);
+    assertTrue(timestamp >= before && timestamp <= after);
+  }
+
+  /**
+   * Tests worker ID validation
+   */
+  @Test
+  void testInvalidWorkerId() {
+    assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+    assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1024));
+  }
+
+  /**
+   * Tests that both generators give unique IDs across threads
+   */
+  @Test
+  void testUniqueAcrossThreads() throws InterruptedException {
+    for (IdGeneratorType type : IdGeneratorType.values()) {
+      IdGenerator generator = type.create();
+      Set<Long> ids = ConcurrentHashMap.newKeySet();
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        Thread thread = new Thread(() -> {
+          for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.nextId());
+          }
+        });
+        thread.start();
+        threads.add(thread);
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(40_000, ids.size());
+    }
+  }
+
+  /**
+   * Tests that messages and producers without their own generator never share an ID
+   */
+  @Test
+  void testDefaultIdsUnique() throws InterruptedException {
+    IMessageQueue queue = new BlockingMessageQueue();
+    // A default producer sleeps between messages, so keep its share small
+    Thread producer = new Thread(new Producer(queue, 100));
+    producer.start();
+    IdGenerator generator = IdGeneratorType.SNOWFLAKE.create();
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < 10_000; i++) {
+      ids.add(new Message("default").getMessageId());
+      ids.add(generator.nextId());
+    }
+    producer.join();
+    for (int i = 0; i < 100; i++) {
+      ids.add(queue.remove().getMessageId());
+    }
+    assertEquals(20_100, ids.size());
+  }
+
+  /**
+   * Tests that a counter generator hands out consecutive IDs within a thread
+   */
+  @Test
+  void testCounterBlocks() {
+    IdGenerator generator = new CounterIdGenerator(4);
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < 10; i++) {
+      ids.add(generator.nextId());
+    }
+    assertEquals(10, ids.size());
+    assertTrue(ids.contains(0L) && ids.contains(9L));
+  }
+}
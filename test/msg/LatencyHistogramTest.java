@@ -0,0 +1,167 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the log-bucketed latency histogram
+ */
+class LatencyHistogramTest {
+
+  /**
+   * Tests that small values are counted exactly
+   */
+  @Test
+  void testSmallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    assertEquals(100, histogram.getCount());
+    assertEquals(50, histogram.getValueAtPercentile(50));
+    assertEquals(99, histogram.getValueAtPercentile(99));
+    assertEquals(100, histogram.getValueAtPercentile(100));
+    assertEquals(1, histogram.getValueAtPercentile(0));
+    assertEquals(100, histogram.getMax());
+  }
+
+  /**
+   * Tests that percentiles of large values stay within 1/128 of the exact value
+   */
+  @Test
+  void testRelativeError() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Random random = new Random(11);
+    long[] values = new long[100_000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (long) (Math.exp(random.nextGaussian() * 2 + 15));
+      histogram.record(values[i]);
+    }
+    Arrays.sort(values);
+    for (double percentile : new double[] {50, 90, 99, 99.9}) {
+      long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+      long reported = histogram.getValueAtPercentile(percentile);
+      assertTrue(reported >= exact, "p" + percentile);
+      assertTrue(reported - exact <= exact / 128, "p" + percentile);
+    }
+    assertEquals(values[values.length - 1], histogram.getMax());
+  }
+
+  /**
+   * Tests that every bucket boundary maps back to its own bucket, up to the largest long
+   */
+  @Test
+  void testBucketBoundaries() {
+    for (long value : new long[] {0, 255, 256, 257, 511, 512, 1L << 40, Long.MAX_VALUE}) {
+      int bucket = LatencyHistogram.bucketOf(value);
+      assertTrue(LatencyHistogram.highestValueOf(bucket) >= value);
+      assertTrue(bucket == 0 || LatencyHistogram.highestValueOf(bucket - 1) < value);
+    }
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+  }
+
+  /**
+   * Tests that subtracting an earlier copy leaves only the values recorded since
+   */
+  @Test
+  void testIntervalHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 1000; i++) {
+      histogram.record(1_000_000);
+    }
+    LatencyHistogram earlier = histogram.copy();
+    for (int i = 0; i < 10; i++) {
+      histogram.record(50_000_000);
+    }
+
+    LatencyHistogram interval = histogram.minus(earlier);
+    assertEquals(10, interval.getCount());
+    long median = interval.getValueAtPercentile(50);
+    assertTrue(median >= 50_000_000 && median <= 50_000_000L * 129 / 128);
+    assertEquals(1010, histogram.getCount());
+    assertTrue(histogram.getValueAtPercentile(50) <= 1_000_000 * 129 / 128);
+  }
+
+  /**
+   * Tests that adding two histograms keeps the values and maximum of both
+   */
+  @Test
+  void testSumOfHistograms() {
+    LatencyHistogram fast = new LatencyHistogram();
+    LatencyHistogram slow = new LatencyHistogram();
+    for (int i = 0; i < 90; i++) {
+      fast.record(100);
+    }
+    for (int i = 0; i < 10; i++) {
+      slow.record(200);
+    }
+
+    LatencyHistogram sum = fast.plus(slow);
+    assertEquals(100, sum.getCount());
+    assertEquals(100, sum.getValueAtPercentile(90));
+    assertEquals(200, sum.getValueAtPercentile(91));
+    assertEquals(200, sum.getMax());
+    assertEquals(90, fast.getCount());
+  }
+
+  /**
+   * Tests that the mean is exact for small values and within bucket precision for large ones
+   */
+  @Test
+  void testMean() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0.0, histogram.getMean());
+    histogram.record(10);
+    histogram.record(20);
+    assertEquals(15.0, histogram.getMean(), 1e-9);
+
+    LatencyHistogram large = new LatencyHistogram();
+    large.record(1_000_000);
+    large.record(3_000_000);
+    assertEquals(2_000_000, large.getMean(), 2_000_000 / 128.0);
+  }
+
+  /**
+   * Tests that concurrent writers lose no values
+   */
+  @Test
+  void testConcurrentRecording() throws InterruptedException {
+    LatencyHistogram histogram = new LatencyHistogram();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      long base = t * 1000L;
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < 100_000; i++) {
+          histogram.record(base + i % 1000);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(800_000, histogram.getCount());
+    assertEquals(800_000, histogram.copy().getCount());
+    assertEquals(7999, histogram.getMax());
+  }
+
+  /**
+   * Tests that negative values and out-of-range percentiles are rejected
+   */
+  @Test
+  void testInvalidArguments() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+    assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+}
@@ -35,6 +35,11 @@ public class MessageAlertSimScenarioRuns {
     sim.go();
     results.append("\n(1000, 10, 0.9, 100, 2)\n").append(sim.getFinalStats()).append("\n");
 
+    // High failure with retries, showing the load the retries add
+    sim = new MessageAlertSim(1000, 10, 0.9, 100, 2, new SimulationOptions().maxAttempts(5));
+    sim.go();
+    results.append("\n(1000, 10, 0.9, 100, 2) --attempts=5\n").append(sim.getFinalStats()).append("\n");
+
     // No failures
     sim = new MessageAlertSim(1000, 10, 0.0, 100, 2);
     sim.go();
@@ -5,9 +5,12 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -45,6 +48,17 @@ class MessageAlertSimTest {
         () -> new MessageAlertSim(-1, 5, 0.1, 50, 1));
   }
 
+  /**
+   * Tests that retry options that cannot form a retry policy are rejected by the
+   * constructor, before any thread is started
+   */
+  @Test
+  void testInvalidRetryBackoff() {
+    SimulationOptions options = new SimulationOptions().maxAttempts(3).retryBackoffMillis(2000);
+    assertThrows(IllegalArgumentException.class,
+        () -> new MessageAlertSim(100, 5, 0.1, 50, 1, options));
+  }
+
   /**
    * Tests constructor validation for sender count
    */
@@ -153,6 +167,219 @@ class MessageAlertSimTest {
     assertEquals(messageCount, totalProcessed);
   }
 
+  /**
+   * Tests that a simulation completes when using the ring buffer queue
+   */
+  @Test
+  void testRingQueueSimulation() throws InterruptedException {
+    MessageAlertSim sim = new MessageAlertSim(50, 3, 0.1, 5, 1,
+        new SimulationOptions().queueType(QueueType.RING));
+    sim.go();
+    assertTrue(sim.getFinalStats().contains("Total Messages Sent:"));
+  }
+
+  /**
+   * Tests that senders can run on virtual threads where the JVM supports them
+   */
+  @Test
+  void testVirtualThreadSimulation() throws InterruptedException {
+    if (!ThreadMode.VIRTUAL.isSupported()) {
+      assertThrows(IllegalArgumentException.class,
+          () -> new SimulationOptions().senderThreadMode(ThreadMode.VIRTUAL));
+      return;
+    }
+    MessageAlertSim sim = new MessageAlertSim(50, 20, 0.1, 5, 1,
+        new SimulationOptions().senderThreadMode(ThreadMode.VIRTUAL));
+    sim.go();
+    assertTrue(sim.getFinalStats().contains("Total Messages Sent:"));
+    assertTrue(sim.getResourceUsage().getPeakThreadCount() > 0);
+  }
+
+  /**
+   * Tests that every message is accounted for with the timer wheel sender engine
+   */
+  @Test
+  void testTimerWheelSimulation() throws InterruptedException {
+    MessageAlertSim sim = new MessageAlertSim(50, 10, 0.1, 20, 1,
+        new SimulationOptions().senderEngine(SenderEngine.TIMER_WHEEL));
+    sim.go();
+    String stats = sim.getFinalStats();
+    assertTrue(stats.contains("Total Messages Sent:"));
+  }
+
+  /**
+   * Tests a timer wheel simulation whose timer runs several worker threads
+   */
+  @Test
+  void testTimerWheelSimulationWithTimerWorkers() throws InterruptedException {
+    MessageAlertSim sim = new MessageAlertSim(200, 10, 0.1, 20, 1,
+        new SimulationOptions().senderEngine(SenderEngine.TIMER_WHEEL).timerWorkers(3));
+    sim.go();
+    MessageStats stats = sim.getStats();
+    assertEquals(200, stats.getSentCount() + stats.getFailedCount());
+  }
+
+  /**
+   * Tests that every message is accounted for when messages are pooled and reused
+   */
+  @Test
+  void testPooledMessageSimulation() throws InterruptedException {
+    MessageAlertSim sim = new MessageAlertSim(100, 5, 0.1, 10, 1,
+        new SimulationOptions().poolCapacity(64).maxAttempts(3));
+    sim.go();
+    String stats = sim.getFinalStats();
+    assertTrue(stats.contains("Total Messages Sent:"));
+  }
+
+  /**
+   * Tests that several producers together produce exactly the message count
+   */
+  @Test
+  void testMultipleProducerSimulation() throws InterruptedException {
+    MessageAlertSim sim = new MessageAlertSim(101, 10, 0.1, 10, 1,
+        new SimulationOptions().producerCount(4).productionMode(ProductionMode.UNTHROTTLED));
+    sim.go();
+    MessageStats stats = sim.getStats();
+    assertEquals(101, stats.getSentCount() + stats.getFailedCount());
+  }
+
+  /**
+   * Tests that there cannot be more producers than messages
+   */
+  @Test
+  void testTooManyProducers() {
+    assertThrows(IllegalArgumentException.class, () -> new MessageAlertSim(3, 1, 0.1, 10, 1,
+        new SimulationOptions().producerCount(4)));
+  }
+
+  /**
+   * Tests that an open-loop simulation with heavy-tailed send durations finishes every message
+   */
+  @Test
+  void testOpenLoopParetoSimulation() throws InterruptedException {
+    MessageAlertSim sim = new MessageAlertSim(200, 5, 0.1, 5, 1,
+        new SimulationOptions().productionMode(ProductionMode.OPEN_LOOP).productionRate(500)
+            .serviceTimeType(ServiceTimeType.PARETO).senderEngine(SenderEngine.ASYNC));
+    sim.go();
+    MessageStats stats = sim.getStats();
+    assertEquals(200, stats.getSentCount() + stats.getFailedCount());
+  }
+
+  /**
+   * Tests that empirical send durations require a histogram file
+   */
+  @Test
+  void testEmpiricalServiceTimeWithoutFile() {
+    assertThrows(IllegalArgumentException.class, () -> new MessageAlertSim(100, 5, 0.1, 10, 1,
+        new SimulationOptions().serviceTimeType(ServiceTimeType.EMPIRICAL)));
+  }
+
+  /**
+   * Tests that a run stops at the drain deadline and reports the messages left unsent,
+   * and that a run without a deadline finishes every message
+   */
+  @Test
+  void testDrainTimeout() throws InterruptedException {
+    MessageAlertSim sim = new MessageAlertSim(1000, 2, 0.0, 20, 1,
+        new SimulationOptions().productionMode(ProductionMode.UNTHROTTLED).queueCapacity(1000)
+            .drainTimeoutMillis(100));
+    long start = System.nanoTime();
+    sim.go();
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    assertTrue(sim.getUnfinishedCount() > 0);
+    assertEquals(1000, sim.getUnfinishedCount() + sim.getStats().getSentCount());
+
+    MessageAlertSim complete = new MessageAlertSim(50, 5, 0.1, 5, 1,
+        new SimulationOptions().productionMode(ProductionMode.UNTHROTTLED));
+    complete.go();
+    assertEquals(0, complete.getUnfinishedCount());
+  }
+
+  /**
+   * Tests that sends still in flight at the drain deadline do not get a second drain
+   * timeout while the run shuts down
+   */
+  @Test
+  void testDrainTimeoutCoversShutdown() throws InterruptedException {
+    MessageAlertSim sim = new MessageAlertSim(20, 5, 0.0, 2000, 1,
+        new SimulationOptions().productionMode(ProductionMode.UNTHROTTLED).queueCapacity(1000)
+            .senderEngine(SenderEngine.TIMER_WHEEL).drainTimeoutMillis(500));
+    long start = System.nanoTime();
+    sim.go();
+    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(900));
+    assertTrue(sim.getUnfinishedCount() > 0);
+  }
+
+  /**
+   * Tests that interrupting a run still stops its producer, sender, retry and monitor
+   * threads before it returns, all within the one drain deadline
+   */
+  @Test
+  void testInterruptedRunStopsThreads() throws InterruptedException {
+    MessageAlertSim sim = new MessageAlertSim(1000, 2, 0.5, 50, 1,
+        new SimulationOptions().maxAttempts(3).drainTimeoutMillis(1000));
+    AtomicBoolean interrupted = new AtomicBoolean();
+    Thread runner = new Thread(() -> {
+      try {
+        sim.go();
+      } catch (InterruptedException e) {
+        interrupted.set(true);
+      }
+    });
+    runner.start();
+    Thread.sleep(200);
+    runner.interrupt();
+    runner.join(TimeUnit.SECONDS.toMillis(5));
+
+    assertTrue(interrupted.get());
+    assertTrue(sim.getUnfinishedCount() > 0);
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      String name = thread.getName();
+      assertFalse(name.startsWith("Producer") || name.startsWith("Sender-") || name.equals("Retry")
+          || name.equals("Monitor"), name + " still running");
+    }
+  }
+
+  /**
+   * Tests that a discrete-event run of a slow scenario finishes at once and prints
+   * the usual final statistics with the simulated time
+   */
+  @Test
+  void testDiscreteEventSimulation() throws InterruptedException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(output));
+    MessageAlertSim sim = new MessageAlertSim(1000, 10, 0.1, 5000, 2,
+        new SimulationOptions().executionMode(ExecutionMode.DISCRETE_EVENT).seed(5));
+    long start = System.nanoTime();
+    sim.go();
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    assertEquals(0, sim.getUnfinishedCount());
+    assertTrue(output.toString().contains("Final Statistics:"));
+    assertTrue(output.toString().contains("Simulated Time: "));
+  }
+
+  /**
+   * Tests that an autoscaled sender pool grows under load and finishes every message
+   */
+  @Test
+  void testAutoscalingSimulation() throws InterruptedException {
+    MessageAlertSim sim = new MessageAlertSim(200, 1, 0.1, 50, 1,
+        new SimulationOptions().autoscale(true).maxSenders(8).scaleIntervalMillis(50).scaleSamples(1));
+    sim.go();
+    String stats = sim.getFinalStats();
+    assertTrue(stats.contains("Active Senders:"));
+    assertTrue(!stats.contains("(peak 1)"));
+  }
+
+  /**
+   * Tests that autoscaling rejects an initial sender count outside its bounds
+   */
+  @Test
+  void testInvalidAutoscalingBounds() {
+    assertThrows(IllegalArgumentException.class, () -> new MessageAlertSim(100, 10, 0.1, 50, 1,
+        new SimulationOptions().autoscale(true).maxSenders(5)));
+  }
+
   @Test
   void testSmallScalePerformance() throws InterruptedException {
     long startTime = System.currentTimeMillis();
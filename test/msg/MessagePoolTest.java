@@ -0,0 +1,79 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for the MessagePool and the pooled message lifecycle
+ */
+class MessagePoolTest {
+
+  /**
+   * Tests that a recycled message is handed out again instead of allocating
+   */
+  @Test
+  void testRecycledMessageIsReused() {
+    MessagePool pool = new MessagePool(4, 16);
+    Message message = pool.acquire();
+    assertEquals(1, pool.getAllocatedCount());
+
+    message.recycle();
+    assertEquals(1, pool.getFreeCount());
+    assertSame(message, pool.acquire());
+    assertEquals(1, pool.getAllocatedCount());
+  }
+
+  /**
+   * Tests that reset gives the message new content and clears its previous outcome
+   */
+  @Test
+  void testResetClearsPreviousTrip() {
+    MessagePool pool = new MessagePool(4, 16);
+    Message message = pool.acquire();
+    "hello".getChars(0, 5, message.getContentBuffer(), 0);
+    message.reset(1, 5);
+    assertEquals("hello", message.getContent());
+    assertEquals("hello".hashCode(), message.getContentHash());
+
+    message.incrementAttempts();
+    message.setFailed(true);
+    message.setSentTime(System.currentTimeMillis());
+    message.recycle();
+
+    Message reused = pool.acquire();
+    "bye".getChars(0, 3, reused.getContentBuffer(), 0);
+    reused.reset(2, 3);
+    assertEquals(2, reused.getMessageId());
+    assertEquals("bye", reused.getContent());
+    assertFalse(reused.isFailed());
+    assertEquals(0, reused.getAttempts());
+    assertEquals(0, reused.getSentTime());
+  }
+
+  /**
+   * Tests that releasing to a full pool drops the message instead of blocking
+   */
+  @Test
+  void testFullPoolDropsMessage() {
+    MessagePool pool = new MessagePool(1, 16);
+    Message first = pool.acquire();
+    Message second = pool.acquire();
+    first.recycle();
+    second.recycle();
+    assertEquals(1, pool.getFreeCount());
+  }
+
+  /**
+   * Tests that only pooled messages can be reset and that content must fit the buffer
+   */
+  @Test
+  void testInvalidReset() {
+    assertThrows(IllegalStateException.class, () -> new Message("test").reset(1, 1));
+    Message pooled = new MessagePool(1, 4).acquire();
+    assertThrows(IllegalArgumentException.class, () -> pooled.reset(1, 5));
+  }
+}
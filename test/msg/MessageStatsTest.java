@@ -3,7 +3,13 @@ package msg;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -84,4 +90,184 @@ class MessageStatsTest {
     assertTrue(output.contains("Total Messages Failed: 0"));
     assertTrue(output.contains("Average Processing Time: 100.0 ms"));
   }
+
+  /**
+   * Tests retry statistics recorded for a message that succeeded on its third attempt
+   */
+  @Test
+  void testRetryStatistics() {
+    Message first = new Message("first");
+    first.incrementAttempts();
+    first.setSentTime(first.getCreationTime() + 10);
+    stats.record(first);
+
+    Message retried = new Message("retried");
+    retried.incrementAttempts();
+    retried.setFailed(true);
+    retried.setSentTime(retried.getCreationTime() + 10);
+    stats.recordRetry();
+    retried.incrementAttempts();
+    retried.setSentTime(retried.getCreationTime() + 40);
+    stats.recordRetry();
+    retried.incrementAttempts();
+    retried.setFailed(false);
+    retried.setSentTime(retried.getCreationTime() + 70);
+    stats.record(retried);
+
+    assertEquals(2, stats.getSentCount());
+    assertEquals(2, stats.getRetryCount());
+    assertEquals(4, stats.getAttemptCount());
+    assertEquals(2.0, stats.getAverageAttempts());
+    assertEquals(0.5, stats.getFirstTrySuccessRate());
+    assertEquals(60.0, stats.getAverageRetryLatency());
+    assertTrue(stats.toString().contains("Total Retries: 2"));
+  }
+
+  /**
+   * Tests that processing time is measured from a message's intended arrival time
+   */
+  @Test
+  void testProcessingTimeFromIntendedTime() {
+    Message message = new Message("late");
+    message.setIntendedTime(message.getCreationTime() - 50);
+    message.setSentTime(message.getCreationTime() + 10);
+    stats.record(message);
+
+    assertEquals(60, stats.getTotalProcessingTime());
+  }
+
+  /**
+   * Tests that the time a message spends queued and sending is broken down by stage
+   */
+  @Test
+  void testStageBreakdown() throws InterruptedException {
+    Message message = new Message("staged");
+    message.markEnqueued();
+    Thread.sleep(30);
+    message.markDequeued();
+    message.markSendStarted();
+    Thread.sleep(10);
+    message.markCompleted();
+    message.setSentTime(System.currentTimeMillis());
+    stats.record(message);
+
+    assertEquals(1, stats.getStageCount());
+    assertTrue(stats.getAverageQueueWait() >= 30);
+    assertTrue(stats.getAverageServiceTime() >= 10);
+    assertTrue(stats.getAverageServiceTime() < stats.getAverageQueueWait());
+    assertTrue(stats.getAverageDispatchWait() < 5);
+    assertTrue(stats.toString().contains("Average Queue Wait:"));
+  }
+
+  /**
+   * Tests that messages that skipped a stage are left out of the breakdown
+   */
+  @Test
+  void testNoStageBreakdownWithoutTimestamps() {
+    Message message = new Message("unstaged");
+    message.setSentTime(message.getCreationTime() + 5);
+    stats.record(message);
+
+    assertEquals(0, stats.getStageCount());
+    assertEquals(0.0, stats.getAverageQueueWait());
+    assertTrue(!stats.toString().contains("Average Queue Wait:"));
+  }
+
+  /**
+   * Tests that latency percentiles are recorded and shown with the configured percentiles
+   */
+  @Test
+  void testLatencyPercentiles() {
+    for (int i = 1; i <= 100; i++) {
+      Message message = new Message("timed");
+      message.setIntendedTime(message.getCreationTime() - i);
+      message.setSentTime(message.getCreationTime());
+      stats.record(message);
+    }
+    assertEquals(50.0, stats.getLatencyPercentile(50), 0.5);
+    assertEquals(99.0, stats.getLatencyPercentile(99), 1.0);
+    assertEquals(100.0, stats.getMaxLatency());
+
+    stats.setReportedPercentiles(75, 99.9);
+    String output = stats.toString();
+    assertTrue(output.contains("Latency: p75="), output);
+    assertTrue(output.contains("p99.9="), output);
+    assertTrue(output.contains("max=100.000 ms"), output);
+  }
+
+  /**
+   * Tests that concurrent senders recording into the striped counters lose no updates
+   */
+  @Test
+  void testConcurrentRecording() throws InterruptedException {
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          Message message = new Message("concurrent");
+          message.setFailed(i % 10 == 0);
+          message.incrementAttempts();
+          message.setSentTime(message.getCreationTime() + 2);
+          stats.record(message);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(72_000L, stats.getSentCount());
+    assertEquals(8_000L, stats.getFailedCount());
+    assertEquals(160_000L, stats.getTotalProcessingTime());
+    assertEquals(80_000L, stats.getAttemptCount());
+    assertEquals(80_000L, stats.getLatencyHistogram().getCount());
+  }
+
+  /**
+   * Tests that awaitCompletion returns once the expected number of messages were
+   * sent or failed, and times out before then
+   */
+  @Test
+  void testAwaitCompletion() throws InterruptedException {
+    assertThrows(IllegalStateException.class, () -> stats.awaitCompletion(1, TimeUnit.MILLISECONDS));
+    stats.expectCompletions(3);
+    stats.incrementSent();
+    stats.incrementFailed();
+    assertFalse(stats.awaitCompletion(1, TimeUnit.MILLISECONDS));
+
+    Thread sender = new Thread(stats::incrementSent);
+    sender.start();
+    assertTrue(stats.awaitCompletion(2, TimeUnit.SECONDS));
+    sender.join();
+    assertThrows(IllegalArgumentException.class, () -> stats.expectCompletions(-1));
+  }
+
+  /**
+   * Tests that a waiter is woken once concurrent senders complete the last of the
+   * expected messages, and that earlier messages do not count towards them
+   */
+  @Test
+  void testAwaitCompletionWithConcurrentSenders() throws InterruptedException {
+    stats.incrementSent();
+    stats.expectCompletions(40_000);
+    List<Thread> senders = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      senders.add(new Thread(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          if (j % 10 == 0) {
+            stats.incrementFailed();
+          } else {
+            stats.incrementSent();
+          }
+        }
+      }));
+    }
+    senders.forEach(Thread::start);
+    assertTrue(stats.awaitCompletion(5, TimeUnit.SECONDS));
+    assertEquals(40_001, stats.getSentCount() + stats.getFailedCount());
+    for (Thread sender : senders) {
+      sender.join();
+    }
+  }
 }
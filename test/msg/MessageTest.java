@@ -118,6 +118,26 @@ public class MessageTest {
     });
   }
 
+  /**
+   * Tests that lifecycle timestamps are unset until each stage is reached and
+   * then follow the order of the stages.
+   */
+  @Test
+  void testLifecycleTimestamps() {
+    assertTrue(message.getCreatedNanos() != 0);
+    assertEquals(0, message.getEnqueuedNanos());
+    assertEquals(0, message.getCompletedNanos());
+
+    message.markEnqueued();
+    message.markDequeued();
+    message.markSendStarted();
+    message.markCompleted();
+    assertTrue(message.getEnqueuedNanos() >= message.getCreatedNanos());
+    assertTrue(message.getDequeuedNanos() >= message.getEnqueuedNanos());
+    assertTrue(message.getSendStartNanos() >= message.getDequeuedNanos());
+    assertTrue(message.getCompletedNanos() >= message.getSendStartNanos());
+  }
+
   /**
    * Tests the string representation of the message.
    * Verifies that:
@@ -128,18 +148,18 @@ public class MessageTest {
   void testToString() {
     String stringRepresentation = message.toString();
 
-    // Verify the string contains both the UUID and content
+    // Verify the string contains both the ID and content
     assertTrue(stringRepresentation.contains(TEST_CONTENT));
     assertTrue(stringRepresentation.contains(":"));
 
-    // Split the string and verify UUID format
+    // Split the string and verify the format
     String[] parts = stringRepresentation.split(":");
     assertEquals(2, parts.length);
   }
 
   /**
    * Tests that multiple Message instances receive unique IDs.
-   * Extracts and compares the UUID portion of the toString() output
+   * Extracts and compares the ID portion of the toString() output
    * to verify uniqueness.
    */
   @Test
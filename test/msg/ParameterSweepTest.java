@@ -0,0 +1,107 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the parallel parameter sweep and its results table
+ */
+class ParameterSweepTest {
+
+  /**
+   * Tests that every point of the grid runs, in grid order, with its own parameters
+   */
+  @Test
+  void testGridRunsInOrder() throws InterruptedException {
+    ParameterSweep sweep = new ParameterSweep(() -> new SimulationOptions()
+        .executionMode(ExecutionMode.DISCRETE_EVENT).productionMode(ProductionMode.UNTHROTTLED))
+        .messageCounts(2000).senderCounts(1, 4).failureRates(0.0, 0.2).meanDelays(10).queueCapacities(0, 50)
+        .parallelism(3);
+    assertEquals(8, sweep.size());
+    List<SweepResult> results = sweep.run();
+
+    assertEquals(8, results.size());
+    assertEquals(1, results.get(0).getSenderCount());
+    assertEquals(2, results.get(0).getQueueCapacity());
+    assertEquals(50, results.get(1).getQueueCapacity());
+    assertEquals(0.2, results.get(2).getFailureRate());
+    assertEquals(4, results.get(7).getSenderCount());
+    for (SweepResult result : results) {
+      assertEquals(2000, result.getSentCount() + result.getFailedCount());
+      // Each sender gets through about a hundred sends a second
+      assertEquals(100.0 * result.getSenderCount() * (1 - result.getFailureRate()), result.getThroughput(),
+          15.0 * result.getSenderCount());
+    }
+  }
+
+  /**
+   * Tests that parallel discrete-event points give the same results as running them one at a time
+   */
+  @Test
+  void testParallelRunsAreIsolated() throws InterruptedException {
+    ParameterSweep sweep = new ParameterSweep(() -> new SimulationOptions()
+        .executionMode(ExecutionMode.DISCRETE_EVENT).seed(3))
+        .messageCounts(500).senderCounts(1, 2, 3, 4).meanDelays(5, 50);
+    String parallel = ParameterSweep.toCsv(sweep.parallelism(8).run());
+    String serial = ParameterSweep.toCsv(sweep.parallelism(1).run());
+    assertEquals(serial, parallel);
+  }
+
+  /**
+   * Tests the CSV and JSON formats of the results table
+   */
+  @Test
+  void testResultFormats() throws InterruptedException {
+    List<SweepResult> results = new ParameterSweep(() -> new SimulationOptions()
+        .executionMode(ExecutionMode.DISCRETE_EVENT).percentiles(50, 99.9))
+        .messageCounts(100).senderCounts(2).meanDelays(10).run();
+
+    String[] csv = ParameterSweep.toCsv(results).split("\n");
+    assertEquals(2, csv.length);
+    assertEquals("message_count,sender_count,failure_rate,mean_delay_ms,queue_capacity,sent,failed,"
+        + "elapsed_s,throughput_per_s,avg_processing_ms,avg_full_queue_wait_ms,p50_ms,p99.9_ms,max_ms", csv[0]);
+    assertTrue(csv[1].startsWith("100,2,0.1,10,4,"), csv[1]);
+    assertEquals(14, csv[1].split(",").length);
+
+    String json = ParameterSweep.toJson(results);
+    assertTrue(json.startsWith("[\n  {\"message_count\": 100, \"sender_count\": 2, "), json);
+    assertTrue(json.contains("\"p99.9_ms\": "), json);
+    assertTrue(json.contains("\"avg_full_queue_wait_ms\": "), json);
+    assertTrue(json.endsWith("}\n]\n"), json);
+    assertEquals("[]\n", ParameterSweep.toJson(List.of()));
+  }
+
+  /**
+   * Tests parsing of value lists and linear and geometric ranges
+   */
+  @Test
+  void testParseValues() {
+    assertArrayEquals(new double[] {5, 10, 20}, ParameterSweep.parseValues("5, 10,20"));
+    assertArrayEquals(new double[] {10, 20, 30}, ParameterSweep.parseValues("10:30:10"));
+    assertArrayEquals(new double[] {1, 2, 4, 8, 16}, ParameterSweep.parseValues("1:20:x2"));
+    assertArrayEquals(new double[] {0.0, 0.1, 0.2, 0.30000000000000004},
+        ParameterSweep.parseValues("0:0.3:0.1"));
+    assertThrows(IllegalArgumentException.class, () -> ParameterSweep.parseValues("1:10"));
+    assertThrows(IllegalArgumentException.class, () -> ParameterSweep.parseValues("1:10:0"));
+    assertThrows(IllegalArgumentException.class, () -> ParameterSweep.parseValues("1:10:x1"));
+  }
+
+  /**
+   * Tests that invalid grids are rejected
+   */
+  @Test
+  void testInvalidGrid() {
+    ParameterSweep sweep = new ParameterSweep(SimulationOptions::new);
+    assertThrows(IllegalArgumentException.class, () -> new ParameterSweep(null));
+    assertThrows(IllegalArgumentException.class, () -> sweep.senderCounts());
+    assertThrows(IllegalArgumentException.class, () -> sweep.messageCounts(0));
+    assertThrows(IllegalArgumentException.class, () -> sweep.failureRates(1.0));
+    assertThrows(IllegalArgumentException.class, () -> sweep.parallelism(0));
+  }
+}
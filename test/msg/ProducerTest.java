@@ -3,6 +3,8 @@ package msg;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -96,4 +98,102 @@ class ProducerTest {
         () -> producer = new Producer(messageQueue, -10));
   }
 
-}
\ No newline at end of file
+  /**
+   * Tests that a batching producer still generates exactly the specified number of messages
+   */
+  @Test
+  void testBatchProducerGeneratesCorrectNumberOfMessages() throws InterruptedException {
+    producer = Producer.builder(messageQueue, 25).batchSize(10).build();
+    Thread producerThread = new Thread(producer);
+    producerThread.start();
+    producerThread.join();
+
+    assertEquals(25, messageQueue.size());
+  }
+
+  /**
+   * Tests that an unthrottled producer generates valid content without the fixed sleep
+   */
+  @Test
+  void testUnthrottledProducer() throws InterruptedException {
+    producer = Producer.builder(messageQueue, 100_000).idGenerator(new CounterIdGenerator())
+        .productionMode(ProductionMode.UNTHROTTLED).build();
+    long start = System.currentTimeMillis();
+    Thread producerThread = new Thread(producer);
+    producerThread.start();
+    producerThread.join();
+
+    // At the sleeping rate this would take over 15 minutes
+    assertTrue(System.currentTimeMillis() - start < 30_000);
+    assertEquals(100_000, messageQueue.size());
+    Message msg = messageQueue.remove();
+    assertTrue(msg.getContent().length() >= 1 && msg.getContent().length() <= 100);
+    assertTrue(msg.getContent().matches("[a-z]+"));
+  }
+
+  /**
+   * Tests that a fixed rate producer is paced to the configured rate
+   */
+  @Test
+  void testFixedRateProducer() throws InterruptedException {
+    producer = Producer.builder(messageQueue, 500).batchSize(10).idGenerator(new CounterIdGenerator())
+        .productionMode(ProductionMode.FIXED_RATE).productionRate(2000).build();
+    long start = System.nanoTime();
+    Thread producerThread = new Thread(producer);
+    producerThread.start();
+    producerThread.join();
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    // 500 messages at 2000 per second take about 250 ms
+    assertEquals(500, messageQueue.size());
+    assertTrue(elapsedMillis >= 240, "took " + elapsedMillis + " ms");
+    assertTrue(elapsedMillis < 2000, "took " + elapsedMillis + " ms");
+  }
+
+  /**
+   * Tests that the rate modes require a rate
+   */
+  @Test
+  void testRateModeWithoutRate() {
+    assertThrows(IllegalArgumentException.class, () -> Producer.builder(messageQueue, 10)
+        .productionMode(ProductionMode.TARGET_RATE).build());
+  }
+
+  /**
+   * Tests that an open-loop producer stamps its messages with their intended
+   * arrival times, and keeps to its schedule while the queue is full
+   */
+  @Test
+  void testOpenLoopProducer() throws InterruptedException {
+    messageQueue = new BlockingMessageQueue(10);
+    producer = Producer.builder(messageQueue, 50).idGenerator(new CounterIdGenerator())
+        .productionMode(ProductionMode.OPEN_LOOP).arrivals(new PoissonArrivals(10_000, new Random(42))).build();
+    Thread producerThread = new Thread(producer);
+    producerThread.start();
+    // Leave the queue full well past the end of the 5 ms schedule
+    Thread.sleep(200);
+
+    long maxLateness = 0;
+    long previous = 0;
+    for (int i = 0; i < 50; i++) {
+      Message message = messageQueue.remove();
+      assertTrue(message.getIntendedTime() <= message.getCreationTime());
+      assertTrue(message.getIntendedTime() >= previous);
+      previous = message.getIntendedTime();
+      maxLateness = Math.max(maxLateness, message.getCreationTime() - message.getIntendedTime());
+    }
+    producerThread.join();
+
+    // Messages created after the queue drained were due long before
+    assertTrue(maxLateness >= 150, "latest message was " + maxLateness + " ms late");
+  }
+
+  /**
+   * Tests that the open-loop mode requires an arrival process
+   */
+  @Test
+  void testOpenLoopWithoutArrivals() {
+    assertThrows(IllegalArgumentException.class, () -> Producer.builder(messageQueue, 10)
+        .productionMode(ProductionMode.OPEN_LOOP).build());
+  }
+}
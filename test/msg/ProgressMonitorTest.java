@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -76,6 +77,29 @@ class ProgressMonitorTest {
     assertTrue(output.contains("Total Processing Time: 100"));
   }
 
+  /**
+   * Tests that reports show the mean and percentile latencies over the decaying windows
+   */
+  @Test
+  void testDecayedLatencyOutput() throws InterruptedException {
+    stats.setReportedPercentiles(50, 99.9);
+    Message message = new Message("timed");
+    message.setSentTime(message.getCreationTime() + 2);
+    stats.record(message);
+
+    ProgressMonitor monitor = new ProgressMonitor(stats, 1);
+    Thread monitorThread = new Thread(monitor);
+    monitorThread.start();
+    Thread.sleep(100);
+    monitor.stop();
+    monitorThread.join();
+
+    String output = outputStream.toString();
+    assertTrue(output.contains("Latency 1/5/15 min: mean=2.0"), output);
+    assertTrue(output.contains(", p50=2.0"), output);
+    assertTrue(output.contains(", p99.9=2.0"), output);
+  }
+
   /**
    * Tests monitor stop functionality
    */
@@ -108,6 +132,32 @@ class ProgressMonitorTest {
     assertTrue(outputCount >= 1);
   }
 
+  /**
+   * Tests that sub-second intervals give several reports a second, each with
+   * the throughput of its interval
+   */
+  @Test
+  void testSubSecondInterval() throws InterruptedException {
+    ProgressMonitor monitor = new ProgressMonitor(stats, 50, TimeUnit.MILLISECONDS);
+    Thread monitorThread = new Thread(monitor);
+    monitorThread.start();
+    for (int i = 0; i < 10; i++) {
+      stats.incrementSent();
+      Thread.sleep(30);
+    }
+    monitor.stop();
+    monitorThread.join();
+
+    String output = outputStream.toString();
+    int outputCount = output.split("SMS Simulation Statistics:").length - 1;
+    assertTrue(outputCount >= 4, output);
+    assertTrue(output.contains("Interval Throughput: "), output);
+    assertTrue(output.contains("msgs/sec"), output);
+    assertTrue(output.contains("Sent Rate 1/5/15 min: "), output);
+    assertThrows(IllegalArgumentException.class, () ->
+        new ProgressMonitor(stats, 1, null));
+  }
+
   /**
    * Cleanup system output stream after each test
    */
@@ -0,0 +1,131 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the M/M/c and M/G/c predictions of the queueing model
+ */
+class QueueingModelTest {
+
+  /**
+   * Helper method that returns options for Poisson arrivals at a rate
+   */
+  private static SimulationOptions openLoop(double rate) {
+    return new SimulationOptions().productionMode(ProductionMode.OPEN_LOOP).productionRate(rate);
+  }
+
+  /**
+   * Tests the M/M/1 queue, whose latency is exponential with rate mu - lambda
+   */
+  @Test
+  void testSingleServer() {
+    QueueingModel model = new QueueingModel(1000, 1, 0.0, 10,
+        openLoop(50).serviceTimeType(ServiceTimeType.EXPONENTIAL));
+    assertFalse(model.isSaturated());
+    assertEquals(0.5, model.getUtilization(), 1e-9);
+    assertEquals(0.5, model.getWaitProbability(), 1e-9);
+    assertEquals(10.0, model.getQueueWait(), 1e-9);
+    assertEquals(20.0, model.getAverageLatency(), 1e-9);
+    assertEquals(50.0, model.getThroughput(), 1e-9);
+    assertEquals(20.0 * Math.log(10), model.getLatencyPercentile(90), 1.0);
+    assertEquals(20.0 * Math.log(100), model.getLatencyPercentile(99), 2.0);
+  }
+
+  /**
+   * Tests the Erlang C wait probability of several servers, and the Allen-Cunneen
+   * scaling of the wait for less variable sends
+   */
+  @Test
+  void testSeveralServers() {
+    // Two servers offered one server's worth of load wait with probability 1/3
+    QueueingModel exponential = new QueueingModel(1000, 2, 0.0, 10,
+        openLoop(100).serviceTimeType(ServiceTimeType.EXPONENTIAL));
+    assertEquals(1.0 / 3, exponential.getWaitProbability(), 1e-9);
+    assertEquals(10.0 / 3, exponential.getQueueWait(), 1e-9);
+
+    // Uniform sends have a squared coefficient of variation of 1/3
+    QueueingModel uniform = new QueueingModel(1000, 2, 0.0, 10, openLoop(100));
+    assertEquals(10.0 / 3 * (1 + 1.0 / 3) / 2, uniform.getQueueWait(), 1e-9);
+    // No uniform send is longer than twice the mean, so only the wait stretches the tail
+    assertTrue(uniform.getLatencyPercentile(50) < exponential.getLatencyPercentile(50) + 5);
+    assertTrue(uniform.getLatencyPercentile(99) < exponential.getLatencyPercentile(99));
+  }
+
+  /**
+   * Tests that failed attempts add load, and only messages that are finally sent count as throughput
+   */
+  @Test
+  void testRetries() {
+    QueueingModel model = new QueueingModel(1000, 10, 0.5, 10, openLoop(400).maxAttempts(2));
+    // Half the messages need a second attempt, and a quarter fail both
+    assertEquals(0.6, model.getUtilization(), 1e-9);
+    assertEquals(300.0, model.getThroughput(), 1e-9);
+  }
+
+  /**
+   * Tests that an open-loop backlog grows over the run when the senders cannot keep up,
+   * and that a closed-loop producer keeps the queue full
+   */
+  @Test
+  void testSaturation() {
+    QueueingModel openLoop = new QueueingModel(1000, 1, 0.0, 10, openLoop(200));
+    assertTrue(openLoop.isSaturated());
+    assertEquals(1.0, openLoop.getUtilization());
+    assertEquals(100.0, openLoop.getThroughput(), 1e-9);
+    // The last message arrives after 5 s and is sent after 10 s
+    assertEquals(2500.0, openLoop.getQueueWait(), 1e-6);
+
+    QueueingModel unthrottled = new QueueingModel(1000, 4, 0.0, 10,
+        new SimulationOptions().productionMode(ProductionMode.UNTHROTTLED).queueCapacity(40));
+    assertTrue(unthrottled.isSaturated());
+    assertEquals(400.0, unthrottled.getThroughput(), 1e-9);
+    assertEquals(100.0, unthrottled.getQueueWait(), 1e-9);
+    assertTrue(unthrottled.toString().contains("offered load unbounded (saturated)"));
+  }
+
+  /**
+   * Tests that the predictions agree with a long discrete-event run, and that a
+   * model of a different configuration is flagged as diverging
+   */
+  @Test
+  void testCompareWithSimulation() throws InterruptedException {
+    SimulationOptions options = openLoop(180).executionMode(ExecutionMode.DISCRETE_EVENT).quiet(true);
+    MessageAlertSim sim = new MessageAlertSim(20000, 10, 0.0, 50, 1, options);
+    sim.go();
+
+    String matching = new QueueingModel(20000, 10, 0.0, 50, options)
+        .compare(sim.getStats(), sim.getElapsedSeconds());
+    assertTrue(matching.contains("Queueing Model: M/G/10, offered load 9.00 senders"));
+    assertTrue(matching.contains("Throughput (msgs/sec)"));
+    assertTrue(matching.contains("p99 Latency (ms)"));
+    String[] lines = matching.split("\n");
+    for (String line : lines) {
+      if (line.startsWith("Utilization") || line.startsWith("Throughput") || line.startsWith("Average Latency")) {
+        assertFalse(line.contains("diverges"), line);
+      }
+    }
+
+    String mismatched = new QueueingModel(20000, 20, 0.0, 50, options)
+        .compare(sim.getStats(), sim.getElapsedSeconds());
+    assertTrue(mismatched.contains("diverges"));
+  }
+
+  /**
+   * Tests that invalid arguments are rejected
+   */
+  @Test
+  void testInvalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new QueueingModel(0, 1, 0.0, 10, openLoop(10)));
+    assertThrows(IllegalArgumentException.class, () -> new QueueingModel(10, 1, 1.0, 10, openLoop(10)));
+    assertThrows(IllegalArgumentException.class, () -> new QueueingModel(10, 1, 0.0, 10, null));
+    assertThrows(IllegalArgumentException.class, () -> new QueueingModel(10, 1, 0.0, 10,
+        new SimulationOptions().productionMode(ProductionMode.OPEN_LOOP)));
+    assertThrows(IllegalArgumentException.class, () -> new QueueingModel(10, 1, 0.0, 10, openLoop(10))
+        .getLatencyPercentile(100));
+  }
+}
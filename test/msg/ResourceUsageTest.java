@@ -0,0 +1,74 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the per-run thread and memory measurements
+ */
+class ResourceUsageTest {
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+  /**
+   * Tests that starting a measurement leaves the JVM-wide peak thread count alone,
+   * so concurrent runs do not reset each other's figures
+   */
+  @Test
+  void testDoesNotResetJvmPeak() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    List<Thread> started = startWaiting(20, release);
+    int peak = threads.getPeakThreadCount();
+    release.countDown();
+    for (Thread thread : started) {
+      thread.join();
+    }
+
+    new ResourceUsage();
+    assertTrue(threads.getPeakThreadCount() >= peak);
+  }
+
+  /**
+   * Tests that threads started during a run count towards its sampled peak
+   */
+  @Test
+  void testSampledPeak() throws InterruptedException {
+    ResourceUsage usage = new ResourceUsage();
+    CountDownLatch release = new CountDownLatch(1);
+    List<Thread> started = startWaiting(10, release);
+    usage.sample();
+    release.countDown();
+    for (Thread thread : started) {
+      thread.join();
+    }
+
+    usage.sample();
+    assertTrue(usage.getPeakThreadCount() >= threads.getThreadCount() + 10);
+    assertTrue(usage.getPeakRssKb() > 0);
+  }
+
+  /**
+   * Helper method that starts threads which wait until released.
+   */
+  private static List<Thread> startWaiting(int count, CountDownLatch release) {
+    List<Thread> started = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      thread.start();
+      started.add(thread);
+    }
+    return started;
+  }
+}
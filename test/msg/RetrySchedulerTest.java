@@ -0,0 +1,100 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the RetryScheduler and the RetryPolicy it applies
+ */
+class RetrySchedulerTest {
+
+  /**
+   * Tests retry policy argument validation
+   */
+  @Test
+  void testInvalidPolicy() {
+    assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(0, 10, 100, 0.5));
+    assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(3, 100, 10, 0.5));
+    assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(3, 10, 100, 1.5));
+  }
+
+  /**
+   * Tests that the backoff doubles with each attempt and stops at the cap
+   */
+  @Test
+  void testExponentialBackoff() {
+    RetryPolicy policy = new RetryPolicy(10, 10, 100, 0.0);
+    Random random = new Random(1);
+    assertEquals(10, policy.backoffMillis(1, random));
+    assertEquals(20, policy.backoffMillis(2, random));
+    assertEquals(40, policy.backoffMillis(3, random));
+    assertEquals(80, policy.backoffMillis(4, random));
+    assertEquals(100, policy.backoffMillis(5, random));
+    assertEquals(100, policy.backoffMillis(100, random));
+  }
+
+  /**
+   * Tests that jitter keeps the backoff between the jittered floor and the full backoff
+   */
+  @Test
+  void testJitterBounds() {
+    RetryPolicy policy = new RetryPolicy(10, 100, 1000, 0.5);
+    Random random = new Random(1);
+    for (int i = 0; i < 1000; i++) {
+      long backoff = policy.backoffMillis(2, random);
+      assertTrue(backoff >= 100 && backoff <= 200);
+    }
+  }
+
+  /**
+   * Tests that a failed message with attempts left goes back on the queue
+   */
+  @Test
+  void testFailedMessageIsRequeued() throws InterruptedException {
+    IMessageQueue queue = new BlockingMessageQueue();
+    MessageStats stats = new MessageStats();
+    RetryScheduler retries = new RetryScheduler(queue, new RetryPolicy(3, 5, 50, 0.0), stats);
+    Thread retryThread = new Thread(retries);
+    retryThread.start();
+
+    Message message = new Message("test");
+    message.incrementAttempts();
+    message.setFailed(true);
+    message.setSentTime(System.currentTimeMillis());
+    retries.complete(message);
+
+    assertSame(message, queue.remove());
+    assertEquals(1, stats.getRetryCount());
+    assertEquals(0, stats.getFailedCount());
+
+    retryThread.interrupt();
+    retryThread.join();
+  }
+
+  /**
+   * Tests that a message out of attempts is recorded as failed instead of retried
+   */
+  @Test
+  void testExhaustedMessageIsRecordedAsFailed() {
+    IMessageQueue queue = new BlockingMessageQueue();
+    MessageStats stats = new MessageStats();
+    RetryScheduler retries = new RetryScheduler(queue, new RetryPolicy(2, 5, 50, 0.0), stats);
+
+    Message message = new Message("test");
+    message.incrementAttempts();
+    message.incrementAttempts();
+    message.setFailed(true);
+    message.setSentTime(System.currentTimeMillis());
+    retries.complete(message);
+
+    assertEquals(0, retries.pending());
+    assertEquals(1, stats.getFailedCount());
+    assertEquals(0, stats.getRetryCount());
+  }
+}
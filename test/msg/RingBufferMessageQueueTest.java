@@ -0,0 +1,202 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the lock-free RingBufferMessageQueue
+ */
+class RingBufferMessageQueueTest {
+
+  /**
+   * Tests constructor validation and power of two rounding
+   */
+  @Test
+  void testCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new RingBufferMessageQueue(0));
+    assertEquals(8, new RingBufferMessageQueue(5).capacity());
+    assertEquals(16, new RingBufferMessageQueue(16).capacity());
+  }
+
+  /**
+   * Tests that messages come out in the order they went in
+   */
+  @Test
+  void testFifoOrder() throws InterruptedException {
+    RingBufferMessageQueue queue = new RingBufferMessageQueue(4);
+    Message first = new Message("first");
+    Message second = new Message("second");
+    queue.add(first);
+    queue.add(second);
+
+    assertEquals(2, queue.size());
+    assertSame(first, queue.remove());
+    assertSame(second, queue.remove());
+    assertTrue(queue.isEmpty());
+  }
+
+  /**
+   * Tests that offer and poll report a full and an empty ring
+   */
+  @Test
+  void testOfferAndPollBounds() {
+    RingBufferMessageQueue queue = new RingBufferMessageQueue(2);
+    assertNull(queue.poll());
+    assertTrue(queue.offer(new Message("a")));
+    assertTrue(queue.offer(new Message("b")));
+    assertFalse(queue.offer(new Message("c")));
+    assertEquals(2, queue.size());
+  }
+
+  /**
+   * Tests that batch add and drain keep order and respect the drain limit
+   */
+  @Test
+  void testAddAllAndDrainTo() throws InterruptedException {
+    RingBufferMessageQueue queue = new RingBufferMessageQueue(4);
+    List<Message> messages = Arrays.asList(new Message("a"), new Message("b"), new Message("c"));
+    queue.addAll(messages);
+
+    List<Message> drained = new ArrayList<>();
+    assertEquals(2, queue.drainTo(drained, 2));
+    assertEquals(1, queue.drainTo(drained, 10));
+    assertEquals(messages, drained);
+    assertTrue(queue.isEmpty());
+  }
+
+  /**
+   * Tests that a batch larger than the ring is added as space frees up
+   */
+  @Test
+  void testAddAllLargerThanCapacity() throws InterruptedException {
+    RingBufferMessageQueue queue = new RingBufferMessageQueue(2);
+    List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      messages.add(new Message("m" + i));
+    }
+    Thread producer = new Thread(() -> {
+      try {
+        queue.addAll(messages);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+
+    List<Message> drained = new ArrayList<>();
+    while (drained.size() < messages.size()) {
+      queue.drainTo(drained, 3);
+    }
+    producer.join();
+    assertEquals(messages, drained);
+  }
+
+  /**
+   * Tests that no message is lost or duplicated with several producers and consumers
+   */
+  @Test
+  void testConcurrentProducersAndConsumers() throws InterruptedException {
+    RingBufferMessageQueue queue = new RingBufferMessageQueue(8);
+    int producers = 4;
+    int perProducer = 5000;
+    Set<Message> received = ConcurrentHashMap.newKeySet();
+    Set<Message> sent = ConcurrentHashMap.newKeySet();
+
+    Thread[] threads = new Thread[producers * 2];
+    for (int p = 0; p < producers; p++) {
+      threads[p] = new Thread(() -> {
+        try {
+          for (int i = 0; i < perProducer; i++) {
+            Message message = new Message("m" + i);
+            sent.add(message);
+            queue.add(message);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      threads[producers + p] = new Thread(() -> {
+        try {
+          for (int i = 0; i < perProducer; i++) {
+            received.add(queue.remove());
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(producers * perProducer, received.size());
+    assertEquals(new HashSet<>(sent), new HashSet<>(received));
+    assertTrue(queue.isEmpty());
+  }
+
+  /**
+   * Tests that a single batch reaches every idle consumer and a single drain reaches
+   * every blocked producer, although each transition wakes only one waiter
+   */
+  @Test
+  void testWakeupsPassFromWaiterToWaiter() throws InterruptedException {
+    RingBufferMessageQueue queue = new RingBufferMessageQueue(4);
+    Set<Message> received = ConcurrentHashMap.newKeySet();
+    Thread[] consumers = new Thread[4];
+    for (int i = 0; i < consumers.length; i++) {
+      consumers[i] = new Thread(() -> {
+        try {
+          received.add(queue.remove());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      consumers[i].start();
+    }
+    Thread.sleep(50);
+    List<Message> messages = Arrays.asList(new Message("a"), new Message("b"), new Message("c"),
+        new Message("d"));
+    queue.addAll(messages);
+    for (Thread consumer : consumers) {
+      consumer.join(2000);
+      assertFalse(consumer.isAlive());
+    }
+    assertEquals(new HashSet<>(messages), received);
+
+    queue.addAll(messages);
+    Thread[] producers = new Thread[4];
+    for (int i = 0; i < producers.length; i++) {
+      producers[i] = new Thread(() -> {
+        try {
+          queue.add(new Message("late"));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      producers[i].start();
+    }
+    Thread.sleep(50);
+    assertEquals(4, queue.drainTo(new ArrayList<>(), 4));
+    for (Thread producer : producers) {
+      producer.join(2000);
+      assertFalse(producer.isAlive());
+    }
+    assertEquals(4, queue.size());
+  }
+}
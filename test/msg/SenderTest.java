@@ -3,6 +3,8 @@ package msg;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -214,4 +216,89 @@ class SenderTest {
     assertTrue(stats.getSentCount() > 0);
     assertEquals(messageCount, stats.getSentCount() + stats.getFailedCount());
   }
-}
\ No newline at end of file
+
+  /**
+   * Tests that a batch-consuming sender processes every queued message
+   */
+  @Test
+  void testBatchMessageProcessing() throws InterruptedException {
+    sender = Sender.builder(messageQueue, SENDER_ID, 0.0, new UniformServiceTime(10), stats).batchSize(8).build();
+    Thread senderThread = new Thread(sender);
+
+    int messageCount = 20;
+    for (int i = 0; i < messageCount; i++) {
+      messageQueue.add(new Message("test" + i));
+    }
+
+    senderThread.start();
+    while (stats.getSentCount() + stats.getFailedCount() < messageCount) {
+      Thread.sleep(10);
+    }
+    senderThread.interrupt();
+
+    assertEquals(messageCount, stats.getSentCount());
+    assertTrue(messageQueue.isEmpty());
+  }
+
+  /**
+   * Tests that a non-positive batch size throws IllegalArgumentException
+   */
+  @Test
+  void testInvalidBatchSize() {
+    Exception e = assertThrows(IllegalArgumentException.class, () ->
+        Sender.builder(messageQueue, VALID_SENDER_ID, VALID_FAILURE_RATE,
+            new UniformServiceTime(VALID_MEAN_DELAY), stats).batchSize(0));
+    assertEquals("batchSize must be positive", e.getMessage());
+  }
+
+  /**
+   * Tests that interrupting a sender in the middle of a send finishes and records
+   * that message before the sender stops
+   */
+  @Test
+  void testInterruptFinishesSend() throws InterruptedException {
+    sender = new Sender(messageQueue, SENDER_ID, 0.0, MEAN_DELAY, stats);
+    Thread senderThread = new Thread(sender);
+    Message testMessage = new Message("test");
+    messageQueue.add(testMessage);
+
+    senderThread.start();
+    while (testMessage.getSendStartNanos() == 0) {
+      Thread.sleep(1);
+    }
+    senderThread.interrupt();
+    senderThread.join(2000);
+
+    assertFalse(senderThread.isAlive());
+    assertEquals(1, stats.getSentCount());
+    assertTrue(testMessage.getCompletedNanos() != 0);
+  }
+
+  /**
+   * Tests that interrupting senders held back by an open circuit breaker leaves
+   * their messages on the queue, with and without batches
+   */
+  @Test
+  void testInterruptWhileBreakerOpenKeepsMessages() throws InterruptedException {
+    for (int batchSize : new int[] {1, 4}) {
+      CircuitBreaker breaker = new CircuitBreaker(1, 1.0, 10_000, stats);
+      breaker.onResult(breaker.tryAcquire(), true);
+      AdaptiveLimiter limiter = new AdaptiveLimiter(1, 4, 1000, 0.5, breaker, stats);
+      sender = Sender.builder(messageQueue, SENDER_ID, 0.0, new UniformServiceTime(MEAN_DELAY), stats)
+          .batchSize(batchSize).limiter(limiter).build();
+      messageQueue.add(new Message("first"));
+      messageQueue.add(new Message("second"));
+
+      Thread senderThread = new Thread(sender);
+      senderThread.start();
+      Thread.sleep(50);
+      senderThread.interrupt();
+      senderThread.join(2000);
+
+      assertFalse(senderThread.isAlive());
+      assertEquals(2, messageQueue.size());
+      assertEquals(0, stats.getSentCount() + stats.getFailedCount());
+      messageQueue.drainTo(new ArrayList<>(), 2);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the uniform, exponential, log-normal, Pareto and empirical service time models
+ */
+class ServiceTimeModelTest {
+  private static final int SAMPLES = 200_000;
+
+  /**
+   * Helper method that returns the sorted send durations drawn from a model, in milliseconds
+   */
+  private static double[] draw(ServiceTimeModel model) {
+    Random random = new Random(7);
+    double[] samples = new double[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) {
+      long nanos = model.nextServiceTime(random);
+      assertTrue(nanos >= 0);
+      samples[i] = nanos / 1e6;
+    }
+    Arrays.sort(samples);
+    return samples;
+  }
+
+  /**
+   * Helper method that returns the mean of the samples
+   */
+  private static double mean(double[] samples) {
+    return Arrays.stream(samples).average().orElse(0);
+  }
+
+  /**
+   * Tests that every model averages its configured mean
+   */
+  @Test
+  void testMeans() {
+    assertEquals(10.0, mean(draw(new UniformServiceTime(10))), 0.1);
+    assertEquals(10.0, mean(draw(new ExponentialServiceTime(10))), 0.2);
+    assertEquals(10.0, mean(draw(new LogNormalServiceTime(10, 1.0))), 0.3);
+    assertEquals(10.0, mean(draw(new ParetoServiceTime(10, 3.0))), 0.3);
+  }
+
+  /**
+   * Helper method that returns the variance of the samples
+   */
+  private static double variance(double[] samples) {
+    double mean = mean(samples);
+    return Arrays.stream(samples).map(sample -> (sample - mean) * (sample - mean)).average().orElse(0);
+  }
+
+  /**
+   * Tests that every model reports the variance of the durations it draws
+   */
+  @Test
+  void testVariances() {
+    assertEquals(100.0 / 3, new UniformServiceTime(10).getVariance(), 1e-9);
+    assertEquals(100.0 / 3, variance(draw(new UniformServiceTime(10))), 0.5);
+    assertEquals(100.0, new ExponentialServiceTime(10).getVariance(), 1e-9);
+    assertEquals(100.0, variance(draw(new ExponentialServiceTime(10))), 3.0);
+    assertEquals(100.0 * (Math.E - 1), new LogNormalServiceTime(10, 1.0).getVariance(), 1e-9);
+    assertEquals(171.8, variance(draw(new LogNormalServiceTime(10, 1.0))), 15.0);
+    assertEquals(12.5, new ParetoServiceTime(10, 4.0).getVariance(), 1e-9);
+    assertEquals(12.5, variance(draw(new ParetoServiceTime(10, 4.0))), 2.0);
+    assertEquals(Double.POSITIVE_INFINITY, new ParetoServiceTime(10, 2.0).getVariance());
+    EmpiricalServiceTime empirical = new EmpiricalServiceTime(new double[] {2, 100}, new long[] {90, 10});
+    assertEquals(variance(draw(empirical)), empirical.getVariance(), 5.0);
+  }
+
+  /**
+   * Tests that a 1 ms mean averages 1 ms, where whole-millisecond delays
+   * between 0 and twice the mean would only average 0.5 ms
+   */
+  @Test
+  void testOneMillisecondMean() {
+    assertEquals(1.0, mean(draw(new UniformServiceTime(1))), 0.01);
+    assertEquals(0.0, mean(draw(new UniformServiceTime(0))));
+  }
+
+  /**
+   * Tests that the heavy-tailed models have a longer p99 than the uniform model
+   */
+  @Test
+  void testTails() {
+    double uniform = draw(new UniformServiceTime(10))[SAMPLES * 99 / 100];
+    double exponential = draw(new ExponentialServiceTime(10))[SAMPLES * 99 / 100];
+    double logNormal = draw(new LogNormalServiceTime(10, 1.5))[SAMPLES * 99 / 100];
+    assertEquals(19.8, uniform, 0.2);
+    // The p99 of an exponential is ln(100) times the mean
+    assertEquals(46.1, exponential, 2.0);
+    assertTrue(logNormal > exponential);
+    // No Pareto duration is below the scale, mean * (alpha - 1) / alpha
+    assertTrue(draw(new ParetoServiceTime(10, 2.0))[0] >= 5.0);
+  }
+
+  /**
+   * Tests that an empirical model loaded from a file draws from its buckets in
+   * proportion to their counts
+   */
+  @Test
+  void testEmpiricalFromFile(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("latency.txt");
+    Files.write(file, Arrays.asList("# bound count", "2, 90", "4 0", "", "100,10"));
+    EmpiricalServiceTime model = EmpiricalServiceTime.load(file);
+
+    // 90% between 0 and 2 ms around 1 ms, 10% between 4 and 100 ms around 52 ms
+    assertEquals(6.1, model.getMean(), 1e-9);
+    double[] samples = draw(model);
+    assertEquals(6.1, mean(samples), 0.3);
+    assertTrue(samples[SAMPLES * 89 / 100] < 2.0);
+    assertTrue(samples[SAMPLES * 91 / 100] >= 4.0);
+  }
+
+  /**
+   * Tests that invalid models are rejected
+   */
+  @Test
+  void testInvalidModels(@TempDir Path dir) throws IOException {
+    assertThrows(IllegalArgumentException.class, () -> new UniformServiceTime(-1));
+    assertThrows(IllegalArgumentException.class, () -> new LogNormalServiceTime(10, 0));
+    assertThrows(IllegalArgumentException.class, () -> new ParetoServiceTime(10, 1.0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new EmpiricalServiceTime(new double[] {5, 2}, new long[] {1, 1}));
+    assertThrows(IllegalArgumentException.class,
+        () -> new EmpiricalServiceTime(new double[] {5}, new long[] {0}));
+    Path file = dir.resolve("bad.txt");
+    Files.write(file, Arrays.asList("1 2 3"));
+    assertThrows(IllegalArgumentException.class, () -> EmpiricalServiceTime.load(file));
+  }
+}
@@ -0,0 +1,195 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the ShardedMessageQueue and its work stealing shard views
+ */
+class ShardedMessageQueueTest {
+
+  /**
+   * Tests constructor and shard index validation
+   */
+  @Test
+  void testInvalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new ShardedMessageQueue(0, 4));
+    assertThrows(IllegalArgumentException.class, () -> new ShardedMessageQueue(2, 0));
+    assertThrows(IllegalArgumentException.class, () -> new ShardedMessageQueue(2, 4).shard(2));
+  }
+
+  /**
+   * Tests that a producer's round-robin cursor spreads its messages over the shards
+   */
+  @Test
+  void testRoundRobinSpreadsMessages() throws InterruptedException {
+    ShardedMessageQueue queue = new ShardedMessageQueue(2, 2);
+    Message first = new Message("first");
+    Message second = new Message("second");
+    queue.add(first);
+    queue.add(second);
+
+    assertEquals(2, queue.size());
+    Set<Message> received = new HashSet<>();
+    received.add(queue.shard(0).remove());
+    received.add(queue.shard(1).remove());
+    assertEquals(new HashSet<>(Arrays.asList(first, second)), received);
+    assertTrue(queue.isEmpty());
+  }
+
+  /**
+   * Tests that owners consume their own shard first and an idle consumer keeps
+   * stealing from the same peer until it has taken half of its backlog
+   */
+  @Test
+  void testStealHalfFromPeer() throws InterruptedException {
+    ShardedMessageQueue queue = new ShardedMessageQueue(2, 16,
+        ShardedMessageQueue.Partitioning.KEY, () -> new ParkingWaitStrategy(10));
+    List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      messages.add(new Message("same-key"));
+    }
+    queue.addAll(messages);
+
+    int owner = Math.floorMod("same-key".hashCode(), 2);
+    IMessageQueue thief = queue.shard(1 - owner);
+    assertSame(messages.get(0), thief.remove());
+    assertSame(messages.get(1), queue.shard(owner).remove());
+    assertSame(messages.get(2), thief.remove());
+    assertEquals(1, queue.size());
+  }
+
+  /**
+   * Tests that a draining consumer with an empty shard takes half a peer's
+   * backlog in one batch
+   */
+  @Test
+  void testDrainStealsHalfInOneBatch() throws InterruptedException {
+    ShardedMessageQueue queue = new ShardedMessageQueue(2, 16,
+        ShardedMessageQueue.Partitioning.KEY, () -> new ParkingWaitStrategy(10));
+    List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      messages.add(new Message("same-key"));
+    }
+    queue.addAll(messages);
+
+    int owner = Math.floorMod("same-key".hashCode(), 2);
+    List<Message> stolen = new ArrayList<>();
+    assertEquals(3, queue.shard(1 - owner).drainTo(stolen, 10));
+    assertEquals(messages.subList(0, 3), stolen);
+    assertEquals(2, queue.size());
+  }
+
+  /**
+   * Tests that idle consumers blocked on the default queue are woken by a message
+   * added to any shard
+   */
+  @Test
+  void testIdleConsumersWokenByAdd() throws InterruptedException {
+    ShardedMessageQueue queue = new ShardedMessageQueue(4, 8);
+    Set<Message> received = ConcurrentHashMap.newKeySet();
+    List<Thread> consumers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      IMessageQueue shard = queue.shard(i);
+      Thread consumer = new Thread(() -> {
+        try {
+          received.add(shard.remove());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      consumer.start();
+      consumers.add(consumer);
+    }
+    Thread.sleep(50);
+    for (int i = 0; i < 4; i++) {
+      queue.add(new Message("m" + i));
+    }
+    for (Thread consumer : consumers) {
+      consumer.join(2000);
+    }
+    assertEquals(4, received.size());
+    assertEquals(0, queue.size());
+  }
+
+  /**
+   * Tests that a consumer waiting on its own empty shard is woken to steal a
+   * message added to a shard that no consumer owns
+   */
+  @Test
+  void testIdleConsumerStealsFromUnownedShard() throws InterruptedException {
+    ShardedMessageQueue queue = new ShardedMessageQueue(2, 8,
+        ShardedMessageQueue.Partitioning.KEY, BlockingWaitStrategy::new);
+    int owner = Math.floorMod("key".hashCode(), 2);
+    AtomicReference<Message> received = new AtomicReference<>();
+    IMessageQueue shard = queue.shard(1 - owner);
+    Thread consumer = new Thread(() -> {
+      try {
+        received.set(shard.remove());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    consumer.start();
+    Thread.sleep(50);
+    Message message = new Message("key");
+    queue.add(message);
+    consumer.join(2000);
+    assertSame(message, received.get());
+  }
+
+  /**
+   * Tests that no message is lost with several producers and stealing consumers
+   */
+  @Test
+  void testConcurrentProducersAndConsumers() throws InterruptedException {
+    int shards = 4;
+    int perProducer = 5000;
+    ShardedMessageQueue queue = new ShardedMessageQueue(shards, 16);
+    Set<Message> received = ConcurrentHashMap.newKeySet();
+
+    Thread[] threads = new Thread[shards * 2];
+    for (int i = 0; i < shards; i++) {
+      IMessageQueue shard = queue.shard(i);
+      threads[i] = new Thread(() -> {
+        try {
+          for (int j = 0; j < perProducer; j++) {
+            queue.add(new Message("m" + j));
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      threads[shards + i] = new Thread(() -> {
+        try {
+          for (int j = 0; j < perProducer; j++) {
+            received.add(shard.remove());
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(shards * perProducer, received.size());
+    assertTrue(queue.isEmpty());
+  }
+}
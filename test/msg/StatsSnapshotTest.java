@@ -0,0 +1,180 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for immutable statistics snapshots and the deltas between them
+ */
+class StatsSnapshotTest {
+
+  /**
+   * Helper method that records a message with the given latency in milliseconds
+   */
+  private static void recordLatency(MessageStats stats, long millis) {
+    Message message = new Message("timed");
+    message.setIntendedTime(message.getCreationTime() - millis);
+    message.setSentTime(message.getCreationTime());
+    stats.record(message);
+  }
+
+  /**
+   * Tests that a snapshot does not change when the stats are updated afterwards
+   */
+  @Test
+  void testSnapshotIsImmutable() {
+    MessageStats stats = new MessageStats();
+    stats.incrementSent();
+    stats.addProcessingTime(10);
+    recordLatency(stats, 5);
+    StatsSnapshot snapshot = stats.snapshot();
+
+    stats.incrementSent();
+    stats.incrementFailed();
+    recordLatency(stats, 500);
+
+    assertEquals(2, snapshot.getSentCount());
+    assertEquals(0, snapshot.getFailedCount());
+    assertEquals(1, snapshot.getLatencyCount());
+    assertEquals(5.0, snapshot.getMaxLatency(), 0.1);
+  }
+
+  /**
+   * Tests that the delta between two snapshots covers only the messages in between
+   */
+  @Test
+  void testDelta() throws InterruptedException {
+    MessageStats stats = new MessageStats();
+    recordLatency(stats, 1);
+    StatsSnapshot first = stats.snapshot();
+    Thread.sleep(20);
+    for (int i = 0; i < 10; i++) {
+      recordLatency(stats, 100);
+    }
+    stats.incrementFailed();
+    StatsSnapshot second = stats.snapshot();
+
+    StatsSnapshot delta = second.minus(first);
+    assertEquals(10, delta.getSentCount());
+    assertEquals(1, delta.getFailedCount());
+    assertEquals(1000, delta.getTotalProcessingTime());
+    assertEquals(10, delta.getLatencyCount());
+    assertEquals(100.0, delta.getLatencyPercentile(0), 1.0);
+    assertTrue(delta.getElapsedSeconds() >= 0.02, "elapsed " + delta.getElapsedSeconds());
+    assertTrue(delta.getElapsedSeconds() < second.getElapsedSeconds());
+  }
+
+  /**
+   * Tests that per-second rates are counts divided by the elapsed time
+   */
+  @Test
+  void testRates() throws InterruptedException {
+    MessageStats stats = new MessageStats();
+    StatsSnapshot first = stats.snapshot();
+    Thread.sleep(50);
+    for (int i = 0; i < 30; i++) {
+      stats.incrementSent();
+    }
+    stats.incrementFailed();
+    StatsSnapshot delta = stats.snapshot().minus(first);
+
+    double elapsed = delta.getElapsedSeconds();
+    assertEquals(30 / elapsed, delta.getSentPerSecond(), 1e-9);
+    assertEquals(1 / elapsed, delta.getFailedPerSecond(), 1e-9);
+  }
+
+  /**
+   * Tests that a snapshot cannot be subtracted from an earlier one
+   */
+  @Test
+  void testMinusValidation() {
+    MessageStats stats = new MessageStats();
+    StatsSnapshot first = stats.snapshot();
+    StatsSnapshot second = stats.snapshot();
+    assertThrows(IllegalArgumentException.class, () -> second.minus(null));
+    assertThrows(IllegalArgumentException.class, () -> first.minus(second));
+  }
+
+  /**
+   * Tests that the decaying rate starts at the first rate seen and moves
+   * towards later rates faster for shorter windows
+   */
+  @Test
+  void testExponentialRate() {
+    ExponentialRate fast = new ExponentialRate(60);
+    ExponentialRate slow = new ExponentialRate(900);
+    assertEquals(0.0, fast.getRate());
+    fast.update(100, 1);
+    slow.update(100, 1);
+    assertEquals(100.0, fast.getRate(), 1e-9);
+
+    fast.update(0, 60);
+    slow.update(0, 60);
+    assertEquals(100 * Math.exp(-1), fast.getRate(), 1e-9);
+    assertTrue(slow.getRate() > fast.getRate());
+
+    fast.update(5, 0);
+    assertEquals(100 * Math.exp(-1), fast.getRate(), 1e-9);
+    assertThrows(IllegalArgumentException.class, () -> new ExponentialRate(0));
+  }
+
+  /**
+   * Tests that the decaying average starts at the first value seen and ignores
+   * updates that cover no time
+   */
+  @Test
+  void testExponentialAverage() {
+    ExponentialAverage average = new ExponentialAverage(60);
+    assertEquals(0.0, average.getValue());
+    average.update(10, 1);
+    assertEquals(10.0, average.getValue(), 1e-9);
+    average.update(20, 60);
+    assertEquals(20 - 10 * Math.exp(-1), average.getValue(), 1e-9);
+    average.update(1000, 0);
+    assertEquals(20 - 10 * Math.exp(-1), average.getValue(), 1e-9);
+    assertThrows(IllegalArgumentException.class, () -> new ExponentialAverage(-1));
+  }
+
+  /**
+   * Tests that the counts in a snapshot taken while senders record messages
+   * always agree with its latency count
+   */
+  @Test
+  void testSnapshotCountsAgreeWithLatency() throws InterruptedException {
+    MessageStats stats = new MessageStats();
+    Message sent = new Message("sent");
+    sent.setSentTime(sent.getCreationTime() + 1);
+    Message failed = new Message("failed");
+    failed.setSentTime(failed.getCreationTime() + 1);
+    failed.setFailed(true);
+    AtomicBoolean running = new AtomicBoolean(true);
+    List<Thread> senders = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Message message = i % 2 == 0 ? sent : failed;
+      senders.add(new Thread(() -> {
+        while (running.get()) {
+          stats.record(message);
+        }
+      }));
+    }
+    senders.forEach(Thread::start);
+    try {
+      for (int i = 0; i < 50; i++) {
+        StatsSnapshot snapshot = stats.snapshot();
+        assertEquals(snapshot.getSentCount() + snapshot.getFailedCount(), snapshot.getLatencyCount());
+      }
+    } finally {
+      running.set(false);
+      for (Thread sender : senders) {
+        sender.join();
+      }
+    }
+  }
+}
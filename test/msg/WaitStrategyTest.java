@@ -0,0 +1,163 @@
+package msg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the wait strategies used by the message queues
+ */
+class WaitStrategyTest {
+
+  /**
+   * Tests that every strategy returns once another thread makes the condition true
+   */
+  @Test
+  void testAwaitReturnsWhenConditionChanges() throws InterruptedException {
+    for (WaitStrategyType type : WaitStrategyType.values()) {
+      WaitStrategy strategy = type.create(10);
+      AtomicBoolean ready = new AtomicBoolean();
+      Thread waiter = new Thread(() -> {
+        try {
+          strategy.await(ready::get);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      waiter.start();
+      Thread.sleep(20);
+      ready.set(true);
+      strategy.signalAll();
+      waiter.join(2000);
+      assertFalse(waiter.isAlive(), type + " did not wake up");
+    }
+  }
+
+  /**
+   * Tests that signalling one waiter wakes each waiting thread in turn
+   */
+  @Test
+  void testSignalWakesOneWaiterAtATime() throws InterruptedException {
+    for (WaitStrategyType type : WaitStrategyType.values()) {
+      WaitStrategy strategy = type.create(10);
+      AtomicInteger permits = new AtomicInteger();
+      Thread[] waiters = new Thread[2];
+      for (int i = 0; i < waiters.length; i++) {
+        waiters[i] = new Thread(() -> {
+          try {
+            strategy.await(() -> {
+              int available = permits.get();
+              return available > 0 && permits.compareAndSet(available, available - 1);
+            });
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+        waiters[i].start();
+      }
+      Thread.sleep(20);
+      for (Thread waiter : waiters) {
+        permits.incrementAndGet();
+        strategy.signal();
+        Thread.sleep(20);
+      }
+      for (Thread waiter : waiters) {
+        waiter.join(2000);
+        assertFalse(waiter.isAlive(), type + " did not wake up");
+      }
+    }
+  }
+
+  /**
+   * Tests that every strategy stops waiting when the thread is interrupted
+   */
+  @Test
+  void testAwaitIsInterruptible() throws InterruptedException {
+    for (WaitStrategyType type : WaitStrategyType.values()) {
+      WaitStrategy strategy = type.create(10);
+      AtomicReference<Throwable> thrown = new AtomicReference<>();
+      Thread waiter = new Thread(() -> {
+        try {
+          strategy.await(() -> false);
+        } catch (InterruptedException e) {
+          thrown.set(e);
+        }
+      });
+      waiter.start();
+      Thread.sleep(20);
+      waiter.interrupt();
+      waiter.join(2000);
+      assertTrue(thrown.get() instanceof InterruptedException, type + " was not interrupted");
+    }
+  }
+
+  /**
+   * Tests constructor validation of the spin count
+   */
+  @Test
+  void testInvalidSpinTries() {
+    assertThrows(IllegalArgumentException.class, () -> new YieldingWaitStrategy(-1));
+    assertThrows(IllegalArgumentException.class, () -> new ParkingWaitStrategy(-1));
+  }
+
+  /**
+   * Tests constructor validation of the park timeouts
+   */
+  @Test
+  void testInvalidParkNanos() {
+    assertThrows(IllegalArgumentException.class, () -> new ParkingWaitStrategy(0, 0));
+    assertThrows(IllegalArgumentException.class, () -> new ParkingWaitStrategy(0, 1000, 999));
+  }
+
+  /**
+   * Tests that a parked thread is woken by a signal long before its park timeout
+   */
+  @Test
+  void testParkedThreadWokenBySignal() throws InterruptedException {
+    WaitStrategy strategy = new ParkingWaitStrategy(0, TimeUnit.SECONDS.toNanos(30));
+    AtomicBoolean ready = new AtomicBoolean();
+    Thread waiter = new Thread(() -> {
+      try {
+        strategy.await(ready::get);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    waiter.start();
+    Thread.sleep(50);
+    ready.set(true);
+    strategy.signalAll();
+    waiter.join(2000);
+    assertFalse(waiter.isAlive());
+  }
+
+  /**
+   * Tests that a queue configured with a blocking strategy hands a message to a waiting consumer
+   */
+  @Test
+  void testQueueWithBlockingStrategy() throws InterruptedException {
+    IMessageQueue queue = new RingBufferMessageQueue(4, BlockingWaitStrategy::new);
+    AtomicReference<Message> received = new AtomicReference<>();
+    Thread consumer = new Thread(() -> {
+      try {
+        received.set(queue.remove());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    consumer.start();
+    Thread.sleep(20);
+    Message message = new Message("hello");
+    queue.add(message);
+    consumer.join(2000);
+    assertEquals(message, received.get());
+  }
+}